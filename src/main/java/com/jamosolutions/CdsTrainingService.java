@@ -0,0 +1,94 @@
+package com.jamosolutions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Minimal jamo automator service on loopback, used by <code>--cds-training</code> of {@link JamoAutomatorCli}. It
+ * implements only login, run requests and reports: each execution is finished at once and successfully. Other
+ * endpoints are answered with 404, as by service without them.
+ */
+class CdsTrainingService implements AutoCloseable {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final HttpServer httpServer;
+    private final AtomicLong executionSequence = new AtomicLong(0);
+
+    private CdsTrainingService(HttpServer httpServer) {
+        this.httpServer = httpServer;
+    }
+
+    static CdsTrainingService start() {
+        final HttpServer httpServer;
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to start training service. ex=" + ex.getMessage(), ex);
+        }
+        final CdsTrainingService service = new CdsTrainingService(httpServer);
+        httpServer.createContext("/rest/login", service::handleLogin);
+        httpServer.createContext("/rest/integration/", service::handleIntegration);
+        httpServer.start();
+        return service;
+    }
+
+    /**
+     * @return base url of service, to be used as <code>url</code> of test suite
+     */
+    String getUrl() {
+        return "http://127.0.0.1:" + httpServer.getAddress().getPort();
+    }
+
+    private void handleLogin(HttpExchange exchange) throws IOException {
+        final Map<String, Object> loginStatus = new LinkedHashMap<>();
+        loginStatus.put("success", true);
+        loginStatus.put("userKeyString", "training-user-key");
+        exchange.getResponseHeaders().add("X-AUTH-TOKEN", "training-auth-token");
+        respondJson(exchange, loginStatus);
+    }
+
+    private void handleIntegration(HttpExchange exchange) throws IOException {
+        final String path = exchange.getRequestURI().getPath().substring("/rest/integration/".length());
+        if (path.startsWith("run")) {
+            final Map<String, Object> wrapper = new LinkedHashMap<>();
+            wrapper.put("success", true);
+            wrapper.put("message", "training-" + executionSequence.incrementAndGet());
+            wrapper.put("data", null);
+            respondJson(exchange, wrapper);
+        } else if (path.startsWith("report/")) {
+            final long nowMillis = System.currentTimeMillis();
+            final Map<String, Object> report = new LinkedHashMap<>();
+            report.put("executionId", path.substring("report/".length()));
+            report.put("status", 0L);
+            report.put("creationDate", nowMillis);
+            report.put("endDate", nowMillis);
+            respondJson(exchange, report);
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        }
+    }
+
+    private static void respondJson(HttpExchange exchange, Object body) throws IOException {
+        final byte[] bytes = OBJECT_MAPPER.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+    }
+}
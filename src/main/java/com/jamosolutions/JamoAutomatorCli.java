@@ -0,0 +1,194 @@
+package com.jamosolutions;
+
+import com.jamosolutions.automator.JamoAutomatorMojo;
+import com.jamosolutions.automator.domain.Credentials;
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import com.jamosolutions.automator.domain.TestSuite;
+import com.jamosolutions.automator.help.SuiteResourceCache;
+import org.apache.maven.monitor.logging.DefaultLog;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.plexus.logging.Logger;
+import org.codehaus.plexus.logging.console.ConsoleLogger;
+import org.fusesource.jansi.Ansi;
+import org.fusesource.jansi.AnsiConsole;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Command line launcher of "run" goal, which does not need maven (see <code>src/main/cli</code> and <code>cli</code>
+ * profile). Usage:
+ * <pre>
+ * jamo [-X] [--parameter=value ...] descriptor.xml
+ * </pre>
+ * Parameters have same names as parameters of "run" goal in configuration of plugin (for example
+ * <code>--retest=true --schedulingPolicy=LONGEST_FIRST</code>), <code>--parameter</code> alone means
+ * <code>--parameter=true</code>. Reports are written under <code>target</code> of current directory.
+ * <p>
+ * Option <code>--cds-training</code> executes small suite against embedded service (see {@link CdsTrainingService}),
+ * so that classes used by real suite can be dumped into class data sharing archive (see launcher script).
+ */
+public class JamoAutomatorCli {
+    public static final int EXIT_SUCCESS = 0;
+    public static final int EXIT_FAILURE = 1;
+    public static final int EXIT_USAGE = 2;
+
+    private static final String USAGE = "Usage: jamo [-X] [--parameter=value ...] descriptor.xml\n" +
+            "  -X, --debug       debug log level\n" +
+            "  --parameter=value parameter of \"run\" goal (same name as in configuration of plugin)\n" +
+            "  --cds-training    execute training suite against embedded service (used to create class data sharing archive)\n" +
+            "  -h, --help        this help";
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) {
+        boolean debug = false;
+        boolean cdsTraining = false;
+        String descriptor = null;
+        final Map<String, String> parameters = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (arg.equals("-X") || arg.equals("--debug")) {
+                debug = true;
+            } else if (arg.equals("-h") || arg.equals("--help")) {
+                System.out.println(USAGE);
+                return EXIT_SUCCESS;
+            } else if (arg.equals("--cds-training")) {
+                cdsTraining = true;
+            } else if (arg.startsWith("--") && arg.length() > 2) {
+                final int separator = arg.indexOf('=');
+                if (separator < 0) {
+                    parameters.put(arg.substring(2), "true");
+                } else {
+                    parameters.put(arg.substring(2, separator), arg.substring(separator + 1));
+                }
+            } else if (descriptor == null && !arg.startsWith("-")) {
+                descriptor = arg;
+            } else {
+                System.err.println("Unexpected argument " + arg + "\n" + USAGE);
+                return EXIT_USAGE;
+            }
+        }
+        if (descriptor == null && !cdsTraining) {
+            System.err.println("Descriptor has not been set.\n" + USAGE);
+            return EXIT_USAGE;
+        }
+
+        // native part of jansi is loaded only for interactive console, build servers get plain text
+        final boolean interactive = System.console() != null;
+        if (interactive) {
+            AnsiConsole.systemInstall();
+        } else {
+            Ansi.setEnabled(false);
+        }
+        final Log log = new DefaultLog(new ConsoleLogger(debug ? Logger.LEVEL_DEBUG : Logger.LEVEL_INFO, "jamo"));
+        try {
+            if (cdsTraining) {
+                return runTraining(log, parameters);
+            }
+            final File testSuiteFile = new File(descriptor);
+            if (!testSuiteFile.isFile()) {
+                log.error("Descriptor " + testSuiteFile.getAbsolutePath() + " does not exist.");
+                return EXIT_USAGE;
+            }
+            return execute(log, new File("."), testSuiteFile, parameters);
+        } catch (RuntimeException e) {
+            log.error(e.getMessage(), debug ? e : null);
+            return EXIT_USAGE;
+        } finally {
+            if (interactive) {
+                AnsiConsole.systemUninstall();
+            }
+        }
+    }
+
+    private static int execute(Log log, File baseDir, File testSuiteFile, Map<String, String> parameters) {
+        final JamoAutomatorMojo jamoAutomatorMojo = JamoAutomatorMojo.forCommandLine(baseDir, testSuiteFile, parameters, new SuiteResourceCache());
+        jamoAutomatorMojo.setLog(log);
+        try {
+            jamoAutomatorMojo.execute();
+            return EXIT_SUCCESS;
+        } catch (MojoExecutionException e) {
+            log.error(e.getMessage(), e);
+            return EXIT_FAILURE;
+        }
+    }
+
+    /**
+     * Execute suite of two test cases on single device against embedded service, in temporary directory (so that
+     * user's duration history and leases are not touched).
+     */
+    private static int runTraining(Log log, Map<String, String> parameters) {
+        final Path workDir;
+        try {
+            workDir = Files.createTempDirectory("jamo-cds-training");
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to create temporary directory for training. ex=" + e.getMessage(), e);
+        }
+        try (CdsTrainingService service = CdsTrainingService.start()) {
+            final File testSuiteFile = workDir.resolve("training.xml").toFile();
+            writeStubDescriptor(testSuiteFile, service.getUrl(), 2);
+            final Map<String, String> trainingParameters = new LinkedHashMap<>(parameters);
+            trainingParameters.putIfAbsent("durationHistoryFile", workDir.resolve("durationHistory.csv").toString());
+            trainingParameters.putIfAbsent("deviceLeaseDirectory", workDir.resolve("leases").toString());
+            return execute(log, workDir.toFile(), testSuiteFile, trainingParameters);
+        } finally {
+            deleteRecursively(workDir);
+        }
+    }
+
+    /**
+     * Write descriptor of suite with single device and given number of test cases, executed by service at given url.
+     */
+    static void writeStubDescriptor(File file, String url, int testCaseCount) {
+        final Credentials credentials = new Credentials();
+        credentials.setAccount("stub");
+        credentials.setUsername("stub");
+        credentials.setPassword("stub");
+        final List<TestCase> testCases = new ArrayList<>();
+        for (int i = 1; i <= testCaseCount; i++) {
+            final TestCase testCase = new TestCase();
+            testCase.setName("stubTest" + i);
+            testCase.setTimeout(1);
+            testCases.add(testCase);
+        }
+        final Device device = new Device();
+        device.setName("stubDevice");
+        device.setTestCases(testCases);
+        final List<Device> devices = new ArrayList<>();
+        devices.add(device);
+        final TestSuite testSuite = new TestSuite();
+        testSuite.setName("stub");
+        testSuite.setUrl(url);
+        testSuite.setCredentials(credentials);
+        testSuite.setDevices(devices);
+        try {
+            final Marshaller marshaller = new SuiteResourceCache().getTestSuiteContext().createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+            marshaller.marshal(testSuite, file);
+        } catch (JAXBException e) {
+            throw new RuntimeException("Unable to write descriptor " + file.getAbsolutePath() + ". ex=" + e.getMessage(), e);
+        }
+    }
+
+    static void deleteRecursively(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        } catch (IOException e) {
+            // temporary directory only
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.jamosolutions.automator;
 
+import com.jamosolutions.automator.domain.Backend;
+import com.jamosolutions.automator.domain.Credentials;
 import com.jamosolutions.automator.domain.Device;
 import com.jamosolutions.automator.domain.TestCase;
 import com.jamosolutions.automator.domain.TestSuite;
@@ -19,17 +21,41 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import static com.jamosolutions.automator.help.Colorizer.colorize;
+import static com.jamosolutions.automator.help.Colorizer.device;
+import static com.jamosolutions.automator.help.Colorizer.testCase;
 
 /**
  * Run tests on given devices. List of tests/devices is taken from "descriptor" parameter.
  */
-@Mojo(name = "run", requiresOnline = true)
+@Mojo(name = "run", requiresOnline = true, threadSafe = true)
 public class JamoAutomatorMojo extends AbstractMojo {
     public static final long WAIT_ROUND_DURATION_MS = 5000;
+    /**
+     * Coordinator does not call jamo service, so that it can process results of workers more often.
+     */
+    public static final long COORDINATOR_ROUND_DURATION_MS = 1000;
 	//show tests in progress
 	//https://wiki.jenkins-ci.org/display/JENKINS/Test+In+Progress+Plugin
 	//maven version plugin
@@ -44,6 +70,10 @@ public class JamoAutomatorMojo extends AbstractMojo {
 	/**
 	 * Default value for test descriptor (xml file with list of devices and tests to run on them) is
 	 * <b>src/main/resources/testsuite.xml</b>.
+	 * <p>
+	 * Devices can be spread over several jamo services (or accounts) by <code>backend</code> elements, each with
+	 * own <code>url</code> and <code>name</code> attributes, credentials and devices. Each backend has its own login,
+	 * rate limits and retries, results of all of them are reported together.
 	 */
 	@Parameter(defaultValue = "${suite}")
 	private String descriptor;
@@ -59,11 +89,527 @@ public class JamoAutomatorMojo extends AbstractMojo {
 	 *     <li>Timeout-ed test execution</li>
 	 * </ul>
 	 *
-	 * NOTE: Some negative outcomes are retried uselessly. For example failed execution attempt with wrong name of test.
+	 * Failed execution attempts are classified first: attempt with wrong name of test is never retried, attempt on
+	 * offline device is retried after delay without consuming retest (see {@link #offlineDeviceRetries}) and request
+	 * failed on authentication is repeated once after login token refresh.
+	 * <p>
+	 * Retests wait for delay given by outcome (see {@link #retryDelayFailure}) and device executes other tests
+	 * meanwhile.
 	 */
 	@Parameter(defaultValue = "false")
 	private boolean retest;
 
+	/**
+	 * File with history of test durations (per device and test case). It is used for estimating remaining time of
+	 * suite execution and it is updated after each execution. Keep it outside of <code>target</code> folder (or cache it
+	 * in your CI), as history is useful only if it survives between builds. Default is
+	 * <b>${user.home}/.jamoautomator/durationHistory.csv</b>.
+	 */
+	@Parameter(defaultValue = "${user.home}/.jamoautomator/durationHistory.csv")
+	private File durationHistoryFile;
+
+	/**
+	 * When enabled, timeout of each test run is computed from duration history (see {@link #durationHistoryFile}) as
+	 * {@link #adaptiveTimeoutPercentile} percentile of historical durations plus {@link #adaptiveTimeoutMargin} percents.
+	 * Timeout configured for test case in descriptor is used as upper bound, and also when there is not enough history
+	 * or when test run is retry. Hung tests then free their devices much sooner than after configured timeout.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean adaptiveTimeout;
+
+	/**
+	 * Percentile of historical durations used as base for adaptive timeout. See {@link #adaptiveTimeout}.
+	 */
+	@Parameter(defaultValue = "95")
+	private int adaptiveTimeoutPercentile = 95;
+
+	/**
+	 * Margin (in percents) added on top of percentile of historical durations. See {@link #adaptiveTimeout}.
+	 */
+	@Parameter(defaultValue = "50")
+	private int adaptiveTimeoutMargin = 50;
+
+	/**
+	 * Minimal number of historical samples needed for using adaptive timeout for (device, testCase) pair.
+	 */
+	@Parameter(defaultValue = "5")
+	private int adaptiveTimeoutMinSamples = 5;
+
+	/**
+	 * Lower bound (in seconds) for adaptive timeout, so that very short tests are not timeouted by small hiccup.
+	 */
+	@Parameter(defaultValue = "60")
+	private int adaptiveTimeoutMinSeconds = 60;
+
+	/**
+	 * Interval (in seconds) of checking liveness of running tests and their devices using jamo automator service. Test
+	 * run on device which went offline (or execution which service does not know anymore) is finished as timeout
+	 * without waiting for its whole timeout and it is rescheduled (see {@link #livenessReschedules}). Zero (default)
+	 * disables liveness checks.
+	 */
+	@Parameter(defaultValue = "0")
+	private int livenessCheckInterval = 0;
+
+	/**
+	 * How many times can be test run lost by liveness check rescheduled, without counting it as retest (see
+	 * {@link #retest}).
+	 */
+	@Parameter(defaultValue = "1")
+	private int livenessReschedules = 1;
+
+	/**
+	 * When enabled, timed out (or lost, see {@link #livenessCheckInterval}) executions are stopped on jamo automator
+	 * service, and next test is sent to their device only after stop is confirmed. Without it, device can still run
+	 * hung test and next test on it fails, or waits behind it.
+	 * <p>
+	 * Disabled by default, because stop (<code>/rest/integration/stop/{executionId}</code>) and execution status
+	 * endpoints are not part of documented integration api. Enable it only for service, which provides them.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean cancelTimedOutExecutions = false;
+
+	/**
+	 * Maximal time (in seconds) to wait for confirmation of stop of timed out execution. See
+	 * {@link #cancelTimedOutExecutions}.
+	 */
+	@Parameter(defaultValue = "120")
+	private int cancelConfirmationTimeout = 120;
+
+	/**
+	 * Abort suite after this number of consecutive negative outcomes (failure, execution error, timeout). Zero
+	 * (default) disables this rule. When suite is aborted, no new test is started, no retest is done and all remaining
+	 * tests are reported as skipped. See also {@link #abortFailureRatio}, {@link #abortWhenAllDevicesFailSameTest} and
+	 * {@link #abortInFlight}. Execution errors of offline device, missing test case and failed login are not counted
+	 * by any rule (they do not say anything about build).
+	 */
+	@Parameter(defaultValue = "0")
+	private int abortAfterConsecutiveFailures = 0;
+
+	/**
+	 * Abort suite when ratio of negative outcomes reaches this value (for example 0.8), after at least
+	 * {@link #abortMinSample} test runs have finished. Zero (default) disables this rule.
+	 */
+	@Parameter(defaultValue = "0")
+	private double abortFailureRatio = 0;
+
+	/**
+	 * Minimal number of finished test runs before {@link #abortFailureRatio} is evaluated.
+	 */
+	@Parameter(defaultValue = "10")
+	private int abortMinSample = 10;
+
+	/**
+	 * Abort suite when all devices (at least two) planned for some test case have failed it. Only final attempts
+	 * count, i.e. test, which passes on retest, does not trigger this rule.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean abortWhenAllDevicesFailSameTest;
+
+	/**
+	 * What to do with running tests when suite is aborted. <b>DRAIN</b> (default) waits for them to finish,
+	 * <b>CANCEL</b> stops them and reports them as skipped.
+	 */
+	@Parameter(defaultValue = "DRAIN")
+	private String abortInFlight = "DRAIN";
+
+	/**
+	 * Comma separated list of tags (see <code>tags</code> attribute of testcase in descriptor) of smoke tests. When
+	 * set, suite is executed in two stages. First stage runs tagged test cases on single device from each pool (see
+	 * <code>pool</code> attribute of device in descriptor). Full device × testcase matrix is started only when all
+	 * smoke tests pass, otherwise it is reported as skipped. Empty (default) disables staged execution.
+	 */
+	@Parameter
+	private String smokeTags;
+
+	/**
+	 * Time budget of suite in minutes. When set, test runs which maximize {@link #timeBudgetObjective} and are expected
+	 * to finish within budget (based on duration history, or timeouts when there is no history) are selected before
+	 * start, others are reported as skipped. During execution, no test run is started, if it is not expected to finish
+	 * before end of budget. Zero (default) means no budget.
+	 */
+	@Parameter(defaultValue = "0")
+	private int timeBudget = 0;
+
+	/**
+	 * What to maximize when selecting test runs for {@link #timeBudget}. <b>COUNT</b> (default) maximizes number of
+	 * executed test runs, <b>PRIORITY</b> maximizes sum of <code>priority</code> attributes of executed test cases.
+	 */
+	@Parameter(defaultValue = "COUNT")
+	private String timeBudgetObjective = "COUNT";
+
+	/**
+	 * Order in which planned test runs are started on each device. <b>FIFO</b> (default) keeps descriptor order with
+	 * retests at the end, <b>LONGEST_FIRST</b> and <b>SHORTEST_FIRST</b> use expected duration from duration history
+	 * (timeout when there is no history), <b>PREVIOUSLY_FAILING_FIRST</b> starts retests and tests which failed last
+	 * time first and <b>PRIORITY_EDF</b> orders by <code>priority</code> attribute of test case (higher first) and
+	 * than by its <code>deadline</code> attribute (minutes from start, earliest first).
+	 */
+	@Parameter(defaultValue = "FIFO")
+	private String schedulingPolicy = "FIFO";
+
+	/**
+	 * Maximal number of test execution requests per second sent to jamo automator service. Devices, which would exceed
+	 * it, get their test in next rounds, so start of big suite is staggered. Rate is lowered automatically (and than
+	 * slowly raised back) when service responds with errors, or slowly (see {@link #apiLatencyThreshold}). Zero
+	 * disables limit.
+	 */
+	@Parameter(defaultValue = "2")
+	private double runRequestsPerSecond = 2;
+
+	/**
+	 * Maximal number of test execution requests sent at once. See {@link #runRequestsPerSecond}.
+	 */
+	@Parameter(defaultValue = "5")
+	private int runRequestsBurst = 5;
+
+	/**
+	 * Maximal number of report requests per second. Reports which would exceed it are asked in next round (reports
+	 * waiting longest go first). Zero disables limit.
+	 */
+	@Parameter(defaultValue = "20")
+	private double reportRequestsPerSecond = 20;
+
+	/**
+	 * Maximal number of report requests sent at once. See {@link #reportRequestsPerSecond}.
+	 */
+	@Parameter(defaultValue = "100")
+	private int reportRequestsBurst = 100;
+
+	/**
+	 * Maximal number of login requests per minute. Login, which would exceed it, waits. Zero disables limit.
+	 */
+	@Parameter(defaultValue = "6")
+	private double loginRequestsPerMinute = 6;
+
+	/**
+	 * Response of jamo automator service slower than this (in seconds) is considered as sign of overload, and rate of
+	 * given type of requests is lowered. Zero means, that only errors lower rate.
+	 */
+	@Parameter(defaultValue = "10")
+	private int apiLatencyThreshold = 10;
+
+	/**
+	 * Maximal number of attempts of single run or report request to jamo automator service, when it fails with
+	 * transient error. Report request is retried on I/O error, HTTP 5xx or 429; run request only when connection to
+	 * service could not be established (refused connection, unknown host), as otherwise test may have been started
+	 * already. Attempts are separated by exponential backoff with random jitter (see {@link #apiRetryBaseDelay}),
+	 * during which device waits and other devices go on. 1 disables retries.
+	 */
+	@Parameter(defaultValue = "3")
+	private int apiRetryAttempts = 3;
+
+	/**
+	 * Backoff (in milliseconds) before second attempt, it doubles with each next attempt. Actual delay is random
+	 * value between zero and this backoff.
+	 */
+	@Parameter(defaultValue = "1000")
+	private long apiRetryBaseDelay = 1000;
+
+	/**
+	 * Upper bound (in milliseconds) of backoff between attempts. See {@link #apiRetryBaseDelay}.
+	 */
+	@Parameter(defaultValue = "10000")
+	private long apiRetryMaxDelay = 10000;
+
+	/**
+	 * How many times can be test retried, when its execution request fails because target device is offline. These
+	 * retries does not consume {@link #retest} attempt. Device does not get any test for
+	 * {@link #offlineDeviceRetryDelay} seconds after such failure.
+	 */
+	@Parameter(defaultValue = "3")
+	private int offlineDeviceRetries = 3;
+
+	/**
+	 * Delay (in seconds) before offline device gets another test. See {@link #offlineDeviceRetries}.
+	 */
+	@Parameter(defaultValue = "60")
+	private int offlineDeviceRetryDelay = 60;
+
+	/**
+	 * Delay (in seconds) before first retest of failed test (see {@link #retest}). Each next retry of same test waits
+	 * twice as long. Device executes other tests meanwhile. Zero (default) retests without delay.
+	 */
+	@Parameter(defaultValue = "0")
+	private int retryDelayFailure = 0;
+
+	/**
+	 * Delay (in seconds) before first retest of timed out test. See {@link #retryDelayFailure}.
+	 */
+	@Parameter(defaultValue = "60")
+	private int retryDelayTimeout = 60;
+
+	/**
+	 * Delay (in seconds) before first retry of test, whose execution request has failed. See
+	 * {@link #retryDelayFailure}. Offline device retries wait at least {@link #offlineDeviceRetryDelay}.
+	 */
+	@Parameter(defaultValue = "30")
+	private int retryDelayExecError = 30;
+
+	/**
+	 * Retry delays are randomly moved by up to this percentage in both directions, so that retries caused by same
+	 * outage does not come back at once.
+	 */
+	@Parameter(defaultValue = "20")
+	private int retryDelayJitter = 20;
+
+	/**
+	 * Position of retry in queue of device, when its delay is over. <b>POLICY</b> (default) uses
+	 * {@link #schedulingPolicy}, <b>BEFORE_FRESH</b> puts retries before not yet started tests and <b>AFTER_FRESH</b>
+	 * after them.
+	 */
+	@Parameter(defaultValue = "POLICY")
+	private String retryPriority = "POLICY";
+
+	/**
+	 * Quarantine device, when its health score drops below this value (0..1, for example 0.5). Score is average of last
+	 * {@link #deviceHealthWindow} test runs of device, where timeout and execution error count as 0, executed test
+	 * (passed or failed) as 1, and run request slower than {@link #apiLatencyThreshold} halves the sample. Planned tests
+	 * of quarantined device are moved to other devices of same <code>pool</code> (see descriptor), or parked till
+	 * device passes probe. Zero (default) disables quarantine.
+	 */
+	@Parameter(defaultValue = "0")
+	private double deviceQuarantineThreshold = 0;
+
+	/**
+	 * Number of last test runs of device used for its health score. See {@link #deviceQuarantineThreshold}.
+	 */
+	@Parameter(defaultValue = "10")
+	private int deviceHealthWindow = 10;
+
+	/**
+	 * Minimal number of finished test runs of device before it can be quarantined.
+	 */
+	@Parameter(defaultValue = "3")
+	private int deviceHealthMinSamples = 3;
+
+	/**
+	 * Time (in seconds) between status probes of quarantined device. Device reported online is re-admitted.
+	 */
+	@Parameter(defaultValue = "300")
+	private int deviceQuarantineProbeInterval = 300;
+
+	/**
+	 * Number of failed probes, after which parked tests of quarantined device are reported as skipped.
+	 */
+	@Parameter(defaultValue = "3")
+	private int deviceQuarantineProbes = 3;
+
+	/**
+	 * Preflight validation of devices and test cases from descriptor. Each distinct device and test case is checked
+	 * against service concurrently with login and setup of suite, before any test is started. <b>REPORT</b> logs unknown
+	 * devices and test cases at start of suite, <b>DROP</b> also reports their tests as skipped instead of executing them
+	 * and <b>OFF</b> (default) disables preflight. Devices and test cases, which could not be checked (service without
+	 * such check, ...), are always executed.
+	 * <p>
+	 * Preflight uses device and test case status endpoints (<code>/rest/integration/device/status</code>,
+	 * <code>/rest/integration/testcase/status</code>), which are not part of documented integration api.
+	 */
+	@Parameter(defaultValue = "OFF")
+	private String preflight = "OFF";
+
+	/**
+	 * Maximal number of concurrent preflight checks. See {@link #preflight}.
+	 */
+	@Parameter(defaultValue = "8")
+	private int preflightThreads = 8;
+
+	/**
+	 * Maximal time (in seconds) to wait for preflight. Suite continues without preflight results after that.
+	 */
+	@Parameter(defaultValue = "30")
+	private int preflightTimeout = 30;
+
+	/**
+	 * When true, embedded http listener is started and its url is sent with each run request, so that service can
+	 * notify plugin about finished execution. Test run is finished as soon as its callback arrives and reports are
+	 * polled only as safety net (see {@link #completionWebhookPollInterval}). Service has to support completion
+	 * callbacks (not part of documented integration api), otherwise test runs are detected by safety net polling only.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean completionWebhook;
+
+	/**
+	 * Host name (or address) of this machine as seen by service, used in callback url. Default is address of local
+	 * host.
+	 */
+	@Parameter
+	private String completionWebhookHost;
+
+	/**
+	 * Address on which completion webhook listens.
+	 */
+	@Parameter(defaultValue = "0.0.0.0")
+	private String completionWebhookBindAddress = "0.0.0.0";
+
+	/**
+	 * Port of completion webhook. Zero (default) means any free port.
+	 */
+	@Parameter(defaultValue = "0")
+	private int completionWebhookPort = 0;
+
+	/**
+	 * Time (in seconds) between report requests of test run, whose completion has not been announced by callback (see
+	 * {@link #completionWebhook}), nor by bulk status query (see {@link #bulkStatusSync}).
+	 */
+	@Parameter(defaultValue = "60")
+	private int completionWebhookPollInterval = 60;
+
+	/**
+	 * When true, statuses of all running tests are queried by single request in each round and report is requested
+	 * only for tests, which are no longer running. Service without bulk status query is detected on first request and
+	 * report of each running test is requested, as before.
+	 * <p>
+	 * Disabled by default, because bulk status endpoint (<code>/rest/integration/executions/status</code>) is not
+	 * part of documented integration api.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean bulkStatusSync = false;
+
+	/**
+	 * Maximal number of consecutive tests of device with same specification, which are submitted by single run request,
+	 * so that application is launched once per batch. Default 1 disables batching. Report of batch is expected to carry
+	 * report of each test (not part of documented integration api); batching is disabled automatically, when it does
+	 * not.
+	 */
+	@Parameter(defaultValue = "1")
+	private int batchSize = 1;
+
+	/**
+	 * Maximal expected duration (in minutes) of batch (see {@link #batchSize}). Expected duration of test comes from
+	 * duration history (or its timeout when there is no history), so that fast tests are batched more than slow ones.
+	 * Timeout of batch is sum of timeouts of its tests.
+	 */
+	@Parameter(defaultValue = "15")
+	private int batchMaxDuration = 15;
+
+	/**
+	 * When true, devices are leased in {@link #deviceLeaseDirectory} before test is started on them, so that concurrent
+	 * builds (or modules of parallel build) on same host do not run tests on same device at same time. Device is kept
+	 * by suite while it runs its tests and it is released, when it becomes idle.
+	 * <p>
+	 * Disabled by default (build may wait for device leased by other build), suites executed by daemon (see
+	 * {@link #daemon}) use leases always, as they share devices.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean deviceLeases = false;
+
+	/**
+	 * Directory with device leases shared by all builds on host. Default is
+	 * <b>${user.home}/.jamoautomator/leases</b>.
+	 */
+	@Parameter(defaultValue = "${user.home}/.jamoautomator/leases")
+	private File deviceLeaseDirectory;
+
+	/**
+	 * Time (in seconds) after which lease of device without heartbeat (crashed or killed build) can be taken over by
+	 * other build. Heartbeat is written each third of this time.
+	 */
+	@Parameter(defaultValue = "120")
+	private int deviceLeaseTimeout = 120;
+
+	/**
+	 * Role of this build in work queue shared by several builds (for example build agents, each with its own devices):
+	 * <ul>
+	 *     <li><b>OFF</b> (default): whole descriptor is executed by this build</li>
+	 *     <li><b>COORDINATOR</b>: build owns planned test runs of descriptor and hands them out to workers one by one,
+	 *     it does not execute tests itself. It writes junit and csv report of all workers. Its url (with token) is
+	 *     logged at start.</li>
+	 *     <li><b>WORKER</b>: build claims tests for its idle devices (see {@link #workerDevices}) from coordinator
+	 *     given by {@link #workQueueUrl} and sends results back. Coordinator and workers use same descriptor.</li>
+	 * </ul>
+	 * Test of device can be moved to idle device of same <code>pool</code>, so that devices with long tests do not
+	 * hold back end of suite.
+	 */
+	@Parameter(defaultValue = "OFF")
+	private String workQueue = "OFF";
+
+	/**
+	 * Url of coordinator (including token) used by worker. See {@link #workQueue}.
+	 */
+	@Parameter
+	private String workQueueUrl;
+
+	/**
+	 * Address, on which coordinator listens. See {@link #workQueue}.
+	 */
+	@Parameter(defaultValue = "0.0.0.0")
+	private String workQueueBindAddress = "0.0.0.0";
+
+	/**
+	 * Port of coordinator. Zero (default) means any free port.
+	 */
+	@Parameter(defaultValue = "0")
+	private int workQueuePort = 0;
+
+	/**
+	 * Host name (or address) of coordinator, as seen by workers. Default is address of local host.
+	 */
+	@Parameter
+	private String workQueueHost;
+
+	/**
+	 * Secret token of coordinator, which has to be part of {@link #workQueueUrl} of workers. Random token is
+	 * generated, when it is not set.
+	 */
+	@Parameter
+	private String workQueueToken;
+
+	/**
+	 * Id of worker. Restarted worker should keep its id, so that its unfinished tests are planned again right away.
+	 * Default is name of local host.
+	 */
+	@Parameter
+	private String workerId;
+
+	/**
+	 * Comma separated names of devices (from descriptor) controlled by worker. Default is all devices of descriptor.
+	 */
+	@Parameter
+	private String workerDevices;
+
+	/**
+	 * Time (in seconds), after which coordinator plans again tests claimed by silent worker, and after which worker
+	 * stops claiming tests from silent coordinator.
+	 */
+	@Parameter(defaultValue = "120")
+	private int workQueueTimeout = 120;
+
+	/**
+	 * Time (in seconds), within which at least one worker has to register at coordinator, otherwise coordinator fails
+	 * (instead of waiting for workers forever). Zero means no limit. See {@link #workQueue}.
+	 */
+	@Parameter(defaultValue = "600")
+	private int workQueueRegistrationTimeout = 600;
+
+	/**
+	 * When true, suite is submitted to daemon running on this machine (see "daemon" goal), which keeps JIT compiled
+	 * code, logins, JAXB context and duration history warm between builds. Log of suite is relayed into log of build.
+	 * Suite is executed by build itself, when there is no running daemon.
+	 */
+	@Parameter(property = "daemon", defaultValue = "false")
+	private boolean daemon = false;
+
+	/**
+	 * State file of daemon (see "daemon" goal). Default is <b>${user.home}/.jamoautomator/daemon.json</b>.
+	 */
+	@Parameter(property = "daemonStateFile", defaultValue = "${user.home}/.jamoautomator/daemon.json")
+	private File daemonStateFile;
+
+	/**
+	 * Base directory of submitting project, set when suite is executed by daemon (or by command line launcher).
+	 */
+	private File daemonBaseDir;
+
+	/**
+	 * Descriptor resolved by submitting build, set when suite is executed by daemon (or by command line launcher).
+	 */
+	private File daemonTestSuiteFile;
+
+	/**
+	 * Resources shared with other suites of daemon, null when suite is executed by build itself.
+	 */
+	private SuiteResourceCache suiteResourceCache;
+
 	public JamoAutomatorMojo() {
 	}
 
@@ -91,7 +637,10 @@ public class JamoAutomatorMojo extends AbstractMojo {
         final File testSuiteFile;
 
         File baseDir;
-        if (this.project == null) {
+        if (this.daemonBaseDir != null) {
+            baseDir = this.daemonBaseDir;
+            testSuiteFile = this.daemonTestSuiteFile;
+        } else if (this.project == null) {
             baseDir = new File(".");
             testSuiteFile = new File(baseDir.getAbsolutePath() + "/src/test/resources", descriptor + ".xml");
             log.info("Going to set current dir as baseDir. baseDir=" + baseDir.getAbsolutePath());
@@ -109,55 +658,183 @@ public class JamoAutomatorMojo extends AbstractMojo {
             );
             return;
         }
+		if (this.daemon && this.suiteResourceCache == null && submitToDaemon(log, baseDir, testSuiteFile)) {
+			return;
+		}
+		if (durationHistoryFile == null) {
+			durationHistoryFile = new File(System.getProperty("user.home"), ".jamoautomator/durationHistory.csv");
+		}
+		if (deviceLeaseDirectory == null) {
+			deviceLeaseDirectory = new File(System.getProperty("user.home"), ".jamoautomator/leases");
+		}
 		long startMillis = System.currentTimeMillis();
 		String testSuiteName = "";
 		OnlineLogTestRunExecReport onlineLogTestRunExecReport = new OnlineLogTestRunExecReport(log);
+		final TestDurationHistory testDurationHistory;
+		if (suiteResourceCache != null) {
+			testDurationHistory = suiteResourceCache.openDurationHistory(log, durationHistoryFile);
+		} else {
+			testDurationHistory = new TestDurationHistory(log, durationHistoryFile);
+			testDurationHistory.load();
+		}
+		final ExecutionTimeEstimator executionTimeEstimator = new ExecutionTimeEstimator(testDurationHistory);
+		onlineLogTestRunExecReport.setExecutionTimeEstimator(executionTimeEstimator);
+		TestOrchestrator testOrchestrator = null;
+		final WorkQueueCoordinator.Role workQueueRole = WorkQueueCoordinator.Role.valueOf(workQueue.toUpperCase());
+		final boolean worker = workQueueRole == WorkQueueCoordinator.Role.WORKER;
 		try (
-				JunitXmlTestRunReporter junitXmlTestRunReporter = new JunitXmlTestRunReporter(log, onlineLogTestRunExecReport, getReportDirectory(baseDir).getAbsolutePath());
-				CsvTestRunReporter csvTestRunReporter = new CsvTestRunReporter("target/testRunsRaw.csv")
+				// report of worker is written by coordinator
+				JunitXmlTestRunReporter junitXmlTestRunReporter = worker ? null :
+						new JunitXmlTestRunReporter(log, onlineLogTestRunExecReport, getReportDirectory(baseDir).getAbsolutePath());
+				CsvTestRunReporter csvTestRunReporter = worker ? null : new CsvTestRunReporter(new File(baseDir, "target/testRunsRaw.csv").getPath());
+				CompletionWebhookReceiver completionWebhookReceiver = this.completionWebhook ?
+						CompletionWebhookReceiver.start(log, completionWebhookBindAddress, completionWebhookPort, getPublicHost(log, completionWebhookHost, "completionWebhookHost")) : null;
+				DeviceLeaseRegistry deviceLeaseRegistry = this.deviceLeases ?
+						new DeviceLeaseRegistry(log, deviceLeaseDirectory, deviceLeaseTimeout * 1000L, descriptor) : null
 		) {
             //parse the testsuite file
-            JAXBContext jaxbContext = JAXBContext.newInstance(TestSuite.class);
+            JAXBContext jaxbContext = suiteResourceCache != null ? suiteResourceCache.getTestSuiteContext() : JAXBContext.newInstance(TestSuite.class);
             Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
             TestSuite testSuite = (TestSuite) jaxbUnmarshaller.unmarshal(testSuiteFile);
             //build the xml test suite document
             //http://help.catchsoftware.com/display/ET/JUnit+Format
 			testSuiteName = testSuite.getName();
-			junitXmlTestRunReporter.setTestSuiteName(testSuiteName);
+			final List<Backend> backends = testSuite.getAllBackends();
+			final List<Device> allDevices = new ArrayList<>();
+			final Set<String> deviceNames = new HashSet<>();
+			for (Backend backend : backends) {
+				for (Device device : getDevices(backend)) {
+					if (!deviceNames.add(device.getName())) {
+						log.warn(colorize("Device " + device(device) + " is listed more than once (backend " + backend.getName() +
+								"). Its results are going to be mixed in reports, which are keyed by name of device."));
+					}
+					allDevices.add(device);
+				}
+			}
+			if (!worker) {
+				junitXmlTestRunReporter.setTestSuiteName(testSuiteName);
+				try {
+					csvTestRunReporter.prepareOutputFile();
+				} catch (IOException ex) {
+					throw new MojoExecutionException("Problem while creating/opening/accessing file testRunsRaw.csv. ex=" + ex.getMessage(), ex);
+				}
+			}
+			if (workQueueRole == WorkQueueCoordinator.Role.COORDINATOR) {
+				runCoordinator(log, allDevices, Arrays.asList(junitXmlTestRunReporter, onlineLogTestRunExecReport, csvTestRunReporter, testDurationHistory));
+				return;
+			}
 
-			final JamoAutomatorClient jamoAutomatorClient = new JamoAutomatorClient(log, testSuite.getCredentials(), testSuite.getUrl());
-            final TestOrchestrator testOrchestrator = new TestOrchestrator(jamoAutomatorClient, log, this.retest ? 1 : 0);
+			final Clock clock = Clock.systemUTC();
+			final Map<Backend, JamoAutomatorClient> backendClients = new LinkedHashMap<>();
+			for (Backend backend : backends) {
+				backendClients.put(backend, createJamoAutomatorClient(log, clock, backend.getCredentials(), backend.getUrl()));
+			}
+			final JamoAutomatorClient jamoAutomatorClient = backendClients.isEmpty() ?
+					createJamoAutomatorClient(log, clock, testSuite.getCredentials(), testSuite.getUrl()) :
+					backendClients.values().iterator().next();
+			Preflight.Mode preflightMode = Preflight.Mode.valueOf(preflight.toUpperCase());
+			if (worker && preflightMode == Preflight.Mode.DROP) {
+				// claimed tests are looked up in descriptor, so that worker can not drop them
+				preflightMode = Preflight.Mode.REPORT;
+			}
+			// checks (and login) run in background, while rest of suite is being set up
+			final Map<Backend, CompletableFuture<Preflight.Result>> preflightResults = new LinkedHashMap<>();
+			if (preflightMode != Preflight.Mode.OFF) {
+				backendClients.forEach((backend, client) -> preflightResults.put(backend,
+						new Preflight(log, new JamoPreflightProbe(log, client), preflightThreads).start(getDevices(backend))));
+			}
+            testOrchestrator = new TestOrchestrator(jamoAutomatorClient, log, this.retest ? 1 : 0);
+			for (Map.Entry<Backend, JamoAutomatorClient> backendClient : backendClients.entrySet()) {
+				testOrchestrator.registerBackend(
+						new ExecutionBackend(backendClient.getKey().getName(), backendClient.getValue()),
+						getDevices(backendClient.getKey())
+				);
+			}
+			testOrchestrator.setClock(clock);
+			testOrchestrator.setOfflineDeviceRetry(offlineDeviceRetries, offlineDeviceRetryDelay * 1000L);
+			final Map<ExecutionOutcome, Long> retryDelays = new EnumMap<>(ExecutionOutcome.class);
+			retryDelays.put(ExecutionOutcome.FAILURE, retryDelayFailure * 1000L);
+			retryDelays.put(ExecutionOutcome.TIMEOUT, retryDelayTimeout * 1000L);
+			retryDelays.put(ExecutionOutcome.EXECERR, retryDelayExecError * 1000L);
+			if (deviceQuarantineThreshold > 0) {
+				testOrchestrator.setDeviceHealthMonitor(
+						new DeviceHealthMonitor(deviceHealthWindow, deviceQuarantineThreshold, deviceHealthMinSamples, apiLatencyThreshold * 1000L),
+						deviceQuarantineProbeInterval * 1000L,
+						deviceQuarantineProbes
+				);
+			}
+			testOrchestrator.setRetryBackoff(
+					new RetryBackoffPolicy(retryDelays, retryDelayJitter),
+					RetryPriority.valueOf(retryPriority.toUpperCase())
+			);
+			if (this.adaptiveTimeout) {
+				testOrchestrator.setTimeoutPolicy(new AdaptiveTimeoutPolicy(
+						testDurationHistory,
+						adaptiveTimeoutPercentile,
+						adaptiveTimeoutMargin,
+						adaptiveTimeoutMinSamples,
+						adaptiveTimeoutMinSeconds * 1000L
+				));
+			}
 
-            log.debug("Going to pre-fill all future executions.");
-			final List<Device> allDevices = testSuite.getDevices();
-			for (Device device : allDevices) {
-                for (TestCase testCase : device.getTestCases()) {
-                    testOrchestrator.addTestForExecution(new PlannedTestRun(device, testCase));
-                }
-            }
-            // log.debug(colorize("there are now @|bold " + executionsToDoFlight.size() + "|@ future executions requests."));
+			testOrchestrator.setSchedulingPolicy(SchedulingPolicy.byName(schedulingPolicy, executionTimeEstimator, testDurationHistory));
+			if (batchSize > 1) {
+				testOrchestrator.setTestRunBatching(new TestRunBatching(batchSize, batchMaxDuration * 60L * 1000L, executionTimeEstimator));
+			}
+			testOrchestrator.setSuiteAbortPolicy(new SuiteAbortPolicy(
+					abortAfterConsecutiveFailures,
+					abortFailureRatio,
+					abortMinSample,
+					abortWhenAllDevicesFailSameTest,
+					SuiteAbortPolicy.InFlightMode.valueOf(abortInFlight.toUpperCase())
+			));
+			testOrchestrator.setCancelTimedOutExecutions(cancelTimedOutExecutions, cancelConfirmationTimeout * 1000L);
+			testOrchestrator.setCompletionWebhook(completionWebhookReceiver, completionWebhookPollInterval * 1000L);
+			testOrchestrator.setDeviceLeaseRegistry(deviceLeaseRegistry);
+			if (this.livenessCheckInterval > 0) {
+				testOrchestrator.setExecutionLivenessProbe(
+						new JamoExecutionLivenessProbe(log),
+						livenessCheckInterval * 1000L,
+						livenessReschedules
+				);
+			}
 
-            int waitRound = 0;
 			final List<TestRunReporterListener> testRunReporterListeners = testOrchestrator.getTestRunReporterListeners();
-			testRunReporterListeners.add(junitXmlTestRunReporter);
+			final WorkQueueWorker workQueueWorker = worker ? createWorkQueueWorker(log, allDevices) : null;
+			if (worker) {
+				testRunReporterListeners.add(workQueueWorker);
+			} else {
+				testRunReporterListeners.add(junitXmlTestRunReporter);
+				testRunReporterListeners.add(csvTestRunReporter);
+			}
 			testRunReporterListeners.add(onlineLogTestRunExecReport);
-			testRunReporterListeners.add(csvTestRunReporter);
-			try {
-				csvTestRunReporter.prepareOutputFile();
-			} catch (IOException ex) {
-				throw new MojoExecutionException("Problem while creating/opening/accessing file testRunsRaw.csv. ex=" + ex.getMessage(), ex);
+			testRunReporterListeners.add(testDurationHistory);
+
+			for (Map.Entry<Backend, CompletableFuture<Preflight.Result>> preflightResult : preflightResults.entrySet()) {
+				final String logPrefix = preflightResults.size() > 1 ? "[" + preflightResult.getKey().getName() + "] " : "";
+				applyPreflight(log, logPrefix, preflightMode, preflightResult.getValue(), getDevices(preflightResult.getKey()), testOrchestrator);
+			}
+			if (!worker) {
+				planTestRuns(log, allDevices, testOrchestrator, executionTimeEstimator, startMillis);
 			}
+
+            int waitRound = 0;
 			onlineLogTestRunExecReport.logProgressReport(waitRound, testOrchestrator);
-			while (testOrchestrator.isStillSomethingNeedToBeDone()) {
-                testOrchestrator.getReportsForRunningTests();
-                testOrchestrator.checkTimeoutsOnRunningTests();
-            	testOrchestrator.checkForIdleDevicesAndUseThem();
+			while (worker ? !workQueueWorker.isFinished(testOrchestrator) : testOrchestrator.isStillSomethingNeedToBeDone()) {
+				if (worker) {
+					workQueueWorker.claimWork(testOrchestrator);
+				}
+                testOrchestrator.executeRound();
                 // print progress at 0, 30 and 60 seconds and than each minute
                 if (waitRound == 6 || (waitRound % 12 == 0)) {
                     // TODO pass orchestrator to exec report to have data...
                     onlineLogTestRunExecReport.logProgressReport(waitRound, testOrchestrator);
                 }
-                Thread.sleep(WAIT_ROUND_DURATION_MS);
+                if (completionWebhookReceiver != null) {
+                    completionWebhookReceiver.awaitCallback(WAIT_ROUND_DURATION_MS);
+                } else {
+                    Thread.sleep(WAIT_ROUND_DURATION_MS);
+                }
                 waitRound++;
             } // end of while there is executing, or to be executed.
         } catch (JAXBException e) {
@@ -165,8 +842,299 @@ public class JamoAutomatorMojo extends AbstractMojo {
         } catch (InterruptedException e) {
             log.info("the test suite has been interrupted", e);
         } finally {
-			onlineLogTestRunExecReport.logSummaryReport();
+			testDurationHistory.save();
+			if (suiteResourceCache != null) {
+				suiteResourceCache.durationHistorySaved(durationHistoryFile, testDurationHistory);
+			}
+			onlineLogTestRunExecReport.logSummaryReport(testOrchestrator);
+		}
+	}
+
+	/**
+	 * Plan test runs of all devices (smoke stage and time budget included) into given orchestrator.
+	 */
+	private void planTestRuns(Log log, List<Device> allDevices, TestOrchestrator testOrchestrator, ExecutionTimeEstimator executionTimeEstimator, long startMillis) {
+		log.debug("Going to pre-fill all future executions.");
+		final List<PlannedTestRun> gateTestRuns = new ArrayList<>();
+		List<PlannedTestRun> plannedTestRuns = new ArrayList<>();
+		if (smokeTags != null && !smokeTags.trim().isEmpty()) {
+			final SmokeStage smokeStage = SmokeStage.plan(allDevices, Arrays.asList(smokeTags.trim().split("\\s*,\\s*")));
+			gateTestRuns.addAll(smokeStage.getSmokeTestRuns());
+			plannedTestRuns.addAll(smokeStage.getFullMatrixTestRuns());
+			log.info(colorize("Staged execution: @|bold " + gateTestRuns.size() + "|@ smoke test runs first, " +
+					"@|bold " + plannedTestRuns.size() + "|@ test runs of full matrix after smoke stage passes."));
+		} else {
+			for (Device device : allDevices) {
+				for (TestCase testCase : device.getTestCases()) {
+					plannedTestRuns.add(new PlannedTestRun(device, testCase));
+				}
+			}
+		}
+		if (timeBudget > 0) {
+			final TimeBudgetPlanner.Selection selection = new TimeBudgetPlanner(
+					executionTimeEstimator,
+					timeBudget * 60L * 1000L,
+					TimeBudgetPlanner.Objective.valueOf(timeBudgetObjective.toUpperCase())
+			).select(gateTestRuns, plannedTestRuns);
+			log.info(colorize("Time budget @|bold " + timeBudget + "|@ minutes: @|bold " + selection.getSelected().size() +
+					"|@ test runs selected, @|bold " + selection.getSkipped().size() + "|@ skipped."));
+			for (PlannedTestRun skipped : selection.getSkipped()) {
+				testOrchestrator.skipTestRun(skipped, "time budget: not selected (expected duration " +
+						executionTimeEstimator.getExpectedDurationMs(skipped) / 1000 + " seconds does not fit into " + timeBudget + " minutes)");
+			}
+			plannedTestRuns = selection.getSelected();
+			testOrchestrator.setTimeBudget(startMillis + timeBudget * 60L * 1000L, executionTimeEstimator);
+		}
+		for (PlannedTestRun plannedTestRun : gateTestRuns) {
+			testOrchestrator.addGateTestForExecution(plannedTestRun);
+		}
+		for (PlannedTestRun plannedTestRun : plannedTestRuns) {
+			testOrchestrator.addTestForLaterStage(plannedTestRun);
+		}
+	}
+
+	private JamoAutomatorClient createJamoAutomatorClient(Log log, Clock clock, Credentials credentials, String url) {
+		final JamoAutomatorClient jamoAutomatorClient = new JamoAutomatorClient(log, credentials, url);
+		jamoAutomatorClient.setRateLimiter(ApiCallType.RUN, new AdaptiveRateLimiter(clock, runRequestsPerSecond, runRequestsBurst, apiLatencyThreshold * 1000L));
+		jamoAutomatorClient.setRateLimiter(ApiCallType.REPORT, new AdaptiveRateLimiter(clock, reportRequestsPerSecond, reportRequestsBurst, apiLatencyThreshold * 1000L));
+		jamoAutomatorClient.setRetryPolicy(new RetryPolicy(apiRetryAttempts, apiRetryBaseDelay, apiRetryMaxDelay));
+		jamoAutomatorClient.setRateLimiter(ApiCallType.LOGIN, new AdaptiveRateLimiter(clock, loginRequestsPerMinute / 60, 1, apiLatencyThreshold * 1000L));
+		if (bulkStatusSync) {
+			jamoAutomatorClient.setExecutionStatusSyncEndpoint(new JamoRestExecutionStatusSyncEndpoint(log, jamoAutomatorClient));
+		}
+		if (suiteResourceCache != null) {
+			suiteResourceCache.shareLogin(jamoAutomatorClient);
+		}
+		return jamoAutomatorClient;
+	}
+
+	/**
+	 * Submit suite to running daemon (see {@link #daemon}).
+	 *
+	 * @return true, if suite has been executed by daemon; false, if there is no running daemon
+	 */
+	private boolean submitToDaemon(Log log, File baseDir, File testSuiteFile) throws MojoExecutionException {
+		if (daemonStateFile == null) {
+			daemonStateFile = new File(System.getProperty("user.home"), ".jamoautomator/daemon.json");
+		}
+		final SuiteDaemonClient suiteDaemonClient = SuiteDaemonClient.find(log, daemonStateFile);
+		if (suiteDaemonClient == null) {
+			log.info("There is no running daemon. Going to execute suite by this build.");
+			return false;
+		}
+		final Map<String, String> parameters = getDaemonParameters();
+		parameters.put("daemonBaseDir", baseDir.getAbsolutePath());
+		parameters.put("daemonTestSuiteFile", testSuiteFile.getAbsolutePath());
+		log.info("Going to submit suite to daemon.");
+		if (!suiteDaemonClient.submit(parameters)) {
+			throw new MojoExecutionException("Suite has failed in daemon. See log above.");
+		}
+		return true;
+	}
+
+	/**
+	 * @return values of parameters of this goal, as expected by {@link #forDaemon(Map, SuiteResourceCache)}
+	 */
+	private Map<String, String> getDaemonParameters() {
+		final Map<String, String> parameters = new LinkedHashMap<>();
+		for (Field field : JamoAutomatorMojo.class.getDeclaredFields()) {
+			if (!isDaemonParameter(field)) {
+				continue;
+			}
+			try {
+				field.setAccessible(true);
+				final Object value = field.get(this);
+				if (value != null) {
+					parameters.put(field.getName(), value instanceof File ? ((File) value).getAbsolutePath() : String.valueOf(value));
+				}
+			} catch (IllegalAccessException e) {
+				throw new RuntimeException("Unable to read parameter " + field.getName(), e);
+			}
+		}
+		return parameters;
+	}
+
+	/**
+	 * Create goal for suite submitted to daemon.
+	 *
+	 * @param parameters values of parameters of submitting build (including its base directory and descriptor)
+	 */
+	public static JamoAutomatorMojo forDaemon(Map<String, String> parameters, SuiteResourceCache suiteResourceCache) {
+		final JamoAutomatorMojo mojo = new JamoAutomatorMojo();
+		mojo.suiteResourceCache = suiteResourceCache;
+		for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+			final Field field;
+			try {
+				field = JamoAutomatorMojo.class.getDeclaredField(parameter.getKey());
+			} catch (NoSuchFieldException e) {
+				throw new RuntimeException("Unknown parameter " + parameter.getKey() + ". Is daemon running same version of plugin as build?", e);
+			}
+			if (!isDaemonParameter(field)) {
+				throw new RuntimeException("Parameter " + parameter.getKey() + " can not be set by submitted suite.");
+			}
+			final String value = parameter.getValue();
+			final Class<?> type = field.getType();
+			try {
+				field.setAccessible(true);
+				if (type == String.class) {
+					field.set(mojo, value);
+				} else if (type == File.class) {
+					field.set(mojo, new File(value));
+				} else if (type == boolean.class) {
+					field.setBoolean(mojo, Boolean.parseBoolean(value));
+				} else if (type == int.class) {
+					field.setInt(mojo, Integer.parseInt(value));
+				} else if (type == long.class) {
+					field.setLong(mojo, Long.parseLong(value));
+				} else if (type == double.class) {
+					field.setDouble(mojo, Double.parseDouble(value));
+				}
+			} catch (IllegalAccessException | NumberFormatException e) {
+				throw new RuntimeException("Unable to set parameter " + parameter.getKey() + " to " + value + ". ex=" + e.getMessage(), e);
+			}
+		}
+		return mojo;
+	}
+
+	/**
+	 * Create goal for suite executed by command line launcher (see {@link com.jamosolutions.JamoAutomatorCli}).
+	 *
+	 * @param baseDir       directory, into which reports are written (under <code>target</code>)
+	 * @param testSuiteFile descriptor of suite
+	 * @param parameters    values of parameters of this goal, keyed by their names in configuration of plugin
+	 */
+	public static JamoAutomatorMojo forCommandLine(File baseDir, File testSuiteFile, Map<String, String> parameters, SuiteResourceCache suiteResourceCache) {
+		for (String name : parameters.keySet()) {
+			final Field field;
+			try {
+				field = JamoAutomatorMojo.class.getDeclaredField(name);
+			} catch (NoSuchFieldException e) {
+				throw new RuntimeException("Unknown parameter " + name + " of \"run\" goal.", e);
+			}
+			if (!isDaemonParameter(field)) {
+				throw new RuntimeException("Parameter " + name + " can not be set from command line.");
+			}
+		}
+		final Map<String, String> allParameters = new LinkedHashMap<>(parameters);
+		allParameters.put("daemonBaseDir", baseDir.getAbsolutePath());
+		allParameters.put("daemonTestSuiteFile", testSuiteFile.getAbsolutePath());
+		return forDaemon(allParameters, suiteResourceCache);
+	}
+
+	private static boolean isDaemonParameter(Field field) {
+		final Class<?> type = field.getType();
+		return !Modifier.isStatic(field.getModifiers())
+				&& !field.getName().equals("daemon")
+				&& !field.getName().equals("daemonStateFile")
+				&& (type == String.class || type == File.class || type == boolean.class || type == int.class || type == long.class || type == double.class);
+	}
+
+	private static List<Device> getDevices(Backend backend) {
+		return backend.getDevices() == null ? Collections.emptyList() : backend.getDevices();
+	}
+
+	/**
+	 * @param configuredHost value of parameter with host name; address of local host is used, when it is not set
+	 * @param parameterName  name of parameter with host name
+	 */
+	private String getPublicHost(Log log, String configuredHost, String parameterName) {
+		if (configuredHost != null && !configuredHost.isEmpty()) {
+			return configuredHost;
+		}
+		try {
+			return InetAddress.getLocalHost().getHostAddress();
+		} catch (UnknownHostException e) {
+			log.warn("Unable to find address of local host. Going to use 127.0.0.1 in url, set \"" + parameterName + "\" parameter.");
+			return "127.0.0.1";
+		}
+	}
+
+	/**
+	 * Hand out test runs of all devices to workers and pass their results to given listeners, till all test runs are
+	 * finished. See {@link #workQueue}.
+	 */
+	private void runCoordinator(Log log, List<Device> allDevices, List<TestRunReporterListener> listeners) throws InterruptedException {
+		if ((smokeTags != null && !smokeTags.trim().isEmpty()) || timeBudget > 0) {
+			log.warn("Smoke stage and time budget are not supported by work queue coordinator. Whole descriptor is going to be executed.");
+		}
+		final String token = workQueueToken == null || workQueueToken.isEmpty() ? UUID.randomUUID().toString() : workQueueToken;
+		try (WorkQueueCoordinator coordinator = WorkQueueCoordinator.start(log, workQueueBindAddress, workQueuePort,
+				getPublicHost(log, workQueueHost, "workQueueHost"), token, workQueueTimeout * 1000L, workQueueRegistrationTimeout * 1000L)) {
+			for (Device device : allDevices) {
+				for (TestCase testCase : device.getTestCases()) {
+					coordinator.addWork(new PlannedTestRun(device, testCase));
+				}
+			}
+			log.info(colorize("Work queue has @|bold " + coordinator.getPendingCount() + "|@ tests. Start workers with " +
+					"-DworkQueue=WORKER -DworkQueueUrl=\"" + coordinator.getUrl() + "\""));
+			int waitRound = 0;
+			while (!coordinator.isFinished()) {
+				coordinator.processResults(listeners);
+				if (waitRound % 60 == 0) {
+					log.info(colorize("Work queue: @|bold " + coordinator.getPendingCount() + "|@ waiting, @|bold " +
+							coordinator.getClaimedCount() + "|@ running, @|bold " + coordinator.getFinishedCount() + "|@ finished; workers: " +
+							coordinator.getWorkerIds()));
+				}
+				Thread.sleep(COORDINATOR_ROUND_DURATION_MS);
+				waitRound++;
+			}
+			coordinator.processResults(listeners);
+			log.info(colorize("Work queue is finished: @|bold " + coordinator.getFinishedCount() + "|@ tests by workers " +
+					coordinator.getWorkerIds() + ", @|bold " + coordinator.getMovedCount() + "|@ moved to other device of same pool, @|bold " +
+					coordinator.getReplannedCount() + "|@ planned again after lost worker (@|bold " + coordinator.getSupersededCount() +
+					"|@ attempts of lost workers dropped)."));
+		}
+	}
+
+	private WorkQueueWorker createWorkQueueWorker(Log log, List<Device> allDevices) {
+		if (workQueueUrl == null || workQueueUrl.isEmpty()) {
+			throw new RuntimeException("Worker needs url of coordinator, set \"workQueueUrl\" parameter!");
+		}
+		final List<Device> devices = new ArrayList<>();
+		if (workerDevices == null || workerDevices.trim().isEmpty()) {
+			devices.addAll(allDevices);
+		} else {
+			for (String deviceName : workerDevices.trim().split("\\s*,\\s*")) {
+				devices.add(allDevices.stream().filter(device -> device.getName().equals(deviceName)).findFirst()
+						.orElseThrow(() -> new RuntimeException("Device " + deviceName + " of worker is not in descriptor!")));
+			}
+		}
+		String id = workerId;
+		if (id == null || id.isEmpty()) {
+			try {
+				id = InetAddress.getLocalHost().getHostName();
+			} catch (UnknownHostException e) {
+				throw new RuntimeException("Unable to find name of local host, set \"workerId\" parameter!", e);
+			}
+		}
+		return new WorkQueueWorker(log, workQueueUrl, id, devices, allDevices, workQueueTimeout * 1000L / 3, workQueueTimeout * 1000L);
+	}
+
+	/**
+	 * Wait for preflight (see {@link #preflight}) and log invalid devices and test cases. In <b>DROP</b> mode, their test
+	 * runs are reported as skipped and removed from descriptor, so that they are not planned at all.
+	 *
+	 * @param logPrefix       prefix of logged lines (name of backend of devices)
+	 * @param preflightResult result of started preflight
+	 */
+	private void applyPreflight(Log log, String logPrefix, Preflight.Mode preflightMode, CompletableFuture<Preflight.Result> preflightResult, List<Device> devices, TestOrchestrator testOrchestrator) throws InterruptedException {
+		final long waitStartMillis = System.currentTimeMillis();
+		final Preflight.Result result;
+		try {
+			result = preflightResult.get(preflightTimeout, TimeUnit.SECONDS);
+		} catch (TimeoutException e) {
+			preflightResult.cancel(true);
+			log.warn(logPrefix + "Preflight has not finished within " + preflightTimeout + " seconds. Going to continue without it.");
+			return;
+		} catch (ExecutionException e) {
+			log.warn(logPrefix + "Preflight has failed. Going to continue without it. ex=" + e.getCause());
+			return;
 		}
+		log.info(colorize(logPrefix + "Preflight checked @|bold " + result.getCheckCount() + "|@ devices and test cases in " +
+				result.getDurationMs() + " ms (start of suite waited " + (System.currentTimeMillis() - waitStartMillis) + " ms for it): " +
+				"@|bold " + result.count(PreflightStatus.INVALID) + "|@ invalid, " +
+				result.count(PreflightStatus.OFFLINE) + " offline, " + result.count(PreflightStatus.UNKNOWN) + " not checked."));
+		result.apply(log, logPrefix, preflightMode, devices, testOrchestrator);
 	}
 
 	/**
@@ -0,0 +1,96 @@
+package com.jamosolutions.automator;
+
+import com.jamosolutions.automator.help.SuiteDaemon;
+import com.jamosolutions.automator.help.SuiteDaemonClient;
+import com.jamosolutions.automator.help.SuiteResourceCache;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.jamosolutions.automator.help.Colorizer.colorize;
+
+/**
+ * Start long running daemon, which executes suites submitted by "run" goal with <code>daemon</code> parameter set to
+ * true. Daemon keeps JIT compiled code, logins, JAXB context and duration history warm between builds, and it
+ * executes several submitted suites at same time on shared devices (device is used by single suite at a time, see
+ * <code>deviceLeases</code> parameter of "run" goal, which is always enabled for suites of daemon). Goal blocks till daemon is stopped (<code>-Ddaemon.stop=true</code>
+ * or Ctrl+C).
+ */
+@Mojo(name = "daemon", requiresProject = false, threadSafe = true)
+public class JamoDaemonMojo extends AbstractMojo {
+	/**
+	 * Port of daemon (it listens on loopback only). Zero (default) means any free port; clients find it in
+	 * {@link #daemonStateFile}.
+	 */
+	@Parameter(property = "daemon.port", defaultValue = "0")
+	private int daemonPort = 0;
+
+	/**
+	 * File with url of running daemon, readable only by its owner. Default is
+	 * <b>${user.home}/.jamoautomator/daemon.json</b>.
+	 */
+	@Parameter(property = "daemonStateFile", defaultValue = "${user.home}/.jamoautomator/daemon.json")
+	private File daemonStateFile;
+
+	/**
+	 * Maximal number of suites executed at same time. Other submitted suites wait for free slot.
+	 */
+	@Parameter(property = "daemon.maxConcurrentSuites", defaultValue = "4")
+	private int maxConcurrentSuites = 4;
+
+	/**
+	 * When true, running daemon is asked to stop instead of starting new one.
+	 */
+	@Parameter(property = "daemon.stop", defaultValue = "false")
+	private boolean stop = false;
+
+	public void execute() throws MojoExecutionException {
+		final Log log = getLog();
+		if (daemonStateFile == null) {
+			daemonStateFile = new File(System.getProperty("user.home"), ".jamoautomator/daemon.json");
+		}
+		final SuiteDaemonClient runningDaemon = SuiteDaemonClient.find(log, daemonStateFile);
+		if (stop) {
+			if (runningDaemon == null) {
+				log.info("There is no running daemon.");
+			} else {
+				runningDaemon.stop();
+				log.info("Daemon has been asked to stop.");
+			}
+			return;
+		}
+		if (runningDaemon != null) {
+			throw new MojoExecutionException("Daemon is already running (state file " + daemonStateFile.getAbsolutePath() + "). Stop it first by -Ddaemon.stop=true.");
+		}
+		final SuiteResourceCache suiteResourceCache = new SuiteResourceCache();
+		try (SuiteDaemon suiteDaemon = SuiteDaemon.start(log, daemonPort, daemonStateFile, maxConcurrentSuites,
+				(parameters, suiteLog) -> {
+					// suites executed at same time share devices
+					final Map<String, String> suiteParameters = new HashMap<>(parameters);
+					suiteParameters.put("deviceLeases", "true");
+					final JamoAutomatorMojo mojo = JamoAutomatorMojo.forDaemon(suiteParameters, suiteResourceCache);
+					mojo.setLog(suiteLog);
+					mojo.execute();
+				})) {
+			final Thread shutdownHook = new Thread(suiteDaemon::close, "jamo-daemon-shutdown");
+			Runtime.getRuntime().addShutdownHook(shutdownHook);
+			try {
+				suiteDaemon.awaitStop();
+			} finally {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			}
+			log.info(colorize("Daemon has executed @|bold " + suiteDaemon.getFinishedCount() + "|@ suites (" + suiteDaemon.getFailedCount() +
+					" failed), shared @|bold " + suiteResourceCache.getLoginCount() + "|@ logins, duration history has been reused " +
+					suiteResourceCache.getDurationHistoryHits() + " times."));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			log.info("Daemon has been interrupted.");
+		}
+	}
+}
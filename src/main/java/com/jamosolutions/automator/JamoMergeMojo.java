@@ -0,0 +1,142 @@
+package com.jamosolutions.automator;
+
+import com.jamosolutions.automator.reporters.CsvReportMerger;
+import com.jamosolutions.automator.reporters.JunitXmlReportMerger;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.jamosolutions.automator.help.Colorizer.colorize;
+
+/**
+ * Merge junit reports and csv files of test runs written by several "run" goals (shards of suite, work queue
+ * workers, repeated runs) into single junit report and single csv file. Retried attempts and repeated results of
+ * same test case are dropped, only final attempt of its last run is kept. Totals and wall time of merged suite are
+ * recomputed. Inputs are streamed, so that any number of them can be merged.
+ */
+@Mojo(name = "merge", requiresProject = false, threadSafe = true)
+public class JamoMergeMojo extends AbstractMojo {
+	private static final String JUNIT_REPORT_PREFIX = "TEST-com.jamoautomator.";
+	private static final String CSV_PREFIX = "testRunsRaw";
+
+	@Parameter(readonly = true, defaultValue = "${project}")
+	private MavenProject project;
+
+	/**
+	 * Comma separated list of files and directories to merge. Directories are searched recursively for junit reports
+	 * (<b>TEST-com.jamoautomator.*.xml</b>) and csv files (<b>testRunsRaw*.csv</b>). Relative paths are resolved
+	 * against base directory of project.
+	 */
+	@Parameter(property = "merge.inputs", defaultValue = "target")
+	private String inputs = "target";
+
+	/**
+	 * Directory, where merged <b>TEST-com.jamoautomator.{mergedSuiteName}.xml</b> and <b>testRunsRaw.csv</b> are
+	 * written. Its content is never used as input.
+	 */
+	@Parameter(property = "merge.outputDirectory", defaultValue = "target/jamo-merged")
+	private File outputDirectory = new File("target/jamo-merged");
+
+	/**
+	 * Name of merged test suite.
+	 */
+	@Parameter(property = "merge.suiteName", defaultValue = "merged")
+	private String mergedSuiteName = "merged";
+
+	/**
+	 * Number of inputs read in parallel. <b>0</b> means number of available processors.
+	 */
+	@Parameter(property = "merge.threads", defaultValue = "0")
+	private int threads = 0;
+
+	/**
+	 * Keep all attempts in merged csv file (files are only merged by time of finish). Merged junit report contains
+	 * only final attempts anyway.
+	 */
+	@Parameter(property = "merge.keepRetriedAttempts", defaultValue = "false")
+	private boolean keepRetriedAttempts = false;
+
+	public void execute() throws MojoExecutionException {
+		final Log log = getLog();
+		final File baseDir = this.project == null || this.project.getBasedir() == null ? new File(".") : this.project.getBasedir();
+		final File outputDir = outputDirectory.isAbsolute() ? outputDirectory : new File(baseDir, outputDirectory.getPath());
+		final List<File> junitReports = new ArrayList<>();
+		final List<File> csvFiles = new ArrayList<>();
+		for (String input : splitList(inputs)) {
+			final File file = new File(input).isAbsolute() ? new File(input) : new File(baseDir, input);
+			if (!file.exists()) {
+				throw new MojoExecutionException("Input " + file.getAbsolutePath() + " of merge does not exist.");
+			}
+			collectInputs(file, outputDir, junitReports, csvFiles);
+		}
+		if (junitReports.isEmpty() && csvFiles.isEmpty()) {
+			log.warn("There are no junit reports nor csv files of test runs in " + inputs + ". Nothing to merge.");
+			return;
+		}
+		if (!outputDir.exists() && !outputDir.mkdirs()) {
+			throw new MojoExecutionException("Unable to create output directory " + outputDir.getAbsolutePath());
+		}
+		log.info(colorize("Going to merge @|bold " + junitReports.size() + "|@ junit reports and @|bold " + csvFiles.size() + "|@ csv files into " + outputDir.getPath() + "."));
+		final ExecutorService executorService = Executors.newFixedThreadPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors());
+		try {
+			if (!junitReports.isEmpty()) {
+				new JunitXmlReportMerger(log, executorService)
+						.merge(junitReports, new File(outputDir, JUNIT_REPORT_PREFIX + mergedSuiteName + ".xml"), mergedSuiteName);
+			}
+			if (!csvFiles.isEmpty()) {
+				new CsvReportMerger(log, executorService, keepRetriedAttempts)
+						.merge(csvFiles, new File(outputDir, CSV_PREFIX + ".csv"));
+			}
+		} catch (RuntimeException ex) {
+			throw new MojoExecutionException(ex.getMessage(), ex);
+		} finally {
+			executorService.shutdownNow();
+		}
+	}
+
+	private static void collectInputs(File file, File outputDir, List<File> junitReports, List<File> csvFiles) throws MojoExecutionException {
+		if (isWithin(file, outputDir)) {
+			return;
+		}
+		if (file.isDirectory()) {
+			final File[] children = file.listFiles();
+			if (children != null) {
+				Arrays.sort(children);
+				for (File child : children) {
+					collectInputs(child, outputDir, junitReports, csvFiles);
+				}
+			}
+		} else if (file.getName().startsWith(JUNIT_REPORT_PREFIX) && file.getName().endsWith(".xml")) {
+			junitReports.add(file);
+		} else if (file.getName().startsWith(CSV_PREFIX) && file.getName().endsWith(".csv")) {
+			csvFiles.add(file);
+		}
+	}
+
+	private static boolean isWithin(File file, File directory) throws MojoExecutionException {
+		try {
+			return file.getCanonicalPath().startsWith(directory.getCanonicalPath() + File.separator) || file.getCanonicalFile().equals(directory.getCanonicalFile());
+		} catch (IOException ex) {
+			throw new MojoExecutionException("Unable to resolve path " + file.getAbsolutePath(), ex);
+		}
+	}
+
+	private static List<String> splitList(String list) {
+		final List<String> values = new ArrayList<>();
+		for (String value : list.split(",")) {
+			if (!value.trim().isEmpty()) {
+				values.add(value.trim());
+			}
+		}
+		return values;
+	}
+}
@@ -0,0 +1,183 @@
+package com.jamosolutions.automator;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import com.jamosolutions.automator.domain.TestSuite;
+import com.jamosolutions.automator.help.ExecutionOutcome;
+import com.jamosolutions.automator.help.ExecutionTimeEstimator;
+import com.jamosolutions.automator.simulation.RecordedRunLog;
+import com.jamosolutions.automator.simulation.SimulationResult;
+import com.jamosolutions.automator.simulation.SimulationScenario;
+import com.jamosolutions.automator.simulation.SuiteSimulator;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.File;
+import java.util.*;
+
+import static com.jamosolutions.automator.help.Colorizer.colorize;
+
+/**
+ * Replay recorded suite execution (csv written by "run" goal) offline under alternative scheduling policies,
+ * timeouts, poll intervals and device counts. All combinations of given values are simulated and compared by
+ * makespan, device utilization and number of api calls. No device time is spent.
+ */
+@Mojo(name = "simulate", requiresProject = false)
+public class JamoSimulateMojo extends AbstractMojo {
+	@Parameter(readonly = true, defaultValue = "${project}")
+	private MavenProject project;
+
+	/**
+	 * Recorded run log to replay. Default is <b>target/testRunsRaw.csv</b>, i.e. output of last "run".
+	 */
+	@Parameter(property = "recordedRunLog", defaultValue = "target/testRunsRaw.csv")
+	private File recordedRunLog = new File("target/testRunsRaw.csv");
+
+	/**
+	 * Test descriptor (same as for "run" goal). It is optional, timeouts, priorities and deadlines of test cases are
+	 * taken from it. Defaults of test case are used, when it is not found.
+	 */
+	@Parameter(defaultValue = "${suite}")
+	private String descriptor;
+
+	/**
+	 * Comma separated list of scheduling policies to compare (see <code>schedulingPolicy</code> of "run" goal).
+	 */
+	@Parameter(property = "simulate.schedulingPolicies", defaultValue = "FIFO,LONGEST_FIRST,SHORTEST_FIRST")
+	private String schedulingPolicies = "FIFO,LONGEST_FIRST,SHORTEST_FIRST";
+
+	/**
+	 * Comma separated list of timeouts (in minutes) to compare. <b>0</b> means timeouts from descriptor.
+	 */
+	@Parameter(property = "simulate.timeouts", defaultValue = "0")
+	private String timeouts = "0";
+
+	/**
+	 * Comma separated list of poll intervals (in seconds) to compare. "run" goal uses 5 seconds.
+	 */
+	@Parameter(property = "simulate.pollIntervals", defaultValue = "5")
+	private String pollIntervals = "5";
+
+	/**
+	 * Comma separated list of device counts to compare. <b>0</b> means recorded devices. Higher count than recorded
+	 * clones recorded devices together with their tests.
+	 */
+	@Parameter(property = "simulate.deviceCounts", defaultValue = "0")
+	private String deviceCounts = "0";
+
+	/**
+	 * Same as <code>retest</code> of "run" goal.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean retest;
+
+	/**
+	 * Same as <code>cancelTimedOutExecutions</code> of "run" goal.
+	 */
+	@Parameter(defaultValue = "false")
+	private boolean cancelTimedOutExecutions = false;
+
+	/**
+	 * Same as <code>retryDelayFailure</code> of "run" goal. Retry delays are simulated without jitter.
+	 */
+	@Parameter(defaultValue = "0")
+	private int retryDelayFailure = 0;
+
+	/**
+	 * Same as <code>retryDelayTimeout</code> of "run" goal.
+	 */
+	@Parameter(defaultValue = "60")
+	private int retryDelayTimeout = 60;
+
+	/**
+	 * Same as <code>retryDelayExecError</code> of "run" goal.
+	 */
+	@Parameter(defaultValue = "30")
+	private int retryDelayExecError = 30;
+
+	public void execute() throws MojoExecutionException {
+		final Log log = getLog();
+		if (!recordedRunLog.exists()) {
+			throw new MojoExecutionException("Recorded run log " + recordedRunLog.getAbsolutePath() + " does not exist. Execute \"run\" goal first, or set \"recordedRunLog\" parameter.");
+		}
+		final RecordedRunLog runLog = RecordedRunLog.load(recordedRunLog);
+		final SuiteSimulator suiteSimulator = new SuiteSimulator(log, runLog, loadTestCaseTemplates(log));
+		log.info(colorize("Replaying @|bold " + recordedRunLog.getPath() + "|@ with @|bold " + runLog.getDeviceNames().size() + "|@ recorded devices."));
+
+		final Map<ExecutionOutcome, Long> retryDelays = new EnumMap<>(ExecutionOutcome.class);
+		retryDelays.put(ExecutionOutcome.FAILURE, retryDelayFailure * 1000L);
+		retryDelays.put(ExecutionOutcome.TIMEOUT, retryDelayTimeout * 1000L);
+		retryDelays.put(ExecutionOutcome.EXECERR, retryDelayExecError * 1000L);
+		final List<SimulationResult> results = new ArrayList<>();
+		for (String schedulingPolicy : splitList(schedulingPolicies)) {
+			for (String timeout : splitList(timeouts)) {
+				for (String pollInterval : splitList(pollIntervals)) {
+					for (String deviceCount : splitList(deviceCounts)) {
+						final SimulationScenario scenario = new SimulationScenario(
+								schedulingPolicy,
+								Integer.parseInt(timeout),
+								Long.parseLong(pollInterval) * 1000L,
+								Integer.parseInt(deviceCount),
+								this.retest ? 1 : 0,
+								this.cancelTimedOutExecutions,
+								retryDelays
+						);
+						results.add(suiteSimulator.simulate(scenario));
+					}
+				}
+			}
+		}
+		final long bestMakespanMs = results.stream().mapToLong(SimulationResult::getMakespanMs).min().orElse(0);
+		for (SimulationResult result : results) {
+			final String makespan = ExecutionTimeEstimator.formatDuration(result.getMakespanMs());
+			log.info(colorize(String.format(
+					"%s: makespan %s, utilization %.0f%%, api calls %d %s, test runs %d, unsuccessful %d (simulated in %d ms)",
+					result.getScenario(),
+					result.getMakespanMs() == bestMakespanMs ? "@|bold,green " + makespan + "|@" : "@|bold " + makespan + "|@",
+					result.getDeviceUtilization() * 100,
+					result.getTotalApiCalls(),
+					result.getApiCallCounts(),
+					result.getTestRunsCount(),
+					result.getUnsuccessfulCount(),
+					result.getWallTimeMs()
+			)));
+		}
+	}
+
+	private Map<String, TestCase> loadTestCaseTemplates(Log log) {
+		final Map<String, TestCase> templates = new HashMap<>();
+		final File baseDir = this.project == null || this.project.getBasedir() == null ? new File(".") : this.project.getBasedir();
+		final File testSuiteFile = new File(baseDir.getAbsolutePath() + "/src/main/resources", (descriptor == null ? "testsuite" : descriptor) + ".xml");
+		if (!testSuiteFile.exists()) {
+			log.info("There is no descriptor " + testSuiteFile.getAbsolutePath() + ". Going to use default timeouts and priorities of test cases.");
+			return templates;
+		}
+		try {
+			final TestSuite testSuite = (TestSuite) JAXBContext.newInstance(TestSuite.class).createUnmarshaller().unmarshal(testSuiteFile);
+			for (Device device : testSuite.getDevices()) {
+				for (TestCase testCase : device.getTestCases()) {
+					templates.putIfAbsent(testCase.getName(), testCase);
+				}
+			}
+		} catch (JAXBException e) {
+			log.warn("Could not parse the descriptor file " + testSuiteFile.getAbsolutePath() + ". Going to use default timeouts and priorities of test cases.");
+		}
+		return templates;
+	}
+
+	private static List<String> splitList(String list) {
+		final List<String> values = new ArrayList<>();
+		for (String value : list.split(",")) {
+			if (!value.trim().isEmpty()) {
+				values.add(value.trim());
+			}
+		}
+		return values;
+	}
+}
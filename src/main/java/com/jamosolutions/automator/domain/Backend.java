@@ -0,0 +1,55 @@
+package com.jamosolutions.automator.domain;
+
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+
+/**
+ * Additional jamo automator service (or account) of test suite, with its own credentials and devices. Tests of its
+ * devices are executed there, results are reported together with rest of suite.
+ */
+public class Backend {
+	private Credentials credentials;
+	private List<Device> devices;
+	private String name;
+	private String url = "https://jamo-release.appspot.com";
+
+	/**
+	 * @return name of backend used in logs; url is used, when there is no name
+	 */
+	@XmlAttribute
+	public String getName() {
+		return name == null || name.isEmpty() ? url : name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	@XmlAttribute
+	public String getUrl() {
+		return url;
+	}
+
+	public void setUrl(String url) {
+		this.url = url;
+	}
+
+	@XmlElement(name = "device")
+	public List<Device> getDevices() {
+		return devices;
+	}
+
+	public void setDevices(List<Device> devices) {
+		this.devices = devices;
+	}
+
+	public Credentials getCredentials() {
+		return credentials;
+	}
+
+	public void setCredentials(Credentials credentials) {
+		this.credentials = credentials;
+	}
+}
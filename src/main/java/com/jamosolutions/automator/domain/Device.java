@@ -10,6 +10,7 @@ import javax.xml.bind.annotation.XmlElement;
 public class Device {
 	private String name;
 	private String udid;
+	private String pool;
 	private List<TestCase> testCases;
 
 	@XmlAttribute
@@ -30,6 +31,25 @@ public class Device {
 		this.udid = udid;
 	}
 
+	/**
+	 * Name of pool of equivalent devices (same model, os, ...). Device without pool is alone in its own pool.
+	 */
+	@XmlAttribute
+	public String getPool() {
+		return pool;
+	}
+
+	public void setPool(String pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * @return {@link #getPool()}, or name of device if it has no pool configured
+	 */
+	public String poolName() {
+		return pool == null || pool.isEmpty() ? name : pool;
+	}
+
 	@XmlElement(name = "testcase")
 	public List<TestCase> getTestCases() {
 		if(null == testCases) {
@@ -0,0 +1,41 @@
+package com.jamosolutions.automator.domain;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Response of bulk execution status query, see
+ * {@link com.jamosolutions.automator.help.JamoRestExecutionStatusSyncEndpoint}.
+ */
+public class ExecutionStatuses {
+    private boolean success;
+    private Map<String, String> statuses;
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    /**
+     * @return status of each execution (like {@link com.jamosolutions.automator.help.JamoAutomatorClient#EXECUTION_STATUS_RUNNING}),
+     * keyed by execution id
+     */
+    public Map<String, String> getStatuses() {
+        if (statuses == null) {
+            statuses = new HashMap<>();
+        }
+        return statuses;
+    }
+
+    public void setStatuses(Map<String, String> statuses) {
+        this.statuses = statuses;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionStatuses(" + this.success + ";" + this.statuses + ")";
+    }
+}
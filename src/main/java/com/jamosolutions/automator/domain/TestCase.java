@@ -1,11 +1,15 @@
 package com.jamosolutions.automator.domain;
 
 import javax.xml.bind.annotation.XmlAttribute;
+import java.util.Arrays;
 
 public class TestCase {
     private Integer timeout = 15;
     private String name;
     private String specification;
+    private String tags;
+    private Integer priority = 1;
+    private Integer deadline;
 
     /**
      * Returns configured timeout (from input xml file). Value should represent number of minutes. Default is 15.
@@ -39,6 +43,59 @@ public class TestCase {
         this.specification = specification;
     }
 
+    /**
+     * Priority of test case, higher value means more important test case. Default is 1.
+     *
+     * @return priority of test case
+     */
+    @XmlAttribute
+    public Integer getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Integer priority) {
+        this.priority = priority;
+    }
+
+    /**
+     * Deadline of test case in minutes from start of suite. Used by earliest deadline first scheduling, test cases
+     * without deadline are scheduled after ones with deadline.
+     *
+     * @return deadline in minutes; can be null
+     */
+    @XmlAttribute
+    public Integer getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(Integer deadline) {
+        this.deadline = deadline;
+    }
+
+    /**
+     * Comma separated list of tags, like <code>smoke,login</code>.
+     *
+     * @return tags as configured in descriptor; can be null
+     */
+    @XmlAttribute
+    public String getTags() {
+        return tags;
+    }
+
+    public void setTags(String tags) {
+        this.tags = tags;
+    }
+
+    /**
+     * @return true, if {@link #getTags()} contains given tag (case insensitive)
+     */
+    public boolean hasTag(String tag) {
+        if (tags == null) {
+            return false;
+        }
+        return Arrays.stream(tags.split(",")).map(String::trim).anyMatch(t -> t.equalsIgnoreCase(tag));
+    }
+
     @Override
     public String toString() {
         return "TestCase(" + this.name + ";" + this.specification + ")";
@@ -1,15 +1,18 @@
 package com.jamosolutions.automator.domain;
 
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.xml.bind.annotation.XmlAttribute;
 import javax.xml.bind.annotation.XmlElement;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
 @XmlRootElement(name = "testsuite")
 public class TestSuite {
 	private Credentials credentials;
 	private List<Device> devices;
+	private List<Backend> backends;
 	private String name;
 	private String url = "https://jamo-release.appspot.com";
 
@@ -47,4 +50,37 @@ public class TestSuite {
 	public void setCredentials(Credentials credentials) {
 		this.credentials = credentials;
 	}
+
+	/**
+	 * @return additional services (accounts) of suite, each with its own credentials and devices
+	 */
+	@XmlElement(name = "backend")
+	public List<Backend> getBackends() {
+		return backends;
+	}
+
+	public void setBackends(List<Backend> backends) {
+		this.backends = backends;
+	}
+
+	/**
+	 * @return all backends of suite; devices listed directly in suite form first one (with url and credentials of
+	 * suite), followed by backends from {@link #getBackends()}
+	 */
+	@XmlTransient
+	public List<Backend> getAllBackends() {
+		final List<Backend> allBackends = new ArrayList<>();
+		if (devices != null && !devices.isEmpty()) {
+			final Backend defaultBackend = new Backend();
+			defaultBackend.setName("default");
+			defaultBackend.setUrl(url);
+			defaultBackend.setCredentials(credentials);
+			defaultBackend.setDevices(devices);
+			allBackends.add(defaultBackend);
+		}
+		if (backends != null) {
+			allBackends.addAll(backends);
+		}
+		return allBackends;
+	}
 }
\ No newline at end of file
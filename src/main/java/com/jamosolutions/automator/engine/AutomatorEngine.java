@@ -0,0 +1,266 @@
+package com.jamosolutions.automator.engine;
+
+import com.jamosolutions.automator.domain.Backend;
+import com.jamosolutions.automator.domain.Credentials;
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import com.jamosolutions.automator.domain.TestSuite;
+import com.jamosolutions.automator.help.DeviceLeaseRegistry;
+import com.jamosolutions.automator.help.ExecutionBackend;
+import com.jamosolutions.automator.help.ExecutionTimeEstimator;
+import com.jamosolutions.automator.help.JamoAutomatorClient;
+import com.jamosolutions.automator.help.PlannedTestRun;
+import com.jamosolutions.automator.help.SchedulingPolicy;
+import com.jamosolutions.automator.help.SuiteResourceCache;
+import com.jamosolutions.automator.help.TestDurationHistory;
+import com.jamosolutions.automator.help.TestOrchestrator;
+import com.jamosolutions.automator.help.TestRun;
+import com.jamosolutions.automator.help.TestRunReporterListener;
+import org.apache.maven.plugin.logging.Log;
+
+import javax.xml.bind.JAXBException;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+/**
+ * Entry point for running of suites from other JVM applications (without maven).
+ * <p>
+ * Each submitted suite is driven by rounds (see {@link TestOrchestrator#executeRound()}) scheduled on thread pool of
+ * engine. Suite does not block thread between its rounds, so that many suites can be executed by few threads. Progress
+ * of suite is reported to {@link SuiteOptions#addListener(TestRunReporterListener) listeners} and its result by
+ * returned future. Cancelling of future stops suite after its current round (test runs already started on devices are
+ * not cancelled).
+ * <p>
+ * Suites of one engine share login of same service and credentials and cached duration history files.
+ */
+public class AutomatorEngine implements AutoCloseable {
+    private static final Logger DEFAULT_LOGGER = Logger.getLogger(AutomatorEngine.class.getName());
+
+    private final ScheduledExecutorService executor;
+    private final boolean ownExecutor;
+    private final Logger logger;
+    private final SuiteResourceCache suiteResourceCache = new SuiteResourceCache();
+    private final AtomicInteger runningSuiteCount = new AtomicInteger();
+
+    /**
+     * Engine with own thread pool of given size, which is shut down on {@link #close()}.
+     */
+    public AutomatorEngine(int threads) {
+        this(Executors.newScheduledThreadPool(threads, new EngineThreadFactory()), true, DEFAULT_LOGGER);
+    }
+
+    /**
+     * Engine using given thread pool (which is not shut down on {@link #close()}) and logger.
+     */
+    public AutomatorEngine(ScheduledExecutorService executor, Logger logger) {
+        this(executor, false, logger);
+    }
+
+    private AutomatorEngine(ScheduledExecutorService executor, boolean ownExecutor, Logger logger) {
+        this.executor = executor;
+        this.ownExecutor = ownExecutor;
+        this.logger = logger;
+    }
+
+    /**
+     * @param descriptor xml descriptor of suite (same one as used by "run" goal)
+     */
+    public TestSuite loadTestSuite(File descriptor) {
+        try {
+            return (TestSuite) suiteResourceCache.getTestSuiteContext().createUnmarshaller().unmarshal(descriptor);
+        } catch (JAXBException e) {
+            throw new RuntimeException("Could not parse the descriptor file " + descriptor.getAbsolutePath() + ". ex=" + e.getMessage(), e);
+        }
+    }
+
+    public CompletableFuture<SuiteResult> submit(TestSuite testSuite) {
+        return submit(testSuite, new SuiteOptions());
+    }
+
+    /**
+     * Start execution of given suite. Returned future is completed by result of suite, or exceptionally when suite
+     * could not be executed.
+     */
+    public CompletableFuture<SuiteResult> submit(TestSuite testSuite, SuiteOptions options) {
+        final SuiteExecution suiteExecution = new SuiteExecution(testSuite, options);
+        runningSuiteCount.incrementAndGet();
+        suiteExecution.future.whenComplete((suiteResult, throwable) -> runningSuiteCount.decrementAndGet());
+        executor.execute(suiteExecution::round);
+        return suiteExecution.future;
+    }
+
+    /**
+     * @return number of submitted suites, which have not finished yet
+     */
+    public int getRunningSuiteCount() {
+        return runningSuiteCount.get();
+    }
+
+    public SuiteResourceCache getSuiteResourceCache() {
+        return suiteResourceCache;
+    }
+
+    /**
+     * Shut down own thread pool of engine (running suites are interrupted).
+     */
+    @Override
+    public void close() {
+        if (ownExecutor) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * State of single submitted suite. All its methods are called by one round at a time, which means by one thread
+     * at a time (executor provides visibility between rounds).
+     */
+    private class SuiteExecution implements TestRunReporterListener {
+        private final TestSuite testSuite;
+        private final SuiteOptions options;
+        private final Log log;
+        private final CompletableFuture<SuiteResult> future = new CompletableFuture<>();
+        private final List<TestRun> finalTestRuns = new ArrayList<>();
+        private final Map<PlannedTestRun, String> skippedTestRuns = new LinkedHashMap<>();
+        private final long startMillis = System.currentTimeMillis();
+        private int attemptsCount = 0;
+        private TestOrchestrator testOrchestrator;
+        private TestDurationHistory testDurationHistory;
+        private DeviceLeaseRegistry deviceLeaseRegistry;
+
+        private SuiteExecution(TestSuite testSuite, SuiteOptions options) {
+            this.testSuite = testSuite;
+            this.options = options;
+            this.log = new JulLog(logger, "[" + testSuite.getName() + "] ");
+        }
+
+        private void round() {
+            if (future.isDone()) {
+                // cancelled by caller
+                finish();
+                return;
+            }
+            try {
+                if (testOrchestrator == null) {
+                    setUp();
+                }
+                if (testOrchestrator.isStillSomethingNeedToBeDone()) {
+                    testOrchestrator.executeRound();
+                }
+                if (!testOrchestrator.isStillSomethingNeedToBeDone()) {
+                    finish();
+                    future.complete(new SuiteResult(testSuite.getName(), startMillis, System.currentTimeMillis(),
+                            finalTestRuns, skippedTestRuns, attemptsCount, testOrchestrator.getAbortReason()));
+                    return;
+                }
+                executor.schedule(this::round, options.getRoundDurationMs(), TimeUnit.MILLISECONDS);
+            } catch (RuntimeException e) {
+                log.error("Suite has failed. ex=" + e.getMessage(), e);
+                finish();
+                future.completeExceptionally(e);
+            }
+        }
+
+        private void setUp() {
+            if (options.getDurationHistoryFile() != null) {
+                testDurationHistory = suiteResourceCache.openDurationHistory(log, options.getDurationHistoryFile());
+            } else {
+                testDurationHistory = new TestDurationHistory(log, null);
+            }
+            final ExecutionTimeEstimator executionTimeEstimator = new ExecutionTimeEstimator(testDurationHistory);
+            final Map<Backend, JamoAutomatorClient> backendClients = new LinkedHashMap<>();
+            for (Backend backend : testSuite.getAllBackends()) {
+                backendClients.put(backend, createJamoAutomatorClient(backend.getCredentials(), backend.getUrl()));
+            }
+            if (backendClients.isEmpty()) {
+                throw new RuntimeException("Suite " + testSuite.getName() + " has no backend (url and credentials) with devices!");
+            }
+            testOrchestrator = new TestOrchestrator(backendClients.values().iterator().next(), log, options.getRetestCount());
+            final List<Device> allDevices = new ArrayList<>();
+            for (Map.Entry<Backend, JamoAutomatorClient> backendClient : backendClients.entrySet()) {
+                final List<Device> devices = getDevices(backendClient.getKey());
+                testOrchestrator.registerBackend(new ExecutionBackend(backendClient.getKey().getName(), backendClient.getValue()), devices);
+                allDevices.addAll(devices);
+            }
+            testOrchestrator.setSchedulingPolicy(SchedulingPolicy.byName(options.getSchedulingPolicy(), executionTimeEstimator, testDurationHistory));
+            if (options.getDeviceLeaseDirectory() != null) {
+                deviceLeaseRegistry = new DeviceLeaseRegistry(log, options.getDeviceLeaseDirectory(), options.getDeviceLeaseTimeoutMs(), testSuite.getName());
+                testOrchestrator.setDeviceLeaseRegistry(deviceLeaseRegistry);
+            }
+            final List<TestRunReporterListener> testRunReporterListeners = testOrchestrator.getTestRunReporterListeners();
+            testRunReporterListeners.add(this);
+            testRunReporterListeners.addAll(options.getListeners());
+            if (options.getDurationHistoryFile() != null) {
+                testRunReporterListeners.add(testDurationHistory);
+            }
+            for (Device device : allDevices) {
+                for (TestCase testCase : device.getTestCases()) {
+                    testOrchestrator.addTestForExecution(new PlannedTestRun(device, testCase));
+                }
+            }
+            log.info("Suite has been started with " + allDevices.size() + " devices.");
+        }
+
+        private JamoAutomatorClient createJamoAutomatorClient(Credentials credentials, String url) {
+            final JamoAutomatorClient jamoAutomatorClient = new JamoAutomatorClient(log, credentials, url);
+            if (options.getClientConfigurer() != null) {
+                options.getClientConfigurer().accept(jamoAutomatorClient);
+            }
+            suiteResourceCache.shareLogin(jamoAutomatorClient);
+            return jamoAutomatorClient;
+        }
+
+        /**
+         * Release resources of suite (called once, whether suite has finished, failed or has been cancelled).
+         */
+        private void finish() {
+            if (deviceLeaseRegistry != null) {
+                deviceLeaseRegistry.close();
+                deviceLeaseRegistry = null;
+            }
+            if (testDurationHistory != null && options.getDurationHistoryFile() != null) {
+                testDurationHistory.save();
+                suiteResourceCache.durationHistorySaved(options.getDurationHistoryFile(), testDurationHistory);
+                testDurationHistory = null;
+            }
+        }
+
+        @Override
+        public void finishTestRunExecution(TestRun testRun, boolean isFinalRunForPlannedTestRun) {
+            attemptsCount++;
+            if (isFinalRunForPlannedTestRun) {
+                finalTestRuns.add(testRun);
+            }
+        }
+
+        @Override
+        public void skipPlannedTestRun(PlannedTestRun plannedTestRun, String reason) {
+            skippedTestRuns.put(plannedTestRun, reason);
+        }
+    }
+
+    private static List<Device> getDevices(Backend backend) {
+        return backend.getDevices() == null ? Collections.emptyList() : backend.getDevices();
+    }
+
+    private static class EngineThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "jamo-engine-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.jamosolutions.automator.engine;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Adapter of {@link java.util.logging.Logger} to log interface used internally by orchestrator and clients. Colors
+ * (ansi escape sequences) are removed from messages and each message is prefixed by name of suite, so that log of
+ * concurrent suites can be told apart.
+ */
+class JulLog implements Log {
+    private static final String ANSI_ESCAPE = "\u001B\\[[;\\d]*m";
+
+    private final Logger logger;
+    private final String prefix;
+
+    JulLog(Logger logger, String prefix) {
+        this.logger = logger;
+        this.prefix = prefix;
+    }
+
+    private void log(Level level, CharSequence content, Throwable error) {
+        if (!logger.isLoggable(level)) {
+            return;
+        }
+        final String message = content == null ? "" : content.toString().replaceAll(ANSI_ESCAPE, "");
+        logger.log(level, prefix + message, error);
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return logger.isLoggable(Level.FINE);
+    }
+
+    @Override
+    public void debug(CharSequence content) {
+        log(Level.FINE, content, null);
+    }
+
+    @Override
+    public void debug(CharSequence content, Throwable error) {
+        log(Level.FINE, content, error);
+    }
+
+    @Override
+    public void debug(Throwable error) {
+        log(Level.FINE, null, error);
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return logger.isLoggable(Level.INFO);
+    }
+
+    @Override
+    public void info(CharSequence content) {
+        log(Level.INFO, content, null);
+    }
+
+    @Override
+    public void info(CharSequence content, Throwable error) {
+        log(Level.INFO, content, error);
+    }
+
+    @Override
+    public void info(Throwable error) {
+        log(Level.INFO, null, error);
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return logger.isLoggable(Level.WARNING);
+    }
+
+    @Override
+    public void warn(CharSequence content) {
+        log(Level.WARNING, content, null);
+    }
+
+    @Override
+    public void warn(CharSequence content, Throwable error) {
+        log(Level.WARNING, content, error);
+    }
+
+    @Override
+    public void warn(Throwable error) {
+        log(Level.WARNING, null, error);
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return logger.isLoggable(Level.SEVERE);
+    }
+
+    @Override
+    public void error(CharSequence content) {
+        log(Level.SEVERE, content, null);
+    }
+
+    @Override
+    public void error(CharSequence content, Throwable error) {
+        log(Level.SEVERE, content, error);
+    }
+
+    @Override
+    public void error(Throwable error) {
+        log(Level.SEVERE, null, error);
+    }
+}
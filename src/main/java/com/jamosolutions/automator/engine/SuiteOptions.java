@@ -0,0 +1,122 @@
+package com.jamosolutions.automator.engine;
+
+import com.jamosolutions.automator.help.JamoAutomatorClient;
+import com.jamosolutions.automator.help.TestRunReporterListener;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Options of single suite submitted to {@link AutomatorEngine}. Defaults match defaults of "run" goal, where there
+ * is an equivalent parameter.
+ */
+public class SuiteOptions {
+    private int retestCount = 0;
+    private long roundDurationMs = 5000;
+    private String schedulingPolicy = "FIFO";
+    private File durationHistoryFile = null;
+    private File deviceLeaseDirectory = null;
+    private long deviceLeaseTimeoutMs = 120 * 1000L;
+    private Consumer<JamoAutomatorClient> clientConfigurer = null;
+    private final List<TestRunReporterListener> listeners = new ArrayList<>();
+
+    public int getRetestCount() {
+        return retestCount;
+    }
+
+    /**
+     * @param retestCount number of retests of test runs with negative outcome (see <code>retest</code> of "run" goal)
+     */
+    public SuiteOptions setRetestCount(int retestCount) {
+        this.retestCount = retestCount;
+        return this;
+    }
+
+    public long getRoundDurationMs() {
+        return roundDurationMs;
+    }
+
+    /**
+     * @param roundDurationMs pause between orchestration rounds of suite (reports are polled once per round)
+     */
+    public SuiteOptions setRoundDurationMs(long roundDurationMs) {
+        this.roundDurationMs = roundDurationMs;
+        return this;
+    }
+
+    public String getSchedulingPolicy() {
+        return schedulingPolicy;
+    }
+
+    /**
+     * @param schedulingPolicy name of scheduling policy (see <code>schedulingPolicy</code> of "run" goal)
+     */
+    public SuiteOptions setSchedulingPolicy(String schedulingPolicy) {
+        this.schedulingPolicy = schedulingPolicy;
+        return this;
+    }
+
+    public File getDurationHistoryFile() {
+        return durationHistoryFile;
+    }
+
+    /**
+     * @param durationHistoryFile file with duration history used by estimates and scheduling policies and updated by
+     *                            suite; null (default) means no history
+     */
+    public SuiteOptions setDurationHistoryFile(File durationHistoryFile) {
+        this.durationHistoryFile = durationHistoryFile;
+        return this;
+    }
+
+    public File getDeviceLeaseDirectory() {
+        return deviceLeaseDirectory;
+    }
+
+    /**
+     * @param deviceLeaseDirectory directory of device leases (see <code>deviceLeaseDirectory</code> of "run" goal),
+     *                             so that concurrent suites (of this engine, of other engines and of builds on same
+     *                             host) do not use same device at same time; null (default) means no leases
+     */
+    public SuiteOptions setDeviceLeaseDirectory(File deviceLeaseDirectory) {
+        this.deviceLeaseDirectory = deviceLeaseDirectory;
+        return this;
+    }
+
+    public long getDeviceLeaseTimeoutMs() {
+        return deviceLeaseTimeoutMs;
+    }
+
+    public SuiteOptions setDeviceLeaseTimeoutMs(long deviceLeaseTimeoutMs) {
+        this.deviceLeaseTimeoutMs = deviceLeaseTimeoutMs;
+        return this;
+    }
+
+    public Consumer<JamoAutomatorClient> getClientConfigurer() {
+        return clientConfigurer;
+    }
+
+    /**
+     * @param clientConfigurer called for client of each backend of suite, before suite starts (rate limits, retry
+     *                         policy, ...)
+     */
+    public SuiteOptions setClientConfigurer(Consumer<JamoAutomatorClient> clientConfigurer) {
+        this.clientConfigurer = clientConfigurer;
+        return this;
+    }
+
+    public List<TestRunReporterListener> getListeners() {
+        return listeners;
+    }
+
+    /**
+     * Add listener notified about each finished (or skipped) test run of suite. Listeners are called from thread of
+     * engine, one suite never calls its listeners concurrently.
+     */
+    public SuiteOptions addListener(TestRunReporterListener listener) {
+        this.listeners.add(listener);
+        return this;
+    }
+}
@@ -0,0 +1,102 @@
+package com.jamosolutions.automator.engine;
+
+import com.jamosolutions.automator.help.ExecutionOutcome;
+import com.jamosolutions.automator.help.PlannedTestRun;
+import com.jamosolutions.automator.help.TestRun;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of suite executed by {@link AutomatorEngine}: final test run of each planned test run and planned test runs,
+ * which have been skipped.
+ */
+public class SuiteResult {
+    private final String suiteName;
+    private final long startMillis;
+    private final long finishMillis;
+    private final List<TestRun> finalTestRuns;
+    private final Map<PlannedTestRun, String> skippedTestRuns;
+    private final int attemptsCount;
+    private final String abortReason;
+
+    SuiteResult(String suiteName, long startMillis, long finishMillis, List<TestRun> finalTestRuns,
+                Map<PlannedTestRun, String> skippedTestRuns, int attemptsCount, String abortReason) {
+        this.suiteName = suiteName;
+        this.startMillis = startMillis;
+        this.finishMillis = finishMillis;
+        this.finalTestRuns = Collections.unmodifiableList(finalTestRuns);
+        this.skippedTestRuns = Collections.unmodifiableMap(skippedTestRuns);
+        this.attemptsCount = attemptsCount;
+        this.abortReason = abortReason;
+    }
+
+    public String getSuiteName() {
+        return suiteName;
+    }
+
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    public long getFinishMillis() {
+        return finishMillis;
+    }
+
+    public long getDurationMs() {
+        return finishMillis - startMillis;
+    }
+
+    /**
+     * @return last test run of each executed planned test run, in order of finish
+     */
+    public List<TestRun> getFinalTestRuns() {
+        return finalTestRuns;
+    }
+
+    /**
+     * @return skipped planned test runs with reason of skip
+     */
+    public Map<PlannedTestRun, String> getSkippedTestRuns() {
+        return skippedTestRuns;
+    }
+
+    /**
+     * @return number of all test runs, retried ones included
+     */
+    public int getAttemptsCount() {
+        return attemptsCount;
+    }
+
+    /**
+     * @return reason of suite abort, or null when suite has not been aborted
+     */
+    public String getAbortReason() {
+        return abortReason;
+    }
+
+    /**
+     * @return number of final test runs with given outcome
+     */
+    public int getCount(ExecutionOutcome outcome) {
+        return (int) finalTestRuns.stream().filter(testRun -> testRun.getExecutionOutcome() == outcome).count();
+    }
+
+    /**
+     * @return true, when suite has not been aborted and all its final test runs have succeeded
+     */
+    public boolean isSuccessful() {
+        return abortReason == null && getCount(ExecutionOutcome.SUCCESS) == finalTestRuns.size();
+    }
+
+    @Override
+    public String toString() {
+        return "SuiteResult(" + suiteName + ";success=" + getCount(ExecutionOutcome.SUCCESS) +
+                ";failure=" + getCount(ExecutionOutcome.FAILURE) +
+                ";timeout=" + getCount(ExecutionOutcome.TIMEOUT) +
+                ";execErr=" + getCount(ExecutionOutcome.EXECERR) +
+                ";skipped=" + skippedTestRuns.size() +
+                ";durationMs=" + getDurationMs() + ")";
+    }
+}
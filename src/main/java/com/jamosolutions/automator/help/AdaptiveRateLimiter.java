@@ -0,0 +1,159 @@
+package com.jamosolutions.automator.help;
+
+import java.time.Clock;
+
+/**
+ * Token bucket rate limiter with AIMD (additive increase, multiplicative decrease) adaptation of its rate.
+ * <p>
+ * Bucket holds at most <code>burst</code> tokens and it is refilled with current rate. Each call takes single token.
+ * Outcome of each call should be reported by {@link #recordResponse(long, boolean)}:
+ * <ul>
+ *     <li>call which has failed due overload of service (5xx, I/O error), or which has taken longer than latency
+ *     threshold, halves current rate (at most once per {@link #DECREASE_COOLDOWN_MS})</li>
+ *     <li>fast successful call increases rate by small step, up to configured rate</li>
+ * </ul>
+ * So configured rate is never exceeded and limiter backs off, as soon as service starts to struggle.
+ */
+public class AdaptiveRateLimiter {
+    /**
+     * Limiter without any limit.
+     */
+    public static final AdaptiveRateLimiter UNLIMITED = new AdaptiveRateLimiter(Clock.systemUTC(), 0, 0, 0);
+    /**
+     * Minimal time between two rate decreases, so that burst of errors from single overload does not drop rate to
+     * minimum at once.
+     */
+    public static final long DECREASE_COOLDOWN_MS = 1000;
+    private static final double DECREASE_FACTOR = 0.5;
+    /**
+     * Rate never drops under this fraction of configured rate.
+     */
+    private static final double MIN_RATE_FRACTION = 1.0 / 16;
+    /**
+     * Additive increase per successful call, as fraction of configured rate.
+     */
+    private static final double INCREASE_FRACTION = 1.0 / 20;
+
+    private final Clock clock;
+    private final double maxRatePerSecond;
+    private final double burst;
+    private final long latencyThresholdMs;
+    private double ratePerSecond;
+    private double tokens;
+    private long lastRefillMillis;
+    private long lastDecreaseMillis = 0;
+    private int throttledCount = 0;
+    private int decreaseCount = 0;
+
+    /**
+     * @param clock              source of time
+     * @param ratePerSecond      maximal (and initial) number of calls per second; zero or negative means no limit
+     * @param burst              maximal number of calls, which can be done at once (size of bucket); at least 1
+     * @param latencyThresholdMs calls slower than this are considered as sign of overload; zero disables latency
+     *                           based decrease
+     */
+    public AdaptiveRateLimiter(Clock clock, double ratePerSecond, int burst, long latencyThresholdMs) {
+        this.clock = clock;
+        this.maxRatePerSecond = ratePerSecond;
+        this.ratePerSecond = ratePerSecond;
+        this.burst = Math.max(1, burst);
+        this.latencyThresholdMs = latencyThresholdMs;
+        this.tokens = this.burst;
+        this.lastRefillMillis = clock.millis();
+    }
+
+    public boolean isUnlimited() {
+        return maxRatePerSecond <= 0;
+    }
+
+    /**
+     * Take token, if there is any.
+     *
+     * @return true, if call can be done now; false, if caller should try it later
+     */
+    public synchronized boolean tryAcquire() {
+        if (isUnlimited()) {
+            return true;
+        }
+        refill();
+        if (tokens >= 1) {
+            tokens--;
+            return true;
+        }
+        throttledCount++;
+        return false;
+    }
+
+    /**
+     * Take token, waiting for it if needed.
+     */
+    public void acquire() throws InterruptedException {
+        final long waitMs;
+        synchronized (this) {
+            if (isUnlimited()) {
+                return;
+            }
+            refill();
+            tokens--;
+            waitMs = tokens >= 0 ? 0 : (long) Math.ceil(-tokens / ratePerSecond * 1000);
+            if (waitMs > 0) {
+                throttledCount++;
+            }
+        }
+        if (waitMs > 0) {
+            Thread.sleep(waitMs);
+        }
+    }
+
+    /**
+     * Report outcome of call, so that rate can adapt.
+     *
+     * @param latencyMs duration of call
+     * @param overload  true, if call has failed in way, which signals overload of service (5xx, I/O error, HTTP 429)
+     */
+    public synchronized void recordResponse(long latencyMs, boolean overload) {
+        if (isUnlimited()) {
+            return;
+        }
+        final boolean slow = latencyThresholdMs > 0 && latencyMs > latencyThresholdMs;
+        if (overload || slow) {
+            final long now = clock.millis();
+            if (now - lastDecreaseMillis >= DECREASE_COOLDOWN_MS) {
+                refill();
+                lastDecreaseMillis = now;
+                ratePerSecond = Math.max(maxRatePerSecond * MIN_RATE_FRACTION, ratePerSecond * DECREASE_FACTOR);
+                tokens = Math.min(tokens, 0);
+                decreaseCount++;
+            }
+        } else {
+            ratePerSecond = Math.min(maxRatePerSecond, ratePerSecond + maxRatePerSecond * INCREASE_FRACTION);
+        }
+    }
+
+    private void refill() {
+        final long now = clock.millis();
+        tokens = Math.min(burst, tokens + (now - lastRefillMillis) * ratePerSecond / 1000);
+        lastRefillMillis = now;
+    }
+
+    /**
+     * @return current (adapted) rate in calls per second
+     */
+    public synchronized double getRatePerSecond() {
+        return ratePerSecond;
+    }
+
+    /**
+     * @return number of calls, which had to wait (or have been postponed) due to limit
+     */
+    public synchronized int getThrottledCount() {
+        return throttledCount;
+    }
+
+    /**
+     * @return number of multiplicative decreases of rate
+     */
+    public synchronized int getDecreaseCount() {
+        return decreaseCount;
+    }
+}
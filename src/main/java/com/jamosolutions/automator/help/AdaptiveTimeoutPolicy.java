@@ -0,0 +1,59 @@
+package com.jamosolutions.automator.help;
+
+/**
+ * {@link TimeoutPolicy} which learns timeouts from {@link TestDurationHistory}. Timeout for (device, testCase) pair is
+ * computed as high percentile of historical durations plus margin, but never lower than configured minimum and never
+ * higher than timeout configured for test case.
+ * <p>
+ * Configured timeout is used when:
+ * <ul>
+ *     <li>there is not enough samples in history</li>
+ *     <li>test run is retry ({@link PlannedTestRun#getAttemptCount()} &gt; 0). Previous attempt could have been
+ *     timeouted by adaptive timeout, and we do not want to timeout slow (but correct) test over and over again.</li>
+ * </ul>
+ */
+public class AdaptiveTimeoutPolicy implements TimeoutPolicy {
+    private final TestDurationHistory testDurationHistory;
+    private final double percentile;
+    private final int marginPercent;
+    private final int minSamples;
+    private final long minTimeoutMs;
+
+    /**
+     * @param testDurationHistory source of historical durations
+     * @param percentile          percentile of historical durations used as base (for example 95)
+     * @param marginPercent       margin added on top of percentile, in percents of percentile value (for example 50)
+     * @param minSamples          minimal number of historical samples needed for adaptive timeout
+     * @param minTimeoutMs        lower bound for adaptive timeout
+     */
+    public AdaptiveTimeoutPolicy(TestDurationHistory testDurationHistory, double percentile, int marginPercent, int minSamples, long minTimeoutMs) {
+        this.testDurationHistory = testDurationHistory;
+        this.percentile = percentile;
+        this.marginPercent = marginPercent;
+        this.minSamples = minSamples;
+        this.minTimeoutMs = minTimeoutMs;
+    }
+
+    @Override
+    public EffectiveTimeout getEffectiveTimeout(PlannedTestRun plannedTestRun) {
+        final EffectiveTimeout configured = EffectiveTimeout.configured(plannedTestRun);
+        if (plannedTestRun.getAttemptCount() > 0) {
+            return configured;
+        }
+        final TestDurationHistory.DurationStats stats = testDurationHistory.getStats(plannedTestRun.getDevice(), plannedTestRun.getTestCase());
+        if (stats.getCount() < minSamples) {
+            return configured;
+        }
+        final long percentileMs = stats.getPercentileMs(percentile);
+        final long adaptiveMs = Math.max(minTimeoutMs, percentileMs + percentileMs * marginPercent / 100);
+        if (adaptiveMs >= configured.getTimeoutMs()) {
+            return configured;
+        }
+        return new EffectiveTimeout(
+                adaptiveMs,
+                true,
+                "adaptive p" + (int) percentile + " of " + stats.getCount() + " samples (" + percentileMs / 1000 + "s) + " +
+                        marginPercent + "%, " + configured.getDescription()
+        );
+    }
+}
@@ -0,0 +1,20 @@
+package com.jamosolutions.automator.help;
+
+/**
+ * Type of call to jamo automator service. Each type has its own {@link AdaptiveRateLimiter} in
+ * {@link JamoAutomatorClient}.
+ */
+public enum ApiCallType {
+    /**
+     * Request for test execution (run, runSpec endpoints).
+     */
+    RUN,
+    /**
+     * Request for report of execution.
+     */
+    REPORT,
+    /**
+     * Login request.
+     */
+    LOGIN
+}
@@ -0,0 +1,21 @@
+package com.jamosolutions.automator.help;
+
+/**
+ * State of cancel (stop) request for execution.
+ *
+ * @see ExecutionCancelEndpoint
+ */
+public enum CancelStatus {
+    /**
+     * Cancel has been requested, but service has not confirmed, that execution is stopped yet.
+     */
+    REQUESTED,
+    /**
+     * Execution is not running anymore (stopped, or finished on its own in meantime). Device is free.
+     */
+    CONFIRMED,
+    /**
+     * Cancel request has failed (endpoint not supported, network problem, ...). State of device is unknown.
+     */
+    FAILED
+}
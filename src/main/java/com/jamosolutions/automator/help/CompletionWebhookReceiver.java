@@ -0,0 +1,195 @@
+package com.jamosolutions.automator.help;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lightweight embedded HTTP listener for completion callbacks. Its {@link #getCallbackUrl()} is sent with each run
+ * request (see {@link JamoAutomatorClient#setCompletionCallbackUrl(String)}) and service is expected to call it, when
+ * execution finishes:
+ * <pre>
+ * POST {callbackUrl}
+ * {"executionId": "..."}
+ * </pre>
+ * Execution id can be passed as <code>executionId</code> query parameter instead of json body. Callback url contains
+ * random token, requests without it are rejected, so that nobody else can finish test runs.
+ * <p>
+ * Received execution ids are collected by {@link TestOrchestrator} using {@link #drainCompletedExecutionIds()}. Note
+ * that callback protocol is not part of documented integration api; see <code>StubJamoAutomatorServer</code> of tests for local
+ * stand-in of service side.
+ */
+public class CompletionWebhookReceiver implements AutoCloseable {
+    public static final String CALLBACK_PATH = "/jamo/completion";
+    public static final String TOKEN_PARAMETER = "token";
+    public static final String EXECUTION_ID_PARAMETER = "executionId";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Log log;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final String callbackUrl;
+    private final String token = UUID.randomUUID().toString();
+    private final Queue<String> completedExecutionIds = new ConcurrentLinkedQueue<>();
+    /**
+     * Released on each accepted callback, see {@link #awaitCallback(long)}.
+     */
+    private final Semaphore callbackSignal = new Semaphore(0);
+    private final AtomicInteger receivedCount = new AtomicInteger(0);
+    private final AtomicInteger rejectedCount = new AtomicInteger(0);
+
+    private CompletionWebhookReceiver(Log log, HttpServer httpServer, ExecutorService executor, String publicHost) {
+        this.log = log;
+        this.httpServer = httpServer;
+        this.executor = executor;
+        this.callbackUrl = "http://" + publicHost + ":" + httpServer.getAddress().getPort() + CALLBACK_PATH + "?" + TOKEN_PARAMETER + "=" + token;
+    }
+
+    /**
+     * Start listener.
+     *
+     * @param bindAddress address to listen on (for example 0.0.0.0)
+     * @param port        port to listen on; 0 means any free port
+     * @param publicHost  host name (or address) used in callback url, i.e. address of this machine as seen by service
+     */
+    public static CompletionWebhookReceiver start(Log log, String bindAddress, int port, String publicHost) {
+        final HttpServer httpServer;
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to start completion webhook listener on " + bindAddress + ":" + port, ex);
+        }
+        final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "jamo-completion-webhook");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final CompletionWebhookReceiver receiver = new CompletionWebhookReceiver(log, httpServer, executor, publicHost);
+        httpServer.createContext(CALLBACK_PATH, receiver::handle);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        log.info("Completion webhook is listening on " + bindAddress + ":" + httpServer.getAddress().getPort() + ".");
+        return receiver;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            if (!token.equals(query.get(TOKEN_PARAMETER))) {
+                rejectedCount.incrementAndGet();
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+            String executionId = query.get(EXECUTION_ID_PARAMETER);
+            if (executionId == null) {
+                executionId = readExecutionId(exchange.getRequestBody());
+            }
+            if (executionId == null || executionId.isEmpty()) {
+                rejectedCount.incrementAndGet();
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            receivedCount.incrementAndGet();
+            completedExecutionIds.add(executionId);
+            callbackSignal.release();
+            log.debug("Completion callback received for execution " + executionId + ".");
+            exchange.sendResponseHeaders(204, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static String readExecutionId(InputStream body) {
+        try {
+            final JsonNode json = OBJECT_MAPPER.readTree(body);
+            return json == null || !json.hasNonNull(EXECUTION_ID_PARAMETER) ? null : json.get(EXECUTION_ID_PARAMETER).asText();
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    static Map<String, String> parseQuery(String rawQuery) {
+        final Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String pair : rawQuery.split("&")) {
+            final int separator = pair.indexOf('=');
+            if (separator > 0) {
+                try {
+                    parameters.put(URLDecoder.decode(pair.substring(0, separator), "UTF-8"), URLDecoder.decode(pair.substring(separator + 1), "UTF-8"));
+                } catch (UnsupportedEncodingException ex) {
+                    throw new RuntimeException("UTF-8 is not supported", ex);
+                }
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * @return url, which should be called by service, when execution finishes
+     */
+    public String getCallbackUrl() {
+        return callbackUrl;
+    }
+
+    /**
+     * @return execution ids received since last call of this method
+     */
+    public List<String> drainCompletedExecutionIds() {
+        final List<String> executionIds = new ArrayList<>();
+        String executionId;
+        while ((executionId = completedExecutionIds.poll()) != null) {
+            executionIds.add(executionId);
+        }
+        return executionIds;
+    }
+
+    /**
+     * Wait till some callback arrives (or given time passes). Used instead of fixed pause between orchestration
+     * rounds, so that finished test run is processed (and its device gets next test) without delay.
+     *
+     * @return true, if callback has arrived since last call of this method
+     */
+    public boolean awaitCallback(long timeoutMs) throws InterruptedException {
+        final boolean arrived = callbackSignal.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS);
+        callbackSignal.drainPermits();
+        return arrived;
+    }
+
+    /**
+     * @return number of accepted callbacks
+     */
+    public int getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * @return number of rejected callbacks (wrong token, no execution id)
+     */
+    public int getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.shutdownNow();
+    }
+}
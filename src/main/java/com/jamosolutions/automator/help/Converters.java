@@ -6,6 +6,10 @@ import org.springframework.http.converter.json.MappingJackson2HttpMessageConvert
 import java.util.Collections;
 import java.util.List;
 
+/**
+ * Shared message converters of rest templates. Converters (and their object mapper) are thread safe, list is
+ * immutable, so that they can be shared by concurrent suites of parallel build.
+ */
 public class Converters {
-    public static List<HttpMessageConverter<?>> JACKSON_TO_HTTP = Collections.singletonList(new MappingJackson2HttpMessageConverter());
+    public static final List<HttpMessageConverter<?>> JACKSON_TO_HTTP = Collections.singletonList(new MappingJackson2HttpMessageConverter());
 }
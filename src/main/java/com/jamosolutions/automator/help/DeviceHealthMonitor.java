@@ -0,0 +1,92 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rolling health score of each {@link Device}, built from outcomes of its last test runs and latency of their run
+ * requests. Score is average of samples in window (1.0 means healthy device, 0.0 broken one):
+ * <ul>
+ *     <li>{@link ExecutionOutcome#SUCCESS} and {@link ExecutionOutcome#FAILURE}: 1.0, as device has executed test
+ *     (failed test is problem of test, not of device)</li>
+ *     <li>{@link ExecutionOutcome#TIMEOUT} and {@link ExecutionOutcome#EXECERR}: 0.0</li>
+ *     <li>sample of test run, whose run request took longer than latency threshold, is halved</li>
+ * </ul>
+ * {@link ExecErrorType#TEST_NOT_FOUND} does not tell anything about device, so it is not recorded.
+ *
+ * @see TestOrchestrator#setDeviceHealthMonitor(DeviceHealthMonitor, long, int)
+ */
+public class DeviceHealthMonitor {
+    private final int windowSize;
+    private final double quarantineThreshold;
+    private final int minSamples;
+    private final long latencyThresholdMs;
+    private final Map<Device, Deque<Double>> samples = new HashMap<>();
+
+    /**
+     * @param windowSize          number of last test runs of device, which are taken into score
+     * @param quarantineThreshold device is quarantined, when its score drops below this value (0..1)
+     * @param minSamples          minimal number of samples in window before device can be quarantined
+     * @param latencyThresholdMs  run request slower than this lowers health of device; 0 ignores latency
+     */
+    public DeviceHealthMonitor(int windowSize, double quarantineThreshold, int minSamples, long latencyThresholdMs) {
+        this.windowSize = Math.max(1, windowSize);
+        this.quarantineThreshold = quarantineThreshold;
+        this.minSamples = Math.max(1, Math.min(minSamples, this.windowSize));
+        this.latencyThresholdMs = latencyThresholdMs;
+    }
+
+    /**
+     * Record finished test run to window of its device.
+     *
+     * @return true, if device should be quarantined
+     */
+    public boolean record(TestRun testRun) {
+        if (testRun.getExecErrorType() == ExecErrorType.TEST_NOT_FOUND) {
+            return false;
+        }
+        final Device device = testRun.getPlannedTestRun().getDevice();
+        double sample;
+        switch (testRun.getExecutionOutcome()) {
+            case SUCCESS:
+            case FAILURE:
+                sample = 1.0;
+                break;
+            default:
+                sample = 0.0;
+                break;
+        }
+        final long latencyMs = testRun.getExecRequestReturnedTimeMillis() - testRun.getRequestStartTime();
+        if (latencyThresholdMs > 0 && latencyMs > latencyThresholdMs) {
+            sample /= 2;
+        }
+        final Deque<Double> window = samples.computeIfAbsent(device, k -> new ArrayDeque<>(windowSize));
+        window.addLast(sample);
+        if (window.size() > windowSize) {
+            window.removeFirst();
+        }
+        return window.size() >= minSamples && getScore(device) < quarantineThreshold;
+    }
+
+    /**
+     * @return health score of device (0..1); 1.0 for device without any recorded test run
+     */
+    public double getScore(Device device) {
+        final Deque<Double> window = samples.get(device);
+        if (window == null || window.isEmpty()) {
+            return 1.0;
+        }
+        return window.stream().mapToDouble(Double::doubleValue).average().orElse(1.0);
+    }
+
+    /**
+     * Forget history of device, so that re-admitted device starts with clean score.
+     */
+    public void reset(Device device) {
+        samples.remove(device);
+    }
+}
@@ -0,0 +1,259 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.jamosolutions.automator.help.Colorizer.colorize;
+import static com.jamosolutions.automator.help.Colorizer.device;
+
+/**
+ * Host local registry of devices used by running suites, so that concurrent builds (or modules of parallel build)
+ * on same machine do not start tests on same device at same time. Each device has lease file in shared directory:
+ * <pre>
+ * {ownerId}
+ * {heartbeatMillis}
+ * {description of owner}
+ * </pre>
+ * Lease file is read and written under file lock, so that only one process can take free lease. Owner refreshes
+ * heartbeat of its leases (see {@link #heartbeat()}); lease with heartbeat older than lease timeout belongs to
+ * crashed (or killed) build and can be taken over by anybody else. Released lease is empty file.
+ * <p>
+ * Each instance is single owner (i.e. single suite), instances within one JVM exclude each other the same way as
+ * separate processes do.
+ *
+ * @see TestOrchestrator#setDeviceLeaseRegistry(DeviceLeaseRegistry)
+ */
+public class DeviceLeaseRegistry implements AutoCloseable {
+    /**
+     * File locks are held by whole JVM, so that access of instances within same JVM is serialized by this lock.
+     */
+    private static final Object JVM_LOCK = new Object();
+
+    private final Log log;
+    private final File directory;
+    private final long leaseTimeoutMs;
+    private final long heartbeatIntervalMs;
+    private final String ownerId = UUID.randomUUID().toString();
+    private final String ownerLabel;
+    /**
+     * Computed on first lease (process name is not needed before suite starts).
+     */
+    private String ownerDescription;
+    private final Map<Device, File> heldLeases = new HashMap<>();
+    /**
+     * Devices, whose lease is held by somebody else; used to log waiting for device only once.
+     */
+    private final Set<Device> waitingDevices = new HashSet<>();
+    private long lastHeartbeatMillis = 0;
+    private int stolenCount = 0;
+    private int deniedCount = 0;
+
+    /**
+     * @param directory      directory with lease files, shared by all builds on host
+     * @param leaseTimeoutMs lease without heartbeat for this long is considered abandoned
+     * @param ownerLabel     description of owner (for example name of suite) written into lease files for humans
+     */
+    public DeviceLeaseRegistry(Log log, File directory, long leaseTimeoutMs, String ownerLabel) {
+        this.log = log;
+        this.directory = directory;
+        this.leaseTimeoutMs = leaseTimeoutMs;
+        this.heartbeatIntervalMs = Math.max(1, leaseTimeoutMs / 3);
+        this.ownerLabel = ownerLabel;
+        if (!directory.exists() && !directory.mkdirs() && !directory.exists()) {
+            throw new RuntimeException("Unable to create directory for device leases " + directory.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Take lease of device, unless it is held by other owner.
+     *
+     * @param scope url of service of device, so that devices of same name on different services do not block
+     *              each other
+     * @return true, if lease is held by this registry (it has been already, or it has been just taken)
+     */
+    public boolean tryAcquire(Device device, String scope) {
+        if (heldLeases.containsKey(device)) {
+            return true;
+        }
+        final File leaseFile = new File(directory, leaseFileName(device, scope));
+        final long now = System.currentTimeMillis();
+        final boolean acquired = withLockedLease(leaseFile, (channel, lease) -> {
+            if (lease != null && !lease.ownerId.equals(ownerId)) {
+                if (now - lease.heartbeatMillis < leaseTimeoutMs) {
+                    if (waitingDevices.add(device)) {
+                        log.info(colorize("Device " + device(device) + " is used by " + lease.ownerDescription +
+                                ". Its tests are going to wait till it is released."));
+                    }
+                    return false;
+                }
+                stolenCount++;
+                waitingDevices.remove(device);
+                log.warn(colorize("Lease of device " + device(device) + " held by " + lease.ownerDescription + " has expired " +
+                        (now - lease.heartbeatMillis) / 1000 + " seconds ago (crashed build?). Going to take it over."));
+            }
+            write(channel, now);
+            return true;
+        });
+        if (acquired) {
+            heldLeases.put(device, leaseFile);
+            if (waitingDevices.remove(device)) {
+                log.info(colorize("Device " + device(device) + " has been released by other build."));
+            }
+        } else {
+            deniedCount++;
+        }
+        return acquired;
+    }
+
+    /**
+     * Release lease of device, if it is held by this registry.
+     */
+    public void release(Device device) {
+        final File leaseFile = heldLeases.remove(device);
+        if (leaseFile == null) {
+            return;
+        }
+        withLockedLease(leaseFile, (channel, lease) -> {
+            if (lease != null && lease.ownerId.equals(ownerId)) {
+                channel.truncate(0);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Refresh heartbeat of all held leases, when heartbeat interval (third of lease timeout) has passed since last
+     * refresh. Expected to be called often (each orchestration round).
+     */
+    public void heartbeat() {
+        final long now = System.currentTimeMillis();
+        if (now - lastHeartbeatMillis < heartbeatIntervalMs) {
+            return;
+        }
+        lastHeartbeatMillis = now;
+        heldLeases.entrySet().removeIf(heldLease -> !withLockedLease(heldLease.getValue(), (channel, lease) -> {
+            if (lease != null && !lease.ownerId.equals(ownerId)) {
+                // heartbeat has not been written in time (paused build) and device has been taken by somebody else
+                log.warn(colorize("Lease of device " + device(heldLease.getKey()) + " has been taken over by " + lease.ownerDescription + "."));
+                return false;
+            }
+            write(channel, now);
+            return true;
+        }));
+    }
+
+    /**
+     * @return true, if lease of device is held by this registry
+     */
+    public boolean isHeld(Device device) {
+        return heldLeases.containsKey(device);
+    }
+
+    public Set<Device> getHeldDevices() {
+        return new HashSet<>(heldLeases.keySet());
+    }
+
+    /**
+     * @return number of leases taken over from owners without heartbeat
+     */
+    public int getStolenCount() {
+        return stolenCount;
+    }
+
+    /**
+     * @return number of refused attempts to take lease held by other owner
+     */
+    public int getDeniedCount() {
+        return deniedCount;
+    }
+
+    /**
+     * Release all held leases.
+     */
+    @Override
+    public void close() {
+        for (Device device : getHeldDevices()) {
+            release(device);
+        }
+    }
+
+    private void write(FileChannel channel, long heartbeatMillis) throws IOException {
+        if (ownerDescription == null) {
+            ownerDescription = ownerLabel + " (" + ManagementFactory.getRuntimeMXBean().getName() + ")";
+        }
+        final byte[] content = (ownerId + "\n" + heartbeatMillis + "\n" + ownerDescription + "\n").getBytes(StandardCharsets.UTF_8);
+        channel.truncate(0);
+        channel.write(ByteBuffer.wrap(content), 0);
+        channel.force(false);
+    }
+
+    private boolean withLockedLease(File leaseFile, LeaseAction action) {
+        synchronized (JVM_LOCK) {
+            try (RandomAccessFile file = new RandomAccessFile(leaseFile, "rw");
+                 FileChannel channel = file.getChannel()) {
+                final FileLock lock = channel.lock();
+                try {
+                    final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                    channel.read(buffer, 0);
+                    return action.apply(channel, Lease.parse(new String(buffer.array(), StandardCharsets.UTF_8)));
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException ex) {
+                // broken registry must not stop suite, device is used as if there was no registry
+                log.warn("Unable to access device lease " + leaseFile.getAbsolutePath() + ". ex=" + ex.getMessage());
+                return true;
+            }
+        }
+    }
+
+    private static String leaseFileName(Device device, String scope) {
+        final String id = device.getUdid() == null || device.getUdid().isEmpty() ? device.getName() : device.getUdid();
+        return id.replaceAll("[^A-Za-z0-9._-]", "_") + "-" + Integer.toHexString((scope + ";" + id).hashCode()) + ".lease";
+    }
+
+    private interface LeaseAction {
+        boolean apply(FileChannel channel, Lease lease) throws IOException;
+    }
+
+    private static class Lease {
+        private final String ownerId;
+        private final long heartbeatMillis;
+        private final String ownerDescription;
+
+        private Lease(String ownerId, long heartbeatMillis, String ownerDescription) {
+            this.ownerId = ownerId;
+            this.heartbeatMillis = heartbeatMillis;
+            this.ownerDescription = ownerDescription;
+        }
+
+        /**
+         * @return lease from content of file, or null for free (empty, or unreadable) lease
+         */
+        private static Lease parse(String content) {
+            final String[] lines = content.split("\n");
+            if (lines.length < 2 || lines[0].isEmpty()) {
+                return null;
+            }
+            try {
+                return new Lease(lines[0], Long.parseLong(lines[1].trim()), lines.length > 2 ? lines[2] : "unknown build");
+            } catch (NumberFormatException ex) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.jamosolutions.automator.help;
+
+/**
+ * Timeout used for single {@link TestRun}, together with human readable info where it comes from.
+ *
+ * @see TimeoutPolicy
+ */
+public class EffectiveTimeout {
+    private final long timeoutMs;
+    private final boolean adaptive;
+    private final String description;
+
+    public EffectiveTimeout(long timeoutMs, boolean adaptive, String description) {
+        this.timeoutMs = timeoutMs;
+        this.adaptive = adaptive;
+        this.description = description;
+    }
+
+    public static EffectiveTimeout configured(PlannedTestRun plannedTestRun) {
+        final Integer timeoutMinutes = plannedTestRun.getTestCase().getTimeout();
+        return new EffectiveTimeout(timeoutMinutes * 60L * 1000L, false, "configured " + timeoutMinutes + " min");
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    /**
+     * @return true, if timeout has been computed from history, false if it is configured one
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    @Override
+    public String toString() {
+        return (timeoutMs / 1000) + "s (" + description + ")";
+    }
+}
@@ -0,0 +1,106 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.ResponseStringWrapper;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Subtype of {@link ExecutionOutcome#EXECERR}. Each type has its own retry handling in {@link TestOrchestrator}.
+ */
+public enum ExecErrorType {
+    /**
+     * Test case (or specification) does not exist. Retry would end same way, so it is never retried.
+     */
+    TEST_NOT_FOUND,
+    /**
+     * Target device is offline, busy, or unknown to service. Retried after delay.
+     */
+    DEVICE_OFFLINE,
+    /**
+     * Authentication has failed (expired token, ...). Request is repeated once after token refresh by
+     * {@link JamoAutomatorClient} itself, type is recorded only if it fails even after refresh.
+     */
+    AUTHENTICATION,
+    /**
+     * Service error (5xx), or I/O problem, which has not been solved by {@link RetryPolicy}.
+     */
+    SERVER_ERROR,
+    /**
+     * Anything else. Retried as before (see <code>retest</code> parameter).
+     */
+    UNKNOWN;
+
+    /**
+     * Classify failed execution request. Service does not provide error codes for unsuccessful response, so message
+     * of {@link ResponseStringWrapper} is searched for known phrases.
+     *
+     * @param response  response of execution request; null if request has thrown an exception
+     * @param exception exception thrown by request; null if there is response
+     */
+    public static ExecErrorType classify(ResponseStringWrapper response, Exception exception) {
+        if (exception != null) {
+            if (exception instanceof HttpClientErrorException) {
+                final HttpStatus statusCode = ((HttpClientErrorException) exception).getStatusCode();
+                if (statusCode == HttpStatus.UNAUTHORIZED || statusCode == HttpStatus.FORBIDDEN) {
+                    return AUTHENTICATION;
+                }
+                return classifyMessage(exception.getMessage() + " " + ((HttpClientErrorException) exception).getResponseBodyAsString());
+            }
+            if (exception instanceof HttpServerErrorException || exception instanceof ResourceAccessException) {
+                return SERVER_ERROR;
+            }
+            return classifyMessage(exception.getMessage());
+        }
+        if (response == null) {
+            return UNKNOWN;
+        }
+        return classifyMessage(response.getMessage() + " " + response.getData());
+    }
+
+    /**
+     * Phrases of unsuccessful response meaning failed authentication. Whole phrases are matched, so that for example
+     * test case named <code>loginTest</code> is not mistaken for authentication problem.
+     */
+    private static final Pattern AUTHENTICATION_PHRASES = Pattern.compile(
+            "\\b(invalid token|token expired|expired token|unauthori[sz]ed|not authenticated|session expired|401)\\b");
+    /**
+     * Device as subject of "not found" ("Device testDevice not found", "unknown device X"), which is not missing test
+     * even if name of device contains "test".
+     */
+    private static final Pattern DEVICE_NOT_FOUND = Pattern.compile(
+            "^\\W*device\\b[^.,;]*\\b(not found|does not exist|doesn't exist|unknown)|\\b(unknown|no such) device\\b");
+
+    /**
+     * @return true, if message says, that device does not exist (as opposed to device, which is only offline or busy)
+     */
+    static boolean isMissingDevice(String message) {
+        return message != null && DEVICE_NOT_FOUND.matcher(message.toLowerCase(Locale.ROOT)).find();
+    }
+
+    static ExecErrorType classifyMessage(String message) {
+        if (message == null) {
+            return UNKNOWN;
+        }
+        final String lower = message.toLowerCase(Locale.ROOT);
+        // before device, as message about missing test usually names device too ("Test X not found on device Y")
+        if ((lower.contains("test") || lower.contains("specification")) && (lower.contains("not found")
+                || lower.contains("does not exist") || lower.contains("doesn't exist") || lower.contains("unknown")
+                || lower.contains("no such")) && !DEVICE_NOT_FOUND.matcher(lower).find()) {
+            return TEST_NOT_FOUND;
+        }
+        if (AUTHENTICATION_PHRASES.matcher(lower).find()) {
+            return AUTHENTICATION;
+        }
+        if (lower.contains("device") && (lower.contains("offline") || lower.contains("not connected")
+                || lower.contains("not available") || lower.contains("unavailable") || lower.contains("busy")
+                || lower.contains("not found") || lower.contains("unknown"))) {
+            return DEVICE_OFFLINE;
+        }
+        return UNKNOWN;
+    }
+}
@@ -0,0 +1,83 @@
+package com.jamosolutions.automator.help;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One jamo automator service (endpoint and account) of federated suite, together with statistics of test runs routed
+ * to it. Each backend has its own {@link JamoAutomatorClient} (i.e. own login, rate limits and retries) and its own
+ * devices, see {@link TestOrchestrator#registerBackend(ExecutionBackend, java.util.Collection)}.
+ */
+public class ExecutionBackend {
+    private final String name;
+    private final JamoAutomatorClient jamoAutomatorClient;
+    private final Map<ExecutionOutcome, Integer> outcomeCounts = new EnumMap<>(ExecutionOutcome.class);
+    private int testRunsCount = 0;
+    private int runRequestsCount = 0;
+    private long runRequestLatencySumMs = 0;
+    private long runRequestLatencyMaxMs = 0;
+
+    public ExecutionBackend(String name, JamoAutomatorClient jamoAutomatorClient) {
+        this.name = name;
+        this.jamoAutomatorClient = jamoAutomatorClient;
+    }
+
+    /**
+     * Record finished test run of device of this backend.
+     */
+    public void record(TestRun testRun) {
+        testRunsCount++;
+        outcomeCounts.merge(testRun.getExecutionOutcome(), 1, Integer::sum);
+        if (testRun.isBatchFollower()) {
+            // run request has been made (and measured) by first test run of batch
+            return;
+        }
+        final long latencyMs = Math.max(0, testRun.getExecRequestReturnedTimeMillis() - testRun.getRequestStartTime());
+        runRequestsCount++;
+        runRequestLatencySumMs += latencyMs;
+        runRequestLatencyMaxMs = Math.max(runRequestLatencyMaxMs, latencyMs);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public JamoAutomatorClient getJamoAutomatorClient() {
+        return jamoAutomatorClient;
+    }
+
+    /**
+     * @return number of finished test runs (including retried ones)
+     */
+    public int getTestRunsCount() {
+        return testRunsCount;
+    }
+
+    public int getCount(ExecutionOutcome executionOutcome) {
+        return outcomeCounts.getOrDefault(executionOutcome, 0);
+    }
+
+    /**
+     * @return share of test runs, which has not been executed on device ({@link ExecutionOutcome#EXECERR} and
+     * {@link ExecutionOutcome#TIMEOUT}); 0 when there is no finished test run
+     */
+    public double getErrorRatio() {
+        return testRunsCount == 0 ? 0 : (double) (getCount(ExecutionOutcome.EXECERR) + getCount(ExecutionOutcome.TIMEOUT)) / testRunsCount;
+    }
+
+    /**
+     * @return average duration of run request
+     */
+    public long getAverageRunRequestLatencyMs() {
+        return runRequestsCount == 0 ? 0 : runRequestLatencySumMs / runRequestsCount;
+    }
+
+    public long getMaxRunRequestLatencyMs() {
+        return runRequestLatencyMaxMs;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionBackend(" + name + ")";
+    }
+}
@@ -0,0 +1,21 @@
+package com.jamosolutions.automator.help;
+
+/**
+ * Endpoint for stopping executions on service side, so that device running hung test can be used for next tests.
+ * Used by {@link JamoAutomatorClient#cancelExecution(String)}.
+ *
+ * @see JamoRestExecutionCancelEndpoint
+ */
+public interface ExecutionCancelEndpoint {
+    /**
+     * Request stop of execution. Implementation should not throw exception, {@link CancelStatus#FAILED} should be
+     * returned instead.
+     */
+    CancelStatus requestCancel(String executionId);
+
+    /**
+     * Check state of previously requested cancel. Implementation should not throw exception, {@link CancelStatus#FAILED}
+     * should be returned instead.
+     */
+    CancelStatus checkCancel(String executionId);
+}
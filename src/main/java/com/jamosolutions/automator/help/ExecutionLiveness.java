@@ -0,0 +1,31 @@
+package com.jamosolutions.automator.help;
+
+/**
+ * Result of liveness check of running {@link TestRun}.
+ *
+ * @see ExecutionLivenessProbe
+ */
+public enum ExecutionLiveness {
+    /**
+     * Device is online and execution is still running (or at least it is not known to be dead).
+     */
+    ALIVE,
+    /**
+     * Device on which test is running has gone offline.
+     */
+    DEVICE_OFFLINE,
+    /**
+     * Device is online, but service does not know about running execution anymore (and there is still no report for
+     * it).
+     */
+    EXECUTION_LOST,
+    /**
+     * Liveness could not be determined (service does not support check, network problem, ...). Handled same way as
+     * {@link #ALIVE}, i.e. run is left to be solved by timeout.
+     */
+    UNKNOWN;
+
+    public boolean isDead() {
+        return this == DEVICE_OFFLINE || this == EXECUTION_LOST;
+    }
+}
@@ -0,0 +1,15 @@
+package com.jamosolutions.automator.help;
+
+/**
+ * Checks, if running {@link TestRun} (and device it runs on) is still alive. Used by {@link TestOrchestrator} to
+ * detect hung test runs before their timeout expires.
+ *
+ * @see JamoExecutionLivenessProbe
+ */
+public interface ExecutionLivenessProbe {
+    /**
+     * Implementation should not throw exception. When liveness can not be determined,
+     * {@link ExecutionLiveness#UNKNOWN} should be returned.
+     */
+    ExecutionLiveness probe(TestRun testRun);
+}
@@ -12,11 +12,8 @@ public enum ExecutionOutcome {
      */
     FAILURE,
     /**
-     * Error while delegating test execution to jamo automator service. Common type of "message" in this outcome are:
-     * <ul>
-     *     <li>TODO device offline</li>
-     *     <li>TODO test does not exist</li>
-     * </ul>
+     * Error while delegating test execution to jamo automator service. Type of error (device offline, test does not
+     * exist, ...) is available as {@link TestRun#getExecErrorType()}.
      */
     EXECERR,
     /**
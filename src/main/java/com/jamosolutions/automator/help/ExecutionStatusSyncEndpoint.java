@@ -0,0 +1,23 @@
+package com.jamosolutions.automator.help;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Endpoint for bulk query of execution statuses, so that {@link TestOrchestrator} does not need to ask for report of
+ * each running execution in each round. Used by {@link JamoAutomatorClient#getExecutionStatuses(Collection, long)}.
+ *
+ * @see JamoRestExecutionStatusSyncEndpoint
+ */
+public interface ExecutionStatusSyncEndpoint {
+    /**
+     * Query status of given executions. Implementation may return statuses of executions changed since given time
+     * only; execution missing in result is considered unchanged. Implementation should not throw exception.
+     *
+     * @param executionIds       executions running on devices
+     * @param changedSinceMillis time of previous successful query (as seen by plugin); 0 for first query
+     * @return status of executions keyed by execution id, or null when statuses could not be obtained (caller falls
+     * back to report request of each execution)
+     */
+    Map<String, String> getStatuses(Collection<String> executionIds, long changedSinceMillis);
+}
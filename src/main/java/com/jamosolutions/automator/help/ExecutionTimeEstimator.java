@@ -0,0 +1,245 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Estimates remaining time of suite execution. Devices are running in parallel, so estimate for whole suite is
+ * estimate of slowest device. Estimate for each device is computed from:
+ * <ul>
+ *     <li>expected durations of queued {@link PlannedTestRun}s (from {@link TestDurationHistory}, samples of current
+ *     execution included; when there is no sample, duration is treated as uniformly distributed between zero and
+ *     timeout of test case)</li>
+ *     <li>remaining expected time of {@link TestRun}s in flight</li>
+ *     <li>observed throughput of given device, i.e. ratio of actual and expected durations of already finished test
+ *     runs</li>
+ * </ul>
+ * Confidence band is built from standard deviation of historical durations (normal approximation, 80% band) and it is
+ * capped from above by sum of timeouts, as no test can take longer than its timeout.
+ */
+public class ExecutionTimeEstimator {
+    /**
+     * z-score for two sided 80% band.
+     */
+    private static final double BAND_Z = 1.2816;
+    /**
+     * Prior used for throughput factor, so that few first finished test runs does not swing estimate too much.
+     */
+    private static final double THROUGHPUT_PRIOR_MS = 5 * 60 * 1000;
+
+    private final TestDurationHistory testDurationHistory;
+
+    /**
+     * @param testDurationHistory history of durations; can be null, than timeouts are used for all estimates
+     */
+    public ExecutionTimeEstimator(TestDurationHistory testDurationHistory) {
+        this.testDurationHistory = testDurationHistory;
+    }
+
+    /**
+     * @return expected duration of given test run in milliseconds. Mean of history, or timeout of test case if there
+     * is no history for (device, testCase) pair.
+     */
+    public long getExpectedDurationMs(PlannedTestRun plannedTestRun) {
+        final TestDurationHistory.DurationStats stats = getStats(plannedTestRun);
+        if (stats.isEmpty()) {
+            return getTimeoutMs(plannedTestRun.getTestCase());
+        }
+        return (long) stats.getMeanMs();
+    }
+
+    public Estimate estimate(TestOrchestrator testOrchestrator, long nowMillis) {
+        final List<DeviceEstimate> deviceEstimates = new ArrayList<>();
+        for (Device device : testOrchestrator.getDevicesWithWork()) {
+            deviceEstimates.add(estimateDevice(testOrchestrator, device, nowMillis));
+        }
+        final List<TestRun> allFinished = new ArrayList<>();
+        for (Device device : testOrchestrator.getDevices()) {
+            allFinished.addAll(testOrchestrator.getFinishedTestRuns(device));
+        }
+        double throughputPerMinute = 0;
+        final long firstDispatch = testOrchestrator.getFirstDispatchTimeMillis();
+        if (firstDispatch > 0 && nowMillis > firstDispatch) {
+            throughputPerMinute = allFinished.size() / ((nowMillis - firstDispatch) / 60000.0);
+        }
+        deviceEstimates.sort((a, b) -> Long.compare(b.remainingMs, a.remainingMs));
+        return new Estimate(deviceEstimates, throughputPerMinute);
+    }
+
+    private DeviceEstimate estimateDevice(TestOrchestrator testOrchestrator, Device device, long nowMillis) {
+        double sumActualMs = 0;
+        double sumExpectedMs = 0;
+        for (TestRun finished : testOrchestrator.getFinishedTestRuns(device)) {
+            if (finished.getExecutionOutcome() == ExecutionOutcome.SUCCESS || finished.getExecutionOutcome() == ExecutionOutcome.FAILURE) {
+                sumActualMs += finished.getFinishedTimeMillis() - finished.getRequestStartTime();
+                sumExpectedMs += getMeanMs(finished.getPlannedTestRun());
+            }
+        }
+        final double throughputFactor = (sumActualMs + THROUGHPUT_PRIOR_MS) / (sumExpectedMs + THROUGHPUT_PRIOR_MS);
+
+        double meanMs = 0;
+        double varianceMs = 0;
+        double hardMaxMs = 0;
+        final List<PlannedTestRun> queued = testOrchestrator.getPlannedTestRuns(device);
+        for (PlannedTestRun plannedTestRun : queued) {
+            final TestDurationHistory.DurationStats stats = getStats(plannedTestRun);
+            final long timeoutMs = getTimeoutMs(plannedTestRun.getTestCase());
+            hardMaxMs += timeoutMs;
+            meanMs += getMeanMs(plannedTestRun) * throughputFactor;
+            if (stats.isEmpty()) {
+                // no history: timeout is the only thing we know, variance of uniform distribution between zero and timeout
+                varianceMs += Math.pow(timeoutMs * throughputFactor, 2) / 12;
+            } else {
+                varianceMs += Math.pow(stats.getStdDevMs() * throughputFactor, 2);
+            }
+        }
+        for (TestRun running : testOrchestrator.getTestRunsInFlight(device)) {
+            final PlannedTestRun plannedTestRun = running.getPlannedTestRun();
+            final long elapsedMs = nowMillis - running.getRequestStartTime();
+            final long timeLeftTillTimeoutMs = Math.max(0, running.getEffectiveTimeout().getTimeoutMs() - elapsedMs);
+            hardMaxMs += timeLeftTillTimeoutMs;
+            final double expectedMs = getMeanMs(plannedTestRun) * throughputFactor;
+            meanMs += Math.min(timeLeftTillTimeoutMs, Math.max(0, expectedMs - elapsedMs));
+        }
+        final double bandMs = BAND_Z * Math.sqrt(varianceMs);
+        return new DeviceEstimate(
+                device,
+                queued.size(),
+                (long) meanMs,
+                (long) Math.max(0, meanMs - bandMs),
+                (long) Math.min(hardMaxMs, meanMs + bandMs),
+                throughputFactor
+        );
+    }
+
+    /**
+     * @return mean duration used by estimate of remaining time: mean of history, or half of timeout when there is no
+     * history (mean of uniform distribution between zero and timeout). Unlike {@link #getExpectedDurationMs}, which
+     * stays conservative for planning, this is the best guess of duration.
+     */
+    private double getMeanMs(PlannedTestRun plannedTestRun) {
+        final TestDurationHistory.DurationStats stats = getStats(plannedTestRun);
+        if (stats.isEmpty()) {
+            return getTimeoutMs(plannedTestRun.getTestCase()) / 2.0;
+        }
+        return stats.getMeanMs();
+    }
+
+    private TestDurationHistory.DurationStats getStats(PlannedTestRun plannedTestRun) {
+        if (testDurationHistory == null) {
+            return TestDurationHistory.DurationStats.EMPTY;
+        }
+        return testDurationHistory.getStats(plannedTestRun.getDevice(), plannedTestRun.getTestCase());
+    }
+
+    private static long getTimeoutMs(TestCase testCase) {
+        return testCase.getTimeout() * 60L * 1000L;
+    }
+
+    /**
+     * Formats duration in human readable way, like <code>1h05m</code>, <code>12m30s</code> or <code>45s</code>.
+     */
+    public static String formatDuration(long durationMs) {
+        final long seconds = durationMs / 1000;
+        if (seconds >= 3600) {
+            return String.format("%dh%02dm", seconds / 3600, (seconds % 3600) / 60);
+        }
+        if (seconds >= 60) {
+            return String.format("%dm%02ds", seconds / 60, seconds % 60);
+        }
+        return seconds + "s";
+    }
+
+    /**
+     * Estimate of remaining time for whole suite.
+     */
+    public static class Estimate {
+        private final List<DeviceEstimate> deviceEstimates;
+        private final double throughputPerMinute;
+
+        private Estimate(List<DeviceEstimate> deviceEstimates, double throughputPerMinute) {
+            this.deviceEstimates = Collections.unmodifiableList(deviceEstimates);
+            this.throughputPerMinute = throughputPerMinute;
+        }
+
+        /**
+         * @return estimates for devices with some work, sorted from slowest (longest remaining time) device
+         */
+        public List<DeviceEstimate> getDeviceEstimates() {
+            return deviceEstimates;
+        }
+
+        public DeviceEstimate getSlowestDevice() {
+            return deviceEstimates.isEmpty() ? null : deviceEstimates.get(0);
+        }
+
+        public long getRemainingMs() {
+            return deviceEstimates.stream().mapToLong(DeviceEstimate::getRemainingMs).max().orElse(0);
+        }
+
+        public long getRemainingLowMs() {
+            return deviceEstimates.stream().mapToLong(DeviceEstimate::getRemainingLowMs).max().orElse(0);
+        }
+
+        public long getRemainingHighMs() {
+            return deviceEstimates.stream().mapToLong(DeviceEstimate::getRemainingHighMs).max().orElse(0);
+        }
+
+        /**
+         * @return finished test runs per minute, measured from first dispatch
+         */
+        public double getThroughputPerMinute() {
+            return throughputPerMinute;
+        }
+    }
+
+    public static class DeviceEstimate {
+        private final Device device;
+        private final int queuedCount;
+        private final long remainingMs;
+        private final long remainingLowMs;
+        private final long remainingHighMs;
+        private final double throughputFactor;
+
+        private DeviceEstimate(Device device, int queuedCount, long remainingMs, long remainingLowMs, long remainingHighMs, double throughputFactor) {
+            this.device = device;
+            this.queuedCount = queuedCount;
+            this.remainingMs = remainingMs;
+            this.remainingLowMs = remainingLowMs;
+            this.remainingHighMs = remainingHighMs;
+            this.throughputFactor = throughputFactor;
+        }
+
+        public Device getDevice() {
+            return device;
+        }
+
+        public int getQueuedCount() {
+            return queuedCount;
+        }
+
+        public long getRemainingMs() {
+            return remainingMs;
+        }
+
+        public long getRemainingLowMs() {
+            return remainingLowMs;
+        }
+
+        public long getRemainingHighMs() {
+            return remainingHighMs;
+        }
+
+        /**
+         * @return ratio of actual and expected durations observed on this device (1.0 means as expected, 2.0 means
+         * twice as slow)
+         */
+        public double getThroughputFactor() {
+            return throughputFactor;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.jamosolutions.automator.help;
 
 import com.jamosolutions.automator.domain.Credentials;
 import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.ExecutionStatuses;
 import com.jamosolutions.automator.domain.ResponseStringWrapper;
 import com.jamosolutions.automator.domain.TestCase;
 import com.jamosolutions.jamoAutomator.domain.Report;
@@ -10,12 +11,27 @@ import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.util.StringUtils;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static com.jamosolutions.automator.help.Colorizer.*;
 
@@ -25,25 +41,107 @@ import static com.jamosolutions.automator.help.Colorizer.*;
  * https://app.swaggerhub.com/apis/jamo/jamo-automator-api/1.0
  */
 public class JamoAutomatorClient {
+    /**
+     * Value of {@link ResponseStringWrapper#getData()} from {@link #getDeviceStatus(Device)} for device, which is not
+     * connected to service.
+     */
+    public static final String DEVICE_STATUS_OFFLINE = "OFFLINE";
+    /**
+     * Value of {@link ResponseStringWrapper#getData()} from {@link #getExecutionStatus(String)} for execution, which is
+     * not known to service (anymore).
+     */
+    public static final String EXECUTION_STATUS_UNKNOWN = "UNKNOWN";
+    /**
+     * Status of execution, which is still running on device.
+     */
+    public static final String EXECUTION_STATUS_RUNNING = "RUNNING";
+    /**
+     * Value of {@link ResponseStringWrapper#getData()} from {@link #getTestCaseStatus(TestCase)} for test case (or
+     * specification), which does not exist.
+     */
+    public static final String TEST_CASE_STATUS_NOT_FOUND = "NOT_FOUND";
+    /**
+     * Header with client generated key of run request. Key is same for all transient retries of same test run (see
+     * {@link PlannedTestRun#getIdempotencyKey()}), so that service honouring it can recognize repeated request and
+     * does not start test twice.
+     */
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+    /**
+     * Query parameter of run request with url of {@link CompletionWebhookReceiver}.
+     */
+    public static final String CALLBACK_URL_PARAMETER = "callbackUrl";
+
     private final Log log;
     private final String url;
     private final JamoAutomatorLoginManager loginManager;
+    /**
+     * Rest template is thread safe, single instance is used for all calls, so that its connections can be reused.
+     */
+    private final RestTemplate restTemplate = new RestTemplate();
+    private ExecutionCancelEndpoint executionCancelEndpoint;
+    /**
+     * Null when bulk status query is disabled.
+     */
+    private ExecutionStatusSyncEndpoint executionStatusSyncEndpoint;
+    private final Map<ApiCallType, AdaptiveRateLimiter> rateLimiters = new EnumMap<>(ApiCallType.class);
+    private RetryPolicy retryPolicy = RetryPolicy.NONE;
+    private final RetryMetrics retryMetrics = new RetryMetrics();
+    /**
+     * Url sent with each run request, which should be called by service, when execution finishes. Null means, that
+     * completion is detected by polling only.
+     */
+    private String completionCallbackUrl = null;
 
     public JamoAutomatorClient(Log log, Credentials credentials, String url) {
         this.log = log;
         this.url = url;
-        this.loginManager = new JamoAutomatorLoginManager(log, credentials, url);
+        this.loginManager = new JamoAutomatorLoginManager(log, credentials, url, this);
+        this.restTemplate.setMessageConverters(Converters.JACKSON_TO_HTTP);
+        this.executionCancelEndpoint = new JamoRestExecutionCancelEndpoint(log, this);
+    }
+
+    /**
+     * @return url of service
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    /**
+     * Request execution of test. Transient failure is not retried here, {@link TestOrchestrator} plans next attempt
+     * according {@link #getRetryPolicy()} and repeats request with same key.
+     *
+     * @param idempotencyKey value of {@link #IDEMPOTENCY_KEY_HEADER}
+     */
+    public ResponseStringWrapper runTestCase(Device device, TestCase testCase, String idempotencyKey) {
+        return withAuthRefresh(
+                () -> withRateLimitFeedback(ApiCallType.RUN, () -> runTestCaseBare(device, Collections.singletonList(testCase), idempotencyKey)),
+                response -> !response.isSuccess() && ExecErrorType.classify(response, null) == ExecErrorType.AUTHENTICATION
+        );
     }
 
-    public ResponseStringWrapper runTestCase(Device device, TestCase testCase) {
-        // TODO add try/catch for I/O exception and retry after few seconds.
-        return runTestCaseBare(device, testCase);
+    /**
+     * Request execution of batch of test cases with same specification by single run request (see
+     * {@link TestRunBatching}). Names of all test cases are sent as repeated <code>testCase</code> parameter and
+     * service is expected to return single execution id, whose report carries report of each test case. Single test
+     * case is executed by {@link #runTestCase(Device, TestCase, String)}.
+     *
+     * @param idempotencyKey value of {@link #IDEMPOTENCY_KEY_HEADER}
+     */
+    public ResponseStringWrapper runTestCases(Device device, List<TestCase> testCases, String idempotencyKey) {
+        if (testCases.size() == 1) {
+            return runTestCase(device, testCases.get(0), idempotencyKey);
+        }
+        return withAuthRefresh(
+                () -> withRateLimitFeedback(ApiCallType.RUN, () -> runTestCaseBare(device, testCases, idempotencyKey)),
+                response -> !response.isSuccess() && ExecErrorType.classify(response, null) == ExecErrorType.AUTHENTICATION
+        );
     }
 
-    private ResponseStringWrapper runTestCaseBare(Device device, TestCase testCase) {
-        log.info(colorize("Going to execute :" + testCase(testCase) + " on device " + device(device)));
-        RestTemplate restTemplate = new RestTemplate();
-        restTemplate.setMessageConverters(Converters.JACKSON_TO_HTTP);
+    private ResponseStringWrapper runTestCaseBare(Device device, List<TestCase> testCases, String idempotencyKey) {
+        final TestCase testCase = testCases.get(0);
+        log.info(colorize("Going to execute :" + testCases.stream().map(Colorizer::testCase).collect(Collectors.joining(", ")) +
+                " on device " + device(device)));
         UriComponentsBuilder builder;
         final String urlForRequest = this.url + "/rest/integration";
         if (testCase.getSpecification() != null) {
@@ -61,7 +159,10 @@ public class JamoAutomatorClient {
             }
         }
         // index parameter does not have meaning anymore, so sending 0. see mail from 20190726
-        builder.queryParam("testCase", testCase.getName()).queryParam("index", "0").queryParam("userKey", this.loginManager.getUserKey());
+        builder.queryParam("testCase", testCases.stream().map(TestCase::getName).toArray()).queryParam("index", "0").queryParam("userKey", this.loginManager.getUserKey());
+        if (this.completionCallbackUrl != null) {
+            builder.queryParam(CALLBACK_URL_PARAMETER, this.completionCallbackUrl);
+        }
         if (StringUtils.isEmpty(device.getUdid())) {
             log.debug(colorize("running with device name " + device(device)));
             builder.queryParam("device", device.getName());
@@ -71,6 +172,7 @@ public class JamoAutomatorClient {
         }
         HttpHeaders headers = new HttpHeaders();
         headers.add("X-AUTH-TOKEN", this.loginManager.getAuthToken());
+        headers.add(IDEMPOTENCY_KEY_HEADER, idempotencyKey);
         HttpEntity<String> entity = new HttpEntity<String>("parameters", headers);
         final URI urlFinal = builder.build().encode().toUri();
         try {
@@ -91,14 +193,18 @@ public class JamoAutomatorClient {
         return builder.build().encode().toUri();
     }
 
+    /**
+     * Get report of execution. Transient failure is not retried here, {@link TestOrchestrator} plans next attempt
+     * according {@link #getRetryPolicy()}.
+     */
     public Report getReport(String executionId) {
-        // TODO add try/catch for I/O exception and retry after few seconds.
-        return getReportBare(executionId);
+        return withAuthRefresh(
+                () -> withRateLimitFeedback(ApiCallType.REPORT, () -> getReportBare(executionId)),
+                report -> false
+        );
     }
 
     private Report getReportBare(String executionId) {
-        RestTemplate restTemplate = new RestTemplate();
-        restTemplate.setMessageConverters(Converters.JACKSON_TO_HTTP);
         final String authToken = this.loginManager.getAuthToken();
         URI reportUri = getReportUri(executionId);
         HttpHeaders headers = new HttpHeaders();
@@ -109,4 +215,245 @@ public class JamoAutomatorClient {
         report.setBaseUrl(this.url);
         return report;
     }
+
+    /**
+     * Set url, which is sent with each run request (see {@link CompletionWebhookReceiver#getCallbackUrl()}), so that
+     * service can notify about finished execution. Null (default) disables callbacks.
+     */
+    public void setCompletionCallbackUrl(String completionCallbackUrl) {
+        this.completionCallbackUrl = completionCallbackUrl;
+    }
+
+    /**
+     * Ask service for status of device. {@link ResponseStringWrapper#getData()} holds status of device, like
+     * {@link #DEVICE_STATUS_OFFLINE}.
+     * <p>
+     * Note: This endpoint is not part of documented integration api. Services which does not provide it will respond
+     * with error, which should be handled by caller (see {@link JamoExecutionLivenessProbe}).
+     */
+    public ResponseStringWrapper getDeviceStatus(Device device) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(this.url + "/rest/integration/device/status")
+                .queryParam("userKey", this.loginManager.getUserKey());
+        if (StringUtils.isEmpty(device.getUdid())) {
+            builder.queryParam("device", device.getName());
+        } else {
+            builder.queryParam("uniqueDeviceIdentification", device.getUdid());
+        }
+        return getWithAuthToken(builder.build().encode().toUri(), ResponseStringWrapper.class);
+    }
+
+    /**
+     * Ask service, if test case (or specification of test case, when it is set) exists. {@link ResponseStringWrapper#getData()}
+     * holds status of test case, like {@link #TEST_CASE_STATUS_NOT_FOUND}.
+     * <p>
+     * Note: This endpoint is not part of documented integration api. See {@link #getDeviceStatus(Device)}.
+     */
+    public ResponseStringWrapper getTestCaseStatus(TestCase testCase) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(this.url + "/rest/integration/testcase/status")
+                .queryParam("userKey", this.loginManager.getUserKey())
+                .queryParam("testCase", testCase.getName());
+        if (testCase.getSpecification() != null) {
+            builder.queryParam("specification", testCase.getSpecification());
+        }
+        return getWithAuthToken(builder.build().encode().toUri(), ResponseStringWrapper.class);
+    }
+
+    /**
+     * Ask service for status of execution. {@link ResponseStringWrapper#getData()} holds status of execution, like
+     * {@link #EXECUTION_STATUS_UNKNOWN}.
+     * <p>
+     * Note: This endpoint is not part of documented integration api. See {@link #getDeviceStatus(Device)}.
+     */
+    public ResponseStringWrapper getExecutionStatus(String executionId) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(this.url + "/rest/integration/execution/" + executionId + "/status");
+        return getWithAuthToken(builder.build().encode().toUri(), ResponseStringWrapper.class);
+    }
+
+    /**
+     * Request stop of given execution on service side using {@link ExecutionCancelEndpoint}. Device is not free, till
+     * {@link #checkCancelExecution(String)} returns {@link CancelStatus#CONFIRMED}.
+     */
+    public CancelStatus cancelExecution(String executionId) {
+        log.debug("Going to request stop of execution " + executionId);
+        return executionCancelEndpoint.requestCancel(executionId);
+    }
+
+    public CancelStatus checkCancelExecution(String executionId) {
+        return executionCancelEndpoint.checkCancel(executionId);
+    }
+
+    /**
+     * Replace default ({@link JamoRestExecutionCancelEndpoint}) endpoint used for cancelling executions.
+     */
+    public void setExecutionCancelEndpoint(ExecutionCancelEndpoint executionCancelEndpoint) {
+        this.executionCancelEndpoint = executionCancelEndpoint;
+    }
+
+    /**
+     * Query status of many executions by single request, using {@link ExecutionStatusSyncEndpoint}.
+     *
+     * @return status of executions keyed by execution id (executions missing in result has not changed since given
+     * time), or null when bulk query is disabled, or not supported by service
+     */
+    public Map<String, String> getExecutionStatuses(Collection<String> executionIds, long changedSinceMillis) {
+        if (executionStatusSyncEndpoint == null) {
+            return null;
+        }
+        return executionStatusSyncEndpoint.getStatuses(executionIds, changedSinceMillis);
+    }
+
+    /**
+     * Set endpoint used for bulk status query (for example {@link JamoRestExecutionStatusSyncEndpoint}). Null (default)
+     * disables bulk query, i.e. report of each running execution is requested in each round.
+     */
+    public void setExecutionStatusSyncEndpoint(ExecutionStatusSyncEndpoint executionStatusSyncEndpoint) {
+        this.executionStatusSyncEndpoint = executionStatusSyncEndpoint;
+    }
+
+    /**
+     * Set rate limiter for given type of calls. By default, calls are not limited.
+     */
+    public void setRateLimiter(ApiCallType apiCallType, AdaptiveRateLimiter rateLimiter) {
+        this.rateLimiters.put(apiCallType, rateLimiter);
+    }
+
+    public AdaptiveRateLimiter getRateLimiter(ApiCallType apiCallType) {
+        return this.rateLimiters.getOrDefault(apiCallType, AdaptiveRateLimiter.UNLIMITED);
+    }
+
+    /**
+     * Non blocking check of rate limit. Caller, which gets false, should postpone call (for example to next round of
+     * {@link TestOrchestrator}).
+     *
+     * @return true, if call of given type can be done now
+     */
+    public boolean tryAcquirePermit(ApiCallType apiCallType) {
+        return getRateLimiter(apiCallType).tryAcquire();
+    }
+
+    /**
+     * Execute call and report its latency and possible overload of service to rate limiter of given type.
+     */
+    <T> T withRateLimitFeedback(ApiCallType apiCallType, Supplier<T> call) {
+        final AdaptiveRateLimiter rateLimiter = getRateLimiter(apiCallType);
+        final long startNanos = System.nanoTime();
+        try {
+            final T result = call.get();
+            rateLimiter.recordResponse((System.nanoTime() - startNanos) / 1000000, false);
+            return result;
+        } catch (RuntimeException ex) {
+            final boolean overload = isOverloadSignal(ex);
+            rateLimiter.recordResponse((System.nanoTime() - startNanos) / 1000000, overload);
+            if (overload) {
+                log.debug("Service seems to be overloaded (" + ex.getMessage() + "). Rate of " + apiCallType +
+                        " calls is now " + String.format("%.2f", rateLimiter.getRatePerSecond()) + " per second.");
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Execute call and if it fails on authentication (HTTP 401/403, or response recognized by given predicate), refresh
+     * login token and repeat call once.
+     */
+    <T> T withAuthRefresh(Supplier<T> call, Predicate<T> isAuthenticationFailure) {
+        final T result;
+        try {
+            result = call.get();
+        } catch (HttpClientErrorException ex) {
+            if (ExecErrorType.classify(null, ex) != ExecErrorType.AUTHENTICATION) {
+                throw ex;
+            }
+            refreshLoginAfterAuthenticationFailure(ex.getMessage());
+            return call.get();
+        }
+        if (result != null && isAuthenticationFailure.test(result)) {
+            refreshLoginAfterAuthenticationFailure(String.valueOf(result));
+            return call.get();
+        }
+        return result;
+    }
+
+    private void refreshLoginAfterAuthenticationFailure(String reason) {
+        log.info("Authentication to jamo automator service has failed (" + reason + "). Going to refresh login token and repeat request.");
+        retryMetrics.recordAuthenticationRefresh();
+        this.loginManager.refreshAndGetLoginResult();
+    }
+
+    /**
+     * Set policy for retrying transient failures of run and report calls (retries are planned by
+     * {@link TestOrchestrator}). Default is {@link RetryPolicy#NONE}.
+     */
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
+    /**
+     * Share login of this client with other clients of same service and credentials (see
+     * {@link JamoAutomatorLoginManager#setSharedLoginResults(ConcurrentMap)}).
+     */
+    public void setSharedLoginResults(ConcurrentMap<String, UserKeyAndToken> sharedLoginResults) {
+        this.loginManager.setSharedLoginResults(sharedLoginResults);
+    }
+
+    public RetryMetrics getRetryMetrics() {
+        return retryMetrics;
+    }
+
+    /**
+     * @return true for errors, which signal overload of service: server errors (5xx), HTTP 429 and I/O errors
+     */
+    static boolean isOverloadSignal(Exception ex) {
+        return ex instanceof HttpServerErrorException
+                || ex instanceof ResourceAccessException
+                || (ex instanceof HttpClientErrorException && ((HttpClientErrorException) ex).getStatusCode() == HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * Raw POST request for stopping execution. See {@link JamoRestExecutionCancelEndpoint}.
+     */
+    ResponseStringWrapper postStopExecution(String executionId) {
+        UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(this.url + "/rest/integration/stop/" + executionId)
+                .queryParam("userKey", this.loginManager.getUserKey());
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-AUTH-TOKEN", this.loginManager.getAuthToken());
+        HttpEntity<String> entity = new HttpEntity<String>("parameters", headers);
+        final URI uri = builder.build().encode().toUri();
+        log.debug("Going to call " + uri);
+        ResponseEntity<ResponseStringWrapper> responseEntity = restTemplate.exchange(uri, HttpMethod.POST, entity, ResponseStringWrapper.class);
+        return responseEntity.getBody();
+    }
+
+    /**
+     * Raw POST request for bulk status query. See {@link JamoRestExecutionStatusSyncEndpoint}.
+     */
+    ExecutionStatuses postExecutionStatuses(Collection<String> executionIds, long changedSinceMillis) {
+        return withRateLimitFeedback(ApiCallType.REPORT, () -> {
+            UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(this.url + "/rest/integration/executions/status")
+                    .queryParam("userKey", this.loginManager.getUserKey());
+            HttpHeaders headers = new HttpHeaders();
+            headers.add("X-AUTH-TOKEN", this.loginManager.getAuthToken());
+            headers.setContentType(MediaType.APPLICATION_JSON);
+            final Map<String, Object> body = new LinkedHashMap<>();
+            body.put("executionIds", executionIds);
+            body.put("changedSince", changedSinceMillis);
+            final URI uri = builder.build().encode().toUri();
+            log.debug("Going to call " + uri + " for " + executionIds.size() + " executions");
+            ResponseEntity<ExecutionStatuses> responseEntity = restTemplate.exchange(uri, HttpMethod.POST, new HttpEntity<>(body, headers), ExecutionStatuses.class);
+            return responseEntity.getBody();
+        });
+    }
+
+    private <T> T getWithAuthToken(URI uri, Class<T> responseType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("X-AUTH-TOKEN", this.loginManager.getAuthToken());
+        HttpEntity<String> entity = new HttpEntity<String>("parameters", headers);
+        log.debug("Going to call " + uri);
+        ResponseEntity<T> responseEntity = restTemplate.exchange(uri, HttpMethod.GET, entity, responseType);
+        return responseEntity.getBody();
+    }
 }
@@ -9,6 +9,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * {@link JamoAutomatorLoginManager} class is meant to manage login/session to jamo automator rest api. For api
@@ -17,18 +18,33 @@ import java.util.List;
  * <p>
  * If you get an exception due token expiration, you should call {@link #refreshAndGetLoginResult()} method to do login
  * again.
+ * <p>
+ * Methods are synchronized, so that concurrent requests (see {@link Preflight}) share single login.
  */
 public class JamoAutomatorLoginManager {
     private final Log log;
     private final Credentials credentials;
     private final String url;
+    /**
+     * Client, which provides rate limiting of login calls. Can be null, than login is not limited.
+     */
+    private final JamoAutomatorClient jamoAutomatorClient;
 
     private UserKeyAndToken loginResultCached = null;
+    /**
+     * Login results shared by managers of several suites (daemon), keyed by {@link #sharedLoginKey()}. Can be null.
+     */
+    private ConcurrentMap<String, UserKeyAndToken> sharedLoginResults = null;
 
     public JamoAutomatorLoginManager(Log log, Credentials credentials, String url) {
+        this(log, credentials, url, null);
+    }
+
+    public JamoAutomatorLoginManager(Log log, Credentials credentials, String url, JamoAutomatorClient jamoAutomatorClient) {
         this.log = log;
         this.credentials = credentials;
         this.url = url;
+        this.jamoAutomatorClient = jamoAutomatorClient;
     }
 
     /**
@@ -37,16 +53,16 @@ public class JamoAutomatorLoginManager {
      *
      * @return authToken from last login. If no login has been done yet, it will do one and cache its response
      */
-    public String getAuthToken() {
+    public synchronized String getAuthToken() {
         if (this.loginResultCached == null) {
-            this.refreshAndGetLoginResult();
+            this.useSharedOrRefreshLoginResult();
         }
         return this.loginResultCached.authToken;
     }
 
-    public String getUserKey() {
+    public synchronized String getUserKey() {
         if (this.loginResultCached == null) {
-            this.refreshAndGetLoginResult();
+            this.useSharedOrRefreshLoginResult();
         }
         return this.loginResultCached.userKey;
     }
@@ -57,12 +73,48 @@ public class JamoAutomatorLoginManager {
      *
      * @return obtained {@link UserKeyAndToken} data, or throws an exception if something goes wrong
      */
-    public UserKeyAndToken refreshAndGetLoginResult() {
-        UserKeyAndToken loginResult = login(this.credentials, this.url);
+    public synchronized UserKeyAndToken refreshAndGetLoginResult() {
+        UserKeyAndToken loginResult;
+        if (this.jamoAutomatorClient == null) {
+            loginResult = login(this.credentials, this.url);
+        } else {
+            try {
+                this.jamoAutomatorClient.getRateLimiter(ApiCallType.LOGIN).acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for login rate limit.", e);
+            }
+            loginResult = this.jamoAutomatorClient.withRateLimitFeedback(ApiCallType.LOGIN, () -> login(this.credentials, this.url));
+        }
         this.loginResultCached = loginResult;
+        if (this.sharedLoginResults != null) {
+            this.sharedLoginResults.put(sharedLoginKey(), loginResult);
+        }
         return this.loginResultCached;
     }
 
+    /**
+     * Use login done by other manager with same url and credentials, instead of doing login again. Shared login is
+     * refreshed by whoever finds out first, that it has expired (see {@link #refreshAndGetLoginResult()}).
+     */
+    public synchronized void setSharedLoginResults(ConcurrentMap<String, UserKeyAndToken> sharedLoginResults) {
+        this.sharedLoginResults = sharedLoginResults;
+    }
+
+    private void useSharedOrRefreshLoginResult() {
+        final UserKeyAndToken shared = this.sharedLoginResults == null ? null : this.sharedLoginResults.get(sharedLoginKey());
+        if (shared != null) {
+            log.debug("Going to use login shared with previous suites.");
+            this.loginResultCached = shared;
+        } else {
+            this.refreshAndGetLoginResult();
+        }
+    }
+
+    private String sharedLoginKey() {
+        return url + ";" + credentials.getAccount() + ";" + credentials.getUsername() + ";" + credentials.getPassword().hashCode();
+    }
+
     // TODO make both exception typed and document them
     private UserKeyAndToken login(Credentials credentials, String url) {
         List<String> result = new ArrayList<>();
@@ -0,0 +1,42 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.ResponseStringWrapper;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * {@link ExecutionLivenessProbe} using jamo automator service. It asks for status of device and than for status of
+ * execution (see {@link JamoAutomatorClient#getDeviceStatus(com.jamosolutions.automator.domain.Device)} and
+ * {@link JamoAutomatorClient#getExecutionStatus(String)}). Any error (for example service, which does not provide
+ * given endpoint) results in {@link ExecutionLiveness#UNKNOWN}. Test run is probed by client, which has started it (see
+ * {@link TestRun#getJamoAutomatorClient()}), so that each device is asked at its own backend.
+ */
+public class JamoExecutionLivenessProbe implements ExecutionLivenessProbe {
+    private final Log log;
+
+    public JamoExecutionLivenessProbe(Log log) {
+        this.log = log;
+    }
+
+    @Override
+    public ExecutionLiveness probe(TestRun testRun) {
+        final JamoAutomatorClient jamoAutomatorClient = testRun.getJamoAutomatorClient();
+        try {
+            final ResponseStringWrapper deviceStatus = jamoAutomatorClient.getDeviceStatus(testRun.getPlannedTestRun().getDevice());
+            if (deviceStatus == null || !deviceStatus.isSuccess()) {
+                return ExecutionLiveness.UNKNOWN;
+            }
+            if (JamoAutomatorClient.DEVICE_STATUS_OFFLINE.equalsIgnoreCase(deviceStatus.getData())) {
+                return ExecutionLiveness.DEVICE_OFFLINE;
+            }
+            final ResponseStringWrapper executionStatus = jamoAutomatorClient.getExecutionStatus(testRun.getExecutionId());
+            if (executionStatus != null && executionStatus.isSuccess()
+                    && JamoAutomatorClient.EXECUTION_STATUS_UNKNOWN.equalsIgnoreCase(executionStatus.getData())) {
+                return ExecutionLiveness.EXECUTION_LOST;
+            }
+            return ExecutionLiveness.ALIVE;
+        } catch (Exception ex) {
+            log.debug("Liveness check for " + testRun + " has failed. Going to treat it as unknown. ex=" + ex.getMessage());
+            return ExecutionLiveness.UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.ResponseStringWrapper;
+import com.jamosolutions.automator.domain.TestCase;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * {@link PreflightProbe} using jamo automator service (see {@link JamoAutomatorClient#getDeviceStatus(Device)} and
+ * {@link JamoAutomatorClient#getTestCaseStatus(TestCase)}). Device is {@link PreflightStatus#INVALID} only when
+ * service explicitly says, that it does not exist; unsuccessful response about device, which is offline or busy, means
+ * {@link PreflightStatus#OFFLINE}. Any error (for example service, which does not provide given endpoint) results in
+ * {@link PreflightStatus#UNKNOWN}.
+ */
+public class JamoPreflightProbe implements PreflightProbe {
+    private final Log log;
+    private final JamoAutomatorClient jamoAutomatorClient;
+
+    public JamoPreflightProbe(Log log, JamoAutomatorClient jamoAutomatorClient) {
+        this.log = log;
+        this.jamoAutomatorClient = jamoAutomatorClient;
+    }
+
+    @Override
+    public PreflightStatus checkDevice(Device device) {
+        try {
+            final ResponseStringWrapper deviceStatus = jamoAutomatorClient.getDeviceStatus(device);
+            if (deviceStatus == null) {
+                return PreflightStatus.UNKNOWN;
+            }
+            if (!deviceStatus.isSuccess()) {
+                if (ExecErrorType.isMissingDevice(deviceStatus.getMessage() + " " + deviceStatus.getData())) {
+                    return PreflightStatus.INVALID;
+                }
+                return ExecErrorType.classify(deviceStatus, null) == ExecErrorType.DEVICE_OFFLINE ? PreflightStatus.OFFLINE : PreflightStatus.UNKNOWN;
+            }
+            return JamoAutomatorClient.DEVICE_STATUS_OFFLINE.equalsIgnoreCase(deviceStatus.getData()) ? PreflightStatus.OFFLINE : PreflightStatus.VALID;
+        } catch (Exception ex) {
+            log.debug("Preflight check of " + device + " has failed. Going to treat it as unknown. ex=" + ex.getMessage());
+            return PreflightStatus.UNKNOWN;
+        }
+    }
+
+    @Override
+    public PreflightStatus checkTestCase(TestCase testCase) {
+        try {
+            final ResponseStringWrapper testCaseStatus = jamoAutomatorClient.getTestCaseStatus(testCase);
+            if (testCaseStatus == null || !testCaseStatus.isSuccess()) {
+                return PreflightStatus.UNKNOWN;
+            }
+            return JamoAutomatorClient.TEST_CASE_STATUS_NOT_FOUND.equalsIgnoreCase(testCaseStatus.getData()) ? PreflightStatus.INVALID : PreflightStatus.VALID;
+        } catch (Exception ex) {
+            log.debug("Preflight check of " + testCase + " has failed. Going to treat it as unknown. ex=" + ex.getMessage());
+            return PreflightStatus.UNKNOWN;
+        }
+    }
+}
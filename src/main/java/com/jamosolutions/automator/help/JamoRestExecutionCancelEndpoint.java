@@ -0,0 +1,59 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.ResponseStringWrapper;
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * {@link ExecutionCancelEndpoint} using jamo automator rest api. Stop is requested by POST to
+ * <code>/rest/integration/stop/{executionId}</code> and confirmed by {@link JamoAutomatorClient#getExecutionStatus(String)}.
+ * <p>
+ * Note: These endpoints are not part of documented integration api. If service does not provide them, cancel ends
+ * with {@link CancelStatus#FAILED} and device is used again without waiting for confirmation.
+ */
+public class JamoRestExecutionCancelEndpoint implements ExecutionCancelEndpoint {
+    public static final String EXECUTION_STATUS_STOPPED = "STOPPED";
+    public static final String EXECUTION_STATUS_FINISHED = "FINISHED";
+
+    private final Log log;
+    private final JamoAutomatorClient jamoAutomatorClient;
+
+    public JamoRestExecutionCancelEndpoint(Log log, JamoAutomatorClient jamoAutomatorClient) {
+        this.log = log;
+        this.jamoAutomatorClient = jamoAutomatorClient;
+    }
+
+    @Override
+    public CancelStatus requestCancel(String executionId) {
+        try {
+            final ResponseStringWrapper response = jamoAutomatorClient.postStopExecution(executionId);
+            if (response == null || !response.isSuccess()) {
+                log.debug("Stop of execution " + executionId + " has not been accepted. response=" + response);
+                return CancelStatus.FAILED;
+            }
+            return CancelStatus.REQUESTED;
+        } catch (Exception ex) {
+            log.debug("Stop of execution " + executionId + " has failed. ex=" + ex.getMessage());
+            return CancelStatus.FAILED;
+        }
+    }
+
+    @Override
+    public CancelStatus checkCancel(String executionId) {
+        try {
+            final ResponseStringWrapper status = jamoAutomatorClient.getExecutionStatus(executionId);
+            if (status == null || !status.isSuccess()) {
+                return CancelStatus.FAILED;
+            }
+            final String data = status.getData();
+            if (EXECUTION_STATUS_STOPPED.equalsIgnoreCase(data)
+                    || EXECUTION_STATUS_FINISHED.equalsIgnoreCase(data)
+                    || JamoAutomatorClient.EXECUTION_STATUS_UNKNOWN.equalsIgnoreCase(data)) {
+                return CancelStatus.CONFIRMED;
+            }
+            return CancelStatus.REQUESTED;
+        } catch (Exception ex) {
+            log.debug("Check of stop of execution " + executionId + " has failed. ex=" + ex.getMessage());
+            return CancelStatus.FAILED;
+        }
+    }
+}
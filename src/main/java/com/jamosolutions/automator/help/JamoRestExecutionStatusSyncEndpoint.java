@@ -0,0 +1,63 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.ExecutionStatuses;
+import org.apache.maven.plugin.logging.Log;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpStatusCodeException;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * {@link ExecutionStatusSyncEndpoint} using jamo automator rest api. Statuses are queried by POST to
+ * <code>/rest/integration/executions/status</code> with json body
+ * <code>{"executionIds": [...], "changedSince": millis}</code>; service can answer with statuses of all given
+ * executions, or of changed ones only.
+ * <p>
+ * Note: This endpoint is not part of documented integration api. When service responds with 404, 405 or 501, endpoint
+ * is considered unsupported and it is not called anymore, i.e. plugin falls back to report request of each execution.
+ */
+public class JamoRestExecutionStatusSyncEndpoint implements ExecutionStatusSyncEndpoint {
+    private final Log log;
+    private final JamoAutomatorClient jamoAutomatorClient;
+    private boolean supported = true;
+
+    public JamoRestExecutionStatusSyncEndpoint(Log log, JamoAutomatorClient jamoAutomatorClient) {
+        this.log = log;
+        this.jamoAutomatorClient = jamoAutomatorClient;
+    }
+
+    @Override
+    public Map<String, String> getStatuses(Collection<String> executionIds, long changedSinceMillis) {
+        if (!supported) {
+            return null;
+        }
+        try {
+            final ExecutionStatuses response = jamoAutomatorClient.postExecutionStatuses(executionIds, changedSinceMillis);
+            if (response == null || !response.isSuccess()) {
+                log.debug("Bulk status query has not been successful. response=" + response);
+                return null;
+            }
+            return response.getStatuses();
+        } catch (HttpStatusCodeException ex) {
+            if (ex.getStatusCode() == HttpStatus.NOT_FOUND || ex.getStatusCode() == HttpStatus.METHOD_NOT_ALLOWED
+                    || ex.getStatusCode() == HttpStatus.NOT_IMPLEMENTED) {
+                supported = false;
+                log.info("Service does not support bulk status query (" + ex.getStatusCode() + "). Going to ask for report of each execution.");
+            } else {
+                log.debug("Bulk status query has failed. ex=" + ex.getMessage());
+            }
+            return null;
+        } catch (Exception ex) {
+            log.debug("Bulk status query has failed. ex=" + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return false, when service has responded that it does not provide bulk status query
+     */
+    public boolean isSupported() {
+        return supported;
+    }
+}
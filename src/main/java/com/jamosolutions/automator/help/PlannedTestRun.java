@@ -3,12 +3,15 @@ package com.jamosolutions.automator.help;
 import com.jamosolutions.automator.domain.Device;
 import com.jamosolutions.automator.domain.TestCase;
 
+import java.util.UUID;
+
 /**
  * Test to be executed. Each execution will create {@link TestRun} instance.
  * <p>
  * Note: {@link PlannedTestRun} and {@link TestRun} does have 1:N multiplicity. I.e. there can be more than single
  * {@link TestRun} instance from {@link PlannedTestRun}. It can happen when there is retesting enabled and some test
- * fails on first run. It is than re-executed later on same (for now) target device.
+ * fails on first run. It is than re-executed later on same target device (or on equivalent device from same pool,
+ * when target device has been quarantined, see {@link DeviceHealthMonitor}).
  */
 public class PlannedTestRun {
     private Device device;
@@ -18,17 +21,33 @@ public class PlannedTestRun {
      * Also can be understand as "cycle" for test run.
      */
     private final int attemptCount;
+    /**
+     * Number of times this test run has been rescheduled due to infrastructure problem (device gone offline during
+     * test run, ...). Rescheduling does not count as retest attempt.
+     */
+    private final int rescheduleCount;
+    /**
+     * Number of times run request of this test run has failed with transient error (see {@link RetryPolicy}) and has
+     * been repeated. Such retry does not count as retest attempt.
+     */
+    private final int transientRetryCount;
+    /**
+     * Key of run request (see {@link JamoAutomatorClient#IDEMPOTENCY_KEY_HEADER}), shared by all transient retries of
+     * this test run, so that service can tell repeated request from new one.
+     */
+    private final String idempotencyKey;
 
     public PlannedTestRun(Device device, TestCase testCase) {
-        this.device = device;
-        this.testCase = testCase;
-        this.attemptCount = 0;
+        this(device, testCase, 0, 0, 0, UUID.randomUUID().toString());
     }
 
-    private PlannedTestRun(Device device, TestCase testCase, int attemptCount) {
+    private PlannedTestRun(Device device, TestCase testCase, int attemptCount, int rescheduleCount, int transientRetryCount, String idempotencyKey) {
         this.device = device;
         this.testCase = testCase;
         this.attemptCount = attemptCount;
+        this.rescheduleCount = rescheduleCount;
+        this.transientRetryCount = transientRetryCount;
+        this.idempotencyKey = idempotencyKey;
     }
 
     public Device getDevice() {
@@ -52,7 +71,42 @@ public class PlannedTestRun {
     }
 
     public PlannedTestRun withIncrementedAttemptCount() {
-        return new PlannedTestRun(device, testCase, attemptCount + 1);
+        return new PlannedTestRun(device, testCase, attemptCount + 1, rescheduleCount, 0, UUID.randomUUID().toString());
+    }
+
+    public int getRescheduleCount() {
+        return rescheduleCount;
+    }
+
+    public PlannedTestRun withIncrementedRescheduleCount() {
+        return new PlannedTestRun(device, testCase, attemptCount, rescheduleCount + 1, 0, UUID.randomUUID().toString());
+    }
+
+    public int getTransientRetryCount() {
+        return transientRetryCount;
+    }
+
+    /**
+     * @return same planned test run, whose run request is going to be repeated (with same idempotency key)
+     */
+    public PlannedTestRun withIncrementedTransientRetryCount() {
+        return new PlannedTestRun(device, testCase, attemptCount, rescheduleCount, transientRetryCount + 1, idempotencyKey);
+    }
+
+    /**
+     * @return key of run request, same for all transient retries of this test run; new attempt (retest, reschedule,
+     * another device) gets new key
+     */
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    /**
+     * @return same planned test run (with same attempt and reschedule counts) for another device. Used to move work
+     * from quarantined device to equivalent one.
+     */
+    public PlannedTestRun withDevice(Device device) {
+        return new PlannedTestRun(device, testCase, attemptCount, rescheduleCount, transientRetryCount, UUID.randomUUID().toString());
     }
 
     @Override
@@ -0,0 +1,188 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.jamosolutions.automator.help.Colorizer.colorize;
+import static com.jamosolutions.automator.help.Colorizer.device;
+import static com.jamosolutions.automator.help.Colorizer.testCase;
+
+/**
+ * Validation of devices and test cases from descriptor before any test is dispatched, so that typo in name of test, or
+ * unknown device, is found at start of suite and not hours later. Each distinct device and test case (specification)
+ * is checked once by {@link PreflightProbe}, all checks run concurrently in background, so that preflight can overlap
+ * with login and rest of suite setup. Caller asks for {@link Result} right before planning test runs.
+ */
+public class Preflight {
+    /**
+     * What to do with test runs of invalid devices and test cases.
+     */
+    public enum Mode {
+        /**
+         * No preflight.
+         */
+        OFF,
+        /**
+         * Log invalid entries, but execute them anyway.
+         */
+        REPORT,
+        /**
+         * Log invalid entries and report their test runs as skipped.
+         */
+        DROP
+    }
+
+    private final Log log;
+    private final PreflightProbe preflightProbe;
+    private final int threads;
+
+    /**
+     * @param preflightProbe probe used for checks
+     * @param threads        maximal number of concurrent checks
+     */
+    public Preflight(Log log, PreflightProbe preflightProbe, int threads) {
+        this.log = log;
+        this.preflightProbe = preflightProbe;
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Start checks of all distinct devices and test cases of given devices. Method returns immediately.
+     *
+     * @return future result, which completes when all checks are done
+     */
+    public CompletableFuture<Result> start(List<Device> devices) {
+        final long startMillis = System.currentTimeMillis();
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "jamo-preflight-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Map<String, CompletableFuture<PreflightStatus>> deviceChecks = new LinkedHashMap<>();
+        final Map<String, CompletableFuture<PreflightStatus>> testCaseChecks = new LinkedHashMap<>();
+        for (Device device : devices) {
+            deviceChecks.computeIfAbsent(deviceKey(device), k -> CompletableFuture.supplyAsync(() -> preflightProbe.checkDevice(device), executor));
+            for (TestCase testCase : device.getTestCases()) {
+                testCaseChecks.computeIfAbsent(testCaseKey(testCase), k -> CompletableFuture.supplyAsync(() -> preflightProbe.checkTestCase(testCase), executor));
+            }
+        }
+        log.debug("Preflight started: " + deviceChecks.size() + " devices and " + testCaseChecks.size() + " test cases, " + threads + " concurrent checks.");
+        final List<CompletableFuture<PreflightStatus>> allChecks = new ArrayList<>(deviceChecks.values());
+        allChecks.addAll(testCaseChecks.values());
+        return CompletableFuture.allOf(allChecks.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> new Result(joinAll(deviceChecks), joinAll(testCaseChecks), System.currentTimeMillis() - startMillis))
+                .whenComplete((result, ex) -> executor.shutdownNow());
+    }
+
+    private static Map<String, PreflightStatus> joinAll(Map<String, CompletableFuture<PreflightStatus>> checks) {
+        final Map<String, PreflightStatus> statuses = new LinkedHashMap<>();
+        checks.forEach((key, check) -> statuses.put(key, check.join()));
+        return statuses;
+    }
+
+    private static String deviceKey(Device device) {
+        return device.getUdid() == null || device.getUdid().isEmpty() ? device.getName() : device.getUdid();
+    }
+
+    private static String testCaseKey(TestCase testCase) {
+        return testCase.getName() + ";" + testCase.getSpecification();
+    }
+
+    /**
+     * Statuses of all checked devices and test cases.
+     */
+    public static class Result {
+        private final Map<String, PreflightStatus> deviceStatuses;
+        private final Map<String, PreflightStatus> testCaseStatuses;
+        private final long durationMs;
+
+        private Result(Map<String, PreflightStatus> deviceStatuses, Map<String, PreflightStatus> testCaseStatuses, long durationMs) {
+            this.deviceStatuses = deviceStatuses;
+            this.testCaseStatuses = testCaseStatuses;
+            this.durationMs = durationMs;
+        }
+
+        /**
+         * @return status of device; {@link PreflightStatus#UNKNOWN} for device, which has not been checked
+         */
+        public PreflightStatus getStatus(Device device) {
+            return deviceStatuses.getOrDefault(deviceKey(device), PreflightStatus.UNKNOWN);
+        }
+
+        /**
+         * @return status of test case; {@link PreflightStatus#UNKNOWN} for test case, which has not been checked
+         */
+        public PreflightStatus getStatus(TestCase testCase) {
+            return testCaseStatuses.getOrDefault(testCaseKey(testCase), PreflightStatus.UNKNOWN);
+        }
+
+        /**
+         * @return reason, why test case can not be executed on device, or null, when it is not known to be invalid
+         */
+        public String getInvalidReason(Device device, TestCase testCase) {
+            if (getStatus(device) == PreflightStatus.INVALID) {
+                return "device " + device.getName() + " is unknown to service";
+            }
+            if (getStatus(testCase) == PreflightStatus.INVALID) {
+                return "test case " + testCase.getName() + (testCase.getSpecification() == null ? "" : " (specification " +
+                        testCase.getSpecification() + ")") + " does not exist";
+            }
+            return null;
+        }
+
+        /**
+         * @return number of checked devices and test cases with given status
+         */
+        public int count(PreflightStatus status) {
+            return (int) (deviceStatuses.values().stream().filter(s -> s == status).count()
+                    + testCaseStatuses.values().stream().filter(s -> s == status).count());
+        }
+
+        /**
+         * Log offline devices and invalid devices and test cases. In {@link Mode#DROP}, test runs of invalid ones are
+         * reported as skipped and removed from given devices, so that they are not planned at all.
+         *
+         * @param logPrefix prefix of logged lines (name of backend of devices)
+         */
+        public void apply(Log log, String logPrefix, Mode mode, List<Device> devices, TestOrchestrator testOrchestrator) {
+            for (Device device : devices) {
+                if (getStatus(device) == PreflightStatus.OFFLINE) {
+                    log.warn(colorize(logPrefix + "Device " + device(device) + " is offline right now. Its tests are kept, as it can come back."));
+                }
+                for (Iterator<TestCase> iterator = device.getTestCases().iterator(); iterator.hasNext(); ) {
+                    final TestCase testCase = iterator.next();
+                    final String reason = getInvalidReason(device, testCase);
+                    if (reason == null) {
+                        continue;
+                    }
+                    if (mode == Mode.DROP) {
+                        log.warn(colorize(logPrefix + "Preflight: " + reason + ". Test " + testCase(testCase) + " on device " + device(device) + " is going to be skipped."));
+                        testOrchestrator.skipTestRun(new PlannedTestRun(device, testCase), "preflight: " + reason);
+                        iterator.remove();
+                    } else {
+                        log.warn(colorize(logPrefix + "Preflight: " + reason + ". Test " + testCase(testCase) + " on device " + device(device) + " is going to fail."));
+                    }
+                }
+            }
+        }
+
+        public int getCheckCount() {
+            return deviceStatuses.size() + testCaseStatuses.size();
+        }
+
+        /**
+         * @return time from start of first check till end of last one
+         */
+        public long getDurationMs() {
+            return durationMs;
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+
+/**
+ * Checks devices and test cases from descriptor against service before any test is started. Used by
+ * {@link Preflight}, which calls probe concurrently, so implementations have to be thread safe.
+ *
+ * @see JamoPreflightProbe
+ */
+public interface PreflightProbe {
+    /**
+     * Implementation should not throw exception. When status can not be determined, {@link PreflightStatus#UNKNOWN}
+     * should be returned.
+     */
+    PreflightStatus checkDevice(Device device);
+
+    /**
+     * Same as {@link #checkDevice(Device)}, for test case (or its specification, when it is set).
+     */
+    PreflightStatus checkTestCase(TestCase testCase);
+}
@@ -0,0 +1,23 @@
+package com.jamosolutions.automator.help;
+
+/**
+ * Result of preflight check of single device, or test case.
+ *
+ * @see PreflightProbe
+ */
+public enum PreflightStatus {
+    VALID,
+    /**
+     * Service does not know given device, or test case (typo in descriptor, ...). Its test runs would end with
+     * {@link ExecutionOutcome#EXECERR} anyway.
+     */
+    INVALID,
+    /**
+     * Device is known, but it is not connected right now. It can come back during suite, so its test runs are kept.
+     */
+    OFFLINE,
+    /**
+     * Status could not be determined (service does not provide check, network error, ...).
+     */
+    UNKNOWN
+}
@@ -0,0 +1,49 @@
+package com.jamosolutions.automator.help;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides, how long should retried (or rescheduled) {@link PlannedTestRun} wait in delay queue of
+ * {@link TestOrchestrator}, before it is returned to queue of its device. Delay depends on outcome of failed
+ * {@link TestRun}, it doubles with each next retry of same planned test run, and it is randomized by jitter, so that
+ * retries from same outage does not come back at same moment.
+ */
+public class RetryBackoffPolicy {
+    /**
+     * No delay, retries are planned immediately.
+     */
+    public static final RetryBackoffPolicy IMMEDIATE = new RetryBackoffPolicy(new EnumMap<>(ExecutionOutcome.class), 0);
+
+    private final Map<ExecutionOutcome, Long> baseDelaysMs;
+    private final int jitterPercent;
+
+    /**
+     * @param baseDelaysMs  delay before first retry for each outcome; missing outcome means no delay
+     * @param jitterPercent delay is randomly moved by up to this percentage in both directions
+     */
+    public RetryBackoffPolicy(Map<ExecutionOutcome, Long> baseDelaysMs, int jitterPercent) {
+        this.baseDelaysMs = new EnumMap<>(ExecutionOutcome.class);
+        this.baseDelaysMs.putAll(baseDelaysMs);
+        this.jitterPercent = Math.max(0, Math.min(100, jitterPercent));
+    }
+
+    /**
+     * @param outcome     outcome of failed test run
+     * @param retryNumber number of retry (1 for first retry of planned test run)
+     * @return delay in milliseconds; zero means, that retry should be planned immediately
+     */
+    public long getDelayMs(ExecutionOutcome outcome, int retryNumber) {
+        final long baseDelayMs = baseDelaysMs.getOrDefault(outcome, 0L);
+        if (baseDelayMs <= 0) {
+            return 0;
+        }
+        final long delayMs = baseDelayMs << Math.min(Math.max(0, retryNumber - 1), 10);
+        if (jitterPercent == 0) {
+            return delayMs;
+        }
+        final double jitter = ThreadLocalRandom.current().nextDouble(-jitterPercent, jitterPercent) / 100.0;
+        return Math.max(0, (long) (delayMs * (1 + jitter)));
+    }
+}
@@ -0,0 +1,59 @@
+package com.jamosolutions.automator.help;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counters of transient-failure retries of calls of {@link JamoAutomatorClient} (planned by {@link TestOrchestrator}),
+ * per {@link ApiCallType}.
+ */
+public class RetryMetrics {
+    private final Map<ApiCallType, Integer> retries = new EnumMap<>(ApiCallType.class);
+    private final Map<ApiCallType, Integer> recovered = new EnumMap<>(ApiCallType.class);
+    private final Map<ApiCallType, Integer> exhausted = new EnumMap<>(ApiCallType.class);
+    private int authenticationRefreshes = 0;
+
+    synchronized void recordRetry(ApiCallType apiCallType) {
+        retries.merge(apiCallType, 1, Integer::sum);
+    }
+
+    synchronized void recordRecovered(ApiCallType apiCallType) {
+        recovered.merge(apiCallType, 1, Integer::sum);
+    }
+
+    synchronized void recordExhausted(ApiCallType apiCallType) {
+        exhausted.merge(apiCallType, 1, Integer::sum);
+    }
+
+    synchronized void recordAuthenticationRefresh() {
+        authenticationRefreshes++;
+    }
+
+    /**
+     * @return number of login token refreshes due to authentication failure of run or report request
+     */
+    public synchronized int getAuthenticationRefreshes() {
+        return authenticationRefreshes;
+    }
+
+    /**
+     * @return number of repeated attempts (not counting first attempt of each call)
+     */
+    public synchronized int getRetries(ApiCallType apiCallType) {
+        return retries.getOrDefault(apiCallType, 0);
+    }
+
+    /**
+     * @return number of calls, which have succeeded after at least one retry
+     */
+    public synchronized int getRecovered(ApiCallType apiCallType) {
+        return recovered.getOrDefault(apiCallType, 0);
+    }
+
+    /**
+     * @return number of calls, which have failed even after retries
+     */
+    public synchronized int getExhausted(ApiCallType apiCallType) {
+        return exhausted.getOrDefault(apiCallType, 0);
+    }
+}
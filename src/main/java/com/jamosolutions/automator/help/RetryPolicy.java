@@ -0,0 +1,71 @@
+package com.jamosolutions.automator.help;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bounded retry with exponential backoff and full jitter for transient failures of calls to jamo automator service.
+ * Transient failures of report requests are I/O errors (dropped connection, read timeout, ...), server errors (5xx)
+ * and HTTP 429. Run request is retried only when connection to service could not be established, as otherwise
+ * service may have started test already. Other errors (4xx, parsing errors, ...) are not retried, as repeating same
+ * request would end same way.
+ * <p>
+ * Policy only decides; next attempt is planned by {@link TestOrchestrator} for one of later rounds, so that waiting
+ * for backoff does not block other devices.
+ */
+public class RetryPolicy {
+    /**
+     * Policy without any retry.
+     */
+    public static final RetryPolicy NONE = new RetryPolicy(1, 0, 0);
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    /**
+     * @param maxAttempts maximal number of attempts (including first one); 1 means no retry
+     * @param baseDelayMs backoff before second attempt (before jitter); it doubles with each next attempt
+     * @param maxDelayMs  upper bound of backoff (before jitter)
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs) {
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public boolean isRetryable(ApiCallType apiCallType, Exception ex) {
+        if (apiCallType == ApiCallType.RUN) {
+            return ex instanceof ResourceAccessException
+                    && (ex.getCause() instanceof ConnectException || ex.getCause() instanceof UnknownHostException);
+        }
+        return ex instanceof ResourceAccessException
+                || ex instanceof HttpServerErrorException
+                || (ex instanceof HttpClientErrorException && ((HttpClientErrorException) ex).getStatusCode() == HttpStatus.TOO_MANY_REQUESTS);
+    }
+
+    /**
+     * Full jitter backoff, i.e. random value between zero and <code>min(maxDelay, baseDelay * 2^(attempt-1))</code>.
+     * Jitter spreads retries of many devices hit by same outage, so that they do not hit service at same moment again.
+     *
+     * @param failedAttempt number of attempt, which has just failed (starting from 1)
+     * @return delay before next attempt in milliseconds
+     */
+    public long getBackoffMs(int failedAttempt) {
+        final long ceilingMs = Math.min(maxDelayMs, baseDelayMs << Math.min(failedAttempt - 1, 20));
+        if (ceilingMs <= 0) {
+            return 0;
+        }
+        return ThreadLocalRandom.current().nextLong(ceilingMs + 1);
+    }
+}
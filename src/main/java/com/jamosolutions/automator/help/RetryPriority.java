@@ -0,0 +1,21 @@
+package com.jamosolutions.automator.help;
+
+/**
+ * Position of retried {@link PlannedTestRun} in queue of its device, when its retry delay is over.
+ *
+ * @see RetryBackoffPolicy
+ */
+public enum RetryPriority {
+    /**
+     * Retry is placed according {@link SchedulingPolicy} (to the end of queue for {@link SchedulingPolicy#FIFO}).
+     */
+    POLICY,
+    /**
+     * Retry goes before all fresh (not yet started) test runs.
+     */
+    BEFORE_FRESH,
+    /**
+     * Retry goes after all fresh test runs.
+     */
+    AFTER_FRESH
+}
@@ -0,0 +1,90 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.TestCase;
+
+/**
+ * Decides order in which {@link PlannedTestRun}s of single device are dispatched by {@link TestOrchestrator}.
+ * <p>
+ * Policy assigns rank to each planned test run once, when it is added to queue of its device (this includes retests
+ * and reschedules). Queue is ordered by rank (lower rank is dispatched first) and test runs with equal rank are
+ * dispatched in order, in which they have been added. Ranking on insert keeps each dispatch decision O(log n), but it
+ * also means, that rank of queued test run must not depend on anything, what can change while it is waiting.
+ */
+public interface SchedulingPolicy {
+    /**
+     * Descriptor order, retests and reschedules are added to the end of queue.
+     */
+    SchedulingPolicy FIFO = plannedTestRun -> 0;
+
+    long rank(PlannedTestRun plannedTestRun);
+
+    /**
+     * Test runs with longest expected duration first. Good for makespan, as long tests does not end up as tail of
+     * suite.
+     */
+    static SchedulingPolicy longestFirst(ExecutionTimeEstimator executionTimeEstimator) {
+        return plannedTestRun -> -executionTimeEstimator.getExpectedDurationMs(plannedTestRun);
+    }
+
+    /**
+     * Test runs with shortest expected duration first. Gives most results in shortest time.
+     */
+    static SchedulingPolicy shortestFirst(ExecutionTimeEstimator executionTimeEstimator) {
+        return executionTimeEstimator::getExpectedDurationMs;
+    }
+
+    /**
+     * Retests, reschedules and test runs which have failed last time (according to history) first. Other test runs
+     * keep descriptor order. Gives fast feedback about known problems.
+     *
+     * @param testDurationHistory history of previous executions; can be null, than only retests are prioritized
+     */
+    static SchedulingPolicy previouslyFailingFirst(TestDurationHistory testDurationHistory) {
+        return plannedTestRun -> {
+            if (plannedTestRun.getAttemptCount() > 0 || plannedTestRun.getRescheduleCount() > 0) {
+                return 0;
+            }
+            if (testDurationHistory != null) {
+                final ExecutionOutcome lastOutcome = testDurationHistory.getLastOutcome(plannedTestRun.getDevice(), plannedTestRun.getTestCase());
+                if (lastOutcome != null && lastOutcome != ExecutionOutcome.SUCCESS) {
+                    return 0;
+                }
+            }
+            return 1;
+        };
+    }
+
+    /**
+     * Test runs with higher {@link TestCase#getPriority()} first, test runs with same priority are ordered by
+     * {@link TestCase#getDeadline()} (earliest deadline first, test cases without deadline last).
+     */
+    static SchedulingPolicy priorityEarliestDeadlineFirst() {
+        return plannedTestRun -> {
+            final TestCase testCase = plannedTestRun.getTestCase();
+            final long priority = testCase.getPriority() == null ? 1 : testCase.getPriority();
+            final long deadline = testCase.getDeadline() == null ? Integer.MAX_VALUE : Math.max(0, testCase.getDeadline());
+            return -priority * (1L << 32) + deadline;
+        };
+    }
+
+    /**
+     * @param name one of <code>FIFO</code>, <code>LONGEST_FIRST</code>, <code>SHORTEST_FIRST</code>,
+     *             <code>PREVIOUSLY_FAILING_FIRST</code>, <code>PRIORITY_EDF</code> (case insensitive)
+     */
+    static SchedulingPolicy byName(String name, ExecutionTimeEstimator executionTimeEstimator, TestDurationHistory testDurationHistory) {
+        switch (name.toUpperCase()) {
+            case "FIFO":
+                return FIFO;
+            case "LONGEST_FIRST":
+                return longestFirst(executionTimeEstimator);
+            case "SHORTEST_FIRST":
+                return shortestFirst(executionTimeEstimator);
+            case "PREVIOUSLY_FAILING_FIRST":
+                return previouslyFailingFirst(testDurationHistory);
+            case "PRIORITY_EDF":
+                return priorityEarliestDeadlineFirst();
+            default:
+                throw new RuntimeException("Unknown scheduling policy " + name + ". Use one of FIFO, LONGEST_FIRST, SHORTEST_FIRST, PREVIOUSLY_FAILING_FIRST, PRIORITY_EDF.");
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+
+import java.util.*;
+
+/**
+ * Split of suite into two stages. First (smoke) stage contains test cases tagged by any of smoke tags, executed on
+ * single device from each pool (see {@link Device#getPool()}); first device of pool, which has any tagged test case, is
+ * used. Second stage is full device × testCase matrix without test runs already done in smoke stage.
+ *
+ * @see TestOrchestrator#addGateTestForExecution(PlannedTestRun)
+ * @see TestOrchestrator#addTestForLaterStage(PlannedTestRun)
+ */
+public class SmokeStage {
+    private final List<PlannedTestRun> smokeTestRuns;
+    private final List<PlannedTestRun> fullMatrixTestRuns;
+
+    private SmokeStage(List<PlannedTestRun> smokeTestRuns, List<PlannedTestRun> fullMatrixTestRuns) {
+        this.smokeTestRuns = smokeTestRuns;
+        this.fullMatrixTestRuns = fullMatrixTestRuns;
+    }
+
+    /**
+     * @param devices   devices with their test cases (from descriptor)
+     * @param smokeTags tags of smoke test cases
+     */
+    public static SmokeStage plan(List<Device> devices, Collection<String> smokeTags) {
+        final Set<String> poolsWithSmokeDevice = new HashSet<>();
+        final List<PlannedTestRun> smoke = new ArrayList<>();
+        final List<PlannedTestRun> fullMatrix = new ArrayList<>();
+        for (Device device : devices) {
+            final boolean hasSmokeTest = device.getTestCases().stream().anyMatch(tc -> isSmoke(tc, smokeTags));
+            final boolean isSmokeDevice = hasSmokeTest && poolsWithSmokeDevice.add(device.poolName());
+            for (TestCase testCase : device.getTestCases()) {
+                if (isSmokeDevice && isSmoke(testCase, smokeTags)) {
+                    smoke.add(new PlannedTestRun(device, testCase));
+                } else {
+                    fullMatrix.add(new PlannedTestRun(device, testCase));
+                }
+            }
+        }
+        return new SmokeStage(smoke, fullMatrix);
+    }
+
+    private static boolean isSmoke(TestCase testCase, Collection<String> smokeTags) {
+        return smokeTags.stream().anyMatch(testCase::hasTag);
+    }
+
+    public List<PlannedTestRun> getSmokeTestRuns() {
+        return smokeTestRuns;
+    }
+
+    public List<PlannedTestRun> getFullMatrixTestRuns() {
+        return fullMatrixTestRuns;
+    }
+}
@@ -0,0 +1,151 @@
+package com.jamosolutions.automator.help;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Failure-rate circuit breaker for whole suite. When suite is obviously red (broken build), there is no need to burn
+ * device time with remaining tests (and their retries). Policy is evaluated after each finished {@link TestRun} and
+ * it can be triggered by any of (enabled) rules:
+ * <ul>
+ *     <li>N consecutive negative outcomes (each attempt counts, including retried ones)</li>
+ *     <li>ratio of negative outcomes after minimal number of finished test runs (each attempt counts)</li>
+ *     <li>all devices (at least two) planned for some test case have failed that test case (final attempts only, so
+ *     that flaky first attempt, which passes on retest, does not count)</li>
+ * </ul>
+ * As negative outcome is considered anything else than {@link ExecutionOutcome#SUCCESS}, except of execution errors
+ * caused by infrastructure rather than by build (see {@link #isInfrastructureError(TestRun)}), which are not counted
+ * by any rule.
+ *
+ * @see TestOrchestrator#setSuiteAbortPolicy(SuiteAbortPolicy)
+ */
+public class SuiteAbortPolicy {
+    /**
+     * What to do with test runs, which are running when suite is aborted.
+     */
+    public enum InFlightMode {
+        /**
+         * Wait for running test runs to finish (without retries).
+         */
+        DRAIN,
+        /**
+         * Stop running executions and report them as skipped.
+         */
+        CANCEL
+    }
+
+    private final int consecutiveFailures;
+    private final double failureRatio;
+    private final int minSample;
+    private final boolean allDevicesFailSameTest;
+    private final InFlightMode inFlightMode;
+
+    private int consecutiveFailuresCount = 0;
+    private int finishedCount = 0;
+    private int failedCount = 0;
+    private final Map<String, Set<String>> plannedDevicesPerTestCase = new HashMap<>();
+    private final Map<String, Set<String>> failedDevicesPerTestCase = new HashMap<>();
+
+    /**
+     * @param consecutiveFailures    abort after this number of consecutive negative outcomes; 0 disables rule
+     * @param failureRatio           abort when ratio of negative outcomes reaches this value (0..1); 0 disables rule
+     * @param minSample              minimal number of finished test runs before {@code failureRatio} rule is evaluated
+     * @param allDevicesFailSameTest abort when all devices planned for some test case fail it
+     * @param inFlightMode           what to do with running test runs on abort
+     */
+    public SuiteAbortPolicy(int consecutiveFailures, double failureRatio, int minSample, boolean allDevicesFailSameTest, InFlightMode inFlightMode) {
+        this.consecutiveFailures = consecutiveFailures;
+        this.failureRatio = failureRatio;
+        this.minSample = minSample;
+        this.allDevicesFailSameTest = allDevicesFailSameTest;
+        this.inFlightMode = inFlightMode;
+    }
+
+    /**
+     * @return true if at least one rule is enabled
+     */
+    public boolean isEnabled() {
+        return consecutiveFailures > 0 || failureRatio > 0 || allDevicesFailSameTest;
+    }
+
+    public InFlightMode getInFlightMode() {
+        return inFlightMode;
+    }
+
+    /**
+     * Register originally planned test run (not retries), so that "all devices fail same test" rule knows which devices
+     * should run given test case.
+     */
+    public void planned(PlannedTestRun plannedTestRun) {
+        plannedDevicesPerTestCase
+                .computeIfAbsent(plannedTestRun.getTestCase().getName(), k -> new HashSet<>())
+                .add(plannedTestRun.getDevice().getName());
+    }
+
+    /**
+     * Execution error of device (offline device, missing test case, expired login) says nothing about quality of
+     * build, and it is handled by its own retries (see {@link ExecErrorType}).
+     */
+    static boolean isInfrastructureError(TestRun testRun) {
+        if (testRun.getExecutionOutcome() != ExecutionOutcome.EXECERR || testRun.getExecErrorType() == null) {
+            return false;
+        }
+        switch (testRun.getExecErrorType()) {
+            case DEVICE_OFFLINE:
+            case TEST_NOT_FOUND:
+            case AUTHENTICATION:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Record finished attempt and evaluate rules of attempts (consecutive negative outcomes and their ratio).
+     *
+     * @return reason of abort, or null when suite should continue
+     */
+    public String recordAndCheck(TestRun testRun) {
+        if (isInfrastructureError(testRun)) {
+            return null;
+        }
+        finishedCount++;
+        if (testRun.getExecutionOutcome() == ExecutionOutcome.SUCCESS) {
+            consecutiveFailuresCount = 0;
+            return null;
+        }
+        failedCount++;
+        consecutiveFailuresCount++;
+        if (consecutiveFailures > 0 && consecutiveFailuresCount >= consecutiveFailures) {
+            return consecutiveFailuresCount + " consecutive negative outcomes";
+        }
+        if (failureRatio > 0 && finishedCount >= minSample && (double) failedCount / finishedCount >= failureRatio) {
+            return failedCount + " of " + finishedCount + " test runs have negative outcome (abort ratio is " + failureRatio + ")";
+        }
+        return null;
+    }
+
+    /**
+     * Record final attempt of planned test run (it is not going to be retried) and evaluate "all devices fail same
+     * test" rule.
+     *
+     * @return reason of abort, or null when suite should continue
+     */
+    public String recordFinalAndCheck(TestRun testRun) {
+        if (testRun.getExecutionOutcome() == ExecutionOutcome.SUCCESS || isInfrastructureError(testRun)) {
+            return null;
+        }
+        final String testCaseName = testRun.getPlannedTestRun().getTestCase().getName();
+        final Set<String> failedDevices = failedDevicesPerTestCase.computeIfAbsent(testCaseName, k -> new HashSet<>());
+        failedDevices.add(testRun.getPlannedTestRun().getDevice().getName());
+        if (allDevicesFailSameTest) {
+            final Set<String> plannedDevices = plannedDevicesPerTestCase.getOrDefault(testCaseName, new HashSet<>());
+            if (plannedDevices.size() >= 2 && failedDevices.containsAll(plannedDevices)) {
+                return "all " + plannedDevices.size() + " devices have failed test case " + testCaseName;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,446 @@
+package com.jamosolutions.automator.help;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.jamosolutions.automator.help.Colorizer.colorize;
+
+/**
+ * Long running process, which executes suites submitted by "run" goals of other builds on same machine (see
+ * {@link SuiteDaemonClient}). Process (and so JIT compiled code, JAXB context, logins and duration history, see
+ * {@link SuiteResourceCache}) stays warm between builds, so that submitted suite dispatches its first test right
+ * after its preflight.
+ * <p>
+ * Daemon listens on loopback only; its url (with random token) is written to state file, which is readable only by
+ * its owner. Protocol is json over http:
+ * <ul>
+ *     <li><code>POST /submit {"parameters": {...}, "debug": true, "submittedAtMillis": ...}</code> - execute suite
+ *     with given parameters of "run" goal. Response is stream of json lines <code>{"level": "info", "message":
+ *     "..."}</code> with log of suite, last line has level <code>result</code> and <code>success</code> flag. Suite is
+ *     interrupted, when client disconnects.</li>
+ *     <li><code>GET /status</code> - number of running, waiting and finished suites</li>
+ *     <li><code>POST /stop</code> - stop daemon (running suites are interrupted)</li>
+ * </ul>
+ * Several suites run at same time (up to given limit, others wait). They share devices through
+ * {@link DeviceLeaseRegistry}, i.e. device is used by one suite at a time, and other suites use remaining devices
+ * meanwhile.
+ */
+public class SuiteDaemon implements AutoCloseable {
+    public static final String CONTEXT_PATH = "/jamo/daemon";
+    public static final String TOKEN_PARAMETER = "token";
+    public static final String LEVEL_RESULT = "result";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Executes single suite with given parameters, logging into given log.
+     */
+    public interface SuiteRunner {
+        void run(Map<String, String> parameters, Log log) throws Exception;
+    }
+
+    private final Log log;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final File stateFile;
+    private final String token;
+    private final String url;
+    private final SuiteRunner suiteRunner;
+    private final Semaphore suiteSlots;
+    private final CountDownLatch stopSignal = new CountDownLatch(1);
+    private final Map<Thread, String> runningSuites = new LinkedHashMap<>();
+    private final AtomicInteger waitingCount = new AtomicInteger(0);
+    private final AtomicInteger finishedCount = new AtomicInteger(0);
+    private final AtomicInteger failedCount = new AtomicInteger(0);
+    private final AtomicInteger rejectedCount = new AtomicInteger(0);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private SuiteDaemon(Log log, HttpServer httpServer, ExecutorService executor, File stateFile, String token, SuiteRunner suiteRunner, int maxConcurrentSuites) {
+        this.log = log;
+        this.httpServer = httpServer;
+        this.executor = executor;
+        this.stateFile = stateFile;
+        this.token = token;
+        this.suiteRunner = suiteRunner;
+        this.suiteSlots = new Semaphore(maxConcurrentSuites, true);
+        this.url = "http://127.0.0.1:" + httpServer.getAddress().getPort() + CONTEXT_PATH + "?" + TOKEN_PARAMETER + "=" + token;
+    }
+
+    /**
+     * Start daemon and write its url into state file.
+     *
+     * @param port                port to listen on (loopback only); 0 means any free port
+     * @param stateFile           file with url of daemon, used by clients to find it
+     * @param maxConcurrentSuites maximal number of suites executed at same time, other submitted suites wait
+     */
+    public static SuiteDaemon start(Log log, int port, File stateFile, int maxConcurrentSuites, SuiteRunner suiteRunner) {
+        final HttpServer httpServer;
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to start daemon on port " + port, ex);
+        }
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        // each submitted suite is executed by thread of its request
+        final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable, "jamo-daemon-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final SuiteDaemon daemon = new SuiteDaemon(log, httpServer, executor, stateFile, UUID.randomUUID().toString(), suiteRunner, maxConcurrentSuites);
+        httpServer.createContext(CONTEXT_PATH, daemon::handle);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        daemon.writeStateFile();
+        log.info(colorize("Daemon is listening on port @|bold " + httpServer.getAddress().getPort() + "|@ (state file " +
+                stateFile.getAbsolutePath() + "). Submit suites by \"run\" goal with -Ddaemon=true."));
+        return daemon;
+    }
+
+    private void writeStateFile() {
+        final File parent = stateFile.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        try {
+            final Map<String, Object> state = new LinkedHashMap<>();
+            state.put("url", url);
+            state.put("process", ManagementFactory.getRuntimeMXBean().getName());
+            // token in url is only protection of daemon, so that file is readable by owner only before token is written
+            Files.deleteIfExists(stateFile.toPath());
+            try {
+                Files.createFile(stateFile.toPath(), PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+            } catch (UnsupportedOperationException ex) {
+                // file system without posix permissions (windows)
+                Files.createFile(stateFile.toPath());
+                stateFile.setReadable(false, false);
+                stateFile.setReadable(true, true);
+                stateFile.setWritable(false, false);
+                stateFile.setWritable(true, true);
+            }
+            Files.write(stateFile.toPath(), OBJECT_MAPPER.writeValueAsBytes(state), StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException ex) {
+            close();
+            throw new RuntimeException("Unable to write daemon state file " + stateFile.getAbsolutePath(), ex);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final Map<String, String> query = CompletionWebhookReceiver.parseQuery(exchange.getRequestURI().getRawQuery());
+            if (!token.equals(query.get(TOKEN_PARAMETER))) {
+                rejectedCount.incrementAndGet();
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+            final String operation = exchange.getRequestURI().getPath().substring(CONTEXT_PATH.length());
+            switch (operation) {
+                case "/submit":
+                    submit(exchange);
+                    break;
+                case "/status":
+                    final Map<String, Object> status = new LinkedHashMap<>();
+                    synchronized (runningSuites) {
+                        status.put("running", runningSuites.values());
+                    }
+                    status.put("waiting", waitingCount.get());
+                    status.put("finished", finishedCount.get());
+                    status.put("failed", failedCount.get());
+                    final byte[] bytes = OBJECT_MAPPER.writeValueAsBytes(status);
+                    exchange.getResponseHeaders().set("Content-Type", "application/json");
+                    exchange.sendResponseHeaders(200, bytes.length);
+                    exchange.getResponseBody().write(bytes);
+                    break;
+                case "/stop":
+                    exchange.sendResponseHeaders(204, -1);
+                    log.info("Daemon has been asked to stop.");
+                    stopSignal.countDown();
+                    break;
+                default:
+                    exchange.sendResponseHeaders(404, -1);
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Unable to process daemon request " + exchange.getRequestURI().getPath() + ". ex=" + ex.getMessage());
+            if (exchange.getResponseCode() == -1) {
+                exchange.sendResponseHeaders(400, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void submit(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        final long receivedMillis = System.currentTimeMillis();
+        final JsonNode request = OBJECT_MAPPER.readTree(exchange.getRequestBody());
+        final Map<String, String> parameters = new LinkedHashMap<>();
+        for (Iterator<Map.Entry<String, JsonNode>> fields = request.path("parameters").fields(); fields.hasNext(); ) {
+            final Map.Entry<String, JsonNode> field = fields.next();
+            parameters.put(field.getKey(), field.getValue().asText());
+        }
+        final String suiteLabel = parameters.getOrDefault("descriptor", "testsuite") + " (" + parameters.getOrDefault("daemonBaseDir", "?") + ")";
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        final StreamingLog suiteLog = new StreamingLog(exchange.getResponseBody(), request.path("debug").asBoolean(false), Thread.currentThread());
+        boolean success = false;
+        String resultMessage = "has not been executed";
+        try {
+            if (!suiteSlots.tryAcquire()) {
+                suiteLog.info("All " + (suiteSlots.availablePermits() + runningCount()) + " suite slots of daemon are taken. Going to wait for free one.");
+                waitingCount.incrementAndGet();
+                try {
+                    suiteSlots.acquire();
+                } finally {
+                    waitingCount.decrementAndGet();
+                }
+            }
+            try {
+                synchronized (runningSuites) {
+                    runningSuites.put(Thread.currentThread(), suiteLabel);
+                }
+                final long submittedAtMillis = request.path("submittedAtMillis").asLong(receivedMillis);
+                log.info("Going to execute suite " + suiteLabel + ".");
+                suiteLog.info(colorize("Suite is executed by daemon, it has been started @|bold " + (System.currentTimeMillis() - submittedAtMillis) + "|@ ms after submission."));
+                suiteRunner.run(parameters, suiteLog);
+                success = true;
+                resultMessage = "has finished";
+            } finally {
+                synchronized (runningSuites) {
+                    runningSuites.remove(Thread.currentThread());
+                }
+                suiteSlots.release();
+            }
+        } catch (InterruptedException ex) {
+            resultMessage = "has been interrupted";
+        } catch (Exception ex) {
+            resultMessage = "has failed (" + ex.getMessage() + ")";
+            suiteLog.error("Suite has failed in daemon.", ex);
+        } finally {
+            // interrupt caused by lost client (or stop) must not leak into next suite of same thread
+            Thread.interrupted();
+            finishedCount.incrementAndGet();
+            if (!success) {
+                failedCount.incrementAndGet();
+            }
+            log.info("Suite " + suiteLabel + " " + resultMessage + " in " + (System.currentTimeMillis() - receivedMillis) / 1000 +
+                    " seconds" + (suiteLog.isDisconnected() ? " (client has disconnected)." : "."));
+            suiteLog.write(LEVEL_RESULT, "Suite " + resultMessage + " in daemon.", success);
+        }
+    }
+
+    private int runningCount() {
+        synchronized (runningSuites) {
+            return runningSuites.size();
+        }
+    }
+
+    /**
+     * Block till daemon is asked to stop (see <code>/stop</code> request) or current thread is interrupted.
+     */
+    public void awaitStop() throws InterruptedException {
+        stopSignal.await();
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public int getFinishedCount() {
+        return finishedCount.get();
+    }
+
+    public int getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * @return number of requests with missing or wrong token
+     */
+    public int getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public void close() {
+        if (closed.getAndSet(true)) {
+            return;
+        }
+        synchronized (runningSuites) {
+            runningSuites.keySet().forEach(Thread::interrupt);
+        }
+        httpServer.stop(0);
+        executor.shutdownNow();
+        if (stateFile.exists() && !stateFile.delete()) {
+            log.warn("Unable to delete daemon state file " + stateFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Log of single suite sent to client as stream of json lines. When client disconnects, suite is interrupted.
+     */
+    private static class StreamingLog implements Log {
+        private final OutputStream outputStream;
+        private final boolean debugEnabled;
+        private final Thread suiteThread;
+        private boolean disconnected = false;
+
+        private StreamingLog(OutputStream outputStream, boolean debugEnabled, Thread suiteThread) {
+            this.outputStream = outputStream;
+            this.debugEnabled = debugEnabled;
+            this.suiteThread = suiteThread;
+        }
+
+        private synchronized void write(String level, CharSequence content, Throwable error) {
+            if (disconnected) {
+                return;
+            }
+            final StringBuilder message = new StringBuilder(content == null ? "" : content);
+            if (error != null) {
+                final StringWriter stackTrace = new StringWriter();
+                error.printStackTrace(new PrintWriter(stackTrace));
+                message.append(message.length() > 0 ? "\n" : "").append(stackTrace);
+            }
+            final Map<String, Object> line = new LinkedHashMap<>();
+            line.put("level", level);
+            line.put("message", message.toString());
+            writeLine(line);
+        }
+
+        private synchronized void write(String level, String message, boolean success) {
+            if (disconnected) {
+                return;
+            }
+            final Map<String, Object> line = new LinkedHashMap<>();
+            line.put("level", level);
+            line.put("message", message);
+            line.put("success", success);
+            writeLine(line);
+        }
+
+        private void writeLine(Map<String, Object> line) {
+            try {
+                outputStream.write(OBJECT_MAPPER.writeValueAsString(line).getBytes(StandardCharsets.UTF_8));
+                outputStream.write('\n');
+                outputStream.flush();
+            } catch (IOException ex) {
+                disconnected = true;
+                suiteThread.interrupt();
+            }
+        }
+
+        private synchronized boolean isDisconnected() {
+            return disconnected;
+        }
+
+        @Override
+        public boolean isDebugEnabled() {
+            return debugEnabled;
+        }
+
+        @Override
+        public void debug(CharSequence content) {
+            debug(content, null);
+        }
+
+        @Override
+        public void debug(CharSequence content, Throwable error) {
+            if (debugEnabled) {
+                write("debug", content, error);
+            }
+        }
+
+        @Override
+        public void debug(Throwable error) {
+            debug(null, error);
+        }
+
+        @Override
+        public boolean isInfoEnabled() {
+            return true;
+        }
+
+        @Override
+        public void info(CharSequence content) {
+            write("info", content, null);
+        }
+
+        @Override
+        public void info(CharSequence content, Throwable error) {
+            write("info", content, error);
+        }
+
+        @Override
+        public void info(Throwable error) {
+            write("info", null, error);
+        }
+
+        @Override
+        public boolean isWarnEnabled() {
+            return true;
+        }
+
+        @Override
+        public void warn(CharSequence content) {
+            write("warn", content, null);
+        }
+
+        @Override
+        public void warn(CharSequence content, Throwable error) {
+            write("warn", content, error);
+        }
+
+        @Override
+        public void warn(Throwable error) {
+            write("warn", null, error);
+        }
+
+        @Override
+        public boolean isErrorEnabled() {
+            return true;
+        }
+
+        @Override
+        public void error(CharSequence content) {
+            write("error", content, null);
+        }
+
+        @Override
+        public void error(CharSequence content, Throwable error) {
+            write("error", content, error);
+        }
+
+        @Override
+        public void error(Throwable error) {
+            write("error", null, error);
+        }
+    }
+}
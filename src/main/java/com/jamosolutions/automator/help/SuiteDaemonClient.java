@@ -0,0 +1,136 @@
+package com.jamosolutions.automator.help;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.maven.plugin.logging.Log;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Thin client of {@link SuiteDaemon}: submits parameters of "run" goal to daemon running on same machine and relays
+ * log of suite into log of build.
+ */
+public class SuiteDaemonClient {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+
+    private final Log log;
+    private final String url;
+    private final RestTemplate restTemplate;
+
+    private SuiteDaemonClient(Log log, String url) {
+        this.log = log;
+        this.url = url;
+        final SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setConnectTimeout(CONNECT_TIMEOUT_MS);
+        this.restTemplate = new RestTemplate(requestFactory);
+        this.restTemplate.setMessageConverters(Converters.JACKSON_TO_HTTP);
+    }
+
+    /**
+     * @param stateFile state file written by daemon
+     * @return client of running daemon, or null when there is no state file or daemon does not respond
+     */
+    public static SuiteDaemonClient find(Log log, File stateFile) {
+        if (!stateFile.exists()) {
+            log.debug("There is no daemon state file " + stateFile.getAbsolutePath());
+            return null;
+        }
+        final String url;
+        try {
+            url = OBJECT_MAPPER.readTree(stateFile).path("url").asText(null);
+        } catch (IOException ex) {
+            log.warn("Unable to read daemon state file " + stateFile.getAbsolutePath() + ". ex=" + ex.getMessage());
+            return null;
+        }
+        if (url == null) {
+            return null;
+        }
+        final SuiteDaemonClient client = new SuiteDaemonClient(log, url);
+        try {
+            final JsonNode status = client.restTemplate.getForObject(client.uri("/status"), JsonNode.class);
+            log.debug("Daemon status: " + status);
+        } catch (RestClientException ex) {
+            log.info("Daemon from state file " + stateFile.getAbsolutePath() + " does not respond (it has been stopped?). ex=" + ex.getMessage());
+            return null;
+        }
+        return client;
+    }
+
+    /**
+     * Execute suite with given parameters by daemon and relay its log. Blocks till suite is finished.
+     *
+     * @return true, when suite has been executed (i.e. same outcome, as if "run" goal has returned without exception)
+     */
+    public boolean submit(Map<String, String> parameters) {
+        final Map<String, Object> request = new LinkedHashMap<>();
+        request.put("parameters", parameters);
+        request.put("debug", log.isDebugEnabled());
+        request.put("submittedAtMillis", System.currentTimeMillis());
+        final Boolean success = restTemplate.execute(
+                uri("/submit"),
+                HttpMethod.POST,
+                clientHttpRequest -> {
+                    clientHttpRequest.getHeaders().setContentType(MediaType.APPLICATION_JSON);
+                    OBJECT_MAPPER.writeValue(clientHttpRequest.getBody(), request);
+                },
+                clientHttpResponse -> {
+                    final BufferedReader reader = new BufferedReader(new InputStreamReader(clientHttpResponse.getBody(), StandardCharsets.UTF_8));
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        final JsonNode message = OBJECT_MAPPER.readTree(line);
+                        if (SuiteDaemon.LEVEL_RESULT.equals(message.path("level").asText())) {
+                            if (!message.path("success").asBoolean()) {
+                                log.error(message.path("message").asText());
+                            }
+                            return message.path("success").asBoolean();
+                        }
+                        relay(message.path("level").asText(), message.path("message").asText());
+                    }
+                    throw new RuntimeException("Daemon has closed connection before suite has finished!");
+                }
+        );
+        return Boolean.TRUE.equals(success);
+    }
+
+    private void relay(String level, String message) {
+        switch (level) {
+            case "debug":
+                log.debug(message);
+                break;
+            case "warn":
+                log.warn(message);
+                break;
+            case "error":
+                log.error(message);
+                break;
+            default:
+                log.info(message);
+        }
+    }
+
+    /**
+     * Ask daemon to stop.
+     */
+    public void stop() {
+        restTemplate.postForLocation(uri("/stop"), null);
+    }
+
+    private URI uri(String operation) {
+        final UriComponentsBuilder builder = UriComponentsBuilder.fromHttpUrl(url);
+        return builder.path(operation).build().encode().toUri();
+    }
+}
@@ -0,0 +1,107 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.TestSuite;
+import org.apache.maven.plugin.logging.Log;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resources kept warm by long running process, which executes several suites one after other, or concurrently (see
+ * {@link SuiteDaemon}). Everything, which is owned by single suite (clients with their rate limiters and metrics,
+ * reporters, orchestrator), is still created for each suite; only state, which is safe to share, is kept here:
+ * <ul>
+ * <li>JAXB context of descriptor (creation of context is most expensive part of parsing),</li>
+ * <li>login of each service and credentials (see {@link JamoAutomatorClient#setSharedLoginResults(ConcurrentMap)}),</li>
+ * <li>duration history of each file, which is read from disk again only when it has been changed by other process.</li>
+ * </ul>
+ */
+public class SuiteResourceCache {
+    private final JAXBContext testSuiteContext;
+    private final ConcurrentMap<String, UserKeyAndToken> loginResults = new ConcurrentHashMap<>();
+    private final Map<File, CachedHistory> durationHistories = new HashMap<>();
+    private int durationHistoryHits = 0;
+
+    public SuiteResourceCache() {
+        try {
+            this.testSuiteContext = JAXBContext.newInstance(TestSuite.class);
+        } catch (JAXBException e) {
+            throw new RuntimeException("Unable to create JAXB context of descriptor. ex=" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return JAXB context for parsing of {@link TestSuite} (context is thread safe, unmarshaller is not)
+     */
+    public JAXBContext getTestSuiteContext() {
+        return testSuiteContext;
+    }
+
+    /**
+     * Make given client to share login with clients of previous (and concurrent) suites.
+     */
+    public void shareLogin(JamoAutomatorClient jamoAutomatorClient) {
+        jamoAutomatorClient.setSharedLoginResults(loginResults);
+    }
+
+    /**
+     * @return duration history of given file for new suite; file is loaded only when it has been changed since it has
+     * been loaded (or saved) last time
+     */
+    public synchronized TestDurationHistory openDurationHistory(Log log, File file) {
+        final CachedHistory cached = durationHistories.get(file);
+        if (cached != null && cached.isCurrent()) {
+            durationHistoryHits++;
+            log.debug("Duration history " + file.getAbsolutePath() + " has not been changed, going to use cached one.");
+            return cached.history.forNextExecution(log);
+        }
+        final TestDurationHistory testDurationHistory = new TestDurationHistory(log, file);
+        testDurationHistory.load();
+        durationHistories.put(file, new CachedHistory(file, testDurationHistory.forNextExecution(log)));
+        return testDurationHistory;
+    }
+
+    /**
+     * Remember history saved by finished suite, so that next suite does not need to load it.
+     */
+    public synchronized void durationHistorySaved(File file, TestDurationHistory testDurationHistory) {
+        durationHistories.put(file, new CachedHistory(file, testDurationHistory.forNextExecution(null)));
+    }
+
+    /**
+     * @return number of suites, which have used cached duration history
+     */
+    public synchronized int getDurationHistoryHits() {
+        return durationHistoryHits;
+    }
+
+    /**
+     * @return number of services (and credentials), which have shared login
+     */
+    public int getLoginCount() {
+        return loginResults.size();
+    }
+
+    private static class CachedHistory {
+        private final File file;
+        private final long lastModified;
+        private final long length;
+        private final TestDurationHistory history;
+
+        private CachedHistory(File file, TestDurationHistory history) {
+            this.file = file;
+            this.lastModified = file.lastModified();
+            this.length = file.length();
+            this.history = history;
+        }
+
+        private boolean isCurrent() {
+            return file.lastModified() == lastModified && file.length() == length;
+        }
+    }
+}
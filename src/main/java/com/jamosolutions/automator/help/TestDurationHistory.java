@@ -0,0 +1,350 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Persisted history of {@link TestRun} durations, keyed by (device name, test case name). History is loaded from file
+ * at start of plugin execution, new {@link TestRun}s are appended during execution (this class is
+ * {@link TestRunReporterListener}) and whole history is written back by {@link #save()}.
+ * <p>
+ * Statistics returned by {@link #getStats(Device, TestCase)} are computed from loaded history and from samples
+ * recorded during current execution, so that estimates of first execution (without any history) improve while suite
+ * is running. {@link #getLastOutcome(Device, TestCase)} uses loaded history only (it describes previous execution).
+ * <p>
+ * File format is simple csv (semicolon separated) with header line:
+ * <code>device;testCase;outcome;durationMs;finishedTimeMillis</code>.
+ * <p>
+ * History can be shared by concurrent builds: {@link #save()} holds lock of <code>{file}.lock</code>, reads file again
+ * and merges its content with samples of current execution, so that samples saved by other build in meantime are kept.
+ */
+public class TestDurationHistory implements TestRunReporterListener {
+    /**
+     * Maximal number of samples kept for single (device, testCase) pair. Older samples are dropped on save.
+     */
+    public static final int MAX_SAMPLES_PER_KEY = 20;
+    private static final String HEADER = "device;testCase;outcome;durationMs;finishedTimeMillis";
+    /**
+     * File locks are held by whole JVM, so that saves of instances within same JVM are serialized by this lock.
+     */
+    private static final Object JVM_LOCK = new Object();
+
+    private final Log log;
+    private final File file;
+    private final Map<String, List<Sample>> loadedSamples = new HashMap<>();
+    private final Map<String, List<Sample>> sessionSamples = new LinkedHashMap<>();
+
+    public TestDurationHistory(Log log, File file) {
+        this.log = log;
+        this.file = file;
+    }
+
+    /**
+     * Loads history from file. Missing file is not an error (there is no history yet), unreadable lines are skipped.
+     */
+    public void load() {
+        if (file == null || !file.exists()) {
+            log.debug("There is no duration history file to load. file=" + file);
+            return;
+        }
+        final int lines;
+        try {
+            lines = readSamples(loadedSamples);
+        } catch (IOException ex) {
+            log.warn("Unable to read duration history from " + file.getAbsolutePath() + ". Going to continue without it. ex=" + ex.getMessage());
+            loadedSamples.clear();
+            return;
+        }
+        log.debug("Loaded " + lines + " samples for " + loadedSamples.size() + " (device, testCase) pairs from duration history " + file.getAbsolutePath());
+    }
+
+    /**
+     * Reads samples from file into given map. Unreadable lines are skipped.
+     *
+     * @return number of read samples
+     */
+    private int readSamples(Map<String, List<Sample>> target) throws IOException {
+        int lines = 0;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.equals(HEADER)) {
+                    continue;
+                }
+                final String[] parts = line.split(";", -1);
+                if (parts.length < 5) {
+                    log.debug("Skipping malformed line in duration history: " + line);
+                    continue;
+                }
+                try {
+                    final Sample sample = new Sample(
+                            ExecutionOutcome.valueOf(parts[2]),
+                            Long.parseLong(parts[3]),
+                            Long.parseLong(parts[4])
+                    );
+                    addSample(target, key(parts[0], parts[1]), sample);
+                    lines++;
+                } catch (IllegalArgumentException ex) {
+                    log.debug("Skipping malformed line in duration history: " + line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Writes loaded history together with samples from current execution and samples saved by other builds since
+     * {@link #load()} back to file. At most {@link #MAX_SAMPLES_PER_KEY} newest samples are kept for each (device,
+     * testCase) pair.
+     */
+    public void save() {
+        if (file == null) {
+            return;
+        }
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists()) {
+            parent.mkdirs();
+        }
+        final File lockFile = new File(file.getAbsolutePath() + ".lock");
+        synchronized (JVM_LOCK) {
+            try (RandomAccessFile lockAccess = new RandomAccessFile(lockFile, "rw");
+                 FileChannel channel = lockAccess.getChannel()) {
+                final FileLock lock = channel.lock();
+                try {
+                    final Map<String, List<Sample>> savedSamples = new HashMap<>();
+                    if (file.exists()) {
+                        try {
+                            readSamples(savedSamples);
+                        } catch (IOException ex) {
+                            log.warn("Unable to read duration history from " + file.getAbsolutePath() + " before save, samples saved by other builds may be lost. ex=" + ex.getMessage());
+                        }
+                    }
+                    write(merged(savedSamples));
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException ex) {
+                log.warn("Unable to lock duration history " + lockFile.getAbsolutePath() + ". ex=" + ex.getMessage());
+            }
+        }
+    }
+
+    private void write(Map<String, List<Sample>> merged) {
+        // history is written to temporary file first and moved over old one, so that builds reading history without
+        // lock (see load()) never read half written file
+        final File tempFile = new File(file.getAbsolutePath() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8))) {
+                writer.println(HEADER);
+                for (Map.Entry<String, List<Sample>> entry : merged.entrySet()) {
+                    for (Sample sample : entry.getValue()) {
+                        writer.println(entry.getKey() + ";" + sample.outcome + ";" + sample.durationMs + ";" + sample.finishedTimeMillis);
+                    }
+                }
+            }
+            try {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            log.warn("Unable to write duration history to " + file.getAbsolutePath() + ". ex=" + ex.getMessage());
+            tempFile.delete();
+        }
+    }
+
+    /**
+     * @param savedSamples samples currently in file (loaded samples are usually among them)
+     * @return loaded, saved and current execution samples without duplicates, at most {@link #MAX_SAMPLES_PER_KEY}
+     * newest for each pair (i.e. content of file written by {@link #save()})
+     */
+    private Map<String, List<Sample>> merged(Map<String, List<Sample>> savedSamples) {
+        final Map<String, Set<Sample>> distinct = new TreeMap<>();
+        for (Map<String, List<Sample>> source : Arrays.asList(loadedSamples, savedSamples, sessionSamples)) {
+            for (Map.Entry<String, List<Sample>> entry : source.entrySet()) {
+                distinct.computeIfAbsent(entry.getKey(), k -> new LinkedHashSet<>()).addAll(entry.getValue());
+            }
+        }
+        final Map<String, List<Sample>> merged = new TreeMap<>();
+        for (Map.Entry<String, Set<Sample>> entry : distinct.entrySet()) {
+            final List<Sample> samples = new ArrayList<>(entry.getValue());
+            samples.sort(Comparator.comparingLong(s -> s.finishedTimeMillis));
+            merged.put(entry.getKey(), new ArrayList<>(samples.subList(Math.max(0, samples.size() - MAX_SAMPLES_PER_KEY), samples.size())));
+        }
+        return merged;
+    }
+
+    /**
+     * Create history of next execution without reading file again: its loaded samples are same as if {@link #save()}
+     * of this history was followed by {@link #load()}. Used by long running process, which executes several suites
+     * (see {@link SuiteResourceCache}).
+     */
+    public TestDurationHistory forNextExecution(Log log) {
+        final TestDurationHistory next = new TestDurationHistory(log, file);
+        next.loadedSamples.putAll(merged(Collections.emptyMap()));
+        return next;
+    }
+
+    /**
+     * Add sample to loaded history, as if it has been loaded from file. Used when history is built from other source
+     * (for example recorded run log replayed by simulation).
+     */
+    public void addLoadedSample(String deviceName, String testCaseName, ExecutionOutcome outcome, long durationMs, long finishedTimeMillis) {
+        addSample(loadedSamples, key(deviceName, testCaseName), new Sample(outcome, durationMs, finishedTimeMillis));
+    }
+
+    @Override
+    public void finishTestRunExecution(TestRun testRun, boolean isFinalRunForPlannedTestRun) {
+        if (testRun.getExecutionOutcome() == ExecutionOutcome.EXECERR) {
+            // test has not been running on device at all
+            return;
+        }
+        final PlannedTestRun plannedTestRun = testRun.getPlannedTestRun();
+        addSample(
+                sessionSamples,
+                key(plannedTestRun.getDevice().getName(), plannedTestRun.getTestCase().getName()),
+                new Sample(
+                        testRun.getExecutionOutcome(),
+                        testRun.getFinishedTimeMillis() - testRun.getRequestStartTime(),
+                        testRun.getFinishedTimeMillis()
+                )
+        );
+    }
+
+    /**
+     * Returns statistics of loaded and current session durations for given pair (newest
+     * {@link #MAX_SAMPLES_PER_KEY} samples). Only {@link ExecutionOutcome#SUCCESS} and
+     * {@link ExecutionOutcome#FAILURE} samples are used, as only these represent real (finished) test duration.
+     *
+     * @return statistics, or {@link DurationStats#EMPTY} if there is no usable sample
+     */
+    public DurationStats getStats(Device device, TestCase testCase) {
+        final String key = key(device.getName(), testCase.getName());
+        final List<Sample> samples = new ArrayList<>(loadedSamples.getOrDefault(key, Collections.emptyList()));
+        samples.addAll(sessionSamples.getOrDefault(key, Collections.emptyList()));
+        if (samples.isEmpty()) {
+            return DurationStats.EMPTY;
+        }
+        final long[] durations = samples.stream()
+                .skip(Math.max(0, samples.size() - MAX_SAMPLES_PER_KEY))
+                .filter(s -> s.outcome == ExecutionOutcome.SUCCESS || s.outcome == ExecutionOutcome.FAILURE)
+                .mapToLong(s -> s.durationMs)
+                .toArray();
+        return new DurationStats(durations);
+    }
+
+    /**
+     * @return outcome of newest loaded sample for given pair, or null if there is no history for it
+     */
+    public ExecutionOutcome getLastOutcome(Device device, TestCase testCase) {
+        final List<Sample> samples = loadedSamples.get(key(device.getName(), testCase.getName()));
+        if (samples == null || samples.isEmpty()) {
+            return null;
+        }
+        return samples.stream().max(Comparator.comparingLong(s -> s.finishedTimeMillis)).get().outcome;
+    }
+
+    private static void addSample(Map<String, List<Sample>> target, String key, Sample sample) {
+        target.computeIfAbsent(key, k -> new ArrayList<>(4)).add(sample);
+    }
+
+    private static String key(String deviceName, String testCaseName) {
+        return deviceName + ";" + testCaseName;
+    }
+
+    private static class Sample {
+        private final ExecutionOutcome outcome;
+        private final long durationMs;
+        private final long finishedTimeMillis;
+
+        private Sample(ExecutionOutcome outcome, long durationMs, long finishedTimeMillis) {
+            this.outcome = outcome;
+            this.durationMs = durationMs;
+            this.finishedTimeMillis = finishedTimeMillis;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Sample)) {
+                return false;
+            }
+            final Sample sample = (Sample) o;
+            return durationMs == sample.durationMs && finishedTimeMillis == sample.finishedTimeMillis && outcome == sample.outcome;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(outcome, durationMs, finishedTimeMillis);
+        }
+    }
+
+    /**
+     * Simple immutable statistics over set of durations (milliseconds).
+     */
+    public static class DurationStats {
+        public static final DurationStats EMPTY = new DurationStats(new long[0]);
+
+        private final long[] sortedDurationsMs;
+        private final double meanMs;
+        private final double stdDevMs;
+
+        DurationStats(long[] durationsMs) {
+            this.sortedDurationsMs = durationsMs.clone();
+            Arrays.sort(this.sortedDurationsMs);
+            double sum = 0;
+            for (long d : sortedDurationsMs) {
+                sum += d;
+            }
+            this.meanMs = sortedDurationsMs.length == 0 ? 0 : sum / sortedDurationsMs.length;
+            double squares = 0;
+            for (long d : sortedDurationsMs) {
+                squares += (d - meanMs) * (d - meanMs);
+            }
+            this.stdDevMs = sortedDurationsMs.length < 2 ? 0 : Math.sqrt(squares / (sortedDurationsMs.length - 1));
+        }
+
+        public int getCount() {
+            return sortedDurationsMs.length;
+        }
+
+        public boolean isEmpty() {
+            return sortedDurationsMs.length == 0;
+        }
+
+        public double getMeanMs() {
+            return meanMs;
+        }
+
+        public double getStdDevMs() {
+            return stdDevMs;
+        }
+
+        /**
+         * Nearest-rank percentile.
+         *
+         * @param percentile value from interval (0, 100]
+         * @return duration in milliseconds; 0 if there are no samples
+         */
+        public long getPercentileMs(double percentile) {
+            if (sortedDurationsMs.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sortedDurationsMs.length);
+            rank = Math.min(Math.max(rank, 1), sortedDurationsMs.length);
+            return sortedDurationsMs[rank - 1];
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package com.jamosolutions.automator.help;
 
 import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.ResponseStringWrapper;
 import com.jamosolutions.automator.domain.TestCase;
 import com.jamosolutions.jamoAutomator.domain.Report;
 import org.apache.maven.plugin.logging.Log;
 
+import java.time.Clock;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -19,8 +21,16 @@ public class TestOrchestrator {
     private final JamoAutomatorClient jamoAutomatorClient;
     private final Log log;
     private final int retestCount;
+    /**
+     * Source of current time for orchestrator and its {@link TestRun}s. System clock, unless orchestrator is driven
+     * by simulation.
+     */
+    private Clock clock = Clock.systemUTC();
 
-    private final Map<Device, List<PlannedTestRun>> executionsToDoFlight = new HashMap<>();
+    /**
+     * Per device queues of planned test runs, ordered by {@link #schedulingPolicy}.
+     */
+    private final Map<Device, PriorityQueue<QueuedTestRun>> executionsToDoFlight = new HashMap<>();
     private final Map<Device, List<TestRun>> executionsInFlight = new HashMap<>();
     private final Map<Device, List<TestRun>> executionsFinished = new HashMap<>();
     private final List<TestRunReporterListener> testRunReporterListeners = new ArrayList<>(3);
@@ -35,6 +45,136 @@ public class TestOrchestrator {
      */
     // TODO ged rid of this if possible and hide functionality in TestRun itself.
     private final Map<TestRun, Long> operationsSuspendedTillMs = new HashMap<>();
+    /**
+     * Time of first request for test execution. Zero till first {@link TestRun} is started.
+     */
+    private long firstDispatchTimeMillis = 0;
+    private TimeoutPolicy timeoutPolicy = TimeoutPolicy.CONFIGURED;
+    /**
+     * Number of consecutive liveness checks finding {@link TestRun} dead, after which run is declared lost.
+     */
+    public static final int DEAD_LIVENESS_CHECKS_TO_DECLARE_LOST = 2;
+    /**
+     * Null when liveness checks are disabled.
+     */
+    private ExecutionLivenessProbe executionLivenessProbe = null;
+    private long livenessCheckIntervalMs = 60 * 1000;
+    private long lastLivenessCheckMillis = 0;
+    /**
+     * How many times can be single {@link PlannedTestRun} rescheduled due to lost test run (device offline, ...)
+     * without counting it as retest attempt.
+     */
+    private int maxReschedules = 1;
+    /**
+     * When true, timeouted (or lost) executions are stopped on service side and their device is not used, till stop
+     * is confirmed (or {@link #cancelConfirmationTimeoutMs} expires).
+     */
+    private boolean cancelTimedOutExecutions = false;
+    private long cancelConfirmationTimeoutMs = 2 * 60 * 1000;
+    private final Map<Device, PendingCancel> pendingCancels = new HashMap<>();
+    private int confirmedCancelsCount = 0;
+    private long reclaimedDeviceTimeMs = 0;
+    /**
+     * Null when suite abort is disabled.
+     */
+    private SuiteAbortPolicy suiteAbortPolicy = null;
+    /**
+     * Reason of suite abort. Null, till suite abort has been triggered.
+     */
+    private String abortReason = null;
+    private boolean abortInFlightHandled = false;
+    /**
+     * Test runs of gate (smoke) stage, which have not finished yet. Gate passes, when all of them finish with
+     * {@link ExecutionOutcome#SUCCESS}.
+     */
+    private final Map<Device, Set<TestCase>> pendingGateTestRuns = new HashMap<>();
+    private boolean gateFailed = false;
+    /**
+     * Test runs pre-planned for stage after gate. They are moved to {@link #executionsToDoFlight} as soon as gate
+     * passes, or skipped when gate fails.
+     */
+    private final List<PlannedTestRun> heldBackTestRuns = new ArrayList<>();
+    /**
+     * Time till which all test runs should be finished. Zero means no time budget.
+     */
+    private long timeBudgetDeadlineMillis = 0;
+    private ExecutionTimeEstimator executionTimeEstimator = null;
+    private SchedulingPolicy schedulingPolicy = SchedulingPolicy.FIFO;
+    /**
+     * How many times can be test run retried after {@link ExecErrorType#DEVICE_OFFLINE} without consuming retest
+     * attempt, and for how long is device left alone before that.
+     */
+    private int maxOfflineDeviceRetries = 3;
+    private long offlineDeviceRetryDelayMs = 60 * 1000;
+    /**
+     * Devices, which should not get any test till given time (device has been found offline).
+     */
+    private final Map<Device, Long> devicesOnHoldTillMillis = new HashMap<>();
+    /**
+     * Retries (and reschedules) waiting for their backoff delay, ordered by due time. They are moved to
+     * {@link #executionsToDoFlight} by {@link #releaseDueRetries()}, so that devices can work on other test runs in
+     * meantime.
+     */
+    private final PriorityQueue<DelayedRetry> delayedRetries = new PriorityQueue<>();
+    private RetryBackoffPolicy retryBackoffPolicy = RetryBackoffPolicy.IMMEDIATE;
+    private RetryPriority retryPriority = RetryPriority.POLICY;
+    /**
+     * Null when device health scoring is disabled.
+     */
+    private DeviceHealthMonitor deviceHealthMonitor = null;
+    private long quarantineProbeIntervalMs = 5 * 60 * 1000;
+    private int maxQuarantineProbes = 3;
+    /**
+     * Devices, which does not get any test due to low health score. Their planned test runs are moved to equivalent
+     * devices (same pool), or parked in their queue till device is re-admitted by probe.
+     */
+    private final Map<Device, Quarantine> quarantinedDevices = new LinkedHashMap<>();
+    private final List<String> deviceHealthEvents = new ArrayList<>();
+    /**
+     * Null when completion callbacks are disabled and reports are found by polling only.
+     */
+    private CompletionWebhookReceiver completionWebhookReceiver = null;
+    private long safetyNetPollIntervalMs = 60 * 1000;
+    /**
+     * Executions announced by completion callback, whose report has not been processed yet.
+     */
+    private final Set<String> completedExecutionIds = new HashSet<>();
+    /**
+     * Time of last successful bulk status query (see {@link JamoAutomatorClient#getExecutionStatuses(Collection, long)})
+     * of each client. Query, which has not been made (rate limit, error), does not advance it.
+     */
+    private final Map<JamoAutomatorClient, Long> lastStatusSyncMillis = new HashMap<>();
+    /**
+     * Executions reported as no longer running by bulk status query, whose report has not been processed yet (report
+     * request rate limited, report not available yet, ...). Next queries ask for changes since last query only, so
+     * they would not report these executions again; their report is requested in each round till it is processed.
+     */
+    private final Set<String> finishedByStatusExecutionIds = new HashSet<>();
+    private int statusSyncCount = 0;
+    /**
+     * Backends of federated suite (see {@link #registerBackend(ExecutionBackend, Collection)}), keyed by name.
+     * Devices without backend use {@link #jamoAutomatorClient}.
+     */
+    private final Map<String, ExecutionBackend> backends = new LinkedHashMap<>();
+    private final Map<Device, ExecutionBackend> deviceBackends = new HashMap<>();
+    /**
+     * Execution ids, whose status has been returned by (or queried by successful) bulk status query in current round.
+     */
+    private final Set<String> syncedExecutionIds = new HashSet<>();
+    /**
+     * Null when each test run is submitted by its own run request.
+     */
+    private TestRunBatching testRunBatching = null;
+    /**
+     * Null when devices are not shared with other builds on same host.
+     */
+    private DeviceLeaseRegistry deviceLeaseRegistry = null;
+    private int batchCount = 0;
+    private int batchedTestRunsCount = 0;
+    /**
+     * Order of adding to {@link #executionsToDoFlight}, used to break ties of equal rank.
+     */
+    private long queuedSequence = 0;
 
     public TestOrchestrator(JamoAutomatorClient jamoAutomatorClient, Log log, int retestCount) {
         this.jamoAutomatorClient = jamoAutomatorClient;
@@ -43,13 +183,99 @@ public class TestOrchestrator {
     }
 
     public void addTestForExecution(PlannedTestRun plannedTestRun) {
-        this.executionsToDoFlight.compute(plannedTestRun.getDevice(), (k, v) -> {
-            if (v == null) {
-                v = new ArrayList<>(40);
+        if (this.suiteAbortPolicy != null && plannedTestRun.getAttemptCount() == 0 && plannedTestRun.getRescheduleCount() == 0) {
+            this.suiteAbortPolicy.planned(plannedTestRun);
+        }
+        this.enqueue(plannedTestRun, schedulingPolicy.rank(plannedTestRun));
+    }
+
+    /**
+     * Add planned test run to queue of its device. Test run for quarantined device is moved to equivalent device when
+     * there is one, otherwise it is parked in queue of quarantined device (or skipped, when device has not passed
+     * any probe).
+     */
+    private void enqueue(PlannedTestRun plannedTestRun, long rank) {
+        final Quarantine quarantine = quarantinedDevices.get(plannedTestRun.getDevice());
+        if (quarantine != null) {
+            final Optional<Device> equivalentDevice = findEquivalentDevice(plannedTestRun.getDevice());
+            if (equivalentDevice.isPresent()) {
+                plannedTestRun = moveToDevice(plannedTestRun, equivalentDevice.get());
+            } else if (quarantine.gaveUp) {
+                skipTestRun(plannedTestRun, "device " + plannedTestRun.getDevice().getName() + " is quarantined");
+                return;
             }
-            v.add(plannedTestRun);
-            return v;
-        });
+        }
+        final QueuedTestRun queuedTestRun = new QueuedTestRun(plannedTestRun, rank, queuedSequence++);
+        this.executionsToDoFlight.computeIfAbsent(plannedTestRun.getDevice(), k -> new PriorityQueue<>(40)).add(queuedTestRun);
+    }
+
+    /**
+     * Plan retry (or reschedule) of failed test run. Retry waits in {@link #delayedRetries} for delay given by
+     * {@link RetryBackoffPolicy} (or at least given minimal delay), than it is placed to queue of its device according
+     * {@link RetryPriority}.
+     *
+     * @param retry          planned test run with incremented attempt (or reschedule) count
+     * @param failedOutcome  outcome of failed test run
+     * @param minimalDelayMs minimal delay of retry
+     */
+    private void planRetry(PlannedTestRun retry, ExecutionOutcome failedOutcome, long minimalDelayMs) {
+        final long delayMs = Math.max(minimalDelayMs, retryBackoffPolicy.getDelayMs(failedOutcome, retry.getAttemptCount() + retry.getRescheduleCount()));
+        if (delayMs <= 0) {
+            enqueueRetry(retry);
+            return;
+        }
+        log.debug(colorize("Retry of test " + testCase(retry.getTestCase()) + " on device " + device(retry.getDevice()) +
+                " is going to wait " + delayMs / 1000 + " seconds."));
+        delayedRetries.add(new DelayedRetry(retry, clock.millis() + delayMs, queuedSequence++));
+    }
+
+    private void enqueueRetry(PlannedTestRun retry) {
+        switch (retryPriority) {
+            case BEFORE_FRESH:
+                enqueue(retry, Long.MIN_VALUE);
+                break;
+            case AFTER_FRESH:
+                enqueue(retry, Long.MAX_VALUE);
+                break;
+            default:
+                addTestForExecution(retry);
+                break;
+        }
+    }
+
+    /**
+     * Move retries, whose delay is over, to queues of their devices.
+     */
+    private void releaseDueRetries() {
+        final long now = clock.millis();
+        while (!delayedRetries.isEmpty() && delayedRetries.peek().dueMillis <= now) {
+            enqueueRetry(delayedRetries.poll().plannedTestRun);
+        }
+    }
+
+    /**
+     * Plan test run of gate (smoke) stage. Test runs added by {@link #addTestForLaterStage(PlannedTestRun)} are
+     * dispatched only after all gate test runs finish successfully.
+     */
+    public void addGateTestForExecution(PlannedTestRun plannedTestRun) {
+        this.pendingGateTestRuns.computeIfAbsent(plannedTestRun.getDevice(), k -> new HashSet<>()).add(plannedTestRun.getTestCase());
+        this.addTestForExecution(plannedTestRun);
+    }
+
+    /**
+     * Pre-plan test run of stage after gate. It is held back till gate passes (see
+     * {@link #addGateTestForExecution(PlannedTestRun)}), so that devices can start it immediately after that. If there
+     * is no gate test run, it is planned immediately.
+     */
+    public void addTestForLaterStage(PlannedTestRun plannedTestRun) {
+        if (this.pendingGateTestRuns.isEmpty() && !this.gateFailed) {
+            this.addTestForExecution(plannedTestRun);
+            return;
+        }
+        if (this.suiteAbortPolicy != null) {
+            this.suiteAbortPolicy.planned(plannedTestRun);
+        }
+        this.heldBackTestRuns.add(plannedTestRun);
     }
 
     /**
@@ -57,20 +283,101 @@ public class TestOrchestrator {
      * when all {@link com.jamosolutions.automator.domain.TestCase} has been executed for all defined devices.
      */
     public boolean isStillSomethingNeedToBeDone() {
-        return executionsToDoFlight.size() > 0 || executionsInFlight.size() > 0;
+        return executionsToDoFlight.size() > 0 || executionsInFlight.size() > 0 || heldBackTestRuns.size() > 0 || delayedRetries.size() > 0;
+    }
+
+    /**
+     * Single round of orchestration: process reports and timeouts of running test runs and start new ones on idle
+     * devices. Caller is expected to call this method repeatedly (with some pause between calls) till
+     * {@link #isStillSomethingNeedToBeDone()} returns false.
+     */
+    public void executeRound() {
+        if (this.deviceLeaseRegistry != null) {
+            this.deviceLeaseRegistry.heartbeat();
+        }
+        this.getReportsForRunningTests();
+        this.checkTimeoutsOnRunningTests();
+        this.checkLivenessOfRunningTests();
+        this.checkPendingCancellations();
+        this.checkForIdleDevicesAndUseThem();
+        this.releaseLeasesOfIdleDevices();
+    }
+
+    /**
+     * Release leases of devices without running (or being cancelled) execution, so that other builds can use them
+     * between rounds. Device, which gets next test in same round, keeps its lease.
+     */
+    private void releaseLeasesOfIdleDevices() {
+        if (this.deviceLeaseRegistry == null) {
+            return;
+        }
+        for (Device device : deviceLeaseRegistry.getHeldDevices()) {
+            if (!executionsInFlight.containsKey(device) && !pendingCancels.containsKey(device)) {
+                deviceLeaseRegistry.release(device);
+            }
+        }
+    }
+
+    /**
+     * Record final result of gate test run (if given test run is part of gate) and release, or skip held back test
+     * runs when gate is decided.
+     */
+    private void recordGateResult(PlannedTestRun plannedTestRun, boolean success) {
+        final Set<TestCase> pendingForDevice = pendingGateTestRuns.get(plannedTestRun.getDevice());
+        if (pendingForDevice == null || !pendingForDevice.remove(plannedTestRun.getTestCase())) {
+            return;
+        }
+        if (pendingForDevice.isEmpty()) {
+            pendingGateTestRuns.remove(plannedTestRun.getDevice());
+        }
+        if (!success && !gateFailed) {
+            gateFailed = true;
+            log.warn(colorize("@|bold,red Smoke stage has failed|@ (test " + testCase(plannedTestRun.getTestCase()) +
+                    " on device " + device(plannedTestRun.getDevice()) + "). Going to skip " + heldBackTestRuns.size() + " test runs of full matrix."));
+            for (PlannedTestRun heldBack : heldBackTestRuns) {
+                skipTestRun(heldBack, "smoke stage failed on test " + plannedTestRun.getTestCase().getName() +
+                        " on device " + plannedTestRun.getDevice().getName());
+            }
+            heldBackTestRuns.clear();
+        }
+        if (pendingGateTestRuns.isEmpty() && !gateFailed && !heldBackTestRuns.isEmpty()) {
+            log.info(colorize("@|bold,green Smoke stage has passed.|@ Going to start " + heldBackTestRuns.size() + " test runs of full matrix."));
+            for (PlannedTestRun heldBack : heldBackTestRuns) {
+                this.addTestForExecution(heldBack);
+            }
+            heldBackTestRuns.clear();
+        }
+    }
+
+    /**
+     * @return true, if gate (smoke) stage has failed
+     */
+    public boolean isGateFailed() {
+        return gateFailed;
     }
 
     /**
      * Iterates over all idle devices with non-empty to-do list and executes {@link TestRun} according next
-     * {@link PlannedTestRun} instance in list.
+     * {@link PlannedTestRun} instance in queue (as ordered by {@link SchedulingPolicy}).
      * <p>
      * If executing test fails, method does look at {@link #retestCount} and if it is lower than actual failed count
-     * of requests for execution, it will plan this failed {@link PlannedTestRun} again. Retried attempts are added
-     * to the end of list.
+     * of requests for execution, it will plan this failed {@link PlannedTestRun} again. Retried attempts wait for
+     * their backoff delay first (see {@link #setRetryBackoff(RetryBackoffPolicy, RetryPriority)}).
      */
     public void checkForIdleDevicesAndUseThem() {
+        if (this.abortReason != null) {
+            this.abortSuite();
+            return;
+        }
+        this.releaseDueRetries();
+        this.probeQuarantinedDevices();
         Set<Device> idleDevicesWithNonEmptyToDo = new HashSet<>(executionsToDoFlight.keySet());
         idleDevicesWithNonEmptyToDo.removeAll(executionsInFlight.keySet());
+        idleDevicesWithNonEmptyToDo.removeAll(pendingCancels.keySet());
+        idleDevicesWithNonEmptyToDo.removeAll(quarantinedDevices.keySet());
+        final long now = clock.millis();
+        devicesOnHoldTillMillis.values().removeIf(tillMillis -> tillMillis <= now);
+        idleDevicesWithNonEmptyToDo.removeAll(devicesOnHoldTillMillis.keySet());
         if (idleDevicesWithNonEmptyToDo.isEmpty()) {
             log.debug("There is no idle device with some work in ToDo queue.");
             return;
@@ -81,77 +388,685 @@ public class TestOrchestrator {
                 .map(Device::getName)
                 .collect(Collectors.joining(", "));
         log.debug("Going to start executions on devices (" + idleDevicesWithNonEmptyToDoStr + ") without any execution in flight, but with something in ToDo queue.");
+        final Set<JamoAutomatorClient> rateLimitedClients = new HashSet<>();
         for (Device idleDevice : idleDevicesWithNonEmptyToDo) {
-            PlannedTestRun newPlannedTestRun = popAnotherTestForDevice(idleDevice).get();
-            // as we have filtered devices, all should have at least single test for given device. We are rude and use Optional.get() without any preceding check
-            final TestRun newTestRun = new TestRun(log, jamoAutomatorClient, newPlannedTestRun);
-            if (newTestRun.startTest()) {
+            final JamoAutomatorClient client = getJamoAutomatorClient(idleDevice);
+            if (rateLimitedClients.contains(client)) {
+                continue;
+            }
+            if (deviceLeaseRegistry != null && !deviceLeaseRegistry.tryAcquire(idleDevice, client.getUrl())) {
+                // device is used by other build on this host
+                continue;
+            }
+            // candidate first, so that permit is not wasted on device, whose queue holds only test runs over budget
+            final Optional<PlannedTestRun> plannedTestRunWithinBudget = popAnotherTestForDeviceWithinBudget(idleDevice);
+            if (!plannedTestRunWithinBudget.isPresent()) {
+                continue;
+            }
+            PlannedTestRun newPlannedTestRun = plannedTestRunWithinBudget.get();
+            if (!client.tryAcquirePermit(ApiCallType.RUN)) {
+                log.debug("Rate limit of run requests" + backendSuffix(idleDevice) + " reached. Its idle devices are going to get work in next rounds.");
+                pushBackTestForDevice(newPlannedTestRun);
+                rateLimitedClients.add(client);
+                continue;
+            }
+            final TestRun newTestRun = createTestRun(newPlannedTestRun);
+            final List<TestRun> batchFollowers = popBatchFollowers(newPlannedTestRun);
+            final List<TestRun> newTestRuns = new ArrayList<>(batchFollowers.size() + 1);
+            newTestRuns.add(newTestRun);
+            newTestRuns.addAll(batchFollowers);
+            if (!batchFollowers.isEmpty()) {
+                final EffectiveTimeout batchTimeout = TestRunBatching.getBatchTimeout(newTestRuns);
+                newTestRuns.forEach(testRun -> testRun.setEffectiveTimeout(batchTimeout));
+                this.batchCount++;
+                this.batchedTestRunsCount += newTestRuns.size();
+                log.debug(colorize("Going to execute " + newTestRuns.size() + " tests on device " + device(idleDevice) +
+                        " by single request, with timeout " + batchTimeout + "."));
+            }
+            if (this.firstDispatchTimeMillis == 0) {
+                this.firstDispatchTimeMillis = clock.millis();
+            }
+            if (newTestRun.startBatch(batchFollowers)) {
+                if (newPlannedTestRun.getTransientRetryCount() > 0) {
+                    client.getRetryMetrics().recordRecovered(ApiCallType.RUN);
+                }
                 this.executionsInFlight.compute(idleDevice, (k, v) -> {
                     if (v == null) {
                         v = new ArrayList<>(2);
                     }
-                    v.add(newTestRun);
+                    v.addAll(newTestRuns);
                     return v;
                 });
             } else {
                 // execution failed (finished with ExecutionOutcome.EXECERR). Are we allowed to retry exec?
-                final boolean willRetry = retestIfNeeded(newTestRun);
-                finishTestRunExecution(newTestRun, !willRetry);
+                for (TestRun failedTestRun : newTestRuns) {
+                    if (planTransientRetryIfNeeded(failedTestRun)) {
+                        continue;
+                    }
+                    final boolean willRetry = planAnotherAttemptIfNeeded(failedTestRun, false);
+                    finishTestRunExecution(failedTestRun, !willRetry);
+                }
             }
         } // end of for each idleDevicesWithNonEmptyToDo
     }
 
+    /**
+     * Plan next attempt of run request, which has failed with transient error (see
+     * {@link RetryPolicy#isRetryable(ApiCallType, Exception)}), after backoff of retry policy of its client. Retry
+     * waits in {@link #delayedRetries} and device is on hold meanwhile, so that rounds (and other devices) are not
+     * blocked by backoff. Failed request is not reported to listeners and does not count as retest attempt.
+     *
+     * @return true, if retry has been planned
+     */
+    private boolean planTransientRetryIfNeeded(TestRun testRun) {
+        final Exception execRequestException = testRun.getExecRequestException();
+        if (execRequestException == null || this.abortReason != null) {
+            return false;
+        }
+        final PlannedTestRun plannedTestRun = testRun.getPlannedTestRun();
+        final Device device = plannedTestRun.getDevice();
+        final JamoAutomatorClient client = getJamoAutomatorClient(device);
+        final RetryPolicy retryPolicy = client.getRetryPolicy();
+        if (!retryPolicy.isRetryable(ApiCallType.RUN, execRequestException)) {
+            return false;
+        }
+        final int failedAttempt = plannedTestRun.getTransientRetryCount() + 1;
+        if (failedAttempt >= retryPolicy.getMaxAttempts()) {
+            if (failedAttempt > 1) {
+                client.getRetryMetrics().recordExhausted(ApiCallType.RUN);
+            }
+            return false;
+        }
+        final long backoffMs = retryPolicy.getBackoffMs(failedAttempt);
+        final long dueMillis = clock.millis() + backoffMs;
+        client.getRetryMetrics().recordRetry(ApiCallType.RUN);
+        log.info(colorize("Execution request of " + testCase(plannedTestRun.getTestCase()) + " on device " + device(device) +
+                " has failed with transient error (" + execRequestException.getMessage() + "). Going to retry in " + backoffMs +
+                " ms (attempt " + (failedAttempt + 1) + " of " + retryPolicy.getMaxAttempts() + ")."));
+        devicesOnHoldTillMillis.merge(device, dueMillis, Math::max);
+        delayedRetries.add(new DelayedRetry(plannedTestRun.withIncrementedTransientRetryCount(), dueMillis, queuedSequence++));
+        return true;
+    }
+
+    private TestRun createTestRun(PlannedTestRun plannedTestRun) {
+        final TestRun testRun = new TestRun(log, getJamoAutomatorClient(plannedTestRun.getDevice()), plannedTestRun, clock);
+        testRun.setEffectiveTimeout(timeoutPolicy.getEffectiveTimeout(plannedTestRun));
+        if (testRun.getEffectiveTimeout().isAdaptive()) {
+            log.debug(colorize("Using timeout " + testRun.getEffectiveTimeout() + " for test " +
+                    testCase(plannedTestRun.getTestCase()) + " on device " + device(plannedTestRun.getDevice()) + "."));
+        }
+        return testRun;
+    }
+
+    /**
+     * Take test runs, which follow given (just popped) test run in queue of its device and can be executed together
+     * with it (see {@link TestRunBatching}).
+     *
+     * @return test runs to be executed by same request as given one; empty when batching is disabled
+     */
+    private List<TestRun> popBatchFollowers(PlannedTestRun first) {
+        if (testRunBatching == null || !testRunBatching.canStartBatch(first)) {
+            return Collections.emptyList();
+        }
+        final Device device = first.getDevice();
+        final List<PlannedTestRun> batch = new ArrayList<>();
+        batch.add(first);
+        long batchExpectedMs = testRunBatching.getExpectedDurationMs(first);
+        final List<TestRun> followers = new ArrayList<>();
+        while (executionsToDoFlight.containsKey(device)) {
+            final PlannedTestRun next = executionsToDoFlight.get(device).peek().plannedTestRun;
+            if (!testRunBatching.canJoin(batch, batchExpectedMs, next)) {
+                break;
+            }
+            final long expectedMs = testRunBatching.getExpectedDurationMs(next);
+            if (timeBudgetDeadlineMillis > 0 && clock.millis() + batchExpectedMs + expectedMs > timeBudgetDeadlineMillis) {
+                // left in queue, it is going to be skipped, or executed alone
+                break;
+            }
+            popAnotherTestForDevice(device);
+            batch.add(next);
+            batchExpectedMs += expectedMs;
+            followers.add(createTestRun(next));
+        }
+        return followers;
+    }
+
     /**
      * This method will also remove {@link TestRun} instance from {@link #executionsInFlight} map. So device can end
      * with no execution running on it.
+     * <p>
+     * Reports are requested within rate limit of {@link ApiCallType#REPORT} calls. Test runs waiting longest for
+     * report request go first, so that no test run is starved, when limit does not allow to ask for all reports in
+     * single round.
+     * <p>
+     * Statuses of all running executions are queried by single bulk request first (when service supports it), so
+     * that report is requested only for executions, which are no longer running. When completion callbacks are
+     * enabled (see {@link #setCompletionWebhook(CompletionWebhookReceiver, long)}), report is requested for announced
+     * executions first. In both cases, other test runs are polled only once per safety net interval (lost callback,
+     * execution missing in bulk response, ...).
      */
     public void getReportsForRunningTests() {
+        final List<TestRun> running = new ArrayList<>();
+        for (List<TestRun> testRuns : executionsInFlight.values()) {
+            running.addAll(testRuns);
+        }
+        // report of batch is requested by its first test run only
+        running.removeIf(TestRun::isBatchFollower);
+        // test runs finished other way (timeout, liveness, ...) are not waiting for report anymore
+        finishedByStatusExecutionIds.retainAll(running.stream().map(TestRun::getExecutionId).collect(Collectors.toSet()));
+        if (running.isEmpty()) {
+            return;
+        }
+        if (completionWebhookReceiver != null) {
+            completedExecutionIds.addAll(completionWebhookReceiver.drainCompletedExecutionIds());
+        }
+        final long now = clock.millis();
+        final Map<String, String> statuses = syncExecutionStatuses(running, now);
+        running.removeIf(testRun -> (completionWebhookReceiver != null || syncedExecutionIds.contains(testRun.getExecutionId()))
+                && !isReportExpected(testRun, statuses, now));
+        running.sort(Comparator
+                .comparing((TestRun testRun) -> !isCompletionKnown(testRun))
+                .thenComparingLong(TestRun::getLastReportRequestMillis));
+        getReportsForRunningTests(running);
+    }
+
+    /**
+     * Query statuses of running test runs by single request (per backend). Test runs reported as running are
+     * considered checked in this round. With completion webhook, only test runs without callback, which have not been
+     * checked for safety net interval, are queried. Ids of queried executions are kept in {@link #syncedExecutionIds},
+     * ids of executions reported as no longer running in {@link #finishedByStatusExecutionIds}.
+     *
+     * @return statuses keyed by execution id, or null when bulk query is not available (or not needed)
+     */
+    private Map<String, String> syncExecutionStatuses(List<TestRun> running, long now) {
+        syncedExecutionIds.clear();
+        final Map<JamoAutomatorClient, List<String>> executionIdsByClient = new LinkedHashMap<>();
+        for (TestRun testRun : running) {
+            if ((completionWebhookReceiver == null || isSafetyNetDue(testRun, now)) && !isCompletionKnown(testRun)) {
+                executionIdsByClient.computeIfAbsent(getJamoAutomatorClient(testRun.getPlannedTestRun().getDevice()), k -> new ArrayList<>())
+                        .add(testRun.getExecutionId());
+            }
+        }
+        Map<String, String> statuses = null;
+        for (Map.Entry<JamoAutomatorClient, List<String>> entry : executionIdsByClient.entrySet()) {
+            if (!entry.getKey().tryAcquirePermit(ApiCallType.REPORT)) {
+                continue;
+            }
+            final Map<String, String> clientStatuses = entry.getKey().getExecutionStatuses(entry.getValue(),
+                    lastStatusSyncMillis.getOrDefault(entry.getKey(), 0L));
+            if (clientStatuses == null) {
+                continue;
+            }
+            lastStatusSyncMillis.put(entry.getKey(), now);
+            if (statuses == null) {
+                statuses = new HashMap<>();
+            }
+            statuses.putAll(clientStatuses);
+            syncedExecutionIds.addAll(entry.getValue());
+            statusSyncCount++;
+        }
+        if (statuses == null) {
+            return null;
+        }
+        for (TestRun testRun : running) {
+            final String status = statuses.get(testRun.getExecutionId());
+            if (JamoAutomatorClient.EXECUTION_STATUS_RUNNING.equalsIgnoreCase(status)) {
+                testRun.setLastReportRequestMillis(now);
+            } else if (status != null) {
+                finishedByStatusExecutionIds.add(testRun.getExecutionId());
+            }
+        }
+        return statuses;
+    }
+
+    /**
+     * @return true, if report of test run should be requested in this round: its completion has been announced (by
+     * callback, or by bulk status), or it has not been checked for safety net interval
+     */
+    private boolean isReportExpected(TestRun testRun, Map<String, String> statuses, long now) {
+        if (isCompletionKnown(testRun)) {
+            return true;
+        }
+        if (statuses != null) {
+            final String status = statuses.get(testRun.getExecutionId());
+            if (status != null && !JamoAutomatorClient.EXECUTION_STATUS_RUNNING.equalsIgnoreCase(status)) {
+                return true;
+            }
+        }
+        return isSafetyNetDue(testRun, now);
+    }
+
+    /**
+     * @return true, if completion of test run has been announced by callback, or by bulk status query in this (or any
+     * previous) round, and its report has not been processed yet
+     */
+    private boolean isCompletionKnown(TestRun testRun) {
+        return completedExecutionIds.contains(testRun.getExecutionId()) || finishedByStatusExecutionIds.contains(testRun.getExecutionId());
+    }
+
+    private boolean isSafetyNetDue(TestRun testRun, long now) {
+        return now - Math.max(testRun.getLastReportRequestMillis(), testRun.getExecRequestReturnedTimeMillis()) >= safetyNetPollIntervalMs;
+    }
+
+    public void getReportsForRunningTests(Device device) {
+        final List<TestRun> running = new ArrayList<>(executionsInFlight.get(device));
+        running.removeIf(TestRun::isBatchFollower);
+        getReportsForRunningTests(running);
+    }
+
+    private void getReportsForRunningTests(List<TestRun> testRuns) {
+        final Set<JamoAutomatorClient> rateLimitedClients = new HashSet<>();
+        for (TestRun testRun : testRuns) {
+            final JamoAutomatorClient client = getJamoAutomatorClient(testRun.getPlannedTestRun().getDevice());
+            if (rateLimitedClients.contains(client)) {
+                continue;
+            }
+            if (testRun.getReportRetryNotBeforeMillis() > clock.millis()) {
+                // backoff after transient failure of previous request
+                continue;
+            }
+            if (!client.tryAcquirePermit(ApiCallType.REPORT)) {
+                log.debug("Rate limit of report requests" + backendSuffix(testRun.getPlannedTestRun().getDevice()) +
+                        " reached. Going to ask for rest of its reports in next round.");
+                rateLimitedClients.add(client);
+                continue;
+            }
+            testRun.setLastReportRequestMillis(clock.millis());
+            final List<TestRun> batch = getBatch(testRun);
+            if (getReportAndProcessIt(log, client, testRun)) {
+                completedExecutionIds.remove(testRun.getExecutionId());
+                finishedByStatusExecutionIds.remove(testRun.getExecutionId());
+                final Device device = testRun.getPlannedTestRun().getDevice();
+                for (TestRun processed : batch) {
+                    removeFromInFlight(executionsInFlight.get(device).iterator(), processed, device);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return given test run and test runs in flight, which have been started by same request (see
+     * {@link TestRunBatching})
+     */
+    private List<TestRun> getBatch(TestRun testRun) {
+        final List<TestRun> batch = new ArrayList<>();
+        batch.add(testRun);
+        for (TestRun inFlight : executionsInFlight.getOrDefault(testRun.getPlannedTestRun().getDevice(), Collections.emptyList())) {
+            if (inFlight.isBatchFollower() && inFlight != testRun && Objects.equals(inFlight.getExecutionId(), testRun.getExecutionId())) {
+                batch.add(inFlight);
+            }
+        }
+        return batch;
+    }
+
+    private void removeFromInFlight(Iterator<TestRun> iterator, TestRun testRun, Device device) {
+        while (iterator.hasNext()) {
+            if (iterator.next() == testRun) {
+                removeFromInFlight(iterator, device);
+                return;
+            }
+        }
+    }
+
+    private void removeFromInFlight(Iterator<TestRun> iterator, Device device) {
+        iterator.remove();
+        if (executionsInFlight.get(device).size() == 0) {
+            // Remove empty list for device.
+            log.debug(colorize("Going to remove record from executionsInFlight for device " + device(device) + "."));
+            executionsInFlight.remove(device);
+        }
+    }
+
+    public void checkTimeoutsOnRunningTests() {
         HashSet<Device> copyKeyset = new HashSet<>(executionsInFlight.keySet());
         for (Device device : copyKeyset) {
-            this.getReportsForRunningTests(device);
+            this.checkTimeoutsOnRunningTests(device);
         }
     }
 
-    public void getReportsForRunningTests(Device device) {
+    public void checkTimeoutsOnRunningTests(Device device) {
         for (Iterator<TestRun> iterator = executionsInFlight.get(device).iterator(); iterator.hasNext(); ) {
             TestRun testRun = iterator.next();
-            if (getReportAndProcessIt(log, jamoAutomatorClient, testRun)) {
+            if (testRun.checkIfTimeoutHappen()) {
+                boolean isFinalRunForPlannedTestRun = !this.planAnotherAttemptIfNeeded(testRun, false);
+                finishTestRunExecution(testRun, isFinalRunForPlannedTestRun);
                 removeFromInFlight(iterator, device);
+                cancelIfEnabled(testRun);
+            }
+        } // end of for iterator through executionsInFlight
+    }
+
+    /**
+     * Checks liveness of all running test runs using {@link ExecutionLivenessProbe} (if set), at most once per
+     * liveness check interval. Test run which is found dead {@link #DEAD_LIVENESS_CHECKS_TO_DECLARE_LOST} times in row
+     * is finished as {@link ExecutionOutcome#TIMEOUT} immediately (without waiting for its timeout) and rescheduled.
+     */
+    public void checkLivenessOfRunningTests() {
+        if (executionLivenessProbe == null) {
+            return;
+        }
+        final long now = clock.millis();
+        if (now - lastLivenessCheckMillis < livenessCheckIntervalMs) {
+            return;
+        }
+        lastLivenessCheckMillis = now;
+        HashSet<Device> copyKeyset = new HashSet<>(executionsInFlight.keySet());
+        for (Device device : copyKeyset) {
+            this.checkLivenessOfRunningTests(device);
+        }
+    }
+
+    private void checkLivenessOfRunningTests(Device device) {
+        for (TestRun testRun : new ArrayList<>(executionsInFlight.get(device))) {
+            if (testRun.isBatchFollower()) {
+                // batch shares liveness of its first test run
+                continue;
+            }
+            final ExecutionLiveness liveness = executionLivenessProbe.probe(testRun);
+            final int deadChecks = testRun.recordLivenessCheck(liveness);
+            if (liveness.isDead()) {
+                log.debug(colorize("Liveness check of test " + testCase(testRun.getPlannedTestRun().getTestCase()) +
+                        " on device " + device(device) + " returned " + liveness + " (" + deadChecks + " times in row)."));
+            }
+            if (deadChecks >= DEAD_LIVENESS_CHECKS_TO_DECLARE_LOST) {
+                log.warn(colorize("Test " + testCase(testRun.getPlannedTestRun().getTestCase()) + " on device " + device(device) +
+                        " is declared lost (@|bold,yellow " + liveness + "|@). Not going to wait for its timeout."));
+                for (TestRun lost : getBatch(testRun)) {
+                    lost.markAsLost(liveness);
+                    boolean isFinalRunForPlannedTestRun = !this.planAnotherAttemptIfNeeded(lost, true);
+                    finishTestRunExecution(lost, isFinalRunForPlannedTestRun);
+                    removeFromInFlight(executionsInFlight.get(device).iterator(), lost, device);
+                }
+                cancelIfEnabled(testRun);
+            }
+        }
+    }
+
+    private void cancelIfEnabled(TestRun testRun) {
+        if (!cancelTimedOutExecutions || testRun.getExecutionId() == null || testRun.isBatchFollower()) {
+            return;
+        }
+        final Device device = testRun.getPlannedTestRun().getDevice();
+        final CancelStatus cancelStatus = getJamoAutomatorClient(device).cancelExecution(testRun.getExecutionId());
+        if (cancelStatus == CancelStatus.FAILED) {
+            log.info(colorize("Stop of execution @|blue " + testRun.getExecutionId() + "|@ on device " + device(device) +
+                    " has failed. Device is going to be used without waiting."));
+            return;
+        }
+        final PendingCancel pendingCancel = new PendingCancel(testRun, clock.millis());
+        if (cancelStatus == CancelStatus.CONFIRMED) {
+            cancelConfirmed(device, pendingCancel);
+        } else {
+            log.debug(colorize("Device " + device(device) + " is waiting for confirmation of stop of execution @|blue " +
+                    testRun.getExecutionId() + "|@."));
+            pendingCancels.put(device, pendingCancel);
+        }
+    }
+
+    /**
+     * Check state of stop requests of timeouted executions (see {@link #setCancelTimedOutExecutions(boolean, long)}).
+     * Device is released for next test, when stop is confirmed, cancel fails, or confirmation does not come in time.
+     */
+    public void checkPendingCancellations() {
+        final long now = clock.millis();
+        for (Iterator<Map.Entry<Device, PendingCancel>> iterator = pendingCancels.entrySet().iterator(); iterator.hasNext(); ) {
+            final Map.Entry<Device, PendingCancel> entry = iterator.next();
+            final Device device = entry.getKey();
+            final PendingCancel pendingCancel = entry.getValue();
+            final String executionId = pendingCancel.testRun.getExecutionId();
+            final CancelStatus cancelStatus = getJamoAutomatorClient(device).checkCancelExecution(executionId);
+            if (cancelStatus == CancelStatus.CONFIRMED) {
+                iterator.remove();
+                cancelConfirmed(device, pendingCancel);
+            } else if (cancelStatus == CancelStatus.FAILED) {
+                iterator.remove();
+                log.info(colorize("Unable to confirm stop of execution @|blue " + executionId + "|@ on device " +
+                        device(device) + ". Device is going to be used without confirmation."));
+            } else if (now - pendingCancel.requestedTimeMillis > cancelConfirmationTimeoutMs) {
+                iterator.remove();
+                log.warn(colorize("Stop of execution @|blue " + executionId + "|@ on device " + device(device) +
+                        " has not been confirmed within " + cancelConfirmationTimeoutMs / 1000 + " seconds. Device is going to be used anyway."));
+            }
+        }
+    }
+
+    private void cancelConfirmed(Device device, PendingCancel pendingCancel) {
+        final TestRun testRun = pendingCancel.testRun;
+        // Without stop, device would be blocked at least till configured timeout of test case.
+        final long elapsedMs = clock.millis() - testRun.getExecRequestReturnedTimeMillis();
+        final long reclaimedMs = Math.max(0, EffectiveTimeout.configured(testRun.getPlannedTestRun()).getTimeoutMs() - elapsedMs);
+        this.confirmedCancelsCount++;
+        this.reclaimedDeviceTimeMs += reclaimedMs;
+        log.info(colorize("Execution @|blue " + testRun.getExecutionId() + "|@ on device " + device(device) +
+                " has been stopped. Reclaimed about @|bold " + reclaimedMs / 1000 + "|@ seconds of device time."));
+    }
+
+    /**
+     * Take device out of dispatch. Its planned test runs are moved to equivalent devices (see
+     * {@link Device#poolName()}), or parked till device passes probe (see {@link #probeQuarantinedDevices()}).
+     */
+    private void quarantineDevice(Device device) {
+        final double score = deviceHealthMonitor.getScore(device);
+        quarantinedDevices.put(device, new Quarantine(clock.millis(), clock.millis() + quarantineProbeIntervalMs));
+        final List<QueuedTestRun> queued = new ArrayList<>();
+        final PriorityQueue<QueuedTestRun> queue = executionsToDoFlight.remove(device);
+        while (queue != null && !queue.isEmpty()) {
+            queued.add(queue.poll());
+        }
+        for (QueuedTestRun queuedTestRun : queued) {
+            enqueue(queuedTestRun.plannedTestRun, queuedTestRun.rank);
+        }
+        final int parked = executionsToDoFlight.containsKey(device) ? executionsToDoFlight.get(device).size() : 0;
+        addDeviceHealthEvent(String.format("device %s quarantined (health score %.2f), %d test runs moved to equivalent devices, %d parked",
+                device.getName(), score, queued.size() - parked, parked));
+        log.warn(colorize("Device " + device(device) + String.format(" has health score @|bold,red %.2f|@", score) +
+                " and it is going to be quarantined. " + (queued.size() - parked) + " planned test runs moved to equivalent devices, " +
+                parked + " parked till device passes probe."));
+    }
+
+    /**
+     * Probe quarantined devices (at most once per probe interval) with cheap device status request. Device, which is
+     * reported online, is re-admitted with clean health score. When device fails all probes, its parked test runs are
+     * skipped.
+     */
+    private void probeQuarantinedDevices() {
+        final long now = clock.millis();
+        for (Map.Entry<Device, Quarantine> entry : new ArrayList<>(quarantinedDevices.entrySet())) {
+            final Device device = entry.getKey();
+            final Quarantine quarantine = entry.getValue();
+            if (quarantine.gaveUp || now < quarantine.nextProbeMillis) {
+                continue;
+            }
+            if (probeDevice(device)) {
+                quarantinedDevices.remove(device);
+                deviceHealthMonitor.reset(device);
+                addDeviceHealthEvent("device " + device.getName() + " re-admitted after " +
+                        ExecutionTimeEstimator.formatDuration(now - quarantine.sinceMillis) + " in quarantine");
+                log.info(colorize("Device " + device(device) + " has passed probe and it is going to get tests again."));
+                continue;
+            }
+            quarantine.failedProbes++;
+            quarantine.nextProbeMillis = now + quarantineProbeIntervalMs;
+            log.debug(colorize("Quarantined device " + device(device) + " has failed probe " + quarantine.failedProbes +
+                    " of " + maxQuarantineProbes + "."));
+            if (quarantine.failedProbes >= maxQuarantineProbes) {
+                quarantine.gaveUp = true;
+                int skipped = 0;
+                while (executionsToDoFlight.containsKey(device)) {
+                    skipTestRun(popAnotherTestForDevice(device).get(), "device " + device.getName() + " is quarantined");
+                    skipped++;
+                }
+                addDeviceHealthEvent("device " + device.getName() + " failed " + quarantine.failedProbes +
+                        " probes, " + skipped + " parked test runs skipped");
+                log.warn(colorize("Quarantined device " + device(device) + " has failed all probes. Going to skip its " +
+                        skipped + " parked test runs."));
+            }
+        }
+    }
+
+    private boolean probeDevice(Device device) {
+        try {
+            final ResponseStringWrapper deviceStatus = getJamoAutomatorClient(device).getDeviceStatus(device);
+            return deviceStatus != null && deviceStatus.isSuccess()
+                    && !JamoAutomatorClient.DEVICE_STATUS_OFFLINE.equalsIgnoreCase(deviceStatus.getData());
+        } catch (Exception ex) {
+            log.debug("Probe of device " + device.getName() + " has failed. ex=" + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * @return device from same pool, which is not quarantined and has least work planned and running
+     */
+    private Optional<Device> findEquivalentDevice(Device device) {
+        return getDevices().stream()
+                .filter(candidate -> candidate != device && !quarantinedDevices.containsKey(candidate))
+                .filter(candidate -> candidate.poolName().equals(device.poolName()))
+                .min(Comparator.comparingInt(candidate -> getPlannedTestRuns(candidate).size() + getTestRunsInFlight(candidate).size()));
+    }
+
+    private PlannedTestRun moveToDevice(PlannedTestRun plannedTestRun, Device target) {
+        final Device source = plannedTestRun.getDevice();
+        final Set<TestCase> pendingGateForSource = pendingGateTestRuns.get(source);
+        if (pendingGateForSource != null && pendingGateForSource.remove(plannedTestRun.getTestCase())) {
+            if (pendingGateForSource.isEmpty()) {
+                pendingGateTestRuns.remove(source);
+            }
+            pendingGateTestRuns.computeIfAbsent(target, k -> new HashSet<>()).add(plannedTestRun.getTestCase());
+        }
+        log.debug(colorize("Moving test " + testCase(plannedTestRun.getTestCase()) + " from quarantined device " +
+                device(source) + " to device " + device(target) + "."));
+        return plannedTestRun.withDevice(target);
+    }
+
+    private void addDeviceHealthEvent(String event) {
+        final long sinceStartMs = firstDispatchTimeMillis == 0 ? 0 : clock.millis() - firstDispatchTimeMillis;
+        deviceHealthEvents.add("+" + ExecutionTimeEstimator.formatDuration(sinceStartMs) + " " + event);
+    }
+
+    /**
+     * Single place for decision about another attempt of finished {@link TestRun}. Records attempt to
+     * {@link SuiteAbortPolicy} (if any) first, so that test run which triggers abort is not retried. Final attempt
+     * (which is not going to be retried) is recorded once more, after decision.
+     *
+     * @param testRun           finished test run
+     * @param rescheduleAllowed true, if test run has been lost (see {@link #rescheduleOrRetestIfNeeded(TestRun)})
+     * @return true, if another attempt has been planned
+     */
+    private boolean planAnotherAttemptIfNeeded(TestRun testRun, boolean rescheduleAllowed) {
+        if (this.suiteAbortPolicy != null && this.abortReason == null) {
+            abortSuiteIfNeeded(this.suiteAbortPolicy.recordAndCheck(testRun));
+        }
+        final boolean anotherAttemptPlanned = planAnotherAttempt(testRun, rescheduleAllowed);
+        if (this.suiteAbortPolicy != null && this.abortReason == null && !anotherAttemptPlanned) {
+            abortSuiteIfNeeded(this.suiteAbortPolicy.recordFinalAndCheck(testRun));
+        }
+        return anotherAttemptPlanned;
+    }
+
+    private void abortSuiteIfNeeded(String reason) {
+        if (reason != null) {
+            this.abortReason = reason;
+            log.warn(colorize("@|bold,red Suite is going to be aborted|@: " + reason + ". No new test is going to be started."));
+        }
+    }
+
+    private boolean planAnotherAttempt(TestRun testRun, boolean rescheduleAllowed) {
+        if (testRun.getExecutionOutcome() == ExecutionOutcome.SUCCESS) {
+            return false;
+        }
+        if (testRun.getExecutionOutcome() == ExecutionOutcome.EXECERR && testRun.getExecErrorType() != null) {
+            final PlannedTestRun plannedTestRun = testRun.getPlannedTestRun();
+            switch (testRun.getExecErrorType()) {
+                case TEST_NOT_FOUND:
+                    log.warn(colorize("Test " + testCase(plannedTestRun.getTestCase()) + " does not exist for device " +
+                            device(plannedTestRun.getDevice()) + ". Not going to retry it."));
+                    return false;
+                case DEVICE_OFFLINE:
+                    if (this.abortReason == null && plannedTestRun.getRescheduleCount() < this.maxOfflineDeviceRetries) {
+                        devicesOnHoldTillMillis.put(plannedTestRun.getDevice(), clock.millis() + offlineDeviceRetryDelayMs);
+                        log.info(colorize("Device " + device(plannedTestRun.getDevice()) + " seems to be offline. Going to retry test " +
+                                testCase(plannedTestRun.getTestCase()) + " in " + offlineDeviceRetryDelayMs / 1000 + " seconds."));
+                        this.planRetry(plannedTestRun.withIncrementedRescheduleCount(), testRun.getExecutionOutcome(), offlineDeviceRetryDelayMs);
+                        return true;
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        return rescheduleAllowed ? this.rescheduleOrRetestIfNeeded(testRun) : this.retestIfNeeded(testRun);
+    }
+
+    /**
+     * Skips all planned test runs and (depending on {@link SuiteAbortPolicy#getInFlightMode()}) stops running ones.
+     * Called repeatedly till end of suite, as skipping is idempotent.
+     */
+    private void abortSuite() {
+        for (Device device : new ArrayList<>(executionsToDoFlight.keySet())) {
+            while (executionsToDoFlight.containsKey(device)) {
+                skipTestRun(popAnotherTestForDevice(device).get(), "suite aborted: " + abortReason);
+            }
+        }
+        for (PlannedTestRun heldBack : heldBackTestRuns) {
+            skipTestRun(heldBack, "suite aborted: " + abortReason);
+        }
+        heldBackTestRuns.clear();
+        while (!delayedRetries.isEmpty()) {
+            skipTestRun(delayedRetries.poll().plannedTestRun, "suite aborted: " + abortReason);
+        }
+        if (!abortInFlightHandled && suiteAbortPolicy.getInFlightMode() == SuiteAbortPolicy.InFlightMode.CANCEL) {
+            for (Device device : new ArrayList<>(executionsInFlight.keySet())) {
+                for (Iterator<TestRun> iterator = executionsInFlight.get(device).iterator(); iterator.hasNext(); ) {
+                    final TestRun testRun = iterator.next();
+                    if (!testRun.isBatchFollower()) {
+                        getJamoAutomatorClient(device).cancelExecution(testRun.getExecutionId());
+                    }
+                    skipTestRun(testRun.getPlannedTestRun(), "suite aborted (running execution stopped): " + abortReason);
+                    removeFromInFlight(iterator, device);
+                }
             }
-        } // end of for iterator through executionsInFlight
-    }
-
-    private void removeFromInFlight(Iterator<TestRun> iterator, Device device) {
-        iterator.remove();
-        if (executionsInFlight.get(device).size() == 0) {
-            // Remove empty list for device.
-            log.debug(colorize("Going to remove record from executionsInFlight for device " + device(device) + "."));
-            executionsInFlight.remove(device);
         }
+        abortInFlightHandled = true;
     }
 
-    public void checkTimeoutsOnRunningTests() {
-        HashSet<Device> copyKeyset = new HashSet<>(executionsInFlight.keySet());
-        for (Device device : copyKeyset) {
-            this.checkTimeoutsOnRunningTests(device);
+    /**
+     * Report given planned test run as skipped (it is not going to be executed) to all listeners.
+     */
+    public void skipTestRun(PlannedTestRun plannedTestRun, String reason) {
+        recordGateResult(plannedTestRun, false);
+        log.debug(colorize("Skipping test " + testCase(plannedTestRun.getTestCase()) + " on device " +
+                device(plannedTestRun.getDevice()) + ", reason: " + reason));
+        for (TestRunReporterListener testRunReporterListener : testRunReporterListeners) {
+            testRunReporterListener.skipPlannedTestRun(plannedTestRun, reason);
         }
     }
 
-    public void checkTimeoutsOnRunningTests(Device device) {
-        for (Iterator<TestRun> iterator = executionsInFlight.get(device).iterator(); iterator.hasNext(); ) {
-            TestRun testRun = iterator.next();
-            if (testRun.checkIfTimeoutHappen()) {
-                boolean isFinalRunForPlannedTestRun = !this.retestIfNeeded(testRun);
-                finishTestRunExecution(testRun, isFinalRunForPlannedTestRun);
-                removeFromInFlight(iterator, device);
-            }
-        } // end of for iterator through executionsInFlight
+    /**
+     * Reschedule lost test run (see {@link #checkLivenessOfRunningTests()}) without consuming retest attempt, if
+     * {@link #maxReschedules} allows it. Otherwise falls back to {@link #retestIfNeeded(TestRun)}.
+     *
+     * @return true, if reschedule or retest was planned, false otherwise
+     */
+    private boolean rescheduleOrRetestIfNeeded(TestRun testRun) {
+        final PlannedTestRun plannedTestRun = testRun.getPlannedTestRun();
+        if (this.abortReason == null && plannedTestRun.getRescheduleCount() < this.maxReschedules) {
+            log.info(colorize(
+                    "Going to reschedule lost test " + testCase(plannedTestRun.getTestCase()) + " for device " +
+                            device(plannedTestRun.getDevice()) + ". Number of reschedules till now is @|bold " +
+                            plannedTestRun.getRescheduleCount() + "|@."
+            ));
+            this.planRetry(plannedTestRun.withIncrementedRescheduleCount(), testRun.getExecutionOutcome(), 0);
+            return true;
+        }
+        return this.retestIfNeeded(testRun);
     }
 
     /**
      * Handle retest according {@link PlannedTestRun#getAttemptCount()} from {@link TestRun} and {@link #retestCount}
-     * parameter. Method will solve some logging and adding new {@link TestRun} instance to execution list, using
-     * {@link #addTestForExecution(PlannedTestRun)}.
+     * parameter. Method will solve some logging and planning of retest using
+     * {@link #planRetry(PlannedTestRun, ExecutionOutcome, long)}, i.e. retest waits for its backoff delay (device can
+     * do other test runs in meantime) and than it is placed to queue according {@link RetryPriority}.
      *
      * @param testRun actual {@link TestRun} which should be checked for "retest" attempt
      * @return true, if retest was planned, false otherwise
@@ -162,19 +1077,48 @@ public class TestOrchestrator {
         }
         final Device device = testRun.getPlannedTestRun().getDevice();
         long numberOfTestRunsForPlannedTestRun = testRun.getPlannedTestRun().getAttemptCount();
-        if (this.retestCount > numberOfTestRunsForPlannedTestRun) {
+        if (this.abortReason == null && this.retestCount > numberOfTestRunsForPlannedTestRun) {
             log.info(colorize(
                     "Going to plan retest for device " + device(device) + ", test " +
                             testCase(testRun.getPlannedTestRun().getTestCase()) +
                             " with outcome " + testRun.getExecutionOutcome() + ". Number of test runs till now is @|bold " + numberOfTestRunsForPlannedTestRun +
                             "|@."
             ));
-            this.addTestForExecution(testRun.getPlannedTestRun().withIncrementedAttemptCount());
+            this.planRetry(testRun.getPlannedTestRun().withIncrementedAttemptCount(), testRun.getExecutionOutcome(), 0);
             return true;
         }
         return false;
     }
 
+    /**
+     * Postpone next report request of test run, whose report request has failed with transient error, for backoff of
+     * retry policy of its client (see {@link TestRun#getReportRetryNotBeforeMillis()}).
+     *
+     * @return true, if report is going to be requested again after backoff; false, when error is not transient or
+     * retries are exhausted
+     */
+    private boolean planTransientReportRetryIfNeeded(JamoAutomatorClient jamoAutomatorClient, TestRun testRun, Exception ex) {
+        final RetryPolicy retryPolicy = jamoAutomatorClient.getRetryPolicy();
+        if (!retryPolicy.isRetryable(ApiCallType.REPORT, ex)) {
+            return false;
+        }
+        final int failedAttempt = testRun.getTransientReportFailures() + 1;
+        if (failedAttempt >= retryPolicy.getMaxAttempts()) {
+            if (failedAttempt > 1) {
+                jamoAutomatorClient.getRetryMetrics().recordExhausted(ApiCallType.REPORT);
+            }
+            testRun.resetTransientReportFailures();
+            return false;
+        }
+        final long backoffMs = retryPolicy.getBackoffMs(failedAttempt);
+        jamoAutomatorClient.getRetryMetrics().recordRetry(ApiCallType.REPORT);
+        testRun.transientErrorGettingReport(clock.millis() + backoffMs);
+        log.debug(colorize("Report request of execution @|blue " + testRun.getExecutionId() + "|@ has failed with transient error (" +
+                ex.getMessage() + "). Going to retry in " + backoffMs + " ms (attempt " + (failedAttempt + 1) + " of " +
+                retryPolicy.getMaxAttempts() + ")."));
+        return true;
+    }
+
     /**
      * Method just gets report, save data in internal data structure and report this event using {@link #finishTestRunExecution(TestRun, boolean)}.
      *
@@ -190,7 +1134,10 @@ public class TestOrchestrator {
         try {
             report = jamoAutomatorClient.getReport(testRun.getExecutionId());
         } catch (Exception ex) {
-            if (operationsSuspendedTillMs.getOrDefault(testRun, 0L) > System.currentTimeMillis()) {
+            if (planTransientReportRetryIfNeeded(jamoAutomatorClient, testRun, ex)) {
+                return false;
+            }
+            if (operationsSuspendedTillMs.getOrDefault(testRun, 0L) > clock.millis()) {
                 operationsSuspendedTillMs.remove(testRun);
                 log.debug(colorize(
                         "Device " + device(device) + " have still running test " +
@@ -210,17 +1157,23 @@ public class TestOrchestrator {
                             "There were @|bold,red " + errorsWhileGettingReport + "|@ " +
                                     "errors while getting report from jamo. @|bold,yellow Going to suspend execution activities for 7 minutes!|@"
                     ));
-                    operationsSuspendedTillMs.put(testRun, System.currentTimeMillis() + (7 * 60 * 1000));
+                    operationsSuspendedTillMs.put(testRun, clock.millis() + (7 * 60 * 1000));
                 }
             }
             return false;
         }
+        if (testRun.getTransientReportFailures() > 0) {
+            jamoAutomatorClient.getRetryMetrics().recordRecovered(ApiCallType.REPORT);
+            testRun.resetTransientReportFailures();
+        }
         if (report != null) {
-            ExecutionOutcome outcome = testRun.setReport(report);
-            boolean isFinalRunForPlannedTestRun = true;
-            if (outcome != ExecutionOutcome.SUCCESS) {
-                isFinalRunForPlannedTestRun = !this.retestIfNeeded(testRun);
+            final List<TestRun> batch = getBatch(testRun);
+            if (batch.size() > 1) {
+                processBatchReport(batch, report);
+                return true;
             }
+            testRun.setReport(report);
+            boolean isFinalRunForPlannedTestRun = !this.planAnotherAttemptIfNeeded(testRun, false);
             finishTestRunExecution(testRun, isFinalRunForPlannedTestRun);
             return true;
         } else {
@@ -236,6 +1189,37 @@ public class TestOrchestrator {
         }
     }
 
+    /**
+     * Split report of batch to its test runs and finish each of them as if it has been executed alone. Test runs,
+     * whose report is missing, are planned again (without consuming retest attempt) and batching is disabled, as
+     * service evidently does not support it.
+     */
+    private void processBatchReport(List<TestRun> batch, Report batchReport) {
+        for (TestRun testRun : batch) {
+            final PlannedTestRun plannedTestRun = testRun.getPlannedTestRun();
+            final Report testCaseReport = TestRunBatching.findTestCaseReport(batchReport, plannedTestRun.getTestCase());
+            if (testCaseReport == null) {
+                if (testRunBatching.isSupported()) {
+                    testRunBatching.disable();
+                    log.warn(colorize("Report @|blue " + testRun.getExecutionId() + "|@ of batch on device " +
+                            device(plannedTestRun.getDevice()) + " does not contain report of each test. Batching is disabled, " +
+                            "tests without report are going to be executed again one by one."));
+                }
+                enqueueRetry(plannedTestRun);
+                continue;
+            }
+            if (testCaseReport.getExecutionId() == null) {
+                testCaseReport.setExecutionId(testRun.getExecutionId());
+            }
+            if (testCaseReport.getKeyString() == null) {
+                testCaseReport.setKeyString(batchReport.getKeyString());
+            }
+            testRun.setBatchReport(testCaseReport);
+            boolean isFinalRunForPlannedTestRun = !this.planAnotherAttemptIfNeeded(testRun, false);
+            finishTestRunExecution(testRun, isFinalRunForPlannedTestRun);
+        }
+    }
+
     /**
      * Record result of {@link TestRun} and also pass it (in sync, blocking way) to all registered listeners.
      *
@@ -247,6 +1231,12 @@ public class TestOrchestrator {
      */
     private void finishTestRunExecution(TestRun testRun, boolean isFinalRunForPlannedTestRun) {
         final Device device = testRun.getPlannedTestRun().getDevice();
+        if (deviceHealthMonitor != null && deviceHealthMonitor.record(testRun) && !quarantinedDevices.containsKey(device)) {
+            quarantineDevice(device);
+        }
+        if (deviceBackends.containsKey(device)) {
+            deviceBackends.get(device).record(testRun);
+        }
         // TODO add reporting here. Online progress logging, csv file exporter and also final xml report filling. Hook some "reporters" here?
         executionsFinished.compute(device, (k, v) -> {
             if (v == null) {
@@ -258,6 +1248,9 @@ public class TestOrchestrator {
         for (TestRunReporterListener testRunReporterListener : testRunReporterListeners) {
             testRunReporterListener.finishTestRunExecution(testRun, isFinalRunForPlannedTestRun);
         }
+        if (isFinalRunForPlannedTestRun) {
+            recordGateResult(testRun.getPlannedTestRun(), testRun.getExecutionOutcome() == ExecutionOutcome.SUCCESS);
+        }
     }
 
     /**
@@ -275,23 +1268,92 @@ public class TestOrchestrator {
     }
 
     /**
-     * Get AND remove any future execution instance for given device.
+     * Same as {@link #popAnotherTestForDevice(Device)}, but test runs which could no longer finish before time budget
+     * runs out (see {@link #setTimeBudget(long, ExecutionTimeEstimator)}) are skipped.
      */
-    private Optional<PlannedTestRun> popAnotherTestForDevice(Device device) {
-        // futureExecutions.stream().filter(e -> e.device.equals(device)).findAny();
-        for (Iterator<PlannedTestRun> futureExecutionsIterator = executionsToDoFlight.get(device).iterator(); futureExecutionsIterator.hasNext(); ) {
-            PlannedTestRun fe = futureExecutionsIterator.next();
-            futureExecutionsIterator.remove();
-            if (executionsToDoFlight.get(device).size() == 0) {
-                // Remove empty list for device.
-                log.debug(colorize("Going to remove record from executionsToDoFlight for device " + device(device) + "."));
-                executionsToDoFlight.remove(device);
+    private Optional<PlannedTestRun> popAnotherTestForDeviceWithinBudget(Device device) {
+        while (executionsToDoFlight.containsKey(device)) {
+            final PlannedTestRun plannedTestRun = popAnotherTestForDevice(device).get();
+            if (timeBudgetDeadlineMillis <= 0) {
+                return Optional.of(plannedTestRun);
             }
-            return Optional.of(fe);
+            final long expectedFinishMillis = clock.millis() + executionTimeEstimator.getExpectedDurationMs(plannedTestRun);
+            if (expectedFinishMillis <= timeBudgetDeadlineMillis) {
+                return Optional.of(plannedTestRun);
+            }
+            skipTestRun(plannedTestRun, "time budget: expected to finish " +
+                    (expectedFinishMillis - timeBudgetDeadlineMillis) / 1000 + " seconds after end of time budget");
         }
         return Optional.empty();
     }
 
+    /**
+     * Get AND remove next future execution instance for given device (first one according {@link SchedulingPolicy}).
+     */
+    private Optional<PlannedTestRun> popAnotherTestForDevice(Device device) {
+        final PriorityQueue<QueuedTestRun> queue = executionsToDoFlight.get(device);
+        if (queue == null) {
+            return Optional.empty();
+        }
+        final QueuedTestRun fe = queue.poll();
+        if (queue.isEmpty()) {
+            // Remove empty queue for device.
+            log.debug(colorize("Going to remove record from executionsToDoFlight for device " + device(device) + "."));
+            executionsToDoFlight.remove(device);
+        }
+        return Optional.ofNullable(fe).map(q -> q.plannedTestRun);
+    }
+
+    /**
+     * Return test run just taken by {@link #popAnotherTestForDevice(Device)} to head of queue of its device.
+     */
+    private void pushBackTestForDevice(PlannedTestRun plannedTestRun) {
+        this.executionsToDoFlight.computeIfAbsent(plannedTestRun.getDevice(), k -> new PriorityQueue<>(40))
+                .add(new QueuedTestRun(plannedTestRun, Long.MIN_VALUE, Long.MIN_VALUE));
+    }
+
+    /**
+     * @return client given to constructor, used for devices without own backend
+     */
+    public JamoAutomatorClient getJamoAutomatorClient() {
+        return jamoAutomatorClient;
+    }
+
+    /**
+     * @return client of backend of given device
+     */
+    public JamoAutomatorClient getJamoAutomatorClient(Device device) {
+        final ExecutionBackend backend = deviceBackends.get(device);
+        return backend == null ? jamoAutomatorClient : backend.getJamoAutomatorClient();
+    }
+
+    private String backendSuffix(Device device) {
+        final ExecutionBackend backend = deviceBackends.get(device);
+        return backend == null || backends.size() < 2 ? "" : " of backend " + backend.getName();
+    }
+
+    /**
+     * Route test runs of given devices to given backend (federated execution). Should be called before any test run
+     * is added.
+     */
+    public void registerBackend(ExecutionBackend backend, Collection<Device> devices) {
+        if (backends.containsKey(backend.getName())) {
+            throw new RuntimeException("Backend with name " + backend.getName() + " is already registered!");
+        }
+        backends.put(backend.getName(), backend);
+        for (Device device : devices) {
+            deviceBackends.put(device, backend);
+        }
+        backend.getJamoAutomatorClient().setCompletionCallbackUrl(completionWebhookReceiver == null ? null : completionWebhookReceiver.getCallbackUrl());
+    }
+
+    /**
+     * @return registered backends, in order of registration
+     */
+    public Collection<ExecutionBackend> getBackends() {
+        return Collections.unmodifiableCollection(backends.values());
+    }
+
     /**
      * Returns internal list of reporters. If you want to remove something from given list, be sure to remove only
      * instances added by you.
@@ -304,7 +1366,7 @@ public class TestOrchestrator {
 
     public int getExecutionsToDoFlightSize() {
         int sum = 0;
-        for (Iterator<List<PlannedTestRun>> it = executionsToDoFlight.values().iterator(); it.hasNext(); ) {
+        for (Iterator<PriorityQueue<QueuedTestRun>> it = executionsToDoFlight.values().iterator(); it.hasNext(); ) {
             sum += it.next().size();
         }
         return sum;
@@ -317,4 +1379,356 @@ public class TestOrchestrator {
         }
         return sum;
     }
+
+    /**
+     * @return all devices known to this orchestrator (with planned, running, or finished test runs)
+     */
+    public Set<Device> getDevices() {
+        final Set<Device> devices = new LinkedHashSet<>(executionsToDoFlight.keySet());
+        devices.addAll(executionsInFlight.keySet());
+        devices.addAll(executionsFinished.keySet());
+        return devices;
+    }
+
+    /**
+     * @return devices with some test run planned, or running
+     */
+    public Set<Device> getDevicesWithWork() {
+        final Set<Device> devices = new LinkedHashSet<>(executionsToDoFlight.keySet());
+        devices.addAll(executionsInFlight.keySet());
+        return devices;
+    }
+
+    /**
+     * @return copy of planned (not yet started) test runs for given device. Note that list is not in dispatch order.
+     */
+    public List<PlannedTestRun> getPlannedTestRuns(Device device) {
+        final PriorityQueue<QueuedTestRun> queue = executionsToDoFlight.get(device);
+        if (queue == null) {
+            return Collections.emptyList();
+        }
+        return queue.stream().map(q -> q.plannedTestRun).collect(Collectors.toList());
+    }
+
+    /**
+     * @return read only view of running test runs for given device
+     */
+    public List<TestRun> getTestRunsInFlight(Device device) {
+        return Collections.unmodifiableList(executionsInFlight.getOrDefault(device, Collections.emptyList()));
+    }
+
+    /**
+     * @return true, if given device has some planned, running, or delayed (retry) test run
+     */
+    public boolean hasWork(Device device) {
+        return executionsToDoFlight.containsKey(device) || executionsInFlight.containsKey(device) || pendingCancels.containsKey(device)
+                || delayedRetries.stream().anyMatch(delayedRetry -> delayedRetry.plannedTestRun.getDevice() == device);
+    }
+
+    /**
+     * @return read only view of finished test runs (including retried ones) for given device
+     */
+    public List<TestRun> getFinishedTestRuns(Device device) {
+        return Collections.unmodifiableList(executionsFinished.getOrDefault(device, Collections.emptyList()));
+    }
+
+    /**
+     * Enable checking of liveness of running test runs.
+     *
+     * @param executionLivenessProbe  probe to be used; null disables liveness checks
+     * @param livenessCheckIntervalMs minimal time between two liveness checks of all running test runs
+     * @param maxReschedules          how many times can be lost test run rescheduled without consuming retest attempt
+     */
+    public void setExecutionLivenessProbe(ExecutionLivenessProbe executionLivenessProbe, long livenessCheckIntervalMs, int maxReschedules) {
+        this.executionLivenessProbe = executionLivenessProbe;
+        this.livenessCheckIntervalMs = livenessCheckIntervalMs;
+        this.maxReschedules = maxReschedules;
+    }
+
+    /**
+     * Set handling of {@link ExecErrorType#DEVICE_OFFLINE} execution errors.
+     *
+     * @param maxOfflineDeviceRetries   how many times can be test run retried on offline device without consuming
+     *                                  retest attempt
+     * @param offlineDeviceRetryDelayMs for how long is offline device left without new test
+     */
+    public void setOfflineDeviceRetry(int maxOfflineDeviceRetries, long offlineDeviceRetryDelayMs) {
+        this.maxOfflineDeviceRetries = maxOfflineDeviceRetries;
+        this.offlineDeviceRetryDelayMs = offlineDeviceRetryDelayMs;
+    }
+
+    /**
+     * Set delays of retries and their priority relative to fresh test runs. Default is
+     * {@link RetryBackoffPolicy#IMMEDIATE} and {@link RetryPriority#POLICY}.
+     */
+    public void setRetryBackoff(RetryBackoffPolicy retryBackoffPolicy, RetryPriority retryPriority) {
+        this.retryBackoffPolicy = retryBackoffPolicy;
+        this.retryPriority = retryPriority;
+    }
+
+    /**
+     * @return number of retries waiting for their backoff delay
+     */
+    public int getDelayedRetriesCount() {
+        return delayedRetries.size();
+    }
+
+    /**
+     * Enable health scoring and quarantine of devices.
+     *
+     * @param deviceHealthMonitor       health scoring of devices; null disables quarantine
+     * @param quarantineProbeIntervalMs time between probes of quarantined device
+     * @param maxQuarantineProbes       number of failed probes, after which parked test runs of device are skipped
+     */
+    public void setDeviceHealthMonitor(DeviceHealthMonitor deviceHealthMonitor, long quarantineProbeIntervalMs, int maxQuarantineProbes) {
+        this.deviceHealthMonitor = deviceHealthMonitor;
+        this.quarantineProbeIntervalMs = quarantineProbeIntervalMs;
+        this.maxQuarantineProbes = maxQuarantineProbes;
+    }
+
+    /**
+     * @return read only view of quarantine events (quarantine, re-admission, failed probes) in order of occurrence
+     */
+    public List<String> getDeviceHealthEvents() {
+        return Collections.unmodifiableList(deviceHealthEvents);
+    }
+
+    /**
+     * @return devices, which are quarantined right now
+     */
+    public Set<Device> getQuarantinedDevices() {
+        return Collections.unmodifiableSet(quarantinedDevices.keySet());
+    }
+
+    /**
+     * Enable push based detection of finished executions. Callback url of given receiver is sent with each run request
+     * and test runs are finished as soon as their callback arrives. Polling of reports is kept as safety net only.
+     *
+     * @param completionWebhookReceiver running receiver; null disables callbacks
+     * @param safetyNetPollIntervalMs   minimal time between two report requests of test run, whose completion has not
+     *                                  been announced (by callback, or by bulk status query)
+     */
+    public void setCompletionWebhook(CompletionWebhookReceiver completionWebhookReceiver, long safetyNetPollIntervalMs) {
+        this.completionWebhookReceiver = completionWebhookReceiver;
+        this.safetyNetPollIntervalMs = safetyNetPollIntervalMs;
+        final String callbackUrl = completionWebhookReceiver == null ? null : completionWebhookReceiver.getCallbackUrl();
+        this.jamoAutomatorClient.setCompletionCallbackUrl(callbackUrl);
+        for (ExecutionBackend backend : backends.values()) {
+            backend.getJamoAutomatorClient().setCompletionCallbackUrl(callbackUrl);
+        }
+    }
+
+    /**
+     * @return number of successful bulk status queries, each of them has replaced report request of every running
+     * test run
+     */
+    public int getStatusSyncCount() {
+        return statusSyncCount;
+    }
+
+    /**
+     * @return receiver of completion callbacks, or null when callbacks are disabled
+     */
+    public CompletionWebhookReceiver getCompletionWebhookReceiver() {
+        return completionWebhookReceiver;
+    }
+
+    /**
+     * Share devices with other builds on same host. Test is started on device only when its lease is held by given
+     * registry; lease is kept while device runs tests of this suite and released when it becomes idle.
+     *
+     * @param deviceLeaseRegistry registry of device leases; null disables leasing
+     */
+    public void setDeviceLeaseRegistry(DeviceLeaseRegistry deviceLeaseRegistry) {
+        this.deviceLeaseRegistry = deviceLeaseRegistry;
+    }
+
+    public DeviceLeaseRegistry getDeviceLeaseRegistry() {
+        return deviceLeaseRegistry;
+    }
+
+    /**
+     * Enable submission of several test runs of device by single request.
+     *
+     * @param testRunBatching batching to be used; null disables batching
+     */
+    public void setTestRunBatching(TestRunBatching testRunBatching) {
+        this.testRunBatching = testRunBatching;
+    }
+
+    /**
+     * @return number of run requests, which have started more than one test run
+     */
+    public int getBatchCount() {
+        return batchCount;
+    }
+
+    /**
+     * @return number of test runs started as part of batch
+     */
+    public int getBatchedTestRunsCount() {
+        return batchedTestRunsCount;
+    }
+
+    /**
+     * Set policy for aborting suite early (failure-rate circuit). Should be set before any
+     * {@link #addTestForExecution(PlannedTestRun)} call.
+     *
+     * @param suiteAbortPolicy policy to use; null (or disabled policy) means, that suite is never aborted
+     */
+    public void setSuiteAbortPolicy(SuiteAbortPolicy suiteAbortPolicy) {
+        this.suiteAbortPolicy = suiteAbortPolicy != null && suiteAbortPolicy.isEnabled() ? suiteAbortPolicy : null;
+    }
+
+    /**
+     * Set time budget for suite. No test run is started, if it is not expected to finish before given deadline.
+     *
+     * @param timeBudgetDeadlineMillis time (as {@link #getClock()}) of end of time budget; zero or
+     *                                 negative value means no budget
+     * @param executionTimeEstimator   source of expected durations of test runs
+     */
+    public void setTimeBudget(long timeBudgetDeadlineMillis, ExecutionTimeEstimator executionTimeEstimator) {
+        this.timeBudgetDeadlineMillis = timeBudgetDeadlineMillis;
+        this.executionTimeEstimator = executionTimeEstimator;
+    }
+
+    /**
+     * @return reason of suite abort, or null if suite has not been aborted
+     */
+    public String getAbortReason() {
+        return abortReason;
+    }
+
+    /**
+     * Enable stopping of timeouted (and lost) executions on service side. Device of stopped execution gets next test
+     * only after stop is confirmed (or confirmation timeout expires).
+     */
+    public void setCancelTimedOutExecutions(boolean cancelTimedOutExecutions, long cancelConfirmationTimeoutMs) {
+        this.cancelTimedOutExecutions = cancelTimedOutExecutions;
+        this.cancelConfirmationTimeoutMs = cancelConfirmationTimeoutMs;
+    }
+
+    /**
+     * @return number of executions, which have been stopped on service side with confirmation
+     */
+    public int getConfirmedCancelsCount() {
+        return confirmedCancelsCount;
+    }
+
+    /**
+     * @return device time (in milliseconds) reclaimed by stopping executions. For each stopped execution it is time
+     * remaining to configured timeout of its test case at moment of stop confirmation, i.e. conservative estimate of
+     * time, which device would otherwise be blocked by hung test.
+     */
+    public long getReclaimedDeviceTimeMs() {
+        return reclaimedDeviceTimeMs;
+    }
+
+    /**
+     * Set policy used to decide timeout of each started {@link TestRun}. Default is {@link TimeoutPolicy#CONFIGURED}.
+     */
+    public void setTimeoutPolicy(TimeoutPolicy timeoutPolicy) {
+        this.timeoutPolicy = timeoutPolicy;
+    }
+
+    /**
+     * Set policy deciding order of planned test runs on each device. Default is {@link SchedulingPolicy#FIFO}. Should
+     * be set before any {@link #addTestForExecution(PlannedTestRun)} call, as rank is computed on adding to queue.
+     */
+    public void setSchedulingPolicy(SchedulingPolicy schedulingPolicy) {
+        this.schedulingPolicy = schedulingPolicy;
+    }
+
+    /**
+     * Set source of current time. Should be set before any test run is started. Meant for simulation, where
+     * orchestrator is driven by virtual clock.
+     */
+    public void setClock(Clock clock) {
+        this.clock = clock;
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    /**
+     * @return time of first request for test execution, or 0 if nothing has been started yet
+     */
+    public long getFirstDispatchTimeMillis() {
+        return firstDispatchTimeMillis;
+    }
+
+    /**
+     * Entry of {@link #executionsToDoFlight} queue. Rank is computed once on insert, so that queue ordering stays
+     * consistent.
+     */
+    private static class QueuedTestRun implements Comparable<QueuedTestRun> {
+        private final PlannedTestRun plannedTestRun;
+        private final long rank;
+        private final long sequence;
+
+        private QueuedTestRun(PlannedTestRun plannedTestRun, long rank, long sequence) {
+            this.plannedTestRun = plannedTestRun;
+            this.rank = rank;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(QueuedTestRun other) {
+            final int byRank = Long.compare(this.rank, other.rank);
+            return byRank != 0 ? byRank : Long.compare(this.sequence, other.sequence);
+        }
+    }
+
+    /**
+     * Entry of {@link #delayedRetries} queue.
+     */
+    private static class DelayedRetry implements Comparable<DelayedRetry> {
+        private final PlannedTestRun plannedTestRun;
+        private final long dueMillis;
+        private final long sequence;
+
+        private DelayedRetry(PlannedTestRun plannedTestRun, long dueMillis, long sequence) {
+            this.plannedTestRun = plannedTestRun;
+            this.dueMillis = dueMillis;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(DelayedRetry other) {
+            final int byDue = Long.compare(this.dueMillis, other.dueMillis);
+            return byDue != 0 ? byDue : Long.compare(this.sequence, other.sequence);
+        }
+    }
+
+    /**
+     * State of quarantined device.
+     */
+    private static class Quarantine {
+        private final long sinceMillis;
+        private long nextProbeMillis;
+        private int failedProbes = 0;
+        /**
+         * True, when device has failed all probes. Its test runs are skipped from than on.
+         */
+        private boolean gaveUp = false;
+
+        private Quarantine(long sinceMillis, long nextProbeMillis) {
+            this.sinceMillis = sinceMillis;
+            this.nextProbeMillis = nextProbeMillis;
+        }
+    }
+
+    /**
+     * Stop of execution, for which device is waiting.
+     */
+    private static class PendingCancel {
+        private final TestRun testRun;
+        private final long requestedTimeMillis;
+
+        private PendingCancel(TestRun testRun, long requestedTimeMillis) {
+            this.testRun = testRun;
+            this.requestedTimeMillis = requestedTimeMillis;
+        }
+    }
 }
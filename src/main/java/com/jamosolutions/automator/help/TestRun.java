@@ -6,9 +6,14 @@ import com.jamosolutions.automator.domain.TestCase;
 import com.jamosolutions.jamoAutomator.domain.Report;
 import org.apache.maven.plugin.logging.Log;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.UUID;
 
 import static com.jamosolutions.automator.help.Colorizer.*;
 
@@ -24,6 +29,10 @@ public class TestRun {
      */
     private final PlannedTestRun plannedTestRun;
     private final JamoAutomatorClient jamoAutomatorClient;
+    /**
+     * Source of current time. System clock, unless test run is driven by simulation.
+     */
+    private final Clock clock;
     private String executionId;
     /**
      * Time, when {@link TestRun} instance is created. It should be created just after request to execute test,
@@ -32,11 +41,23 @@ public class TestRun {
     private long execRequestReturnedTimeMillis;
     private long requestStartTime;
     /**
-     * Finished time from maven plugin point of view. It means time ({@link System#currentTimeMillis()} from point
+     * Finished time from maven plugin point of view. It means time (from {@link #clock}) from point
      * of time when {@link #getExecutionOutcome()} has been figured out.
      */
     private long finishedTimeMillis;
     private int errorsWhileGettingReport = 0;
+    /**
+     * Time of last report request for this test run. Zero, if report has not been requested yet.
+     */
+    private long lastReportRequestMillis = 0;
+    /**
+     * Number of consecutive report requests, which have failed with transient error (see {@link RetryPolicy}).
+     */
+    private int transientReportFailures = 0;
+    /**
+     * Report is not requested before this time (backoff after transient failure).
+     */
+    private long reportRetryNotBeforeMillis = 0;
     /**
      * Null if, execution is still running.
      */
@@ -45,16 +66,65 @@ public class TestRun {
      * Response from last run request to jamo automator service. It should be filled in case there was an attempt
      * to {@link #startTest()}.
      *
-     * @see JamoAutomatorClient#runTestCaseBare(Device, TestCase)
+     * @see JamoAutomatorClient#runTestCaseBare(Device, List, String)
      */
     private ResponseStringWrapper execRequestResponse;
     private Exception execRequestException;
+    /**
+     * Filled when test run has finished with {@link ExecutionOutcome#EXECERR}.
+     */
+    private ExecErrorType execErrorType = null;
     private ExecutionOutcome executionOutcome = null;
+    /**
+     * Timeout used by {@link #checkIfTimeoutHappen()}. By default it is timeout configured for test case.
+     */
+    private EffectiveTimeout effectiveTimeout;
+    /**
+     * Number of consecutive liveness checks, which have found this test run dead.
+     */
+    private int consecutiveDeadLivenessChecks = 0;
+    /**
+     * Filled when test run has been finished by {@link #markAsLost(ExecutionLiveness)}.
+     */
+    private ExecutionLiveness lostLiveness = null;
+    /**
+     * First test run of batch (see {@link TestRunBatching}), which has made run request for whole batch. Null for test
+     * run, which is not part of batch, and for first test run of batch itself.
+     */
+    private TestRun batchLeader = null;
 
     public TestRun(Log log, JamoAutomatorClient jamoAutomatorClient, PlannedTestRun plannedTestRun) {
+        this(log, jamoAutomatorClient, plannedTestRun, Clock.systemUTC());
+    }
+
+    public TestRun(Log log, JamoAutomatorClient jamoAutomatorClient, PlannedTestRun plannedTestRun, Clock clock) {
         this.log = log;
         this.plannedTestRun = plannedTestRun;
         this.jamoAutomatorClient = jamoAutomatorClient;
+        this.clock = clock;
+        this.effectiveTimeout = EffectiveTimeout.configured(plannedTestRun);
+    }
+
+    /**
+     * Restore finished test run, which has been executed by other process (see {@link WorkQueueCoordinator}). Restored
+     * test run has no client, it is used for reporting only.
+     */
+    public static TestRun restore(Log log, PlannedTestRun plannedTestRun, TestRunResult result) {
+        final TestRun testRun = new TestRun(log, null, plannedTestRun);
+        testRun.executionId = result.getExecutionId();
+        testRun.requestStartTime = result.getRequestStartTime();
+        testRun.execRequestReturnedTimeMillis = result.getExecRequestReturnedTimeMillis();
+        testRun.finishedTimeMillis = result.getFinishedTimeMillis();
+        testRun.errorsWhileGettingReport = result.getErrorsWhileGettingReport();
+        testRun.executionOutcome = result.getExecutionOutcome();
+        testRun.execErrorType = result.getExecErrorType();
+        if (result.getExecErrorType() != null) {
+            testRun.execRequestResponse = ResponseStringWrapper.wrapIt(false, result.getExecErrorMessage());
+        }
+        testRun.lostLiveness = result.getLostLiveness();
+        testRun.effectiveTimeout = new EffectiveTimeout(result.getTimeoutMs(), result.isTimeoutAdaptive(), result.getTimeoutDescription());
+        testRun.report = result.getReport();
+        return testRun;
     }
 
     /**
@@ -63,16 +133,17 @@ public class TestRun {
      * @return true if execution was successful; false otherwise
      */
     public boolean startTest() {
-        this.requestStartTime = System.currentTimeMillis();
+        this.requestStartTime = clock.millis();
         final Device device = this.plannedTestRun.getDevice();
         final TestCase testCase = this.plannedTestRun.getTestCase();
         try {
-            this.execRequestResponse = jamoAutomatorClient.runTestCase(device, testCase);
+            this.execRequestResponse = jamoAutomatorClient.runTestCase(device, testCase, this.plannedTestRun.getIdempotencyKey());
             this.executionId = this.execRequestResponse.getMessage();
         } catch (Exception ex) {
             this.setExecutionOutcome(ExecutionOutcome.EXECERR);
             // TODO count errors in needToExecute and stop it after some number of exceptions.
             this.execRequestException = ex;
+            this.execErrorType = ExecErrorType.classify(null, ex);
             logInfoForDevice(
                     device,
                     colorize(
@@ -83,14 +154,92 @@ public class TestRun {
             );
             return false;
         } finally {
-            this.execRequestReturnedTimeMillis = System.currentTimeMillis();
+            this.execRequestReturnedTimeMillis = clock.millis();
         }
         if(!this.execRequestResponse.isSuccess()) {
             this.setExecutionOutcome(ExecutionOutcome.EXECERR);
+            this.execErrorType = ExecErrorType.classify(this.execRequestResponse, null);
         }
         return this.execRequestResponse.isSuccess();
     }
 
+    /**
+     * Make {@link JamoAutomatorClient} to request execution of this {@link TestRun} together with given test runs
+     * (of same device) by single request. All test runs of batch share execution id and outcome of request.
+     *
+     * @return true if execution was successful; false otherwise
+     */
+    public boolean startBatch(List<TestRun> followers) {
+        if (followers.isEmpty()) {
+            return startTest();
+        }
+        this.requestStartTime = clock.millis();
+        final Device device = this.plannedTestRun.getDevice();
+        final List<TestCase> testCases = new ArrayList<>(followers.size() + 1);
+        testCases.add(this.plannedTestRun.getTestCase());
+        followers.forEach(follower -> testCases.add(follower.getPlannedTestRun().getTestCase()));
+        // batch of same test runs (i.e. repeated request) gets same key
+        final StringBuilder idempotencyKeys = new StringBuilder(this.plannedTestRun.getIdempotencyKey());
+        followers.forEach(follower -> idempotencyKeys.append(';').append(follower.getPlannedTestRun().getIdempotencyKey()));
+        final String idempotencyKey = UUID.nameUUIDFromBytes(idempotencyKeys.toString().getBytes(StandardCharsets.UTF_8)).toString();
+        try {
+            this.execRequestResponse = jamoAutomatorClient.runTestCases(device, testCases, idempotencyKey);
+            this.executionId = this.execRequestResponse.getMessage();
+            if (!this.execRequestResponse.isSuccess()) {
+                this.setExecutionOutcome(ExecutionOutcome.EXECERR);
+                this.execErrorType = ExecErrorType.classify(this.execRequestResponse, null);
+            }
+        } catch (Exception ex) {
+            this.setExecutionOutcome(ExecutionOutcome.EXECERR);
+            this.execRequestException = ex;
+            this.execErrorType = ExecErrorType.classify(null, ex);
+            logInfoForDevice(device, colorize("Failed to execute batch of " + testCases.size() + " tests on device " +
+                    device(device) + ". Going to try next round."));
+        } finally {
+            this.execRequestReturnedTimeMillis = clock.millis();
+        }
+        for (TestRun follower : followers) {
+            follower.joinBatch(this);
+        }
+        return this.executionOutcome == null;
+    }
+
+    private void joinBatch(TestRun leader) {
+        this.batchLeader = leader;
+        this.requestStartTime = leader.requestStartTime;
+        this.execRequestReturnedTimeMillis = leader.execRequestReturnedTimeMillis;
+        this.execRequestResponse = leader.execRequestResponse;
+        this.execRequestException = leader.execRequestException;
+        this.executionId = leader.executionId;
+        if (leader.executionOutcome != null) {
+            this.execErrorType = leader.execErrorType;
+            this.setExecutionOutcome(leader.executionOutcome);
+        }
+    }
+
+    /**
+     * @return true, if this test run is part of batch, but it is not the one, which has made run request
+     */
+    public boolean isBatchFollower() {
+        return batchLeader != null;
+    }
+
+    /**
+     * Save report of test case from report of batch (see {@link #setReport(Report)}). When report carries start and
+     * end of test case, times of this test run are moved to them (keeping latency of run request), so that duration
+     * of test (as seen by reporters and {@link TestDurationHistory}) is not duration of whole batch.
+     */
+    public ExecutionOutcome setBatchReport(Report testCaseReport) {
+        final ExecutionOutcome outcome = setReport(testCaseReport);
+        if (testCaseReport.getCreationDate() != null && testCaseReport.getEndDate() != null) {
+            final long durationMs = Math.max(0, testCaseReport.getEndDate().getTime() - testCaseReport.getCreationDate().getTime());
+            final long latencyMs = this.execRequestReturnedTimeMillis - this.requestStartTime;
+            this.execRequestReturnedTimeMillis = this.finishedTimeMillis - durationMs;
+            this.requestStartTime = this.execRequestReturnedTimeMillis - latencyMs;
+        }
+        return outcome;
+    }
+
     public String getExecutionId() {
         return executionId;
     }
@@ -111,6 +260,44 @@ public class TestRun {
         return this.errorsWhileGettingReport;
     }
 
+    /**
+     * Record report request failed with transient error.
+     *
+     * @param retryNotBeforeMillis time, before which report should not be requested again
+     */
+    public void transientErrorGettingReport(long retryNotBeforeMillis) {
+        this.transientReportFailures++;
+        this.reportRetryNotBeforeMillis = retryNotBeforeMillis;
+    }
+
+    public int getTransientReportFailures() {
+        return transientReportFailures;
+    }
+
+    public void resetTransientReportFailures() {
+        this.transientReportFailures = 0;
+        this.reportRetryNotBeforeMillis = 0;
+    }
+
+    public long getReportRetryNotBeforeMillis() {
+        return reportRetryNotBeforeMillis;
+    }
+
+    public long getLastReportRequestMillis() {
+        return lastReportRequestMillis;
+    }
+
+    public void setLastReportRequestMillis(long lastReportRequestMillis) {
+        this.lastReportRequestMillis = lastReportRequestMillis;
+    }
+
+    /**
+     * @return source of current time of this test run (clock of its orchestrator)
+     */
+    public Clock getClock() {
+        return clock;
+    }
+
     public long getFinishedTimeMillis() {
         return finishedTimeMillis;
     }
@@ -123,7 +310,7 @@ public class TestRun {
      * Method for "finishing" this {@link TestRun} instance. This method have to be called only once for each instance
      * and have to be called just after finishing execution of {@link TestRun}.
      * <p>
-     * Records current time ({@link System#currentTimeMillis()} into {@link #finishedTimeMillis} attribute and saves
+     * Records current time (from {@link #clock}) into {@link #finishedTimeMillis} attribute and saves
      * given {@link ExecutionOutcome} into {@link #executionOutcome} attribute.
      *
      * @param executionOutcome result of this {@link TestRun} instance
@@ -132,7 +319,7 @@ public class TestRun {
         if (this.executionOutcome != null) {
             throw new RuntimeException("ExecutionOutcome can be set only once and should be set just after finishing execution of given TestCase instance!");
         }
-        this.finishedTimeMillis = System.currentTimeMillis();
+        this.finishedTimeMillis = clock.millis();
         this.executionOutcome = executionOutcome;
     }
 
@@ -140,6 +327,13 @@ public class TestRun {
         return plannedTestRun;
     }
 
+    /**
+     * @return client, which has started this test run (client of backend of its device)
+     */
+    public JamoAutomatorClient getJamoAutomatorClient() {
+        return jamoAutomatorClient;
+    }
+
     private void logInfoForDevice(Device device, String message) {
         String lastLog = lastInfoLogPerDevice.get(device);
         if (!Objects.equals(lastLog, message)) {
@@ -178,6 +372,23 @@ public class TestRun {
         return execRequestException;
     }
 
+    /**
+     * @return type of execution error, or null if test run has not finished with {@link ExecutionOutcome#EXECERR}
+     */
+    public ExecErrorType getExecErrorType() {
+        return execErrorType;
+    }
+
+    /**
+     * @return message of failed execution request (from response, or from exception)
+     */
+    public String getExecErrorMessage() {
+        if (execRequestResponse != null) {
+            return execRequestResponse.getMessage();
+        }
+        return execRequestException == null ? null : "execException=" + execRequestException.getMessage();
+    }
+
     /**
      * Check for timeout (with respect to temporal network outages and so on). if timeout happens, change internal state
      * according to it (fill in {@link #finishedTimeMillis} attribute and also set right {@link #executionOutcome}).
@@ -191,14 +402,57 @@ public class TestRun {
             throw new RuntimeException("Outcome is filled in already. Do not check for timeout in this state! executionOutcome=" + this.executionOutcome);
         }
         // TODO add some delay (benevolence) here, if getting report from jamo has failed (due to network or service exception)
-        long durationTillNowMs = (System.currentTimeMillis() - this.getExecRequestReturnedTimeMillis());
-        final boolean hasTimeouted = durationTillNowMs > this.getPlannedTestRun().getTestCase().getTimeout() * 60 * 1000;
+        long durationTillNowMs = (clock.millis() - this.getExecRequestReturnedTimeMillis());
+        final boolean hasTimeouted = durationTillNowMs > this.effectiveTimeout.getTimeoutMs();
         if (hasTimeouted) {
             this.setExecutionOutcome(ExecutionOutcome.TIMEOUT);
         }
         return hasTimeouted;
     }
 
+    /**
+     * Record result of liveness check.
+     *
+     * @return number of consecutive checks (including this one) which have found test run dead. Zero when test run
+     * is alive.
+     */
+    public int recordLivenessCheck(ExecutionLiveness liveness) {
+        if (liveness.isDead()) {
+            this.consecutiveDeadLivenessChecks++;
+        } else {
+            this.consecutiveDeadLivenessChecks = 0;
+        }
+        return this.consecutiveDeadLivenessChecks;
+    }
+
+    /**
+     * Finish this test run as {@link ExecutionOutcome#TIMEOUT} before its timeout expires, because liveness check
+     * has found device offline, or execution lost.
+     */
+    public void markAsLost(ExecutionLiveness liveness) {
+        this.lostLiveness = liveness;
+        this.setExecutionOutcome(ExecutionOutcome.TIMEOUT);
+    }
+
+    /**
+     * @return liveness which caused early finish of this test run, or null if test run has not been finished by
+     * {@link #markAsLost(ExecutionLiveness)}
+     */
+    public ExecutionLiveness getLostLiveness() {
+        return lostLiveness;
+    }
+
+    public EffectiveTimeout getEffectiveTimeout() {
+        return effectiveTimeout;
+    }
+
+    /**
+     * Set timeout to be used by {@link #checkIfTimeoutHappen()}. Should be called before {@link #startTest()}.
+     */
+    public void setEffectiveTimeout(EffectiveTimeout effectiveTimeout) {
+        this.effectiveTimeout = effectiveTimeout;
+    }
+
     @Override
     public String toString() {
         return "TestRun(plannedTestRun=" + this.getPlannedTestRun() + ")";
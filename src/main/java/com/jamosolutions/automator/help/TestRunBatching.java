@@ -0,0 +1,101 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.TestCase;
+import com.jamosolutions.jamoAutomator.domain.Report;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Decides, which planned test runs of single device are submitted together by single specification run request (see
+ * {@link JamoAutomatorClient#runTestCases(com.jamosolutions.automator.domain.Device, List, String)}), so that device pays
+ * application launch and setup overhead once per batch and not once per test.
+ * <p>
+ * Batch is built from consecutive test runs of device queue with same specification. It is closed, when it reaches
+ * maximal size, or when expected duration of its test runs (see {@link ExecutionTimeEstimator}) would exceed maximal
+ * batch duration, so that fast tests are batched more than slow ones and timeout of batch (sum of timeouts of its test
+ * runs) stays close to its real duration.
+ * <p>
+ * Report of batch is expected to carry report of each test case in {@link Report#getTestCaseReports()}. This is not
+ * part of documented integration api; when service returns report without them, batching is disabled for rest of
+ * suite and test runs of batch are planned again one by one.
+ */
+public class TestRunBatching {
+    private final int maxBatchSize;
+    private final long maxBatchDurationMs;
+    private final ExecutionTimeEstimator executionTimeEstimator;
+    private boolean supported = true;
+
+    /**
+     * @param maxBatchSize           maximal number of test runs in single batch
+     * @param maxBatchDurationMs     maximal expected duration of batch
+     * @param executionTimeEstimator source of expected durations of test runs
+     */
+    public TestRunBatching(int maxBatchSize, long maxBatchDurationMs, ExecutionTimeEstimator executionTimeEstimator) {
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxBatchDurationMs = maxBatchDurationMs;
+        this.executionTimeEstimator = executionTimeEstimator;
+    }
+
+    /**
+     * @return true, if test run can be first one of batch
+     */
+    public boolean canStartBatch(PlannedTestRun plannedTestRun) {
+        return supported && maxBatchSize > 1 && plannedTestRun.getTestCase().getSpecification() != null;
+    }
+
+    /**
+     * @param batch             test runs already in batch (at least one)
+     * @param batchExpectedMs   expected duration of test runs already in batch
+     * @param candidate         next test run in queue of device
+     * @return true, if candidate can be added to batch
+     */
+    public boolean canJoin(List<PlannedTestRun> batch, long batchExpectedMs, PlannedTestRun candidate) {
+        return batch.size() < maxBatchSize
+                && Objects.equals(batch.get(0).getTestCase().getSpecification(), candidate.getTestCase().getSpecification())
+                && batchExpectedMs + getExpectedDurationMs(candidate) <= maxBatchDurationMs;
+    }
+
+    public long getExpectedDurationMs(PlannedTestRun plannedTestRun) {
+        return executionTimeEstimator.getExpectedDurationMs(plannedTestRun);
+    }
+
+    /**
+     * @return timeout of whole batch, i.e. sum of timeouts of its test runs
+     */
+    public static EffectiveTimeout getBatchTimeout(List<TestRun> batch) {
+        long timeoutMs = 0;
+        boolean adaptive = false;
+        for (TestRun testRun : batch) {
+            timeoutMs += testRun.getEffectiveTimeout().getTimeoutMs();
+            adaptive |= testRun.getEffectiveTimeout().isAdaptive();
+        }
+        return new EffectiveTimeout(timeoutMs, adaptive, "batch of " + batch.size() + " tests");
+    }
+
+    /**
+     * @return report of given test case from report of batch, or null if there is none
+     */
+    public static Report findTestCaseReport(Report batchReport, TestCase testCase) {
+        if (batchReport.getTestCaseReports() == null) {
+            return null;
+        }
+        for (Report testCaseReport : batchReport.getTestCaseReports()) {
+            if (testCase.getName().equals(testCaseReport.getTestCaseName())) {
+                return testCaseReport;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Disable batching for rest of suite, as service does not split report of batch.
+     */
+    public void disable() {
+        this.supported = false;
+    }
+
+    public boolean isSupported() {
+        return supported;
+    }
+}
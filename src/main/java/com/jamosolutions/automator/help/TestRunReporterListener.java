@@ -2,4 +2,14 @@ package com.jamosolutions.automator.help;
 
 public interface TestRunReporterListener {
     void finishTestRunExecution(TestRun testRun, boolean isFinalRunForPlannedTestRun);
+
+    /**
+     * Notification about {@link PlannedTestRun}, which is not going to be executed (suite has been aborted, ...).
+     * There will be no {@link #finishTestRunExecution(TestRun, boolean)} call with final run for it.
+     *
+     * @param plannedTestRun skipped test run
+     * @param reason         human readable reason of skip
+     */
+    default void skipPlannedTestRun(PlannedTestRun plannedTestRun, String reason) {
+    }
 }
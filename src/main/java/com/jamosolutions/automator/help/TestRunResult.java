@@ -0,0 +1,219 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.jamoAutomator.domain.Report;
+
+/**
+ * Finished {@link TestRun} (or skipped planned test run) of work queue item, as sent by {@link WorkQueueWorker} to
+ * {@link WorkQueueCoordinator}. Coordinator restores {@link TestRun} from it (see
+ * {@link TestRun#restore(org.apache.maven.plugin.logging.Log, PlannedTestRun, TestRunResult)}) and passes it to its
+ * reporters, so that it can write single report of all workers.
+ */
+public class TestRunResult {
+    private String workerId;
+    private String workId;
+    private boolean finalRun;
+    /**
+     * Filled instead of outcome, when planned test run has been skipped by worker.
+     */
+    private String skipReason;
+    private String deviceName;
+    private String executionId;
+    private long requestStartTime;
+    private long execRequestReturnedTimeMillis;
+    private long finishedTimeMillis;
+    private int errorsWhileGettingReport;
+    private ExecutionOutcome executionOutcome;
+    private ExecErrorType execErrorType;
+    private String execErrorMessage;
+    private ExecutionLiveness lostLiveness;
+    private long timeoutMs;
+    private boolean timeoutAdaptive;
+    private String timeoutDescription;
+    private Report report;
+
+    public TestRunResult() {
+    }
+
+    /**
+     * @param finalRun true, when test run is last one of its planned test run (it will not be retried)
+     */
+    public static TestRunResult of(TestRun testRun, String workerId, String workId, boolean finalRun) {
+        final TestRunResult result = new TestRunResult();
+        result.workerId = workerId;
+        result.workId = workId;
+        result.finalRun = finalRun;
+        result.deviceName = testRun.getPlannedTestRun().getDevice().getName();
+        result.executionId = testRun.getExecutionId();
+        result.requestStartTime = testRun.getRequestStartTime();
+        result.execRequestReturnedTimeMillis = testRun.getExecRequestReturnedTimeMillis();
+        result.finishedTimeMillis = testRun.getFinishedTimeMillis();
+        result.errorsWhileGettingReport = testRun.getErrorsWhileGettingReport();
+        result.executionOutcome = testRun.getExecutionOutcome();
+        result.execErrorType = testRun.getExecErrorType();
+        result.execErrorMessage = testRun.getExecErrorType() == null ? null : testRun.getExecErrorMessage();
+        result.lostLiveness = testRun.getLostLiveness();
+        result.timeoutMs = testRun.getEffectiveTimeout().getTimeoutMs();
+        result.timeoutAdaptive = testRun.getEffectiveTimeout().isAdaptive();
+        result.timeoutDescription = testRun.getEffectiveTimeout().getDescription();
+        result.report = testRun.getReport();
+        return result;
+    }
+
+    public static TestRunResult skipped(PlannedTestRun plannedTestRun, String workerId, String workId, String reason) {
+        final TestRunResult result = new TestRunResult();
+        result.workerId = workerId;
+        result.workId = workId;
+        result.finalRun = true;
+        result.deviceName = plannedTestRun.getDevice().getName();
+        result.skipReason = reason;
+        return result;
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+
+    public void setWorkerId(String workerId) {
+        this.workerId = workerId;
+    }
+
+    public String getWorkId() {
+        return workId;
+    }
+
+    public void setWorkId(String workId) {
+        this.workId = workId;
+    }
+
+    public boolean isFinalRun() {
+        return finalRun;
+    }
+
+    public void setFinalRun(boolean finalRun) {
+        this.finalRun = finalRun;
+    }
+
+    public String getSkipReason() {
+        return skipReason;
+    }
+
+    public void setSkipReason(String skipReason) {
+        this.skipReason = skipReason;
+    }
+
+    /**
+     * @return name of device, which has executed test run (it can differ from device of work item, when item has been
+     * moved to other device of same pool)
+     */
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    public void setDeviceName(String deviceName) {
+        this.deviceName = deviceName;
+    }
+
+    public String getExecutionId() {
+        return executionId;
+    }
+
+    public void setExecutionId(String executionId) {
+        this.executionId = executionId;
+    }
+
+    public long getRequestStartTime() {
+        return requestStartTime;
+    }
+
+    public void setRequestStartTime(long requestStartTime) {
+        this.requestStartTime = requestStartTime;
+    }
+
+    public long getExecRequestReturnedTimeMillis() {
+        return execRequestReturnedTimeMillis;
+    }
+
+    public void setExecRequestReturnedTimeMillis(long execRequestReturnedTimeMillis) {
+        this.execRequestReturnedTimeMillis = execRequestReturnedTimeMillis;
+    }
+
+    public long getFinishedTimeMillis() {
+        return finishedTimeMillis;
+    }
+
+    public void setFinishedTimeMillis(long finishedTimeMillis) {
+        this.finishedTimeMillis = finishedTimeMillis;
+    }
+
+    public int getErrorsWhileGettingReport() {
+        return errorsWhileGettingReport;
+    }
+
+    public void setErrorsWhileGettingReport(int errorsWhileGettingReport) {
+        this.errorsWhileGettingReport = errorsWhileGettingReport;
+    }
+
+    public ExecutionOutcome getExecutionOutcome() {
+        return executionOutcome;
+    }
+
+    public void setExecutionOutcome(ExecutionOutcome executionOutcome) {
+        this.executionOutcome = executionOutcome;
+    }
+
+    public ExecErrorType getExecErrorType() {
+        return execErrorType;
+    }
+
+    public void setExecErrorType(ExecErrorType execErrorType) {
+        this.execErrorType = execErrorType;
+    }
+
+    public String getExecErrorMessage() {
+        return execErrorMessage;
+    }
+
+    public void setExecErrorMessage(String execErrorMessage) {
+        this.execErrorMessage = execErrorMessage;
+    }
+
+    public ExecutionLiveness getLostLiveness() {
+        return lostLiveness;
+    }
+
+    public void setLostLiveness(ExecutionLiveness lostLiveness) {
+        this.lostLiveness = lostLiveness;
+    }
+
+    public long getTimeoutMs() {
+        return timeoutMs;
+    }
+
+    public void setTimeoutMs(long timeoutMs) {
+        this.timeoutMs = timeoutMs;
+    }
+
+    public boolean isTimeoutAdaptive() {
+        return timeoutAdaptive;
+    }
+
+    public void setTimeoutAdaptive(boolean timeoutAdaptive) {
+        this.timeoutAdaptive = timeoutAdaptive;
+    }
+
+    public String getTimeoutDescription() {
+        return timeoutDescription;
+    }
+
+    public void setTimeoutDescription(String timeoutDescription) {
+        this.timeoutDescription = timeoutDescription;
+    }
+
+    public Report getReport() {
+        return report;
+    }
+
+    public void setReport(Report report) {
+        this.report = report;
+    }
+}
@@ -0,0 +1,95 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+
+import java.util.*;
+
+/**
+ * Selects subset of {@link PlannedTestRun}s which fits into time budget. Devices run in parallel, so each device has
+ * whole budget for itself. For each device, candidates are picked greedily using expected durations (see
+ * {@link ExecutionTimeEstimator#getExpectedDurationMs(PlannedTestRun)}):
+ * <ul>
+ *     <li>{@link Objective#COUNT}: shortest test runs first, which maximizes number of executed test runs</li>
+ *     <li>{@link Objective#PRIORITY}: test runs with highest priority per minute first, which (approximately)
+ *     maximizes sum of priorities of executed test runs</li>
+ * </ul>
+ * Selected test runs are returned in order in which they have been picked, so that most valuable test runs are
+ * executed first, even if estimates turn out to be too optimistic.
+ */
+public class TimeBudgetPlanner {
+    public enum Objective {
+        COUNT,
+        PRIORITY
+    }
+
+    private final ExecutionTimeEstimator executionTimeEstimator;
+    private final long budgetMs;
+    private final Objective objective;
+
+    public TimeBudgetPlanner(ExecutionTimeEstimator executionTimeEstimator, long budgetMs, Objective objective) {
+        this.executionTimeEstimator = executionTimeEstimator;
+        this.budgetMs = budgetMs;
+        this.objective = objective;
+    }
+
+    /**
+     * @param mandatory  test runs, which are executed regardless of budget (smoke stage, ...). They consume budget of
+     *                   their device first
+     * @param candidates test runs to select from
+     * @return selection of candidates
+     */
+    public Selection select(List<PlannedTestRun> mandatory, List<PlannedTestRun> candidates) {
+        final Map<Device, Long> remainingPerDevice = new HashMap<>();
+        for (PlannedTestRun plannedTestRun : mandatory) {
+            remainingPerDevice.merge(plannedTestRun.getDevice(), -executionTimeEstimator.getExpectedDurationMs(plannedTestRun), Long::sum);
+        }
+        final Map<Device, List<PlannedTestRun>> candidatesPerDevice = new LinkedHashMap<>();
+        for (PlannedTestRun plannedTestRun : candidates) {
+            candidatesPerDevice.computeIfAbsent(plannedTestRun.getDevice(), k -> new ArrayList<>()).add(plannedTestRun);
+        }
+        final List<PlannedTestRun> selected = new ArrayList<>();
+        final List<PlannedTestRun> skipped = new ArrayList<>();
+        for (Map.Entry<Device, List<PlannedTestRun>> entry : candidatesPerDevice.entrySet()) {
+            final List<PlannedTestRun> sorted = new ArrayList<>(entry.getValue());
+            sorted.sort(comparator());
+            long remainingMs = budgetMs + remainingPerDevice.getOrDefault(entry.getKey(), 0L);
+            for (PlannedTestRun plannedTestRun : sorted) {
+                final long expectedMs = executionTimeEstimator.getExpectedDurationMs(plannedTestRun);
+                if (expectedMs <= remainingMs) {
+                    selected.add(plannedTestRun);
+                    remainingMs -= expectedMs;
+                } else {
+                    skipped.add(plannedTestRun);
+                }
+            }
+        }
+        return new Selection(selected, skipped);
+    }
+
+    private Comparator<PlannedTestRun> comparator() {
+        if (objective == Objective.PRIORITY) {
+            return Comparator.comparingDouble((PlannedTestRun p) ->
+                    p.getTestCase().getPriority() / (double) Math.max(1, executionTimeEstimator.getExpectedDurationMs(p))
+            ).reversed();
+        }
+        return Comparator.comparingLong(executionTimeEstimator::getExpectedDurationMs);
+    }
+
+    public static class Selection {
+        private final List<PlannedTestRun> selected;
+        private final List<PlannedTestRun> skipped;
+
+        private Selection(List<PlannedTestRun> selected, List<PlannedTestRun> skipped) {
+            this.selected = selected;
+            this.skipped = skipped;
+        }
+
+        public List<PlannedTestRun> getSelected() {
+            return selected;
+        }
+
+        public List<PlannedTestRun> getSkipped() {
+            return skipped;
+        }
+    }
+}
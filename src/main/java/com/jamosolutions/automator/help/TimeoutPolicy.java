@@ -0,0 +1,13 @@
+package com.jamosolutions.automator.help;
+
+/**
+ * Decides timeout for {@link TestRun} which is going to be started for given {@link PlannedTestRun}.
+ */
+public interface TimeoutPolicy {
+    /**
+     * Policy which uses timeout configured for test case in descriptor.
+     */
+    TimeoutPolicy CONFIGURED = EffectiveTimeout::configured;
+
+    EffectiveTimeout getEffectiveTimeout(PlannedTestRun plannedTestRun);
+}
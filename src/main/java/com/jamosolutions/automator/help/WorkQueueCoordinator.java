@@ -0,0 +1,425 @@
+package com.jamosolutions.automator.help;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jamosolutions.automator.domain.Device;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+import static com.jamosolutions.automator.help.Colorizer.colorize;
+import static com.jamosolutions.automator.help.Colorizer.device;
+import static com.jamosolutions.automator.help.Colorizer.testCase;
+
+/**
+ * Owner of planned test runs of suite shared by several processes (for example build agents, each with its own
+ * devices). Workers (see {@link WorkQueueWorker}) pull work for their idle devices one test at a time, so that device
+ * with long tests does not hold back tail of suite, and they send back each finished {@link TestRun}. Coordinator
+ * passes them to its {@link TestRunReporterListener}s, i.e. it writes single report of whole suite.
+ * <p>
+ * Protocol is json over http, all requests are <code>POST</code> and carry random token (see {@link #getUrl()}):
+ * <ul>
+ *     <li><code>/register {"workerId": "..."}</code> - worker (re)started; work claimed by previous process with same
+ *     id is planned again</li>
+ *     <li><code>/claim {"workerId": "...", "deviceName": "..."}</code> - next {@link WorkQueueItem} for device. When
+ *     queue of device is empty, work of other device of same pool (see {@link Device#poolName()}) is moved to it.
+ *     <code>204</code> means no work right now, <code>410</code> means that all work is done.</li>
+ *     <li><code>/result {@link TestRunResult}</code> - finished test run of claimed item; <code>409</code> when item
+ *     is not claimed by worker anymore (it has been planned again)</li>
+ *     <li><code>/heartbeat {"workerId": "..."}</code></li>
+ * </ul>
+ * Work claimed by worker, which has not sent any request for worker timeout, is planned again, so that suite survives
+ * crashed or restarted workers. Results of runs, which are going to be retried (not final ones), are kept with claim
+ * till final result of item arrives; claim planned again drops them, so that reporters do not get attempts of lost
+ * worker and of worker, which executes item again, both. Suite fails, when no worker registers within registration
+ * timeout.
+ * <p>
+ * Http requests are served by background threads; results are passed to reporters by {@link #processResults(List)},
+ * which is expected to be called from thread of suite.
+ */
+public class WorkQueueCoordinator implements AutoCloseable {
+    /**
+     * Role of suite in shared work queue.
+     */
+    public enum Role {
+        /**
+         * No shared work queue, suite executes whole descriptor.
+         */
+        OFF,
+        /**
+         * Suite owns work queue and writes report, it does not execute tests itself.
+         */
+        COORDINATOR,
+        /**
+         * Suite executes tests claimed from coordinator on its devices.
+         */
+        WORKER
+    }
+
+    public static final String CONTEXT_PATH = "/jamo/work";
+    public static final String TOKEN_PARAMETER = "token";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final Log log;
+    private final HttpServer httpServer;
+    private final ExecutorService executor;
+    private final String token;
+    private final String url;
+    private final long workerTimeoutMs;
+    private final long registrationTimeoutMs;
+    private final long startMillis = System.currentTimeMillis();
+    private final Map<String, Device> devices = new LinkedHashMap<>();
+    /**
+     * Planned test run (from descriptor) of each work item, keyed by work id.
+     */
+    private final Map<String, PlannedTestRun> plannedTestRuns = new HashMap<>();
+    /**
+     * Not yet claimed items, keyed by name of device.
+     */
+    private final Map<String, Deque<WorkQueueItem>> pending = new LinkedHashMap<>();
+    private final Map<String, Claim> claims = new LinkedHashMap<>();
+    private final Map<String, Long> workerLastSeenMillis = new LinkedHashMap<>();
+    private final Queue<TestRunResult> results = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger rejectedCount = new AtomicInteger(0);
+    private int workSequence = 0;
+    private int claimedCount = 0;
+    private int movedCount = 0;
+    private int replannedCount = 0;
+    private int supersededCount = 0;
+    private int finishedCount = 0;
+
+    private WorkQueueCoordinator(Log log, HttpServer httpServer, ExecutorService executor, String publicHost, String token,
+                                 long workerTimeoutMs, long registrationTimeoutMs) {
+        this.log = log;
+        this.httpServer = httpServer;
+        this.executor = executor;
+        this.token = token;
+        this.workerTimeoutMs = workerTimeoutMs;
+        this.registrationTimeoutMs = registrationTimeoutMs;
+        this.url = "http://" + publicHost + ":" + httpServer.getAddress().getPort() + CONTEXT_PATH + "?" + TOKEN_PARAMETER + "=" + token;
+    }
+
+    /**
+     * Start listener.
+     *
+     * @param bindAddress     address to listen on (for example 0.0.0.0)
+     * @param port            port to listen on; 0 means any free port
+     * @param publicHost      host name (or address) used in url, i.e. address of this machine as seen by workers
+     * @param token           secret shared with workers
+     * @param workerTimeoutMs       work of worker silent for this long is planned again
+     * @param registrationTimeoutMs {@link #processResults(List)} fails, when no worker registers for this long after
+     *                              start; 0 means waiting for workers forever
+     */
+    public static WorkQueueCoordinator start(Log log, String bindAddress, int port, String publicHost, String token,
+                                             long workerTimeoutMs, long registrationTimeoutMs) {
+        final HttpServer httpServer;
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress(bindAddress, port), 0);
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to start work queue coordinator on " + bindAddress + ":" + port, ex);
+        }
+        final AtomicInteger threadNumber = new AtomicInteger(0);
+        final ExecutorService executor = Executors.newFixedThreadPool(4, runnable -> {
+            final Thread thread = new Thread(runnable, "jamo-work-queue-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final WorkQueueCoordinator coordinator = new WorkQueueCoordinator(log, httpServer, executor, publicHost, token, workerTimeoutMs, registrationTimeoutMs);
+        httpServer.createContext(CONTEXT_PATH, coordinator::handle);
+        httpServer.setExecutor(executor);
+        httpServer.start();
+        log.info("Work queue coordinator is listening on " + bindAddress + ":" + httpServer.getAddress().getPort() + ".");
+        return coordinator;
+    }
+
+    /**
+     * Add planned test run to queue of its device.
+     */
+    public synchronized void addWork(PlannedTestRun plannedTestRun) {
+        final Device device = plannedTestRun.getDevice();
+        final Device known = devices.putIfAbsent(device.getName(), device);
+        if (known != null && known != device) {
+            throw new RuntimeException("Device name " + device.getName() + " is not unique, workers would not be able to tell devices apart!");
+        }
+        final String workId = Integer.toString(++workSequence);
+        plannedTestRuns.put(workId, plannedTestRun);
+        pending.computeIfAbsent(device.getName(), k -> new ArrayDeque<>())
+                .add(new WorkQueueItem(workId, device.getName(), plannedTestRun.getTestCase().getName()));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            final Map<String, String> query = CompletionWebhookReceiver.parseQuery(exchange.getRequestURI().getRawQuery());
+            if (!token.equals(query.get(TOKEN_PARAMETER)) || !"POST".equals(exchange.getRequestMethod())) {
+                rejectedCount.incrementAndGet();
+                exchange.sendResponseHeaders(403, -1);
+                return;
+            }
+            final String operation = exchange.getRequestURI().getPath().substring(CONTEXT_PATH.length());
+            switch (operation) {
+                case "/register":
+                    register(OBJECT_MAPPER.readTree(exchange.getRequestBody()).path("workerId").asText(null));
+                    exchange.sendResponseHeaders(204, -1);
+                    break;
+                case "/claim":
+                    final JsonNode claimRequest = OBJECT_MAPPER.readTree(exchange.getRequestBody());
+                    final String deviceName = claimRequest.path("deviceName").asText(null);
+                    if (deviceName == null || !devices.containsKey(deviceName)) {
+                        exchange.sendResponseHeaders(400, -1);
+                        break;
+                    }
+                    final WorkQueueItem item = claim(claimRequest.path("workerId").asText(null), deviceName);
+                    if (item == null) {
+                        exchange.sendResponseHeaders(isFinished() ? 410 : 204, -1);
+                    } else {
+                        sendJson(exchange, item);
+                    }
+                    break;
+                case "/result":
+                    final TestRunResult result = OBJECT_MAPPER.readValue(exchange.getRequestBody(), TestRunResult.class);
+                    exchange.sendResponseHeaders(acceptResult(result) ? 204 : 409, -1);
+                    break;
+                case "/heartbeat":
+                    seen(OBJECT_MAPPER.readTree(exchange.getRequestBody()).path("workerId").asText(null));
+                    exchange.sendResponseHeaders(204, -1);
+                    break;
+                default:
+                    exchange.sendResponseHeaders(404, -1);
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Unable to process work queue request " + exchange.getRequestURI().getPath() + ". ex=" + ex.getMessage());
+            if (exchange.getResponseCode() == -1) {
+                exchange.sendResponseHeaders(400, -1);
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, Object body) throws IOException {
+        final byte[] bytes = OBJECT_MAPPER.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(bytes);
+        }
+    }
+
+    private synchronized void seen(String workerId) {
+        if (workerId == null) {
+            throw new RuntimeException("Missing workerId");
+        }
+        if (workerLastSeenMillis.put(workerId, System.currentTimeMillis()) == null) {
+            log.info("Worker " + workerId + " has joined work queue.");
+        }
+    }
+
+    private synchronized void register(String workerId) {
+        seen(workerId);
+        final int replanned = replanClaims(claim -> claim.workerId.equals(workerId));
+        if (replanned > 0) {
+            log.warn("Worker " + workerId + " has been restarted. Its " + replanned + " unfinished tests are planned again.");
+        }
+    }
+
+    private synchronized WorkQueueItem claim(String workerId, String deviceName) {
+        seen(workerId);
+        Deque<WorkQueueItem> queue = pending.get(deviceName);
+        WorkQueueItem item = queue == null ? null : queue.pollFirst();
+        if (item == null) {
+            // take work of most loaded device of same pool
+            final String poolName = devices.get(deviceName).poolName();
+            final Optional<Deque<WorkQueueItem>> mostLoaded = pending.entrySet().stream()
+                    .filter(entry -> !entry.getValue().isEmpty() && devices.get(entry.getKey()).poolName().equals(poolName))
+                    .map(Map.Entry::getValue)
+                    .max(Comparator.comparingInt(Deque::size));
+            if (!mostLoaded.isPresent()) {
+                return null;
+            }
+            item = mostLoaded.get().pollLast();
+            log.debug("Work " + item + " has been moved to device " + deviceName + " of same pool.");
+            item.setDeviceName(deviceName);
+            movedCount++;
+        }
+        claims.put(item.getWorkId(), new Claim(item, workerId));
+        claimedCount++;
+        return item;
+    }
+
+    private synchronized boolean acceptResult(TestRunResult result) {
+        seen(result.getWorkerId());
+        final Claim claim = claims.get(result.getWorkId());
+        if (claim == null || !claim.workerId.equals(result.getWorkerId())) {
+            log.debug("Result of work " + result.getWorkId() + " from worker " + result.getWorkerId() + " has been ignored, work is not claimed by it.");
+            return false;
+        }
+        if (!result.isFinalRun()) {
+            // reported with final result, claim planned again drops it
+            claim.attempts.add(result);
+            return true;
+        }
+        claims.remove(result.getWorkId());
+        finishedCount++;
+        results.addAll(claim.attempts);
+        results.add(result);
+        return true;
+    }
+
+    /**
+     * Plan again work of workers, which have been silent for worker timeout, and pass received results to given
+     * listeners.
+     *
+     * @throws RuntimeException when no worker has registered within registration timeout
+     */
+    public void processResults(List<TestRunReporterListener> listeners) {
+        final long now = System.currentTimeMillis();
+        synchronized (this) {
+            if (workerLastSeenMillis.isEmpty() && registrationTimeoutMs > 0 && now - startMillis > registrationTimeoutMs) {
+                throw new RuntimeException("No worker has registered at work queue coordinator within " + registrationTimeoutMs / 1000 +
+                        " seconds, " + getPendingCount() + " tests have not been executed. Are workers started with -DworkQueueUrl=\"" + url + "\"?");
+            }
+            for (Map.Entry<String, Long> worker : workerLastSeenMillis.entrySet()) {
+                if (now - worker.getValue() > workerTimeoutMs) {
+                    final int replanned = replanClaims(claim -> claim.workerId.equals(worker.getKey()));
+                    if (replanned > 0) {
+                        log.warn("Worker " + worker.getKey() + " has not responded for " + (now - worker.getValue()) / 1000 +
+                                " seconds. Its " + replanned + " unfinished tests are planned again.");
+                    }
+                }
+            }
+        }
+        TestRunResult result;
+        while ((result = results.poll()) != null) {
+            final PlannedTestRun origin = plannedTestRuns.get(result.getWorkId());
+            final Device device = devices.getOrDefault(result.getDeviceName(), origin.getDevice());
+            final PlannedTestRun plannedTestRun = device == origin.getDevice() ? origin : origin.withDevice(device);
+            if (result.getSkipReason() != null) {
+                log.info(colorize("Test " + testCase(plannedTestRun.getTestCase()) + " on device " + device(device) +
+                        " has been skipped by worker " + result.getWorkerId() + ": " + result.getSkipReason()));
+                for (TestRunReporterListener listener : listeners) {
+                    listener.skipPlannedTestRun(plannedTestRun, result.getSkipReason());
+                }
+                continue;
+            }
+            final TestRun testRun = TestRun.restore(log, plannedTestRun, result);
+            for (TestRunReporterListener listener : listeners) {
+                listener.finishTestRunExecution(testRun, result.isFinalRun());
+            }
+        }
+    }
+
+    private int replanClaims(Predicate<Claim> filter) {
+        int replanned = 0;
+        for (Iterator<Claim> iterator = claims.values().iterator(); iterator.hasNext(); ) {
+            final Claim claim = iterator.next();
+            if (filter.test(claim)) {
+                iterator.remove();
+                supersededCount += claim.attempts.size();
+                final WorkQueueItem item = claim.item;
+                item.setDeviceName(item.getOriginDeviceName());
+                pending.computeIfAbsent(item.getOriginDeviceName(), k -> new ArrayDeque<>()).addFirst(item);
+                replanned++;
+            }
+        }
+        replannedCount += replanned;
+        return replanned;
+    }
+
+    /**
+     * @return true, when all work has been finished (and all results have been processed)
+     */
+    public synchronized boolean isFinished() {
+        return claims.isEmpty() && pending.values().stream().allMatch(Deque::isEmpty) && results.isEmpty();
+    }
+
+    /**
+     * @return url of coordinator (including token), which should be passed to workers
+     */
+    public String getUrl() {
+        return url;
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    public synchronized int getClaimedCount() {
+        return claims.size();
+    }
+
+    public synchronized int getFinishedCount() {
+        return finishedCount;
+    }
+
+    /**
+     * @return number of claims, which has been handed out (including ones planned again)
+     */
+    public synchronized int getTotalClaimsCount() {
+        return claimedCount;
+    }
+
+    /**
+     * @return number of work items moved to other device of same pool
+     */
+    public synchronized int getMovedCount() {
+        return movedCount;
+    }
+
+    /**
+     * @return number of claims planned again due to silent or restarted worker
+     */
+    public synchronized int getReplannedCount() {
+        return replannedCount;
+    }
+
+    /**
+     * @return number of not final results dropped, because their item has been planned again
+     */
+    public synchronized int getSupersededCount() {
+        return supersededCount;
+    }
+
+    public synchronized Set<String> getWorkerIds() {
+        return new LinkedHashSet<>(workerLastSeenMillis.keySet());
+    }
+
+    /**
+     * @return number of rejected requests (wrong token, ...)
+     */
+    public int getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        executor.shutdownNow();
+    }
+
+    private static class Claim {
+        private final WorkQueueItem item;
+        private final String workerId;
+        /**
+         * Not final results of item, reported together with its final result.
+         */
+        private final List<TestRunResult> attempts = new ArrayList<>();
+
+        private Claim(WorkQueueItem item, String workerId) {
+            this.item = item;
+            this.workerId = workerId;
+        }
+    }
+}
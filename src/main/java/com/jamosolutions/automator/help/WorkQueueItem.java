@@ -0,0 +1,66 @@
+package com.jamosolutions.automator.help;
+
+/**
+ * Planned test run handed out by {@link WorkQueueCoordinator} to worker. Devices and test cases are identified by
+ * their names in descriptor, which is shared by coordinator and all workers.
+ */
+public class WorkQueueItem {
+    private String workId;
+    private String deviceName;
+    private String originDeviceName;
+    private String testCaseName;
+
+    public WorkQueueItem() {
+    }
+
+    public WorkQueueItem(String workId, String deviceName, String testCaseName) {
+        this.workId = workId;
+        this.deviceName = deviceName;
+        this.originDeviceName = deviceName;
+        this.testCaseName = testCaseName;
+    }
+
+    public String getWorkId() {
+        return workId;
+    }
+
+    public void setWorkId(String workId) {
+        this.workId = workId;
+    }
+
+    /**
+     * @return device, which should execute test
+     */
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    public void setDeviceName(String deviceName) {
+        this.deviceName = deviceName;
+    }
+
+    /**
+     * @return device, for which test has been planned in descriptor (test case is looked up in its test cases); it
+     * differs from {@link #getDeviceName()}, when item has been moved to other device of same pool
+     */
+    public String getOriginDeviceName() {
+        return originDeviceName;
+    }
+
+    public void setOriginDeviceName(String originDeviceName) {
+        this.originDeviceName = originDeviceName;
+    }
+
+    public String getTestCaseName() {
+        return testCaseName;
+    }
+
+    public void setTestCaseName(String testCaseName) {
+        this.testCaseName = testCaseName;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkQueueItem(" + workId + ";" + deviceName + ";" + testCaseName + ")";
+    }
+}
@@ -0,0 +1,244 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import org.apache.maven.plugin.logging.Log;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.*;
+
+import static com.jamosolutions.automator.help.Colorizer.colorize;
+import static com.jamosolutions.automator.help.Colorizer.device;
+
+/**
+ * Worker side of {@link WorkQueueCoordinator}. Instead of planning whole descriptor, worker claims one test at a time
+ * for each of its idle devices (see {@link #claimWork(TestOrchestrator)}) and sends each finished test run back to
+ * coordinator (this class is {@link TestRunReporterListener} of worker orchestrator). Retries are done by worker, so
+ * that coordinator sees them as non final test runs of claimed item.
+ * <p>
+ * Results, which can not be delivered (coordinator is restarting, network problem), are kept and sent again in next
+ * round. When coordinator does not respond for given time, worker stops claiming new work.
+ */
+public class WorkQueueWorker implements TestRunReporterListener {
+    private final Log log;
+    private final String coordinatorUrl;
+    private final String workerId;
+    private final List<Device> devices;
+    private final Map<String, Device> descriptorDevices = new HashMap<>();
+    private final long heartbeatIntervalMs;
+    private final long giveUpMs;
+    /**
+     * Work id of claimed item of each test case (test case object of descriptor is unique for each item).
+     */
+    private final Map<TestCase, String> workIds = new IdentityHashMap<>();
+    private final Deque<TestRunResult> undelivered = new ArrayDeque<>();
+    private final RestTemplate restTemplate = new RestTemplate();
+    private long lastContactMillis = 0;
+    private long firstFailureMillis = 0;
+    private boolean registered = false;
+    private boolean drained = false;
+    private boolean gaveUp = false;
+    private int claimedCount = 0;
+
+    /**
+     * @param coordinatorUrl    url of coordinator (see {@link WorkQueueCoordinator#getUrl()})
+     * @param workerId          id of worker; restarted worker should use same id, so that its unfinished work is
+     *                          planned again right away
+     * @param devices           devices controlled by this worker
+     * @param descriptorDevices all devices of descriptor (work can be moved from any device of same pool)
+     * @param heartbeatIntervalMs maximal time between requests to coordinator
+     * @param giveUpMs          worker stops claiming work, when coordinator does not respond for this long
+     */
+    public WorkQueueWorker(Log log, String coordinatorUrl, String workerId, List<Device> devices, List<Device> descriptorDevices,
+                           long heartbeatIntervalMs, long giveUpMs) {
+        this.log = log;
+        this.coordinatorUrl = coordinatorUrl;
+        this.workerId = workerId;
+        this.devices = devices;
+        for (Device device : descriptorDevices) {
+            this.descriptorDevices.put(device.getName(), device);
+        }
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+        this.giveUpMs = giveUpMs;
+        this.restTemplate.setMessageConverters(Converters.JACKSON_TO_HTTP);
+    }
+
+    /**
+     * Announce (re)start of worker to coordinator. Worker claims work only after it has been registered, so that work
+     * of its previous process is not left claimed.
+     *
+     * @return true, if coordinator has accepted registration
+     */
+    public boolean register() {
+        final ResponseEntity<Void> response = post("register", Collections.singletonMap("workerId", workerId), Void.class);
+        registered = response != null && response.getStatusCode().is2xxSuccessful();
+        if (registered) {
+            log.info("Worker " + workerId + " has joined work queue " + coordinatorUrl.replaceAll("token=[^&]*", "token=...") +
+                    " with " + devices.size() + " devices.");
+        }
+        return registered;
+    }
+
+    /**
+     * Deliver undelivered results, claim work for idle devices (and add it to given orchestrator) and send heartbeat,
+     * when there has been no other request for heartbeat interval. Expected to be called before each orchestration
+     * round.
+     */
+    public void claimWork(TestOrchestrator testOrchestrator) {
+        if (!registered && !gaveUp && !register()) {
+            return;
+        }
+        deliverResults();
+        if (!drained) {
+            for (Device device : devices) {
+                if (drained || testOrchestrator.hasWork(device) || testOrchestrator.getQuarantinedDevices().contains(device)) {
+                    continue;
+                }
+                final Map<String, String> request = new HashMap<>();
+                request.put("workerId", workerId);
+                request.put("deviceName", device.getName());
+                final ResponseEntity<WorkQueueItem> response = post("claim", request, WorkQueueItem.class);
+                if (response == null) {
+                    break;
+                }
+                if (response.getStatusCode() == HttpStatus.GONE) {
+                    log.info("Work queue is empty. Worker " + workerId + " is going to finish its running tests.");
+                    drained = true;
+                } else if (response.getBody() != null) {
+                    addClaimedWork(testOrchestrator, device, response.getBody());
+                }
+            }
+        }
+        if (System.currentTimeMillis() - lastContactMillis >= heartbeatIntervalMs) {
+            post("heartbeat", Collections.singletonMap("workerId", workerId), Void.class);
+        }
+    }
+
+    private void addClaimedWork(TestOrchestrator testOrchestrator, Device device, WorkQueueItem item) {
+        final Device origin = descriptorDevices.get(item.getOriginDeviceName());
+        final Optional<TestCase> testCase = origin == null ? Optional.empty() : origin.getTestCases().stream()
+                .filter(candidate -> candidate.getName().equals(item.getTestCaseName()))
+                .findFirst();
+        if (!testCase.isPresent()) {
+            throw new RuntimeException("Work " + item + " is not known in descriptor of worker. Coordinator and workers have to use same descriptor!");
+        }
+        claimedCount++;
+        workIds.put(testCase.get(), item.getWorkId());
+        if (origin != device) {
+            log.debug(colorize("Test of device " + device(origin) + " has been moved to device " + device(device) + "."));
+        }
+        testOrchestrator.addTestForExecution(new PlannedTestRun(device, testCase.get()));
+    }
+
+    @Override
+    public void finishTestRunExecution(TestRun testRun, boolean isFinalRunForPlannedTestRun) {
+        final TestCase testCase = testRun.getPlannedTestRun().getTestCase();
+        final String workId = isFinalRunForPlannedTestRun ? workIds.remove(testCase) : workIds.get(testCase);
+        if (workId == null) {
+            return;
+        }
+        undelivered.add(TestRunResult.of(testRun, workerId, workId, isFinalRunForPlannedTestRun));
+        deliverResults();
+    }
+
+    @Override
+    public void skipPlannedTestRun(PlannedTestRun plannedTestRun, String reason) {
+        final String workId = workIds.remove(plannedTestRun.getTestCase());
+        if (workId == null) {
+            return;
+        }
+        undelivered.add(TestRunResult.skipped(plannedTestRun, workerId, workId, reason));
+        deliverResults();
+    }
+
+    private void deliverResults() {
+        while (!undelivered.isEmpty()) {
+            final ResponseEntity<Void> response = post("result", undelivered.peek(), Void.class);
+            if (response == null) {
+                return;
+            }
+            final TestRunResult delivered = undelivered.poll();
+            if (response.getStatusCode() == HttpStatus.CONFLICT) {
+                log.warn("Result of work " + delivered.getWorkId() + " has been refused by coordinator, it has been planned again meanwhile.");
+            }
+        }
+    }
+
+    /**
+     * @return response of coordinator (including error responses), or null when coordinator is not reachable
+     */
+    private <T> ResponseEntity<T> post(String operation, Object body, Class<T> responseType) {
+        final HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        try {
+            final ResponseEntity<T> response = restTemplate.exchange(
+                    UriComponentsBuilder.fromHttpUrl(coordinatorUrl).path("/" + operation).build().encode().toUri(),
+                    HttpMethod.POST, new HttpEntity<>(body, headers), responseType);
+            contacted();
+            return response;
+        } catch (HttpStatusCodeException ex) {
+            contacted();
+            if (ex.getStatusCode() != HttpStatus.GONE && ex.getStatusCode() != HttpStatus.CONFLICT) {
+                log.warn("Work queue request " + operation + " has been refused by coordinator. status=" + ex.getStatusCode());
+            }
+            return new ResponseEntity<>(ex.getStatusCode());
+        } catch (RestClientException ex) {
+            final long now = System.currentTimeMillis();
+            if (firstFailureMillis == 0) {
+                firstFailureMillis = now;
+            }
+            log.warn("Work queue coordinator is not reachable (" + operation + "). ex=" + ex.getMessage());
+            if (!gaveUp && now - firstFailureMillis > giveUpMs) {
+                log.error("Work queue coordinator has not responded for " + (now - firstFailureMillis) / 1000 +
+                        " seconds. Worker " + workerId + " is not going to claim more work.");
+                drained = true;
+                gaveUp = true;
+            }
+            return null;
+        }
+    }
+
+    private void contacted() {
+        lastContactMillis = System.currentTimeMillis();
+        firstFailureMillis = 0;
+    }
+
+    /**
+     * @return true, when coordinator has no more work for this worker (or it is not reachable anymore)
+     */
+    public boolean isDrained() {
+        return drained;
+    }
+
+    /**
+     * @return true, when there is no more work, given orchestrator has finished all claimed work and all results have
+     * been delivered (or coordinator is not reachable anymore)
+     */
+    public boolean isFinished(TestOrchestrator testOrchestrator) {
+        return drained && !testOrchestrator.isStillSomethingNeedToBeDone() && (undelivered.isEmpty() || gaveUp);
+    }
+
+    /**
+     * @return number of results, which have not been delivered to coordinator yet
+     */
+    public int getUndeliveredCount() {
+        return undelivered.size();
+    }
+
+    public int getClaimedCount() {
+        return claimedCount;
+    }
+
+    public String getWorkerId() {
+        return workerId;
+    }
+}
@@ -0,0 +1,282 @@
+package com.jamosolutions.automator.reporters;
+
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Merge csv files of test runs (written by {@link CsvTestRunReporter}) of several runs or shards of suite into single
+ * file. Lines of merged file are ordered by time of finish, as they are in file written by single run.
+ * <p>
+ * By default, files are read line by line in parallel and only best line for each device and test case is kept, i.e.
+ * memory grows with number of distinct (device, testCase) pairs, not with size of files:
+ * <ul>
+ * <li>final attempt (<code>willBeRetried</code> is false) wins over retried one,</li>
+ * <li>executed test run wins over skipped one,</li>
+ * <li>later attempt (<code>currentTimeMillis</code>) wins over earlier one.</li>
+ * </ul>
+ * When all attempts are kept, files (each of them ordered by time of finish) are streamed into merged file by k-way
+ * merge, i.e. only current line of each file is held in memory.
+ */
+public class CsvReportMerger {
+    private static final String HEADER_PREFIX = "device;";
+    private static final String DEFAULT_HEADER = "device;testCase;result;currentTimeMillis;getRequestStartTime;getStartTimeMillis;getExecutionId;getErrorsWhileGettingReport;getBuildNumber;getCreationDate;getEndDate;willBeRetried";
+    private static final Comparator<Line> FINISH_ORDER = Comparator.comparingLong((Line line) -> line.finishedMillis).thenComparing(line -> line.text);
+
+    private final Log log;
+    private final ExecutorService executorService;
+    private final boolean keepRetriedAttempts;
+
+    /**
+     * @param executorService     used to read files in parallel (when only final attempts are kept)
+     * @param keepRetriedAttempts true to keep all lines (files are only merged by time), false to keep only final
+     *                            attempt of each test case on device
+     */
+    public CsvReportMerger(Log log, ExecutorService executorService, boolean keepRetriedAttempts) {
+        this.log = log;
+        this.executorService = executorService;
+        this.keepRetriedAttempts = keepRetriedAttempts;
+    }
+
+    /**
+     * @return number of lines (test runs) in merged file
+     */
+    public int merge(List<File> inputs, File output) {
+        final FileScan total = keepRetriedAttempts ? mergeAll(inputs, output) : mergeBest(inputs, output);
+        log.info("Merged " + inputs.size() + " csv files into " + output.getPath() + ": " + total.linesWritten + " of " + total.linesRead +
+                " test runs kept" + (total.startMillis < total.endMillis ? ", wall time " + (total.endMillis - total.startMillis) / 1000 + " seconds." : "."));
+        return total.linesWritten;
+    }
+
+    /**
+     * Keep best line of each (device, testCase) pair, files are read in parallel.
+     */
+    private FileScan mergeBest(List<File> inputs, File output) {
+        final List<Callable<FileScan>> tasks = new ArrayList<>();
+        for (File input : inputs) {
+            tasks.add(() -> scan(input));
+        }
+        final FileScan total = new FileScan();
+        final Map<String, Line> best = new HashMap<>();
+        try {
+            for (Future<FileScan> future : executorService.invokeAll(tasks)) {
+                final FileScan scan = future.get();
+                total.add(scan);
+                for (Map.Entry<String, Line> entry : scan.bestLines.entrySet()) {
+                    best.merge(entry.getKey(), entry.getValue(), Line::better);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Merge of csv files has been interrupted.", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause().getMessage(), ex.getCause());
+        }
+        final List<Line> merged = new ArrayList<>(best.values());
+        merged.sort(FINISH_ORDER);
+        write(output, total.header, writer -> {
+            for (Line line : merged) {
+                writer.println(line.text);
+            }
+        });
+        total.linesWritten = merged.size();
+        return total;
+    }
+
+    /**
+     * Keep all lines: k-way merge of files by time of finish, with one open reader per file.
+     */
+    private FileScan mergeAll(List<File> inputs, File output) {
+        final FileScan total = new FileScan();
+        final List<CsvReader> readers = new ArrayList<>();
+        try {
+            final PriorityQueue<CsvReader> queue = new PriorityQueue<>(Math.max(1, inputs.size()),
+                    Comparator.comparing((CsvReader reader) -> reader.current, FINISH_ORDER));
+            for (File input : inputs) {
+                final CsvReader reader = new CsvReader(input);
+                readers.add(reader);
+                if (reader.advance()) {
+                    queue.add(reader);
+                }
+            }
+            // header is first line of file, i.e. it has been read by first advance of each reader
+            final String header = readers.stream().map(reader -> reader.scan.header).filter(Objects::nonNull).findFirst().orElse(null);
+            write(output, header, writer -> {
+                CsvReader reader;
+                while ((reader = queue.poll()) != null) {
+                    writer.println(reader.current.text);
+                    total.linesWritten++;
+                    if (reader.advance()) {
+                        queue.add(reader);
+                    }
+                }
+            });
+        } finally {
+            for (CsvReader reader : readers) {
+                reader.close();
+                total.add(reader.scan);
+            }
+        }
+        return total;
+    }
+
+    private void write(File output, String header, Consumer<PrintWriter> body) {
+        try (PrintWriter printWriter = new PrintWriter(new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.UTF_8)))) {
+            printWriter.println(header != null ? header : DEFAULT_HEADER);
+            body.accept(printWriter);
+            if (printWriter.checkError()) {
+                throw new IOException("write has failed");
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to write merged csv file " + output.getAbsolutePath() + ". ex=" + ex.getMessage(), ex);
+        }
+    }
+
+    private FileScan scan(File file) {
+        try (CsvReader reader = new CsvReader(file)) {
+            while (reader.advance()) {
+                final Line line = reader.current;
+                reader.scan.bestLines.merge(line.key, line, Line::better);
+            }
+            return reader.scan;
+        }
+    }
+
+    /**
+     * Reader of lines (test runs) of single csv file, which collects statistics of file into its {@link FileScan}.
+     */
+    private class CsvReader implements AutoCloseable {
+        private final File file;
+        private final BufferedReader reader;
+        private final FileScan scan = new FileScan();
+        private int lineNumber = 0;
+        /**
+         * Last read line; null before first and after last one.
+         */
+        private Line current;
+
+        private CsvReader(File file) {
+            this.file = file;
+            try {
+                this.reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
+            } catch (IOException ex) {
+                throw new RuntimeException("Unable to read csv file " + file.getAbsolutePath() + ". ex=" + ex.getMessage(), ex);
+            }
+        }
+
+        /**
+         * Read next line (test run) into {@link #current}.
+         *
+         * @return false at end of file
+         */
+        private boolean advance() {
+            final Line previous = current;
+            current = null;
+            try {
+                String text;
+                while ((text = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (text.isEmpty()) {
+                        continue;
+                    }
+                    if (text.startsWith(HEADER_PREFIX)) {
+                        scan.header = text;
+                        continue;
+                    }
+                    current = parse(text);
+                    break;
+                }
+            } catch (IOException ex) {
+                throw new RuntimeException("Unable to read csv file " + file.getAbsolutePath() + ". ex=" + ex.getMessage(), ex);
+            }
+            if (current == null) {
+                return false;
+            }
+            if (keepRetriedAttempts && previous != null && current.finishedMillis < previous.finishedMillis && !scan.unordered) {
+                scan.unordered = true;
+                log.warn("Csv file " + file.getAbsolutePath() + " is not ordered by time of finish (line " + lineNumber +
+                        "), merged file is not going to be ordered either.");
+            }
+            scan.linesRead++;
+            scan.endMillis = Math.max(scan.endMillis, current.finishedMillis);
+            return true;
+        }
+
+        private Line parse(String text) {
+            final String[] parts = text.split(";", -1);
+            if (parts.length < 4) {
+                throw new RuntimeException("Malformed line " + lineNumber + " in csv file " + file.getAbsolutePath() + ": " + text);
+            }
+            try {
+                final Line line = new Line(parts[0] + ";" + parts[1], text, Long.parseLong(parts[3]),
+                        !"true".equals(parts[parts.length - 1]), "skipped".equals(parts[2]));
+                if (parts.length > 4 && !parts[4].isEmpty()) {
+                    scan.startMillis = Math.min(scan.startMillis, Long.parseLong(parts[4]));
+                }
+                return line;
+            } catch (NumberFormatException ex) {
+                throw new RuntimeException("Malformed time on line " + lineNumber + " in csv file " + file.getAbsolutePath() + ": " + text, ex);
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                reader.close();
+            } catch (IOException ex) {
+                // file has been read already
+            }
+        }
+    }
+
+    private static class FileScan {
+        private final Map<String, Line> bestLines = new HashMap<>();
+        private String header;
+        private int linesRead = 0;
+        private int linesWritten = 0;
+        private long startMillis = Long.MAX_VALUE;
+        private long endMillis = 0;
+        private boolean unordered = false;
+
+        private void add(FileScan scan) {
+            header = header != null ? header : scan.header;
+            linesRead += scan.linesRead;
+            startMillis = Math.min(startMillis, scan.startMillis);
+            endMillis = Math.max(endMillis, scan.endMillis);
+        }
+    }
+
+    private static class Line {
+        private final String key;
+        private final String text;
+        private final long finishedMillis;
+        private final boolean finalAttempt;
+        private final boolean skipped;
+
+        private Line(String key, String text, long finishedMillis, boolean finalAttempt, boolean skipped) {
+            this.key = key;
+            this.text = text;
+            this.finishedMillis = finishedMillis;
+            this.finalAttempt = finalAttempt;
+            this.skipped = skipped;
+        }
+
+        private int rank() {
+            return !finalAttempt ? 0 : skipped ? 1 : 2;
+        }
+
+        private static Line better(Line a, Line b) {
+            if (a.rank() != b.rank()) {
+                return a.rank() > b.rank() ? a : b;
+            }
+            return b.finishedMillis >= a.finishedMillis ? b : a;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.jamosolutions.automator.reporters;
 
 import com.jamosolutions.automator.domain.Device;
 import com.jamosolutions.automator.domain.TestCase;
+import com.jamosolutions.automator.help.PlannedTestRun;
 import com.jamosolutions.automator.help.TestRun;
 import com.jamosolutions.automator.help.TestRunReporterListener;
 import com.jamosolutions.jamoAutomator.domain.Report;
@@ -52,6 +53,12 @@ public class CsvTestRunReporter implements TestRunReporterListener, AutoCloseabl
         this.printWriter.flush();
     }
 
+    @Override
+    public void skipPlannedTestRun(PlannedTestRun plannedTestRun, String reason) {
+        printWriter.println("" + plannedTestRun.getDevice().getName() + ";" + plannedTestRun.getTestCase().getName() + ";" + "skipped" + ";" + System.currentTimeMillis() + ";;;;;;;;false");
+        this.printWriter.flush();
+    }
+
     @Override
     public void close() {
         this.printWriter.close();
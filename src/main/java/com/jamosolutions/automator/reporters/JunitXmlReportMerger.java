@@ -0,0 +1,302 @@
+package com.jamosolutions.automator.reporters;
+
+import org.apache.maven.plugin.logging.Log;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.*;
+import javax.xml.stream.events.Attribute;
+import javax.xml.stream.events.StartElement;
+import javax.xml.stream.events.XMLEvent;
+import java.io.*;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Merge junit xml reports (written by {@link JunitXmlTestRunReporter}) of several runs or shards of suite into single
+ * report. Reports are streamed twice, so that memory does not depend on size of reports (only on number of distinct
+ * test cases):
+ * <ol>
+ * <li>all reports are scanned in parallel; kind of result (success, failure, error, skipped) and position of each
+ * <code>testcase</code> element is recorded,</li>
+ * <li>winning <code>testcase</code> elements are copied, event by event, into merged report.</li>
+ * </ol>
+ * When same test case (same <code>classname</code> and <code>name</code>) is present in more reports, executed result
+ * wins over skipped one and result of later run (see <code>timestamp</code> attribute) wins over earlier one.
+ * Totals and wall time range of merged <code>testsuite</code> are recomputed from merged test cases and from
+ * time ranges of merged reports.
+ */
+public class JunitXmlReportMerger {
+    private static final String TESTCASE = "testcase";
+    private static final String TESTSUITE = "testsuite";
+
+    private final Log log;
+    private final ExecutorService executorService;
+    private final XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+    /**
+     * @param executorService used to scan reports in parallel
+     */
+    public JunitXmlReportMerger(Log log, ExecutorService executorService) {
+        this.log = log;
+        this.executorService = executorService;
+        this.inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        this.inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * @return number of test cases in merged report
+     */
+    public int merge(List<File> reports, File output, String testSuiteName) {
+        final List<ReportScan> scans = scanAll(reports);
+        // later run wins, so that scans are applied from earliest to latest one
+        final List<ReportScan> byStart = new ArrayList<>(scans);
+        byStart.sort(Comparator.comparingLong((ReportScan scan) -> scan.startMillis).thenComparingInt(scan -> scan.index));
+        final Map<String, Winner> winners = new HashMap<>();
+        int duplicates = 0;
+        for (ReportScan scan : byStart) {
+            for (Map.Entry<String, ScannedTestCase> entry : scan.testCases.entrySet()) {
+                final Winner current = winners.get(entry.getKey());
+                if (current != null) {
+                    duplicates++;
+                    if (current.testCase.kind != Kind.SKIPPED && entry.getValue().kind == Kind.SKIPPED) {
+                        continue;
+                    }
+                }
+                winners.put(entry.getKey(), new Winner(scan.index, entry.getValue()));
+            }
+        }
+        final Map<Integer, BitSet> winningOrdinals = new HashMap<>();
+        final int[] totals = new int[Kind.values().length];
+        for (Winner winner : winners.values()) {
+            winningOrdinals.computeIfAbsent(winner.reportIndex, k -> new BitSet()).set(winner.testCase.ordinal);
+            totals[winner.testCase.kind.ordinal()]++;
+        }
+        final long startMillis = scans.stream().mapToLong(scan -> scan.startMillis).min().orElse(0);
+        final long endMillis = scans.stream().mapToLong(scan -> scan.endMillis).max().orElse(0);
+
+        final XMLEventFactory eventFactory = XMLEventFactory.newInstance();
+        try (OutputStream outputStream = new BufferedOutputStream(new FileOutputStream(output))) {
+            final XMLEventWriter writer = XMLOutputFactory.newInstance().createXMLEventWriter(outputStream, "UTF-8");
+            writer.add(eventFactory.createStartDocument("UTF-8", "1.0"));
+            final List<Attribute> attributes = new ArrayList<>();
+            attributes.add(eventFactory.createAttribute("name", testSuiteName));
+            attributes.add(eventFactory.createAttribute("tests", "" + winners.size()));
+            attributes.add(eventFactory.createAttribute("errors", "" + totals[Kind.ERROR.ordinal()]));
+            attributes.add(eventFactory.createAttribute("failures", "" + totals[Kind.FAILURE.ordinal()]));
+            attributes.add(eventFactory.createAttribute("skipped", "" + totals[Kind.SKIPPED.ordinal()]));
+            attributes.add(eventFactory.createAttribute("time", "" + (endMillis - startMillis) / 1000));
+            if (!scans.isEmpty()) {
+                attributes.add(eventFactory.createAttribute("timestamp", JunitXmlTestRunReporter.TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(startMillis).truncatedTo(ChronoUnit.SECONDS))));
+            }
+            writer.add(eventFactory.createStartElement("", "", TESTSUITE, attributes.iterator(), null));
+            for (ReportScan scan : scans) {
+                copyTestCases(scan.file, winningOrdinals.getOrDefault(scan.index, new BitSet()), writer);
+            }
+            writer.add(eventFactory.createEndElement("", "", TESTSUITE));
+            writer.add(eventFactory.createEndDocument());
+            writer.close();
+        } catch (IOException | XMLStreamException ex) {
+            throw new RuntimeException("Unable to write merged junit report " + output.getAbsolutePath() + ". ex=" + ex.getMessage(), ex);
+        }
+        log.info("Merged " + reports.size() + " junit reports into " + output.getPath() + ": " + winners.size() + " tests, " +
+                totals[Kind.FAILURE.ordinal()] + " failures, " + totals[Kind.ERROR.ordinal()] + " errors, " +
+                totals[Kind.SKIPPED.ordinal()] + " skipped, " + duplicates + " duplicate results dropped, wall time " +
+                (endMillis - startMillis) / 1000 + " seconds.");
+        return winners.size();
+    }
+
+    private List<ReportScan> scanAll(List<File> reports) {
+        final List<Callable<ReportScan>> tasks = new ArrayList<>();
+        for (int i = 0; i < reports.size(); i++) {
+            final int index = i;
+            tasks.add(() -> scan(index, reports.get(index)));
+        }
+        final List<ReportScan> scans = new ArrayList<>();
+        try {
+            for (Future<ReportScan> future : executorService.invokeAll(tasks)) {
+                scans.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Merge of junit reports has been interrupted.", ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause().getMessage(), ex.getCause());
+        }
+        return scans;
+    }
+
+    private ReportScan scan(int index, File file) {
+        final ReportScan scan = new ReportScan(index, file);
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+            final XMLEventReader reader = inputFactory.createXMLEventReader(inputStream);
+            String timestamp = null;
+            long durationMs = 0;
+            int ordinal = 0;
+            while (reader.hasNext()) {
+                final XMLEvent event = reader.nextEvent();
+                if (!event.isStartElement()) {
+                    continue;
+                }
+                final StartElement element = event.asStartElement();
+                final String name = element.getName().getLocalPart();
+                if (TESTSUITE.equals(name)) {
+                    // nested suites (testsuites root) are summed, first timestamp is used
+                    timestamp = timestamp != null ? timestamp : attribute(element, "timestamp");
+                    durationMs += parseSeconds(attribute(element, "time")) * 1000;
+                } else if (TESTCASE.equals(name)) {
+                    final String key = attribute(element, "classname") + "#" + attribute(element, "name");
+                    scan.testCases.put(key, new ScannedTestCase(ordinal++, readKind(reader)));
+                }
+            }
+            reader.close();
+            scan.setTimeRange(timestamp, durationMs, file.lastModified());
+        } catch (IOException | XMLStreamException ex) {
+            throw new RuntimeException("Unable to read junit report " + file.getAbsolutePath() + ". ex=" + ex.getMessage(), ex);
+        }
+        return scan;
+    }
+
+    /**
+     * Read content of testcase element till its end and return kind of its result.
+     */
+    private static Kind readKind(XMLEventReader reader) throws XMLStreamException {
+        Kind kind = Kind.SUCCESS;
+        int depth = 1;
+        while (depth > 0) {
+            final XMLEvent event = reader.nextEvent();
+            if (event.isStartElement()) {
+                depth++;
+                if (depth == 2 && kind == Kind.SUCCESS) {
+                    switch (event.asStartElement().getName().getLocalPart()) {
+                        case "failure":
+                            kind = Kind.FAILURE;
+                            break;
+                        case "error":
+                            kind = Kind.ERROR;
+                            break;
+                        case "skipped":
+                            kind = Kind.SKIPPED;
+                            break;
+                        default:
+                    }
+                }
+            } else if (event.isEndElement()) {
+                depth--;
+            }
+        }
+        return kind;
+    }
+
+    private void copyTestCases(File file, BitSet winningOrdinals, XMLEventWriter writer) throws IOException, XMLStreamException {
+        if (winningOrdinals.isEmpty()) {
+            return;
+        }
+        try (InputStream inputStream = new BufferedInputStream(new FileInputStream(file))) {
+            final XMLEventReader reader = inputFactory.createXMLEventReader(inputStream);
+            int ordinal = 0;
+            while (reader.hasNext()) {
+                final XMLEvent event = reader.nextEvent();
+                if (!event.isStartElement() || !TESTCASE.equals(event.asStartElement().getName().getLocalPart())) {
+                    continue;
+                }
+                final boolean copy = winningOrdinals.get(ordinal++);
+                int depth = 1;
+                if (copy) {
+                    writer.add(event);
+                }
+                while (depth > 0) {
+                    final XMLEvent inner = reader.nextEvent();
+                    if (inner.isStartElement()) {
+                        depth++;
+                    } else if (inner.isEndElement()) {
+                        depth--;
+                    }
+                    if (copy) {
+                        writer.add(inner);
+                    }
+                }
+            }
+            reader.close();
+        }
+    }
+
+    private static String attribute(StartElement element, String name) {
+        final Attribute attribute = element.getAttributeByName(new QName(name));
+        return attribute == null ? null : attribute.getValue();
+    }
+
+    private static long parseSeconds(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+        try {
+            return (long) Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    private enum Kind {
+        SUCCESS, FAILURE, ERROR, SKIPPED
+    }
+
+    private static class ScannedTestCase {
+        private final int ordinal;
+        private final Kind kind;
+
+        private ScannedTestCase(int ordinal, Kind kind) {
+            this.ordinal = ordinal;
+            this.kind = kind;
+        }
+    }
+
+    private static class Winner {
+        private final int reportIndex;
+        private final ScannedTestCase testCase;
+
+        private Winner(int reportIndex, ScannedTestCase testCase) {
+            this.reportIndex = reportIndex;
+            this.testCase = testCase;
+        }
+    }
+
+    private static class ReportScan {
+        private final int index;
+        private final File file;
+        /**
+         * Test cases by key, in order of report (last one wins, when key is repeated within report).
+         */
+        private final Map<String, ScannedTestCase> testCases = new LinkedHashMap<>();
+        private long startMillis;
+        private long endMillis;
+
+        private ReportScan(int index, File file) {
+            this.index = index;
+            this.file = file;
+        }
+
+        /**
+         * Report without timestamp (written by older version) is expected to be written at end of its run.
+         */
+        private void setTimeRange(String timestamp, long durationMs, long lastModifiedMillis) {
+            long start = lastModifiedMillis - durationMs;
+            if (timestamp != null) {
+                try {
+                    start = LocalDateTime.parse(timestamp).toInstant(ZoneOffset.UTC).toEpochMilli();
+                } catch (DateTimeParseException ex) {
+                    // not written by this plugin, stay with modification time of file
+                }
+            }
+            this.startMillis = start;
+            this.endMillis = start + durationMs;
+        }
+    }
+}
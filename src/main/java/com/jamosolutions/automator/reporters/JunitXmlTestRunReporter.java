@@ -3,6 +3,7 @@ package com.jamosolutions.automator.reporters;
 import com.jamosolutions.automator.domain.Device;
 import com.jamosolutions.automator.domain.TestCase;
 import com.jamosolutions.automator.help.ExecutionOutcome;
+import com.jamosolutions.automator.help.PlannedTestRun;
 import com.jamosolutions.automator.help.TestRun;
 import com.jamosolutions.automator.help.TestRunReporterListener;
 import com.jamosolutions.jamoAutomator.domain.Report;
@@ -21,22 +22,36 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.File;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 
 /**
- * Note thant this reporter will record only last {@link TestRun} instance for each {@link com.jamosolutions.automator.help.PlannedTestRun}
+ * Note thant this reporter will record only last {@link TestRun} instance for each {@link PlannedTestRun}
  * instance (according second parameter in {@link TestRunReporterListener#finishTestRunExecution(TestRun, boolean)})
  * notification method.
  * <p>
  * Note: time of running reports will be wall time between any (not only reported) received {@link TestRun} instances.
  * In case that first {@link TestRun} will be retried, you can see larger "time" in final report than it seems to be
- * from particular test runs reported in file.
+ * from particular test runs reported in file. Start of that wall time is written as <code>timestamp</code> attribute
+ * (UTC), so that reports of several runs can be merged (see {@link JunitXmlReportMerger}).
  */
 public class JunitXmlTestRunReporter implements TestRunReporterListener, AutoCloseable {
+    /**
+     * Format of <code>timestamp</code> attribute of <code>testsuite</code> element (time zone is not allowed by
+     * junit schema, UTC is used).
+     */
+    public static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ISO_LOCAL_DATE_TIME.withZone(ZoneOffset.UTC);
+
     private final Log log;
     private final OnlineLogTestRunExecReport onlineLogTestRunExecReport;
     private final String reportsDir;
-    private final Element testsuiteElement;
-    private final Document doc;
+    /**
+     * Document is created on first use, so that xml parser is not initialized before suite starts.
+     */
+    private Element testsuiteElement;
+    private Document doc;
 
     private String testSuiteName;
     private long earliestTestRunStartTime = Long.MAX_VALUE;
@@ -46,17 +61,30 @@ public class JunitXmlTestRunReporter implements TestRunReporterListener, AutoClo
         this.log = log;
         this.onlineLogTestRunExecReport = onlineLogTestRunExecReport;
         this.reportsDir = reportsDir;
+    }
 
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = null;
-        try {
-            docBuilder = docFactory.newDocumentBuilder();
-        } catch (ParserConfigurationException e) {
-            throw new RuntimeException("Unexpected error = " + e.getMessage(), e);
+    private Document document() {
+        if (doc == null) {
+            DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
+            DocumentBuilder docBuilder = null;
+            try {
+                docBuilder = docFactory.newDocumentBuilder();
+            } catch (ParserConfigurationException e) {
+                throw new RuntimeException("Unexpected error = " + e.getMessage(), e);
+            }
+            doc = docBuilder.newDocument();
+            testsuiteElement = doc.createElement("testsuite");
+            if (testSuiteName != null) {
+                testsuiteElement.setAttribute("name", testSuiteName);
+            }
+            doc.appendChild(testsuiteElement);
         }
-        doc = docBuilder.newDocument();
-        testsuiteElement = doc.createElement("testsuite");
-        doc.appendChild(testsuiteElement);
+        return doc;
+    }
+
+    private Element testsuiteElement() {
+        document();
+        return testsuiteElement;
     }
 
     @Override
@@ -73,7 +101,7 @@ public class JunitXmlTestRunReporter implements TestRunReporterListener, AutoClo
         switch (testRun.getExecutionOutcome()) {
             case SUCCESS:
             case FAILURE:
-                Element testcaseElementSuccOrFail = doc.createElement("testcase");
+                Element testcaseElementSuccOrFail = document().createElement("testcase");
                 long durationFromReportMs = report.getEndDate().getTime() - report.getCreationDate().getTime();
                 testcaseElementSuccOrFail.setAttribute("time", "" + (durationFromReportMs / 1000));
                 testcaseElementSuccOrFail.setAttribute("name", testCase.getName());
@@ -81,55 +109,77 @@ public class JunitXmlTestRunReporter implements TestRunReporterListener, AutoClo
                 // TODO hardcoded https://jamo-release.appspot.com !!! Use geturl somehow
                 final String linkToReport = "https://jamo-release.appspot.com" + "/index.html?reportDetail=" + report.getKeyString();
                 if (testRun.getExecutionOutcome() == ExecutionOutcome.SUCCESS) {
-                    Element systemoutElement = doc.createElement("system-out");
-                    Text okMessageDetail = doc.createTextNode("For more detail click " + linkToReport);
+                    Element systemoutElement = document().createElement("system-out");
+                    Text okMessageDetail = document().createTextNode("For more detail click " + linkToReport + "\n" + effectiveTimeoutInfo(testRun));
                     systemoutElement.appendChild(okMessageDetail);
                     testcaseElementSuccOrFail.appendChild(systemoutElement);
                 } else {
-                    Element failureElement = doc.createElement("failure");
+                    Element failureElement = document().createElement("failure");
                     failureElement.setAttribute("message", "The test case did not succeed.");
-                    Text errorMessageDetail = doc.createTextNode("For more detail click " + linkToReport);
+                    Text errorMessageDetail = document().createTextNode("For more detail click " + linkToReport + "\n" + effectiveTimeoutInfo(testRun));
                     failureElement.appendChild(errorMessageDetail);
                     testcaseElementSuccOrFail.appendChild(failureElement);
                 }
-                testsuiteElement.appendChild(testcaseElementSuccOrFail);
+                testsuiteElement().appendChild(testcaseElementSuccOrFail);
                 break;
             case TIMEOUT:
                 long durationTillNowMs = (testRun.getFinishedTimeMillis() - testRun.getExecRequestReturnedTimeMillis());
-                Element testcaseElementTimeout = doc.createElement("testcase");
+                Element testcaseElementTimeout = document().createElement("testcase");
                 testcaseElementTimeout.setAttribute("time", "" + (durationTillNowMs / 1000.0));
                 testcaseElementTimeout.setAttribute("name", testRun.getPlannedTestRun().getTestCase().getName());
                 testcaseElementTimeout.setAttribute("classname", "com.jamosolutions." + this.testSuiteName + "." + testRun.getPlannedTestRun().getDevice().getName());
-                Element timeoutErrorElement = doc.createElement("error");
+                Element timeoutErrorElement = document().createElement("error");
                 timeoutErrorElement.setAttribute(
                         "message",
-                        "could not find any report within " + (durationTillNowMs / 1000 / 60) + " minutes. You can try later " +
+                        (testRun.getLostLiveness() != null ? "test run declared lost (" + testRun.getLostLiveness() + ") after " + (durationTillNowMs / 1000) + " seconds, " : "") +
+                        "could not find any report within " + (durationTillNowMs / 1000 / 60) + " minutes (" + effectiveTimeoutInfo(testRun) + "). You can try later " +
                                 " at TODO Implement"// TODO implement generating url for getting report json (where you can find report.getKeyString() and use to retrieve actual report) // + jamoAutomatorClient.getReportUri(testRun.getExecutionId())
                 );
                 testcaseElementTimeout.appendChild(timeoutErrorElement);
-                testsuiteElement.appendChild(testcaseElementTimeout);
+                testsuiteElement().appendChild(testcaseElementTimeout);
                 break;
             case EXECERR:
-                Element testcaseElementExecErr = doc.createElement("testcase");
+                Element testcaseElementExecErr = document().createElement("testcase");
                 testcaseElementExecErr.setAttribute("time", "" + (testRun.getExecRequestReturnedTimeMillis() - testRun.getRequestStartTime()));
                 testcaseElementExecErr.setAttribute("name", testRun.getPlannedTestRun().getTestCase().getName());
                 testcaseElementExecErr.setAttribute("classname", "com.jamosolutions." + this.testSuiteName + "." + testRun.getPlannedTestRun().getDevice().getName());
-                Element execErrErrorElement = doc.createElement("error");
-                execErrErrorElement.setAttribute("message", testRun.getExecRequestResponse().getMessage());
+                Element execErrErrorElement = document().createElement("error");
+                execErrErrorElement.setAttribute("message", "[" + testRun.getExecErrorType() + "] " + testRun.getExecErrorMessage());
+                execErrErrorElement.setAttribute("type", String.valueOf(testRun.getExecErrorType()));
                 testcaseElementExecErr.appendChild(execErrErrorElement);
-                testsuiteElement.appendChild(testcaseElementExecErr);
+                testsuiteElement().appendChild(testcaseElementExecErr);
                 break;
         }
     }
 
+    private static String effectiveTimeoutInfo(TestRun testRun) {
+        return "Effective timeout: " + testRun.getEffectiveTimeout();
+    }
+
+    @Override
+    public void skipPlannedTestRun(PlannedTestRun plannedTestRun, String reason) {
+        Element testcaseElementSkipped = document().createElement("testcase");
+        testcaseElementSkipped.setAttribute("time", "0");
+        testcaseElementSkipped.setAttribute("name", plannedTestRun.getTestCase().getName());
+        testcaseElementSkipped.setAttribute("classname", "com.jamosolutions." + this.testSuiteName + "." + plannedTestRun.getDevice().getName());
+        Element skippedElement = document().createElement("skipped");
+        skippedElement.setAttribute("message", reason);
+        testcaseElementSkipped.appendChild(skippedElement);
+        testsuiteElement().appendChild(testcaseElementSkipped);
+    }
+
     @Override
     public void close() {
         OnlineLogTestRunExecReport er = this.onlineLogTestRunExecReport;
-        testsuiteElement.setAttribute("errors", "" + er.getNbOfErrors());
-        testsuiteElement.setAttribute("failures", "" + er.getNbOfTestFailures());
+        testsuiteElement().setAttribute("errors", "" + er.getNbOfErrors());
+        testsuiteElement().setAttribute("failures", "" + er.getNbOfTestFailures());
+        testsuiteElement().setAttribute("skipped", "" + er.getNbOfSkipped());
         long totalDuration = (this.latestTestRunFinishTime - this.earliestTestRunStartTime) / 1000;
         log.info("Wall time of running reports is " + totalDuration + " seconds.");
-        testsuiteElement.setAttribute("time", "" + totalDuration);
+        testsuiteElement().setAttribute("time", "" + totalDuration);
+        if (this.earliestTestRunStartTime != Long.MAX_VALUE) {
+            testsuiteElement().setAttribute("timestamp", TIMESTAMP_FORMAT.format(Instant.ofEpochMilli(this.earliestTestRunStartTime).truncatedTo(ChronoUnit.SECONDS)));
+        }
         TransformerFactory transformerFactory = TransformerFactory.newInstance();
         Transformer transformer = null;
         try {
@@ -137,7 +187,7 @@ public class JunitXmlTestRunReporter implements TestRunReporterListener, AutoClo
         } catch (TransformerConfigurationException e) {
             throw new RuntimeException("Unexpected exception " + e.getMessage(), e);
         }
-        DOMSource source = new DOMSource(doc);
+        DOMSource source = new DOMSource(document());
         File reportFile = new File(reportsDir, "TEST-com.jamoautomator." + testSuiteName + ".xml");
         StreamResult result = new StreamResult(reportFile);
         try {
@@ -148,7 +198,9 @@ public class JunitXmlTestRunReporter implements TestRunReporterListener, AutoClo
     }
 
     public void setTestSuiteName(String testSuiteName) {
-        testsuiteElement.setAttribute("name", testSuiteName);
+        if (testsuiteElement != null) {
+            testsuiteElement.setAttribute("name", testSuiteName);
+        }
         this.testSuiteName = testSuiteName;
     }
 }
@@ -2,13 +2,24 @@ package com.jamosolutions.automator.reporters;
 
 import com.jamosolutions.automator.domain.Device;
 import com.jamosolutions.automator.domain.TestCase;
+import com.jamosolutions.automator.help.AdaptiveRateLimiter;
+import com.jamosolutions.automator.help.ApiCallType;
+import com.jamosolutions.automator.help.DeviceLeaseRegistry;
+import com.jamosolutions.automator.help.ExecutionBackend;
+import com.jamosolutions.automator.help.ExecutionOutcome;
+import com.jamosolutions.automator.help.ExecutionTimeEstimator;
+import com.jamosolutions.automator.help.JamoAutomatorClient;
+import com.jamosolutions.automator.help.PlannedTestRun;
+import com.jamosolutions.automator.help.RetryMetrics;
 import com.jamosolutions.automator.help.TestOrchestrator;
 import com.jamosolutions.automator.help.TestRun;
 import com.jamosolutions.automator.help.TestRunReporterListener;
 import com.jamosolutions.jamoAutomator.domain.Report;
 import org.apache.maven.plugin.logging.Log;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.stream.Collectors;
 
 import static com.jamosolutions.automator.help.Colorizer.*;
 
@@ -24,12 +35,14 @@ public class OnlineLogTestRunExecReport implements TestRunReporterListener {
     private static final String COLOR_RETRIED = "italic";
 
     private final Log log;
+    private ExecutionTimeEstimator executionTimeEstimator = null;
 
     private int nbOfTimeouts = 0;
     private int nbOfExecErrors = 0;
     private int nbOfTestFailures = 0;
     private int nbOfSuccess = 0;
     private int nbOfRetryLater;
+    private int nbOfSkipped = 0;
 
     public OnlineLogTestRunExecReport(Log log) {
         this.log = log;
@@ -42,13 +55,13 @@ public class OnlineLogTestRunExecReport implements TestRunReporterListener {
         log.info(colorize(
                 "@|" + COLOR_SUCCESS + " Success|@ test (" + device(device) + ";" + testCase(testCase) + ")"
         ));
-        final long now = System.currentTimeMillis();
+        final long now = testRun.getClock().millis();
         final long wallDurationMs = now - testRun.getRequestStartTime();
         log.debug(
                 "Success debug info:\n" +
                         "wallDuration(our): " + wallDurationMs + "\n" +
                         "executeRequestFinishedAt(our): " + new Date(testRun.getExecRequestReturnedTimeMillis()) + "\n" +
-                        "currentTime(our): " + new Date() + "\n" +
+                        "currentTime(our): " + new Date(now) + "\n" +
                         "execution.getExecutionId: " + testRun.getExecutionId() + "\n" +
                         "getErrorsWhileGettingReport: " + testRun.getErrorsWhileGettingReport() + "\n" +
                         "report.getCreationDate: " + report.getCreationDate() + "\n" +
@@ -57,12 +70,13 @@ public class OnlineLogTestRunExecReport implements TestRunReporterListener {
                         "report.getKeyString: " + report.getKeyString() + "\n" +
                         "report.getExecutionId: " + report.getExecutionId()
         );
-        if (wallDurationMs * 3 < (testCase.getTimeout() * 60 * 1000)) {
+        if (!testRun.getEffectiveTimeout().isAdaptive() && wallDurationMs * 3 < (testCase.getTimeout() * 60 * 1000)) {
             log.info(colorize(
                     "@|yellow,bold Consider lowering timeout for testcase.|@ Test has successfully finished under less than third of its timeout time. " +
                             testCase(testCase) + ", " +
                             "timeout: @|bold " + (testCase.getTimeout() * 60 * 1000) + "|@ milliseconds, " +
-                            "actual duration: @|bold " + (wallDurationMs) + "|@ milliseconds. (Note, that timeout in configuration is in minutes.)"
+                            "actual duration: @|bold " + (wallDurationMs) + "|@ milliseconds. (Note, that timeout in configuration is in minutes. " +
+                            "You can also enable adaptiveTimeout to have timeout computed from duration history.)"
             ));
         }
     }
@@ -71,20 +85,22 @@ public class OnlineLogTestRunExecReport implements TestRunReporterListener {
         final Device device = testRun.getPlannedTestRun().getDevice();
         final TestCase testCase = testRun.getPlannedTestRun().getTestCase();
         log.warn(colorize(
-                "@|" + COLOR_TIMEOUT + " Timeout test execution|@ test (" + device(device) + ";" + testCase(testCase) + ")"
+                "@|" + COLOR_TIMEOUT + " Timeout test execution|@ test (" + device(device) + ";" + testCase(testCase) + ")" +
+                        (testRun.getLostLiveness() == null ? "" : ", declared lost by liveness check (" + testRun.getLostLiveness() + ")")
         ));
         // TODO do not use "now", instead calculate all things directly from report/testRun data!
-        final long now = System.currentTimeMillis();
+        final long now = testRun.getClock().millis();
         final long durationTillNowMs = now - testRun.getExecRequestReturnedTimeMillis();
         log.debug(
                 "Timeout debug info:\n" +
                         "wallDuration(our): " + (now - testRun.getRequestStartTime()) + "\n" +
                         "executeRequestFinishedAt(our): " + new Date(testRun.getExecRequestReturnedTimeMillis()) + "\n" +
-                        "currentTime(our): " + new Date() + "\n" +
+                        "currentTime(our): " + new Date(now) + "\n" +
                         "execution.getExecutionId: " + testRun.getExecutionId() + "\n" +
                         "getErrorsWhileGettingReport: " + testRun.getErrorsWhileGettingReport() + "\n" +
                         "durationTillNowMs(calculated): " + durationTillNowMs + "\n" +
                         "execution.getTestCase().getTimeout(): " + testCase.getTimeout() + " -> " + (60 * 1000 * testCase.getTimeout()) + "\n" +
+                        "effectiveTimeout: " + testRun.getEffectiveTimeout() + "\n" +
                         "willBeRetried: " + willBeRetried + "\n"
         );
     }
@@ -92,20 +108,19 @@ public class OnlineLogTestRunExecReport implements TestRunReporterListener {
     public void logTestRunExecError(TestRun testRun, boolean willBeRetried) {
         final Device device = testRun.getPlannedTestRun().getDevice();
         final TestCase testCase = testRun.getPlannedTestRun().getTestCase();
-        final String runResponseMsg = testRun.getExecRequestResponse() == null ?
-                "execException=" + testRun.getExecRequestException().getMessage() :
-                testRun.getExecRequestResponse().getMessage();
+        final String runResponseMsg = testRun.getExecErrorMessage();
         final long requestStartTime = testRun.getRequestStartTime();
         log.warn(colorize(
                 "@|" + COLOR_EXECERR + " error while executing|@ test (" + device(device) + ";" + testCase(testCase) + "), " +
+                        "type: @|bold " + testRun.getExecErrorType() + "|@, " +
                         "message: @|" + COLOR_EXECERR + " " + runResponseMsg + "|@"
         ));
-        final long now = System.currentTimeMillis();
+        final long now = testRun.getClock().millis();
         log.debug(
                 "executing error debug info:\n" +
                         "wallDuration(our): " + (now - requestStartTime) + "\n" +
                         "requestStartTime(our): " + requestStartTime + "\n" +
-                        "currentTime(our): " + new Date() + "\n" +
+                        "currentTime(our): " + new Date(now) + "\n" +
                         "willBeRetried: " + willBeRetried + "\n" +
                         "response:" + testRun.getExecRequestResponse()
         );
@@ -119,12 +134,12 @@ public class OnlineLogTestRunExecReport implements TestRunReporterListener {
                 "@|" + COLOR_FAILURE + " Failure test execution|@ test (" + device(device) + ";" + testCase(testCase) + "), " +
                         "reportLink: " + report.getReportUrl()
         ));
-        final long now = System.currentTimeMillis();
+        final long now = testRun.getClock().millis();
         log.debug(
                 "Failure test debug info:\n" +
                         "wallDuration(our): " + (now - testRun.getRequestStartTime()) + "\n" +
                         "executeRequestFinishedAt(our): " + new Date(testRun.getExecRequestReturnedTimeMillis()) + "\n" +
-                        "currentTime(our): " + new Date() + "\n" +
+                        "currentTime(our): " + new Date(now) + "\n" +
                         "execution.getExecutionId: " + testRun.getExecutionId() + "\n" +
                         "getErrorsWhileGettingReport: " + testRun.getErrorsWhileGettingReport() + "\n" +
                         "report.getCreationDate: " + report.getCreationDate() + "\n" +
@@ -154,6 +169,14 @@ public class OnlineLogTestRunExecReport implements TestRunReporterListener {
         return nbOfTimeouts;
     }
 
+    /**
+     * @return number of planned test runs, which have not been executed at all (suite abort, ...). These are not
+     * counted in {@link #getTotalExecutionsAttempts()}.
+     */
+    public int getNbOfSkipped() {
+        return nbOfSkipped;
+    }
+
     /**
      * Sums all executions (successfull or not). It returns sum of all four internal counters.
      *
@@ -230,6 +253,98 @@ public class OnlineLogTestRunExecReport implements TestRunReporterListener {
         ));
     }
 
+    /**
+     * Logs {@link #logSummaryReport()} together with statistics kept by given orchestrator.
+     *
+     * @param testOrchestrator orchestrator of finished suite; can be null (when suite has failed before orchestrator
+     *                         has been created), than only {@link #logSummaryReport()} is logged
+     */
+    public void logSummaryReport(TestOrchestrator testOrchestrator) {
+        this.logSummaryReport();
+        if (this.nbOfSkipped > 0) {
+            log.info(colorize("\t@|bold skipped|@ : \t@|bold " + this.nbOfSkipped + "|@\t (planned test runs which have not been executed)"));
+        }
+        if (testOrchestrator == null) {
+            return;
+        }
+        if (testOrchestrator.getAbortReason() != null) {
+            log.warn(colorize("\t@|bold,red suite has been aborted|@: " + testOrchestrator.getAbortReason()));
+        }
+        if (testOrchestrator.getConfirmedCancelsCount() > 0) {
+            log.info(colorize(
+                    "\t@|bold stopped executions|@ : @|bold " + testOrchestrator.getConfirmedCancelsCount() + "|@\t (timed out executions stopped on service side), " +
+                            "reclaimed device time: @|bold " + ExecutionTimeEstimator.formatDuration(testOrchestrator.getReclaimedDeviceTimeMs()) + "|@"
+            ));
+        }
+        for (String deviceHealthEvent : testOrchestrator.getDeviceHealthEvents()) {
+            log.info(colorize("\t@|bold device health|@ : " + deviceHealthEvent));
+        }
+        if (!testOrchestrator.getQuarantinedDevices().isEmpty()) {
+            log.warn(colorize("\t@|bold,yellow quarantined at end of suite|@ : " + testOrchestrator.getQuarantinedDevices()
+                    .stream().map(Device::getName).collect(Collectors.joining(", "))));
+        }
+        if (testOrchestrator.getCompletionWebhookReceiver() != null) {
+            log.info(colorize("\t@|bold completion callbacks|@ : @|bold " + testOrchestrator.getCompletionWebhookReceiver().getReceivedCount() +
+                    "|@\t received, rejected: @|bold " + testOrchestrator.getCompletionWebhookReceiver().getRejectedCount() + "|@"));
+        }
+        if (testOrchestrator.getStatusSyncCount() > 0) {
+            log.info(colorize("\t@|bold bulk status queries|@ : @|bold " + testOrchestrator.getStatusSyncCount() + "|@\t (each replaced report request of every running test)"));
+        }
+        if (testOrchestrator.getBatchCount() > 0) {
+            log.info(colorize("\t@|bold batches|@ : @|bold " + testOrchestrator.getBatchCount() + "|@\t run requests started @|bold " +
+                    testOrchestrator.getBatchedTestRunsCount() + "|@ tests"));
+        }
+        final DeviceLeaseRegistry deviceLeaseRegistry = testOrchestrator.getDeviceLeaseRegistry();
+        if (deviceLeaseRegistry != null && (deviceLeaseRegistry.getDeniedCount() > 0 || deviceLeaseRegistry.getStolenCount() > 0)) {
+            log.info(colorize("\t@|bold device leases|@ : @|bold " + deviceLeaseRegistry.getDeniedCount() + "|@\t dispatches postponed " +
+                    "(device used by other build), taken over from crashed builds: @|bold " + deviceLeaseRegistry.getStolenCount() + "|@"));
+        }
+        final Collection<ExecutionBackend> backends = testOrchestrator.getBackends();
+        if (backends.size() > 1) {
+            for (ExecutionBackend backend : backends) {
+                log.info(colorize(String.format(
+                        "\t@|bold backend %s|@ : @|bold %d|@ test runs (%d success, %d failure, %d exec err, %d timeout), " +
+                                "error ratio %.2f, run request latency avg %d ms, max %d ms",
+                        backend.getName(), backend.getTestRunsCount(),
+                        backend.getCount(ExecutionOutcome.SUCCESS), backend.getCount(ExecutionOutcome.FAILURE),
+                        backend.getCount(ExecutionOutcome.EXECERR), backend.getCount(ExecutionOutcome.TIMEOUT),
+                        backend.getErrorRatio(), backend.getAverageRunRequestLatencyMs(), backend.getMaxRunRequestLatencyMs()
+                )));
+                logClientSummary(backend.getJamoAutomatorClient(), "[" + backend.getName() + "] ");
+            }
+        } else {
+            logClientSummary(testOrchestrator.getJamoAutomatorClient(), "");
+        }
+    }
+
+    /**
+     * Logs retries and rate limiting of given client.
+     *
+     * @param prefix prefix of labels (name of backend, when there is more of them)
+     */
+    private void logClientSummary(JamoAutomatorClient jamoAutomatorClient, String prefix) {
+        final RetryMetrics retryMetrics = jamoAutomatorClient.getRetryMetrics();
+        if (retryMetrics.getAuthenticationRefreshes() > 0) {
+            log.info(colorize("\t@|bold " + prefix + "login refreshes|@ : @|bold " + retryMetrics.getAuthenticationRefreshes() + "|@\t (requests repeated after authentication failure)"));
+        }
+        for (ApiCallType apiCallType : ApiCallType.values()) {
+            if (retryMetrics.getRetries(apiCallType) > 0) {
+                log.info(colorize(
+                        "\t@|bold " + prefix + "retries " + apiCallType + "|@ : @|bold " + retryMetrics.getRetries(apiCallType) + "|@\t (retries of transient api errors), " +
+                                "recovered calls: @|bold " + retryMetrics.getRecovered(apiCallType) + "|@, " +
+                                "failed after retries: @|bold " + retryMetrics.getExhausted(apiCallType) + "|@"
+                ));
+            }
+            final AdaptiveRateLimiter rateLimiter = jamoAutomatorClient.getRateLimiter(apiCallType);
+            if (rateLimiter.getThrottledCount() > 0 || rateLimiter.getDecreaseCount() > 0) {
+                log.info(colorize(String.format(
+                        "\t@|bold %srate limit %s|@ : @|bold %d|@ postponed calls, rate lowered %d times due to overload (final rate %.2f per second)",
+                        prefix, apiCallType, rateLimiter.getThrottledCount(), rateLimiter.getDecreaseCount(), rateLimiter.getRatePerSecond()
+                )));
+            }
+        }
+    }
+
     @Override
     public void finishTestRunExecution(TestRun testRun, boolean isFinalRunForPlannedTestRun) {
         switch (testRun.getExecutionOutcome()) {
@@ -252,7 +367,59 @@ public class OnlineLogTestRunExecReport implements TestRunReporterListener {
         }
     }
 
+    @Override
+    public void skipPlannedTestRun(PlannedTestRun plannedTestRun, String reason) {
+        this.nbOfSkipped++;
+        log.info(colorize(
+                "@|faint Skipped|@ test (" + device(plannedTestRun.getDevice()) + ";" + testCase(plannedTestRun.getTestCase()) + "), reason: " + reason
+        ));
+    }
+
     public void logProgressReport(int waitRound, TestOrchestrator testOrchestrator) {
         this.logProgressReport(waitRound, testOrchestrator.getExecutionsToDoFlightSize(), testOrchestrator.getExecutionsInFlightSize());
+        if (this.executionTimeEstimator != null && testOrchestrator.isStillSomethingNeedToBeDone()) {
+            this.logEstimate(this.executionTimeEstimator.estimate(testOrchestrator, testOrchestrator.getClock().millis()));
+        }
+    }
+
+    /**
+     * Logs estimate of remaining time. Line starting with "ETA:" is meant to be also machine readable (for CI
+     * scripts), all values are in seconds.
+     */
+    public void logEstimate(ExecutionTimeEstimator.Estimate estimate) {
+        final ExecutionTimeEstimator.DeviceEstimate slowest = estimate.getSlowestDevice();
+        if (slowest == null) {
+            return;
+        }
+        log.info(colorize(
+                "\t@|bg_black,bold,cyan ETA|@ @|bold ~" + ExecutionTimeEstimator.formatDuration(estimate.getRemainingMs()) + "|@ remaining " +
+                        "(80% band " + ExecutionTimeEstimator.formatDuration(estimate.getRemainingLowMs()) + " - " +
+                        ExecutionTimeEstimator.formatDuration(estimate.getRemainingHighMs()) + "), " +
+                        "throughput @|bold " + String.format("%.2f", estimate.getThroughputPerMinute()) + "|@ test runs/min, " +
+                        "slowest device " + device(slowest.getDevice()) + " (" + slowest.getQueuedCount() + " queued, " +
+                        "running at " + String.format("%.2f", slowest.getThroughputFactor()) + "x of expected duration)"
+        ));
+        log.info(
+                "ETA: remainingSeconds=" + estimate.getRemainingMs() / 1000 +
+                        " lowSeconds=" + estimate.getRemainingLowMs() / 1000 +
+                        " highSeconds=" + estimate.getRemainingHighMs() / 1000 +
+                        " slowestDevice=" + slowest.getDevice().getName()
+        );
+        for (ExecutionTimeEstimator.DeviceEstimate deviceEstimate : estimate.getDeviceEstimates()) {
+            log.debug(colorize(
+                    "\tdevice " + device(deviceEstimate.getDevice()) + ": ~" + ExecutionTimeEstimator.formatDuration(deviceEstimate.getRemainingMs()) +
+                            " (" + ExecutionTimeEstimator.formatDuration(deviceEstimate.getRemainingLowMs()) + " - " +
+                            ExecutionTimeEstimator.formatDuration(deviceEstimate.getRemainingHighMs()) + "), " +
+                            deviceEstimate.getQueuedCount() + " queued"
+            ));
+        }
+    }
+
+    /**
+     * Set estimator to be used for logging of remaining time estimate in {@link #logProgressReport(int, TestOrchestrator)}.
+     * When null (default), no estimate is logged.
+     */
+    public void setExecutionTimeEstimator(ExecutionTimeEstimator executionTimeEstimator) {
+        this.executionTimeEstimator = executionTimeEstimator;
     }
 }
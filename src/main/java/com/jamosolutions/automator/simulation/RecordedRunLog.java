@@ -0,0 +1,161 @@
+package com.jamosolutions.automator.simulation;
+
+import com.jamosolutions.automator.help.ExecutionOutcome;
+import com.jamosolutions.automator.help.TestDurationHistory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.*;
+
+/**
+ * Recorded test runs of real suite execution, loaded from csv file written by
+ * {@link com.jamosolutions.automator.reporters.CsvTestRunReporter} (<code>target/testRunsRaw.csv</code>). Any other
+ * run log can be replayed, if it is converted to same (semicolon separated) format; only first six columns
+ * (<code>device;testCase;result;currentTimeMillis;getRequestStartTime;getStartTimeMillis</code>) are required.
+ * <p>
+ * Duration of finished test run is taken from report dates (<code>getCreationDate</code>, <code>getEndDate</code>
+ * columns), when they are present. Otherwise it is time from return of execution request till result has been
+ * found, which includes polling delay of recorded execution.
+ */
+public class RecordedRunLog {
+    private static final String DATE_FORMAT = "EEE MMM dd HH:mm:ss zzz yyyy";
+
+    /**
+     * Attempts in recorded order, keyed by device name and than by test case name.
+     */
+    private final Map<String, Map<String, List<RecordedTestRun>>> testRuns = new LinkedHashMap<>();
+
+    public static RecordedRunLog load(File file) {
+        final RecordedRunLog recordedRunLog = new RecordedRunLog();
+        final SimpleDateFormat dateFormat = new SimpleDateFormat(DATE_FORMAT, Locale.US);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.startsWith("device;")) {
+                    continue;
+                }
+                final String[] parts = line.split(";", -1);
+                if (parts.length < 6) {
+                    throw new RuntimeException("Malformed line " + lineNumber + " in recorded run log " + file.getAbsolutePath() + ": " + line);
+                }
+                final ExecutionOutcome outcome = parseOutcome(parts[2]);
+                if (outcome == null) {
+                    // skipped test run has not been executed at all
+                    continue;
+                }
+                final long finishedTimeMillis = Long.parseLong(parts[3]);
+                long durationMs = 0;
+                if (outcome == ExecutionOutcome.SUCCESS || outcome == ExecutionOutcome.FAILURE) {
+                    durationMs = finishedTimeMillis - Long.parseLong(parts[5]);
+                    if (parts.length > 10) {
+                        try {
+                            durationMs = dateFormat.parse(parts[10]).getTime() - dateFormat.parse(parts[9]).getTime();
+                        } catch (ParseException ex) {
+                            // no report dates, stay with duration measured by plugin
+                        }
+                    }
+                }
+                recordedRunLog.testRuns
+                        .computeIfAbsent(parts[0], k -> new LinkedHashMap<>())
+                        .computeIfAbsent(parts[1], k -> new ArrayList<>(2))
+                        .add(new RecordedTestRun(outcome, Math.max(0, durationMs), finishedTimeMillis));
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to read recorded run log " + file.getAbsolutePath(), ex);
+        } catch (NumberFormatException ex) {
+            throw new RuntimeException("Malformed time in recorded run log " + file.getAbsolutePath(), ex);
+        }
+        return recordedRunLog;
+    }
+
+    private static ExecutionOutcome parseOutcome(String result) {
+        switch (result) {
+            case "success":
+                return ExecutionOutcome.SUCCESS;
+            case "failure":
+                return ExecutionOutcome.FAILURE;
+            case "timeout":
+                return ExecutionOutcome.TIMEOUT;
+            case "execError":
+                return ExecutionOutcome.EXECERR;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return names of recorded devices, in order of first appearance in log
+     */
+    public List<String> getDeviceNames() {
+        return new ArrayList<>(testRuns.keySet());
+    }
+
+    /**
+     * @return names of test cases recorded for given device, in order of first appearance in log
+     */
+    public List<String> getTestCaseNames(String deviceName) {
+        return new ArrayList<>(testRuns.getOrDefault(deviceName, Collections.emptyMap()).keySet());
+    }
+
+    /**
+     * @return recorded attempts of given test case on given device, in recorded order
+     */
+    public List<RecordedTestRun> getAttempts(String deviceName, String testCaseName) {
+        return testRuns.getOrDefault(deviceName, Collections.emptyMap()).getOrDefault(testCaseName, Collections.emptyList());
+    }
+
+    /**
+     * Build duration history from recorded test runs, as if they have been recorded by
+     * {@link TestDurationHistory} itself.
+     *
+     * @param deviceNameMapping maps name of simulated device to name of recorded device
+     */
+    public TestDurationHistory toDurationHistory(Map<String, String> deviceNameMapping) {
+        final TestDurationHistory testDurationHistory = new TestDurationHistory(null, null);
+        for (Map.Entry<String, String> mapping : deviceNameMapping.entrySet()) {
+            for (Map.Entry<String, List<RecordedTestRun>> entry : testRuns.getOrDefault(mapping.getValue(), Collections.emptyMap()).entrySet()) {
+                for (RecordedTestRun recorded : entry.getValue()) {
+                    if (recorded.getOutcome() != ExecutionOutcome.EXECERR) {
+                        testDurationHistory.addLoadedSample(mapping.getKey(), entry.getKey(), recorded.getOutcome(), recorded.getDurationMs(), recorded.getFinishedTimeMillis());
+                    }
+                }
+            }
+        }
+        return testDurationHistory;
+    }
+
+    /**
+     * Single recorded attempt.
+     */
+    public static class RecordedTestRun {
+        private final ExecutionOutcome outcome;
+        private final long durationMs;
+        private final long finishedTimeMillis;
+
+        RecordedTestRun(ExecutionOutcome outcome, long durationMs, long finishedTimeMillis) {
+            this.outcome = outcome;
+            this.durationMs = durationMs;
+            this.finishedTimeMillis = finishedTimeMillis;
+        }
+
+        public ExecutionOutcome getOutcome() {
+            return outcome;
+        }
+
+        /**
+         * @return duration of test on device; zero for {@link ExecutionOutcome#TIMEOUT} and
+         * {@link ExecutionOutcome#EXECERR}, as these have not finished on device
+         */
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        public long getFinishedTimeMillis() {
+            return finishedTimeMillis;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.jamosolutions.automator.simulation;
+
+import com.jamosolutions.automator.domain.Credentials;
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.ResponseStringWrapper;
+import com.jamosolutions.automator.domain.TestCase;
+import com.jamosolutions.automator.help.CancelStatus;
+import com.jamosolutions.automator.help.ExecutionOutcome;
+import com.jamosolutions.automator.help.JamoAutomatorClient;
+import com.jamosolutions.automator.help.JamoRestExecutionCancelEndpoint;
+import com.jamosolutions.jamoAutomator.domain.Report;
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.*;
+
+/**
+ * {@link JamoAutomatorClient} which replays {@link RecordedRunLog} against {@link VirtualClock} instead of calling
+ * jamo automator service. Each request for execution of (device, testCase) pair takes next recorded attempt of given
+ * pair (last one is repeated, when there are more requests than recorded attempts):
+ * <ul>
+ *     <li>success/failure: report is available after recorded duration</li>
+ *     <li>timeout: report never comes</li>
+ *     <li>execError: request for execution fails</li>
+ * </ul>
+ * Bulk status query is always supported. Test cases, which have not been recorded for device, succeed immediately.
+ * All calls are counted, see
+ * {@link #getApiCallCounts()}.
+ */
+public class SimulatedJamoAutomatorClient extends JamoAutomatorClient {
+    public static final String CALL_RUN_TEST_CASE = "runTestCase";
+    public static final String CALL_GET_REPORT = "getReport";
+    public static final String CALL_GET_DEVICE_STATUS = "getDeviceStatus";
+    public static final String CALL_GET_EXECUTION_STATUS = "getExecutionStatus";
+    public static final String CALL_GET_EXECUTION_STATUSES = "getExecutionStatuses";
+    public static final String CALL_CANCEL_EXECUTION = "cancelExecution";
+    public static final String CALL_CHECK_CANCEL_EXECUTION = "checkCancelExecution";
+
+    private final VirtualClock clock;
+    private final RecordedRunLog recordedRunLog;
+    /**
+     * Map from name of simulated device to name of recorded device, which is replayed for it.
+     */
+    private final Map<String, String> deviceNameMapping;
+    private final Map<String, Integer> nextAttemptIndex = new HashMap<>();
+    private final Map<String, SimulatedExecution> executions = new HashMap<>();
+    private final Map<String, Integer> apiCallCounts = new TreeMap<>();
+    private long executionSequence = 0;
+
+    public SimulatedJamoAutomatorClient(Log log, VirtualClock clock, RecordedRunLog recordedRunLog, Map<String, String> deviceNameMapping) {
+        super(log, new Credentials(), "http://simulation.invalid");
+        this.clock = clock;
+        this.recordedRunLog = recordedRunLog;
+        this.deviceNameMapping = deviceNameMapping;
+    }
+
+    @Override
+    public ResponseStringWrapper runTestCase(Device device, TestCase testCase, String idempotencyKey) {
+        countCall(CALL_RUN_TEST_CASE);
+        final String recordedDeviceName = deviceNameMapping.getOrDefault(device.getName(), device.getName());
+        final List<RecordedRunLog.RecordedTestRun> attempts = recordedRunLog.getAttempts(recordedDeviceName, testCase.getName());
+        final String key = device.getName() + ";" + testCase.getName();
+        final int attemptIndex = nextAttemptIndex.merge(key, 1, Integer::sum) - 1;
+        final RecordedRunLog.RecordedTestRun attempt = attempts.isEmpty() ? null : attempts.get(Math.min(attemptIndex, attempts.size() - 1));
+        if (attempt != null && attempt.getOutcome() == ExecutionOutcome.EXECERR) {
+            return ResponseStringWrapper.wrapIt(false, "simulated execution error");
+        }
+        final String executionId = "sim-" + (executionSequence++);
+        final long startMillis = clock.millis();
+        if (attempt == null) {
+            executions.put(executionId, new SimulatedExecution(startMillis, startMillis, 0L));
+        } else if (attempt.getOutcome() == ExecutionOutcome.TIMEOUT) {
+            executions.put(executionId, new SimulatedExecution(startMillis, Long.MAX_VALUE, 0L));
+        } else {
+            final long status = attempt.getOutcome() == ExecutionOutcome.SUCCESS ? 0L : 1L;
+            executions.put(executionId, new SimulatedExecution(startMillis, startMillis + attempt.getDurationMs(), status));
+        }
+        return ResponseStringWrapper.wrapIt(true, executionId);
+    }
+
+    @Override
+    public Report getReport(String executionId) {
+        countCall(CALL_GET_REPORT);
+        final SimulatedExecution execution = executions.get(executionId);
+        if (execution == null || execution.stopped || clock.millis() < execution.finishMillis) {
+            return null;
+        }
+        final Report report = new Report();
+        report.setExecutionId(executionId);
+        report.setStatus(execution.status);
+        report.setCreationDate(new Date(execution.startMillis));
+        report.setEndDate(new Date(execution.finishMillis));
+        return report;
+    }
+
+    @Override
+    public ResponseStringWrapper getDeviceStatus(Device device) {
+        countCall(CALL_GET_DEVICE_STATUS);
+        return ResponseStringWrapper.wrapIt("ONLINE", true);
+    }
+
+    @Override
+    public ResponseStringWrapper getExecutionStatus(String executionId) {
+        countCall(CALL_GET_EXECUTION_STATUS);
+        return ResponseStringWrapper.wrapIt(executions.containsKey(executionId) ? "RUNNING" : EXECUTION_STATUS_UNKNOWN, true);
+    }
+
+    @Override
+    public Map<String, String> getExecutionStatuses(Collection<String> executionIds, long changedSinceMillis) {
+        countCall(CALL_GET_EXECUTION_STATUSES);
+        final Map<String, String> statuses = new HashMap<>();
+        for (String executionId : executionIds) {
+            final SimulatedExecution execution = executions.get(executionId);
+            if (execution == null) {
+                statuses.put(executionId, EXECUTION_STATUS_UNKNOWN);
+            } else if (execution.stopped || clock.millis() >= execution.finishMillis) {
+                statuses.put(executionId, JamoRestExecutionCancelEndpoint.EXECUTION_STATUS_FINISHED);
+            } else {
+                statuses.put(executionId, EXECUTION_STATUS_RUNNING);
+            }
+        }
+        return statuses;
+    }
+
+    @Override
+    public CancelStatus cancelExecution(String executionId) {
+        countCall(CALL_CANCEL_EXECUTION);
+        final SimulatedExecution execution = executions.get(executionId);
+        if (execution == null) {
+            return CancelStatus.FAILED;
+        }
+        execution.stopped = true;
+        return CancelStatus.CONFIRMED;
+    }
+
+    @Override
+    public CancelStatus checkCancelExecution(String executionId) {
+        countCall(CALL_CHECK_CANCEL_EXECUTION);
+        return CancelStatus.CONFIRMED;
+    }
+
+    private void countCall(String call) {
+        apiCallCounts.merge(call, 1, Integer::sum);
+    }
+
+    /**
+     * @return number of calls of each simulated endpoint, keyed by name of client method
+     */
+    public Map<String, Integer> getApiCallCounts() {
+        return Collections.unmodifiableMap(apiCallCounts);
+    }
+
+    private static class SimulatedExecution {
+        private final long startMillis;
+        private final long finishMillis;
+        private final long status;
+        private boolean stopped = false;
+
+        private SimulatedExecution(long startMillis, long finishMillis, long status) {
+            this.startMillis = startMillis;
+            this.finishMillis = finishMillis;
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.jamosolutions.automator.simulation;
+
+import org.apache.maven.plugin.logging.Log;
+
+/**
+ * Log for components driven by simulation. Simulation replays whole suite in milliseconds, so only errors are passed
+ * to delegate log, everything else is dropped.
+ */
+class SimulationLog implements Log {
+    private final Log delegate;
+
+    SimulationLog(Log delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public boolean isDebugEnabled() {
+        return false;
+    }
+
+    @Override
+    public void debug(CharSequence content) {
+    }
+
+    @Override
+    public void debug(CharSequence content, Throwable error) {
+    }
+
+    @Override
+    public void debug(Throwable error) {
+    }
+
+    @Override
+    public boolean isInfoEnabled() {
+        return false;
+    }
+
+    @Override
+    public void info(CharSequence content) {
+    }
+
+    @Override
+    public void info(CharSequence content, Throwable error) {
+    }
+
+    @Override
+    public void info(Throwable error) {
+    }
+
+    @Override
+    public boolean isWarnEnabled() {
+        return false;
+    }
+
+    @Override
+    public void warn(CharSequence content) {
+    }
+
+    @Override
+    public void warn(CharSequence content, Throwable error) {
+    }
+
+    @Override
+    public void warn(Throwable error) {
+    }
+
+    @Override
+    public boolean isErrorEnabled() {
+        return delegate.isErrorEnabled();
+    }
+
+    @Override
+    public void error(CharSequence content) {
+        delegate.error(content);
+    }
+
+    @Override
+    public void error(CharSequence content, Throwable error) {
+        delegate.error(content, error);
+    }
+
+    @Override
+    public void error(Throwable error) {
+        delegate.error(error);
+    }
+}
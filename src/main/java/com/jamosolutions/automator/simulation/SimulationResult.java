@@ -0,0 +1,83 @@
+package com.jamosolutions.automator.simulation;
+
+import java.util.Map;
+
+/**
+ * Result of single simulated suite execution.
+ */
+public class SimulationResult {
+    private final SimulationScenario scenario;
+    private final int deviceCount;
+    private final long makespanMs;
+    private final long busyDeviceTimeMs;
+    private final int testRunsCount;
+    private final int unsuccessfulCount;
+    private final Map<String, Integer> apiCallCounts;
+    private final long wallTimeMs;
+
+    SimulationResult(SimulationScenario scenario, int deviceCount, long makespanMs, long busyDeviceTimeMs, int testRunsCount, int unsuccessfulCount, Map<String, Integer> apiCallCounts, long wallTimeMs) {
+        this.scenario = scenario;
+        this.deviceCount = deviceCount;
+        this.makespanMs = makespanMs;
+        this.busyDeviceTimeMs = busyDeviceTimeMs;
+        this.testRunsCount = testRunsCount;
+        this.unsuccessfulCount = unsuccessfulCount;
+        this.apiCallCounts = apiCallCounts;
+        this.wallTimeMs = wallTimeMs;
+    }
+
+    public SimulationScenario getScenario() {
+        return scenario;
+    }
+
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    /**
+     * @return virtual time from start of suite till last test run has finished
+     */
+    public long getMakespanMs() {
+        return makespanMs;
+    }
+
+    /**
+     * @return ratio of time, when devices have been running some test, and total available device time
+     * (<code>deviceCount * makespan</code>)
+     */
+    public double getDeviceUtilization() {
+        if (deviceCount == 0 || makespanMs == 0) {
+            return 0;
+        }
+        return (double) busyDeviceTimeMs / ((double) deviceCount * makespanMs);
+    }
+
+    /**
+     * @return number of finished test runs, including retests
+     */
+    public int getTestRunsCount() {
+        return testRunsCount;
+    }
+
+    /**
+     * @return number of planned test runs, which have not finished with success (after all retests)
+     */
+    public int getUnsuccessfulCount() {
+        return unsuccessfulCount;
+    }
+
+    public Map<String, Integer> getApiCallCounts() {
+        return apiCallCounts;
+    }
+
+    public int getTotalApiCalls() {
+        return apiCallCounts.values().stream().mapToInt(Integer::intValue).sum();
+    }
+
+    /**
+     * @return real time spent by simulation
+     */
+    public long getWallTimeMs() {
+        return wallTimeMs;
+    }
+}
@@ -0,0 +1,80 @@
+package com.jamosolutions.automator.simulation;
+
+import com.jamosolutions.automator.help.ExecutionOutcome;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Configuration of single simulated suite execution. See {@link SuiteSimulator}.
+ */
+public class SimulationScenario {
+    private final String schedulingPolicy;
+    private final int timeoutMinutes;
+    private final long pollIntervalMs;
+    private final int deviceCount;
+    private final int retestCount;
+    private final boolean cancelTimedOutExecutions;
+    private final Map<ExecutionOutcome, Long> retryDelaysMs;
+
+    /**
+     * @param schedulingPolicy name of scheduling policy, see
+     *                         {@link com.jamosolutions.automator.help.SchedulingPolicy#byName}
+     * @param timeoutMinutes   timeout of all test cases in minutes; zero means timeout from descriptor
+     * @param pollIntervalMs   time between two orchestration rounds
+     * @param deviceCount      number of simulated devices; zero means same devices as recorded. When it is higher than
+     *                         number of recorded devices, recorded devices are cloned (round robin)
+     * @param retestCount      how many times can be failed test run retested
+     * @param cancelTimedOutExecutions same as <code>cancelTimedOutExecutions</code> of "run" goal
+     * @param retryDelaysMs    delay before first retry for each outcome (as <code>retryDelay*</code> parameters of
+     *                         "run" goal); missing outcome means immediate retry
+     */
+    public SimulationScenario(String schedulingPolicy, int timeoutMinutes, long pollIntervalMs, int deviceCount, int retestCount,
+                              boolean cancelTimedOutExecutions, Map<ExecutionOutcome, Long> retryDelaysMs) {
+        this.schedulingPolicy = schedulingPolicy;
+        this.timeoutMinutes = timeoutMinutes;
+        this.pollIntervalMs = pollIntervalMs;
+        this.deviceCount = deviceCount;
+        this.retestCount = retestCount;
+        this.cancelTimedOutExecutions = cancelTimedOutExecutions;
+        this.retryDelaysMs = new EnumMap<>(ExecutionOutcome.class);
+        this.retryDelaysMs.putAll(retryDelaysMs);
+    }
+
+    public String getSchedulingPolicy() {
+        return schedulingPolicy;
+    }
+
+    public int getTimeoutMinutes() {
+        return timeoutMinutes;
+    }
+
+    public long getPollIntervalMs() {
+        return pollIntervalMs;
+    }
+
+    public int getDeviceCount() {
+        return deviceCount;
+    }
+
+    public int getRetestCount() {
+        return retestCount;
+    }
+
+    public boolean isCancelTimedOutExecutions() {
+        return cancelTimedOutExecutions;
+    }
+
+    public Map<ExecutionOutcome, Long> getRetryDelaysMs() {
+        return retryDelaysMs;
+    }
+
+    @Override
+    public String toString() {
+        return "policy=" + schedulingPolicy +
+                " timeout=" + (timeoutMinutes == 0 ? "descriptor" : timeoutMinutes + "m") +
+                " poll=" + pollIntervalMs / 1000 + "s" +
+                " devices=" + (deviceCount == 0 ? "recorded" : String.valueOf(deviceCount)) +
+                (cancelTimedOutExecutions ? " cancel=on" : "");
+    }
+}
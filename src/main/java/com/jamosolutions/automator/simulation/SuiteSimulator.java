@@ -0,0 +1,144 @@
+package com.jamosolutions.automator.simulation;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import com.jamosolutions.automator.help.*;
+import org.apache.maven.plugin.logging.Log;
+
+import java.util.*;
+
+/**
+ * Offline simulator of suite execution. It replays {@link RecordedRunLog} by driving real {@link TestOrchestrator}
+ * against {@link SimulatedJamoAutomatorClient} and {@link VirtualClock}. Each event of simulation is single
+ * orchestration round ({@link TestOrchestrator#executeRound()}); virtual clock is moved by poll interval between
+ * rounds, so that number of api calls is same as in real execution, but no wall time is spent waiting.
+ * <p>
+ * Duration history for scheduling policies is built from recorded log itself.
+ */
+public class SuiteSimulator {
+    /**
+     * Guard against scenario, which would never finish (for example test, which never reports, without timeout).
+     */
+    public static final long MAX_SIMULATED_TIME_MS = 7L * 24 * 60 * 60 * 1000;
+
+    private final Log log;
+    private final RecordedRunLog recordedRunLog;
+    private final Map<String, TestCase> testCaseTemplates;
+
+    /**
+     * @param log               log for errors of simulated components (everything else is muted)
+     * @param recordedRunLog    recorded run to replay
+     * @param testCaseTemplates test cases from descriptor, keyed by name. Timeout, priority, deadline and tags are
+     *                          taken from them. Test cases missing here use defaults of {@link TestCase}.
+     */
+    public SuiteSimulator(Log log, RecordedRunLog recordedRunLog, Map<String, TestCase> testCaseTemplates) {
+        this.log = log;
+        this.recordedRunLog = recordedRunLog;
+        this.testCaseTemplates = testCaseTemplates;
+    }
+
+    public SimulationResult simulate(SimulationScenario scenario) {
+        final long wallStartMillis = System.currentTimeMillis();
+        final SimulationLog simulationLog = new SimulationLog(log);
+        final VirtualClock clock = new VirtualClock(0);
+        final Map<String, String> deviceNameMapping = mapDevices(scenario.getDeviceCount());
+        final SimulatedJamoAutomatorClient client = new SimulatedJamoAutomatorClient(simulationLog, clock, recordedRunLog, deviceNameMapping);
+        final TestDurationHistory testDurationHistory = recordedRunLog.toDurationHistory(deviceNameMapping);
+
+        final TestOrchestrator testOrchestrator = new TestOrchestrator(client, simulationLog, scenario.getRetestCount());
+        testOrchestrator.setClock(clock);
+        testOrchestrator.setSchedulingPolicy(SchedulingPolicy.byName(
+                scenario.getSchedulingPolicy(),
+                new ExecutionTimeEstimator(testDurationHistory),
+                testDurationHistory
+        ));
+        testOrchestrator.setCancelTimedOutExecutions(scenario.isCancelTimedOutExecutions(), 2 * 60 * 1000);
+        // without jitter, so that compared scenarios are reproducible
+        testOrchestrator.setRetryBackoff(new RetryBackoffPolicy(scenario.getRetryDelaysMs(), 0), RetryPriority.POLICY);
+        final int[] unsuccessfulCount = {0};
+        testOrchestrator.getTestRunReporterListeners().add((testRun, isFinalRunForPlannedTestRun) -> {
+            if (isFinalRunForPlannedTestRun && testRun.getExecutionOutcome() != ExecutionOutcome.SUCCESS) {
+                unsuccessfulCount[0]++;
+            }
+        });
+
+        for (Map.Entry<String, String> mapping : deviceNameMapping.entrySet()) {
+            final Device device = new Device();
+            device.setName(mapping.getKey());
+            for (String testCaseName : recordedRunLog.getTestCaseNames(mapping.getValue())) {
+                final TestCase testCase = testCaseFor(testCaseName, scenario);
+                device.getTestCases().add(testCase);
+                testOrchestrator.addTestForExecution(new PlannedTestRun(device, testCase));
+            }
+        }
+
+        final long startMillis = clock.millis();
+        while (testOrchestrator.isStillSomethingNeedToBeDone()) {
+            testOrchestrator.executeRound();
+            if (!testOrchestrator.isStillSomethingNeedToBeDone()) {
+                break;
+            }
+            clock.advance(scenario.getPollIntervalMs());
+            if (clock.millis() - startMillis > MAX_SIMULATED_TIME_MS) {
+                throw new RuntimeException("Simulation of scenario (" + scenario + ") has not finished within " +
+                        MAX_SIMULATED_TIME_MS / 3600000 + " hours of simulated time.");
+            }
+        }
+
+        long lastFinishedMillis = startMillis;
+        long busyDeviceTimeMs = 0;
+        int testRunsCount = 0;
+        for (Device device : testOrchestrator.getDevices()) {
+            for (TestRun testRun : testOrchestrator.getFinishedTestRuns(device)) {
+                lastFinishedMillis = Math.max(lastFinishedMillis, testRun.getFinishedTimeMillis());
+                busyDeviceTimeMs += testRun.getFinishedTimeMillis() - testRun.getRequestStartTime();
+                testRunsCount++;
+            }
+        }
+        return new SimulationResult(
+                scenario,
+                deviceNameMapping.size(),
+                lastFinishedMillis - startMillis,
+                busyDeviceTimeMs,
+                testRunsCount,
+                unsuccessfulCount[0],
+                new TreeMap<>(client.getApiCallCounts()),
+                System.currentTimeMillis() - wallStartMillis
+        );
+    }
+
+    /**
+     * @return map from name of simulated device to name of recorded device
+     */
+    private Map<String, String> mapDevices(int deviceCount) {
+        final List<String> recordedDeviceNames = recordedRunLog.getDeviceNames();
+        final Map<String, String> mapping = new LinkedHashMap<>();
+        if (recordedDeviceNames.isEmpty()) {
+            return mapping;
+        }
+        final int count = deviceCount <= 0 ? recordedDeviceNames.size() : deviceCount;
+        for (int i = 0; i < count; i++) {
+            final String recordedDeviceName = recordedDeviceNames.get(i % recordedDeviceNames.size());
+            final int cloneNumber = i / recordedDeviceNames.size();
+            mapping.put(cloneNumber == 0 ? recordedDeviceName : recordedDeviceName + "#" + (cloneNumber + 1), recordedDeviceName);
+        }
+        return mapping;
+    }
+
+    private TestCase testCaseFor(String testCaseName, SimulationScenario scenario) {
+        final TestCase testCase = new TestCase();
+        testCase.setName(testCaseName);
+        final TestCase template = testCaseTemplates.get(testCaseName);
+        if (template != null) {
+            testCase.setSpecification(template.getSpecification());
+            testCase.setTimeout(template.getTimeout());
+            testCase.setPriority(template.getPriority());
+            testCase.setDeadline(template.getDeadline());
+            testCase.setTags(template.getTags());
+        }
+        if (scenario.getTimeoutMinutes() > 0) {
+            testCase.setTimeout(scenario.getTimeoutMinutes());
+        }
+        return testCase;
+    }
+}
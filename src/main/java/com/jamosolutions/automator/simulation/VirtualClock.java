@@ -0,0 +1,46 @@
+package com.jamosolutions.automator.simulation;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+/**
+ * Clock which does move only when {@link #advance(long)} is called. Used to drive
+ * {@link com.jamosolutions.automator.help.TestOrchestrator} in simulation, so that hours of suite execution take
+ * milliseconds of wall time.
+ */
+public class VirtualClock extends Clock {
+    private long millis;
+
+    public VirtualClock(long startMillis) {
+        this.millis = startMillis;
+    }
+
+    public void advance(long durationMs) {
+        if (durationMs < 0) {
+            throw new RuntimeException("Virtual clock can not go back in time! durationMs=" + durationMs);
+        }
+        this.millis += durationMs;
+    }
+
+    @Override
+    public long millis() {
+        return millis;
+    }
+
+    @Override
+    public Instant instant() {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException("Virtual clock is always in UTC.");
+    }
+}
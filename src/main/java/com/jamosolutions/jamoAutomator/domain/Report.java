@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 
 import java.util.Date;
+import java.util.List;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Report {
@@ -16,6 +17,8 @@ public class Report {
 	private Boolean jamoVersionUpToDate = Boolean.TRUE;
 	private String message;
 	private String executionId;
+	private String testCaseName;
+	private List<Report> testCaseReports;
 
 	private String baseUrl = "https://jamo-release.appspot.com";
 
@@ -93,6 +96,28 @@ public class Report {
 		this.executionId = executionId;
 	}
 
+	/**
+	 * @return name of test case; filled in reports from {@link #getTestCaseReports()}
+	 */
+	public String getTestCaseName() {
+		return testCaseName;
+	}
+
+	public void setTestCaseName(String testCaseName) {
+		this.testCaseName = testCaseName;
+	}
+
+	/**
+	 * @return reports of single test cases, when report is for batch of test cases; null otherwise
+	 */
+	public List<Report> getTestCaseReports() {
+		return testCaseReports;
+	}
+
+	public void setTestCaseReports(List<Report> testCaseReports) {
+		this.testCaseReports = testCaseReports;
+	}
+
 	public String getReportUrl() {
 		final String linkToReport = this.baseUrl + "/index.html?reportDetail=" + this.getKeyString();
 		return linkToReport;
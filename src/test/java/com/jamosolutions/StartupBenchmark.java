@@ -0,0 +1,122 @@
+package com.jamosolutions;
+
+import com.jamosolutions.automator.help.StubJamoAutomatorServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures startup of suite as time from start of process to first http request received by jamo automator service
+ * (embedded {@link StubJamoAutomatorServer}), for "run" goal executed by maven and for command line launcher with and
+ * without class data sharing archive. Usage:
+ * <pre>
+ * StartupBenchmark [--runs=5] [--cli=target/...-cli/.../bin/jamo] [--mvn=mvn] [--plugin=groupId:artifactId:version]
+ * </pre>
+ * Maven variant needs plugin installed in local repository (<code>mvn install</code>), launcher variants need
+ * <code>mvn -Pcli package</code>. Variant without <code>--cli</code> (or <code>--mvn=</code>) is not measured. Each
+ * variant is launched once before measured runs, so that class data sharing archive is created and plugin is resolved.
+ */
+public class StartupBenchmark {
+    private static final long FIRST_REQUEST_TIMEOUT_MS = 5 * 60 * 1000L;
+
+    public static void main(String[] args) throws Exception {
+        int runs = 5;
+        String cli = null;
+        String mvn = "mvn";
+        String plugin = "com.jamosolutions:jamoautomator-maven-plugin:1.0.9-SNAPSHOT";
+        for (String arg : args) {
+            if (arg.startsWith("--runs=")) {
+                runs = Integer.parseInt(arg.substring("--runs=".length()));
+            } else if (arg.startsWith("--cli=")) {
+                cli = new File(arg.substring("--cli=".length())).getAbsolutePath();
+            } else if (arg.startsWith("--mvn=")) {
+                mvn = arg.substring("--mvn=".length());
+            } else if (arg.startsWith("--plugin=")) {
+                plugin = arg.substring("--plugin=".length());
+            } else {
+                throw new IllegalArgumentException("Unknown argument " + arg);
+            }
+        }
+
+        final Map<String, List<Long>> results = new LinkedHashMap<>();
+        if (!mvn.isEmpty()) {
+            results.put("mvn " + plugin + ":run", measure(runs, Arrays.asList(mvn, "-B", "-q", plugin + ":run", "-Dsuite=stub"), Collections.emptyMap()));
+        }
+        if (cli != null) {
+            results.put("jamo (JAMO_CDS=off)", measure(runs, Arrays.asList(cli, "src/main/resources/stub.xml"), Collections.singletonMap("JAMO_CDS", "off")));
+            results.put("jamo (AppCDS)", measure(runs, Arrays.asList(cli, "src/main/resources/stub.xml"), Collections.emptyMap()));
+        }
+
+        System.out.println();
+        System.out.println(String.format("%-70s %8s %8s %8s", "time to first http request [ms]", "min", "median", "max"));
+        for (Map.Entry<String, List<Long>> result : results.entrySet()) {
+            final List<Long> times = result.getValue();
+            Collections.sort(times);
+            System.out.println(String.format("%-70s %8d %8d %8d", result.getKey(), times.get(0), times.get(times.size() / 2), times.get(times.size() - 1)));
+        }
+    }
+
+    /**
+     * @return time to first request of each measured run
+     */
+    private static List<Long> measure(int runs, List<String> command, Map<String, String> environment) throws IOException, InterruptedException {
+        final List<Long> times = new ArrayList<>();
+        // first launch creates archive, resolves plugin, ...
+        System.out.println(String.join(" ", command) + " " + environment + ": warm up");
+        launch(command, environment, true);
+        for (int run = 1; run <= runs; run++) {
+            final long millis = launch(command, environment, false);
+            System.out.println(String.join(" ", command) + " " + environment + ": run " + run + " first request after " + millis + " ms");
+            times.add(millis);
+        }
+        return times;
+    }
+
+    /**
+     * Launch command in temporary project with descriptor of single test and wait for its first request.
+     *
+     * @param waitForExit wait till process finishes, otherwise it is killed after first request
+     */
+    private static long launch(List<String> command, Map<String, String> environment, boolean waitForExit) throws IOException, InterruptedException {
+        final Path projectDir = Files.createTempDirectory("jamo-startup");
+        try (StubJamoAutomatorServer server = StubJamoAutomatorServer.start(300)) {
+            Files.createDirectories(projectDir.resolve("src/main/resources"));
+            JamoAutomatorCli.writeStubDescriptor(projectDir.resolve("src/main/resources/stub.xml").toFile(), server.getUrl(), 1);
+            Files.write(projectDir.resolve("pom.xml"), ("<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n" +
+                    "  <modelVersion>4.0.0</modelVersion>\n" +
+                    "  <groupId>benchmark</groupId>\n" +
+                    "  <artifactId>startup</artifactId>\n" +
+                    "  <version>1</version>\n" +
+                    "  <packaging>pom</packaging>\n" +
+                    "</project>\n").getBytes(StandardCharsets.UTF_8));
+            final ProcessBuilder processBuilder = new ProcessBuilder(command)
+                    .directory(projectDir.toFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(projectDir.resolve("output.log").toFile());
+            processBuilder.environment().putAll(environment);
+            final long startNanos = System.nanoTime();
+            final Process process = processBuilder.start();
+            final long firstRequestNanos = server.awaitFirstRequestNanos(FIRST_REQUEST_TIMEOUT_MS);
+            if (waitForExit) {
+                process.waitFor(FIRST_REQUEST_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            }
+            process.destroyForcibly().waitFor();
+            if (firstRequestNanos < 0) {
+                throw new RuntimeException("There has been no request from " + command + ", see " + projectDir.resolve("output.log") + ":\n" +
+                        new String(Files.readAllBytes(projectDir.resolve("output.log")), StandardCharsets.UTF_8));
+            }
+            JamoAutomatorCli.deleteRecursively(projectDir);
+            return TimeUnit.NANOSECONDS.toMillis(firstRequestNanos - startNanos);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.jamosolutions.automator.help;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompletionWebhookReceiverTest {
+    private CompletionWebhookReceiver receiver;
+
+    @BeforeEach
+    void setUp() {
+        receiver = CompletionWebhookReceiver.start(new SystemStreamLog(), "127.0.0.1", 0, "127.0.0.1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        receiver.close();
+    }
+
+    private static int post(String url, String body) throws IOException {
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream output = connection.getOutputStream()) {
+            output.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        final int status = connection.getResponseCode();
+        connection.disconnect();
+        return status;
+    }
+
+    private String urlWithoutToken() {
+        final String callbackUrl = receiver.getCallbackUrl();
+        return callbackUrl.substring(0, callbackUrl.indexOf('?'));
+    }
+
+    @Test
+    void callbackWithoutValidTokenIsRejected() throws IOException {
+        assertEquals(403, post(urlWithoutToken(), "{\"executionId\": \"e1\"}"));
+        assertEquals(403, post(urlWithoutToken() + "?token=guessed", "{\"executionId\": \"e1\"}"));
+        assertEquals(403, post(urlWithoutToken() + "?token=guessed&executionId=e1", ""));
+
+        assertEquals(3, receiver.getRejectedCount());
+        assertEquals(0, receiver.getReceivedCount());
+        assertTrue(receiver.drainCompletedExecutionIds().isEmpty());
+    }
+
+    @Test
+    void callbackWithTokenIsAccepted() throws IOException, InterruptedException {
+        assertEquals(204, post(receiver.getCallbackUrl(), "{\"executionId\": \"e1\"}"));
+        assertEquals(204, post(receiver.getCallbackUrl() + "&executionId=e2", ""));
+        assertEquals(400, post(receiver.getCallbackUrl(), "{}"));
+
+        assertTrue(receiver.awaitCallback(1000));
+        assertEquals(2, receiver.getReceivedCount());
+        assertEquals(1, receiver.getRejectedCount());
+        final List<String> executionIds = receiver.drainCompletedExecutionIds();
+        Collections.sort(executionIds);
+        assertEquals(Arrays.asList("e1", "e2"), executionIds);
+    }
+}
@@ -0,0 +1,57 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.ResponseStringWrapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ExecErrorTypeTest {
+    @Test
+    void missingTestIsNotMistakenForOfflineDevice() {
+        assertEquals(ExecErrorType.TEST_NOT_FOUND, ExecErrorType.classifyMessage("Test X not found on device Y"));
+        assertEquals(ExecErrorType.TEST_NOT_FOUND, ExecErrorType.classifyMessage("Specification spec1 does not exist for device Y"));
+    }
+
+    @Test
+    void testNamedLikeAuthenticationIsNotMistakenForAuthentication() {
+        assertEquals(ExecErrorType.TEST_NOT_FOUND, ExecErrorType.classifyMessage("loginTest not found"));
+        assertEquals(ExecErrorType.TEST_NOT_FOUND, ExecErrorType.classifyMessage("Test refreshTokenTest does not exist"));
+        assertEquals(ExecErrorType.UNKNOWN, ExecErrorType.classifyMessage("loginTest has crashed"));
+    }
+
+    @Test
+    void authenticationIsRecognizedByWholePhrases() {
+        assertEquals(ExecErrorType.AUTHENTICATION, ExecErrorType.classifyMessage("Invalid token"));
+        assertEquals(ExecErrorType.AUTHENTICATION, ExecErrorType.classifyMessage("Token expired, please log in again"));
+        assertEquals(ExecErrorType.AUTHENTICATION, ExecErrorType.classifyMessage("Unauthorized"));
+        assertEquals(ExecErrorType.AUTHENTICATION, ExecErrorType.classifyMessage("HTTP 401"));
+        assertEquals(ExecErrorType.UNKNOWN, ExecErrorType.classifyMessage("tokenizer has failed"));
+    }
+
+    @Test
+    void offlineOrMissingDeviceIsRecognized() {
+        assertEquals(ExecErrorType.DEVICE_OFFLINE, ExecErrorType.classifyMessage("Device Y is offline"));
+        assertEquals(ExecErrorType.DEVICE_OFFLINE, ExecErrorType.classifyMessage("Device testDevice not found"));
+        assertEquals(ExecErrorType.DEVICE_OFFLINE, ExecErrorType.classifyMessage("Unknown device Y for test X"));
+        assertEquals(ExecErrorType.DEVICE_OFFLINE, ExecErrorType.classifyMessage("Device Y is busy"));
+    }
+
+    @Test
+    void unsuccessfulResponseIsClassifiedByMessageAndData() {
+        final ResponseStringWrapper response = new ResponseStringWrapper();
+        response.setSuccess(false);
+        response.setMessage("Test X not found on device Y");
+        assertEquals(ExecErrorType.TEST_NOT_FOUND, ExecErrorType.classify(response, null));
+        assertEquals(ExecErrorType.UNKNOWN, ExecErrorType.classify(null, null));
+    }
+
+    @Test
+    void exceptionIsClassifiedByStatus() {
+        assertEquals(ExecErrorType.AUTHENTICATION, ExecErrorType.classify(null, new HttpClientErrorException(HttpStatus.UNAUTHORIZED)));
+        assertEquals(ExecErrorType.AUTHENTICATION, ExecErrorType.classify(null, new HttpClientErrorException(HttpStatus.FORBIDDEN)));
+        assertEquals(ExecErrorType.SERVER_ERROR, ExecErrorType.classify(null, new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR)));
+    }
+}
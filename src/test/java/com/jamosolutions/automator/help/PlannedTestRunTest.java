@@ -0,0 +1,27 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class PlannedTestRunTest {
+    @Test
+    void transientRetryRepeatsRunRequestWithSameIdempotencyKey() {
+        final Device device = new Device();
+        device.setName("device1");
+        final TestCase testCase = new TestCase();
+        testCase.setName("test1");
+        final PlannedTestRun plannedTestRun = new PlannedTestRun(device, testCase);
+
+        final PlannedTestRun retry = plannedTestRun.withIncrementedTransientRetryCount().withIncrementedTransientRetryCount();
+        assertEquals(plannedTestRun.getIdempotencyKey(), retry.getIdempotencyKey());
+        assertEquals(2, retry.getTransientRetryCount());
+
+        assertNotEquals(plannedTestRun.getIdempotencyKey(), retry.withIncrementedAttemptCount().getIdempotencyKey(), "retest is new execution");
+        assertNotEquals(plannedTestRun.getIdempotencyKey(), retry.withIncrementedRescheduleCount().getIdempotencyKey(), "reschedule is new execution");
+        assertNotEquals(plannedTestRun.getIdempotencyKey(), new PlannedTestRun(device, testCase).getIdempotencyKey());
+    }
+}
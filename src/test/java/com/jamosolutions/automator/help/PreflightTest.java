@@ -0,0 +1,106 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Credentials;
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PreflightTest {
+    private static TestCase testCase(String name) {
+        final TestCase testCase = new TestCase();
+        testCase.setName(name);
+        testCase.setTimeout(1);
+        return testCase;
+    }
+
+    private static Device device(String name, TestCase... testCases) {
+        final Device device = new Device();
+        device.setName(name);
+        device.setTestCases(new ArrayList<>(Arrays.asList(testCases)));
+        return device;
+    }
+
+    private static List<String> testCaseNames(Device device) {
+        return device.getTestCases().stream().map(TestCase::getName).collect(Collectors.toList());
+    }
+
+    /**
+     * Devices "phone" (tests "login" and "typoTest") and "ghost" (test "login"), where "typoTest" and "ghost" are
+     * unknown to service.
+     */
+    private static List<Device> runPreflight(Preflight.Mode mode, TestOrchestrator testOrchestrator) throws Exception {
+        final StubPreflightProbe preflightProbe = new StubPreflightProbe(0);
+        preflightProbe.setDeviceInvalid("ghost", true);
+        preflightProbe.setTestCaseInvalid("typoTest", true);
+        final TestCase login = testCase("login");
+        final List<Device> devices = Arrays.asList(device("phone", login, testCase("typoTest")), device("ghost", login));
+        final Preflight.Result result = new Preflight(new SystemStreamLog(), preflightProbe, 2).start(devices).get();
+        assertEquals(2, result.count(PreflightStatus.INVALID));
+        // distinct test case "login" is checked once
+        assertEquals(4, preflightProbe.getCheckCount());
+        result.apply(new SystemStreamLog(), "", mode, devices, testOrchestrator);
+        return devices;
+    }
+
+    private static TestOrchestrator orchestrator(List<String> skipped) {
+        final TestOrchestrator testOrchestrator = new TestOrchestrator(null, new SystemStreamLog(), 0);
+        testOrchestrator.getTestRunReporterListeners().add(new TestRunReporterListener() {
+            @Override
+            public void finishTestRunExecution(TestRun testRun, boolean isFinalRunForPlannedTestRun) {
+            }
+
+            @Override
+            public void skipPlannedTestRun(PlannedTestRun plannedTestRun, String reason) {
+                skipped.add(plannedTestRun.getDevice().getName() + "/" + plannedTestRun.getTestCase().getName());
+            }
+        });
+        return testOrchestrator;
+    }
+
+    @Test
+    void dropSkipsTestsOfInvalidDevicesAndTestCases() throws Exception {
+        final List<String> skipped = new ArrayList<>();
+        final List<Device> devices = runPreflight(Preflight.Mode.DROP, orchestrator(skipped));
+
+        assertEquals(Arrays.asList("phone/typoTest", "ghost/login"), skipped);
+        assertEquals(Arrays.asList("login"), testCaseNames(devices.get(0)));
+        assertTrue(devices.get(1).getTestCases().isEmpty());
+    }
+
+    @Test
+    void reportKeepsAllTests() throws Exception {
+        final List<String> skipped = new ArrayList<>();
+        final List<Device> devices = runPreflight(Preflight.Mode.REPORT, orchestrator(skipped));
+
+        assertTrue(skipped.isEmpty());
+        assertEquals(Arrays.asList("login", "typoTest"), testCaseNames(devices.get(0)));
+        assertEquals(Arrays.asList("login"), testCaseNames(devices.get(1)));
+    }
+
+    @Test
+    void offlineDeviceIsNotInvalid() {
+        try (StubJamoAutomatorServer server = StubJamoAutomatorServer.start(1000)) {
+            final Credentials credentials = new Credentials();
+            credentials.setAccount("stub");
+            credentials.setUsername("stub");
+            credentials.setPassword("stub");
+            final JamoPreflightProbe preflightProbe = new JamoPreflightProbe(new SystemStreamLog(),
+                    new JamoAutomatorClient(new SystemStreamLog(), credentials, server.getUrl()));
+            server.setDeviceStatusFailure("busyPhone", "Device busyPhone is offline");
+            server.setDeviceStatusFailure("ghost", "Device ghost not found");
+
+            assertEquals(PreflightStatus.VALID, preflightProbe.checkDevice(device("phone")));
+            assertEquals(PreflightStatus.OFFLINE, preflightProbe.checkDevice(device("busyPhone")));
+            assertEquals(PreflightStatus.INVALID, preflightProbe.checkDevice(device("ghost")));
+        }
+    }
+}
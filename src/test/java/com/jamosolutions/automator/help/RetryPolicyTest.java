@@ -0,0 +1,48 @@
+package com.jamosolutions.automator.help;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RetryPolicyTest {
+    private final RetryPolicy retryPolicy = new RetryPolicy(3, 1000, 10000);
+
+    private static ResourceAccessException ioError(IOException cause) {
+        return new ResourceAccessException("I/O error: " + cause.getMessage(), cause);
+    }
+
+    @Test
+    void runRequestIsRetriedOnlyWhenConnectionHasNotBeenEstablished() {
+        assertTrue(retryPolicy.isRetryable(ApiCallType.RUN, ioError(new ConnectException("Connection refused"))));
+        assertTrue(retryPolicy.isRetryable(ApiCallType.RUN, ioError(new UnknownHostException("jamo.example"))));
+        assertFalse(retryPolicy.isRetryable(ApiCallType.RUN, ioError(new SocketTimeoutException("Read timed out"))));
+        assertFalse(retryPolicy.isRetryable(ApiCallType.RUN, new HttpServerErrorException(HttpStatus.BAD_GATEWAY)));
+        assertFalse(retryPolicy.isRetryable(ApiCallType.RUN, new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)));
+    }
+
+    @Test
+    void reportRequestIsRetriedOnAnyTransientError() {
+        assertTrue(retryPolicy.isRetryable(ApiCallType.REPORT, ioError(new SocketTimeoutException("Read timed out"))));
+        assertTrue(retryPolicy.isRetryable(ApiCallType.REPORT, new HttpServerErrorException(HttpStatus.BAD_GATEWAY)));
+        assertTrue(retryPolicy.isRetryable(ApiCallType.REPORT, new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS)));
+        assertFalse(retryPolicy.isRetryable(ApiCallType.REPORT, new HttpClientErrorException(HttpStatus.NOT_FOUND)));
+    }
+
+    @Test
+    void backoffStaysWithinCeiling() {
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            final long backoffMs = retryPolicy.getBackoffMs(attempt);
+            assertTrue(backoffMs >= 0 && backoffMs <= Math.min(10000, 1000L << (attempt - 1)), "backoff " + backoffMs);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.jamosolutions.automator.help;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Local stand-in for {@link JamoRestExecutionCancelEndpoint}, which does not communicate with jamo automator service.
+ * Each cancel is confirmed after configured number of {@link #checkCancel(String)} calls. Meant for tests and
+ * simulations.
+ */
+public class StubExecutionCancelEndpoint implements ExecutionCancelEndpoint {
+    private final int checksTillConfirmation;
+    private final List<String> cancelledExecutionIds = new ArrayList<>();
+    private final Map<String, Integer> checksPerExecution = new HashMap<>();
+
+    /**
+     * @param checksTillConfirmation number of {@link #checkCancel(String)} calls returning
+     *                               {@link CancelStatus#REQUESTED} before {@link CancelStatus#CONFIRMED} is returned
+     */
+    public StubExecutionCancelEndpoint(int checksTillConfirmation) {
+        this.checksTillConfirmation = checksTillConfirmation;
+    }
+
+    @Override
+    public synchronized CancelStatus requestCancel(String executionId) {
+        cancelledExecutionIds.add(executionId);
+        checksPerExecution.put(executionId, 0);
+        return CancelStatus.REQUESTED;
+    }
+
+    @Override
+    public synchronized CancelStatus checkCancel(String executionId) {
+        final Integer checks = checksPerExecution.get(executionId);
+        if (checks == null) {
+            return CancelStatus.FAILED;
+        }
+        if (checks >= checksTillConfirmation) {
+            return CancelStatus.CONFIRMED;
+        }
+        checksPerExecution.put(executionId, checks + 1);
+        return CancelStatus.REQUESTED;
+    }
+
+    /**
+     * @return execution ids, for which cancel has been requested (in order of requests)
+     */
+    public synchronized List<String> getCancelledExecutionIds() {
+        return Collections.unmodifiableList(new ArrayList<>(cancelledExecutionIds));
+    }
+}
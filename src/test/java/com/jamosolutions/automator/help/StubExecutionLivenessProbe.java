@@ -0,0 +1,52 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Local stand-in for {@link JamoExecutionLivenessProbe}, which does not communicate with jamo automator service.
+ * Devices and executions are considered alive, unless they are marked otherwise using {@link #setDeviceOffline(Device, boolean)}
+ * or {@link #setExecutionLost(String, boolean)}. Meant for tests and simulations.
+ */
+public class StubExecutionLivenessProbe implements ExecutionLivenessProbe {
+    private final Set<String> offlineDeviceNames = new HashSet<>();
+    private final Set<String> lostExecutionIds = new HashSet<>();
+    private int probeCount = 0;
+
+    @Override
+    public synchronized ExecutionLiveness probe(TestRun testRun) {
+        probeCount++;
+        if (offlineDeviceNames.contains(testRun.getPlannedTestRun().getDevice().getName())) {
+            return ExecutionLiveness.DEVICE_OFFLINE;
+        }
+        if (lostExecutionIds.contains(testRun.getExecutionId())) {
+            return ExecutionLiveness.EXECUTION_LOST;
+        }
+        return ExecutionLiveness.ALIVE;
+    }
+
+    public synchronized void setDeviceOffline(Device device, boolean offline) {
+        if (offline) {
+            offlineDeviceNames.add(device.getName());
+        } else {
+            offlineDeviceNames.remove(device.getName());
+        }
+    }
+
+    public synchronized void setExecutionLost(String executionId, boolean lost) {
+        if (lost) {
+            lostExecutionIds.add(executionId);
+        } else {
+            lostExecutionIds.remove(executionId);
+        }
+    }
+
+    /**
+     * @return number of {@link #probe(TestRun)} calls till now
+     */
+    public synchronized int getProbeCount() {
+        return probeCount;
+    }
+}
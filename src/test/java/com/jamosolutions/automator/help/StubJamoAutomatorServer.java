@@ -0,0 +1,322 @@
+package com.jamosolutions.automator.help;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local stand-in of jamo automator service, which does not execute anything. It listens on loopback and implements
+ * login, run requests (<code>run</code>, <code>runSpec</code> and their <code>udid</code> variants), reports, status
+ * endpoints (including bulk status query of {@link JamoRestExecutionStatusSyncEndpoint}) and completion callback
+ * protocol of {@link CompletionWebhookReceiver}: each execution finishes after given duration and, when run request has
+ * carried {@link JamoAutomatorClient#CALLBACK_URL_PARAMETER}, its execution id is posted to callback url. Report of
+ * unfinished execution is answered with 404. Test cases marked by {@link #setTestCaseFailing(String, boolean)} finish
+ * with failed report. Run request with several test cases (see
+ * {@link JamoAutomatorClient#runTestCases(com.jamosolutions.automator.domain.Device, List, String)}) executes them one after
+ * another and its report carries report of each test case, unless {@link #setBatchReportSplit(boolean)} says
+ * otherwise.
+ * <p>
+ * Requests are counted per endpoint (see {@link #getRequestCounts()}), so that api load of polling and callbacks can be
+ * compared. Meant for tests and local experiments with plugin.
+ */
+public class StubJamoAutomatorServer implements AutoCloseable {
+    public static final String ENDPOINT_LOGIN = "login";
+    public static final String ENDPOINT_RUN = "run";
+    public static final String ENDPOINT_REPORT = "report";
+    public static final String ENDPOINT_DEVICE_STATUS = "deviceStatus";
+    public static final String ENDPOINT_TEST_CASE_STATUS = "testCaseStatus";
+    public static final String ENDPOINT_EXECUTION_STATUS = "executionStatus";
+    public static final String ENDPOINT_EXECUTION_STATUSES = "executionStatuses";
+    public static final String ENDPOINT_CALLBACK = "callback";
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final HttpServer httpServer;
+    private final ScheduledExecutorService scheduler;
+    private final long executionDurationMs;
+    private final Map<String, StubExecution> executions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> requestCounts = new ConcurrentSkipListMap<>();
+    private final Set<String> failingTestCaseNames = ConcurrentHashMap.newKeySet();
+    private final Map<String, String> deviceStatusFailures = new ConcurrentHashMap<>();
+    private final AtomicLong executionSequence = new AtomicLong(0);
+    private final CompletableFuture<Long> firstRequestNanos = new CompletableFuture<>();
+    private volatile boolean bulkStatusSupported = true;
+    private volatile boolean batchReportSplit = true;
+
+    private StubJamoAutomatorServer(HttpServer httpServer, ScheduledExecutorService scheduler, long executionDurationMs) {
+        this.httpServer = httpServer;
+        this.scheduler = scheduler;
+        this.executionDurationMs = executionDurationMs;
+    }
+
+    /**
+     * Start server on loopback, on any free port.
+     *
+     * @param executionDurationMs duration of each execution
+     */
+    public static StubJamoAutomatorServer start(long executionDurationMs) {
+        final HttpServer httpServer;
+        try {
+            httpServer = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException ex) {
+            throw new RuntimeException("Unable to start stub jamo automator server", ex);
+        }
+        final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            final Thread thread = new Thread(runnable, "jamo-stub-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final StubJamoAutomatorServer server = new StubJamoAutomatorServer(httpServer, scheduler, executionDurationMs);
+        httpServer.createContext("/rest/login", server::handleLogin);
+        httpServer.createContext("/rest/integration/", server::handleIntegration);
+        httpServer.setExecutor(scheduler);
+        httpServer.start();
+        return server;
+    }
+
+    /**
+     * @return base url of server, to be used as <code>url</code> of test suite
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + httpServer.getAddress().getPort();
+    }
+
+    private void handleLogin(HttpExchange exchange) throws IOException {
+        firstRequestNanos.complete(System.nanoTime());
+        countRequest(ENDPOINT_LOGIN);
+        final Map<String, Object> loginStatus = new LinkedHashMap<>();
+        loginStatus.put("success", true);
+        loginStatus.put("userKeyString", "stub-user-key");
+        exchange.getResponseHeaders().add("X-AUTH-TOKEN", "stub-auth-token");
+        respondJson(exchange, 200, loginStatus);
+    }
+
+    private void handleIntegration(HttpExchange exchange) throws IOException {
+        firstRequestNanos.complete(System.nanoTime());
+        final String path = exchange.getRequestURI().getPath().substring("/rest/integration/".length());
+        final Map<String, String> query = CompletionWebhookReceiver.parseQuery(exchange.getRequestURI().getRawQuery());
+        if (path.startsWith("run")) {
+            countRequest(ENDPOINT_RUN);
+            final List<String> testCaseNames = queryValues(exchange.getRequestURI().getRawQuery(), "testCase");
+            respondJson(exchange, 200, wrapper(true, startExecution(query, testCaseNames), null));
+        } else if (path.startsWith("report/")) {
+            countRequest(ENDPOINT_REPORT);
+            final StubExecution execution = executions.get(path.substring("report/".length()));
+            if (execution == null || System.currentTimeMillis() < execution.finishMillis) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            final Map<String, Object> report = new LinkedHashMap<>();
+            report.put("executionId", execution.executionId);
+            report.put("status", execution.failingTestCaseNames.isEmpty() ? 0L : 1L);
+            report.put("creationDate", execution.startMillis);
+            report.put("endDate", execution.finishMillis);
+            if (execution.testCaseNames.size() > 1 && batchReportSplit) {
+                final List<Map<String, Object>> testCaseReports = new ArrayList<>();
+                long testCaseStartMillis = execution.startMillis;
+                for (String testCaseName : execution.testCaseNames) {
+                    final Map<String, Object> testCaseReport = new LinkedHashMap<>();
+                    testCaseReport.put("testCaseName", testCaseName);
+                    testCaseReport.put("status", execution.failingTestCaseNames.contains(testCaseName) ? 1L : 0L);
+                    testCaseReport.put("creationDate", testCaseStartMillis);
+                    testCaseStartMillis += executionDurationMs;
+                    testCaseReport.put("endDate", testCaseStartMillis);
+                    testCaseReports.add(testCaseReport);
+                }
+                report.put("testCaseReports", testCaseReports);
+            }
+            respondJson(exchange, 200, report);
+        } else if (path.equals("executions/status")) {
+            countRequest(ENDPOINT_EXECUTION_STATUSES);
+            if (!bulkStatusSupported) {
+                exchange.sendResponseHeaders(404, -1);
+                exchange.close();
+                return;
+            }
+            final Map<String, String> statuses = new LinkedHashMap<>();
+            for (JsonNode executionId : OBJECT_MAPPER.readTree(exchange.getRequestBody()).path("executionIds")) {
+                final StubExecution execution = executions.get(executionId.asText());
+                statuses.put(executionId.asText(), execution == null ? JamoAutomatorClient.EXECUTION_STATUS_UNKNOWN :
+                        System.currentTimeMillis() < execution.finishMillis ? JamoAutomatorClient.EXECUTION_STATUS_RUNNING :
+                                JamoRestExecutionCancelEndpoint.EXECUTION_STATUS_FINISHED);
+            }
+            final Map<String, Object> response = new LinkedHashMap<>();
+            response.put("success", true);
+            response.put("statuses", statuses);
+            respondJson(exchange, 200, response);
+        } else if (path.equals("device/status")) {
+            countRequest(ENDPOINT_DEVICE_STATUS);
+            final String failure = deviceStatusFailures.get(String.valueOf(query.get("device")));
+            respondJson(exchange, 200, failure == null ? wrapper(true, null, "ONLINE") : wrapper(false, failure, null));
+        } else if (path.equals("testcase/status")) {
+            countRequest(ENDPOINT_TEST_CASE_STATUS);
+            respondJson(exchange, 200, wrapper(true, null, "FOUND"));
+        } else if (path.startsWith("execution/") && path.endsWith("/status")) {
+            countRequest(ENDPOINT_EXECUTION_STATUS);
+            final String executionId = path.substring("execution/".length(), path.length() - "/status".length());
+            respondJson(exchange, 200, wrapper(true, null, executions.containsKey(executionId) ? "RUNNING" : JamoAutomatorClient.EXECUTION_STATUS_UNKNOWN));
+        } else {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        }
+    }
+
+    private String startExecution(Map<String, String> query, List<String> testCaseNames) {
+        final String executionId = "stub-" + executionSequence.incrementAndGet();
+        final long startMillis = System.currentTimeMillis();
+        final long durationMs = executionDurationMs * Math.max(1, testCaseNames.size());
+        final Set<String> failing = new HashSet<>(testCaseNames);
+        failing.retainAll(failingTestCaseNames);
+        executions.put(executionId, new StubExecution(executionId, startMillis, startMillis + durationMs, testCaseNames, failing));
+        final String callbackUrl = query.get(JamoAutomatorClient.CALLBACK_URL_PARAMETER);
+        if (callbackUrl != null) {
+            scheduler.schedule(() -> postCallback(callbackUrl, executionId), durationMs, TimeUnit.MILLISECONDS);
+        }
+        return executionId;
+    }
+
+    /**
+     * @return all values of repeated query parameter, in order of request
+     */
+    private static List<String> queryValues(String rawQuery, String name) {
+        final List<String> values = new ArrayList<>();
+        if (rawQuery == null) {
+            return values;
+        }
+        for (String pair : rawQuery.split("&")) {
+            final Map<String, String> parameter = CompletionWebhookReceiver.parseQuery(pair);
+            if (parameter.containsKey(name)) {
+                values.add(parameter.get(name));
+            }
+        }
+        return values;
+    }
+
+    private void postCallback(String callbackUrl, String executionId) {
+        countRequest(ENDPOINT_CALLBACK);
+        try {
+            final HttpURLConnection connection = (HttpURLConnection) new URL(callbackUrl).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream body = connection.getOutputStream()) {
+                body.write(OBJECT_MAPPER.writeValueAsBytes(Collections.singletonMap(CompletionWebhookReceiver.EXECUTION_ID_PARAMETER, executionId)));
+            }
+            connection.getResponseCode();
+            connection.disconnect();
+        } catch (IOException ex) {
+            // callback is best effort, client falls back to polling
+        }
+    }
+
+    private static Map<String, Object> wrapper(boolean success, String message, String data) {
+        final Map<String, Object> wrapper = new LinkedHashMap<>();
+        wrapper.put("success", success);
+        wrapper.put("message", message);
+        wrapper.put("data", data);
+        return wrapper;
+    }
+
+    private static void respondJson(HttpExchange exchange, int status, Object body) throws IOException {
+        final byte[] bytes = OBJECT_MAPPER.writeValueAsString(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    private void countRequest(String endpoint) {
+        requestCounts.merge(endpoint, 1, Integer::sum);
+    }
+
+    /**
+     * @param bulkStatusSupported false makes bulk status query respond with 404, as service without it does
+     */
+    public void setBulkStatusSupported(boolean bulkStatusSupported) {
+        this.bulkStatusSupported = bulkStatusSupported;
+    }
+
+    /**
+     * @param batchReportSplit false makes report of batch execution come without report of each test case, as from
+     *                         service, which does not support batches
+     */
+    public void setBatchReportSplit(boolean batchReportSplit) {
+        this.batchReportSplit = batchReportSplit;
+    }
+
+    /**
+     * @param message message of unsuccessful response of device status request for given device; null means, that
+     *                device is online
+     */
+    public void setDeviceStatusFailure(String deviceName, String message) {
+        if (message == null) {
+            deviceStatusFailures.remove(deviceName);
+        } else {
+            deviceStatusFailures.put(deviceName, message);
+        }
+    }
+
+    public void setTestCaseFailing(String testCaseName, boolean failing) {
+        if (failing) {
+            failingTestCaseNames.add(testCaseName);
+        } else {
+            failingTestCaseNames.remove(testCaseName);
+        }
+    }
+
+    /**
+     * @return number of requests of each endpoint (and number of sent callbacks), keyed by endpoint name
+     */
+    public Map<String, Integer> getRequestCounts() {
+        return Collections.unmodifiableMap(requestCounts);
+    }
+
+    /**
+     * Wait for first request received by server (used to measure startup time of client process).
+     *
+     * @return value of {@link System#nanoTime()} at time of first request, or -1 when there has been no request in
+     * given time
+     */
+    public long awaitFirstRequestNanos(long timeoutMs) throws InterruptedException {
+        try {
+            return firstRequestNanos.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException | TimeoutException ex) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        httpServer.stop(0);
+        scheduler.shutdownNow();
+    }
+
+    private static class StubExecution {
+        private final String executionId;
+        private final long startMillis;
+        private final long finishMillis;
+        private final List<String> testCaseNames;
+        private final Set<String> failingTestCaseNames;
+
+        private StubExecution(String executionId, long startMillis, long finishMillis, List<String> testCaseNames, Set<String> failingTestCaseNames) {
+            this.executionId = executionId;
+            this.startMillis = startMillis;
+            this.finishMillis = finishMillis;
+            this.testCaseNames = testCaseNames;
+            this.failingTestCaseNames = failingTestCaseNames;
+        }
+    }
+}
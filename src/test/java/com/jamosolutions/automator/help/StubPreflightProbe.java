@@ -0,0 +1,87 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Local stand-in for {@link JamoPreflightProbe}, which does not communicate with jamo automator service. Devices and
+ * test cases are valid, unless they are marked otherwise. Each check can take given (simulated) response time, so that
+ * concurrency of {@link Preflight} can be observed. Meant for tests and simulations.
+ */
+public class StubPreflightProbe implements PreflightProbe {
+    private final long responseTimeMs;
+    private final Set<String> invalidDeviceNames = new HashSet<>();
+    private final Set<String> offlineDeviceNames = new HashSet<>();
+    private final Set<String> invalidTestCaseNames = new HashSet<>();
+    private int checkCount = 0;
+
+    public StubPreflightProbe(long responseTimeMs) {
+        this.responseTimeMs = responseTimeMs;
+    }
+
+    @Override
+    public PreflightStatus checkDevice(Device device) {
+        respond();
+        synchronized (this) {
+            if (invalidDeviceNames.contains(device.getName())) {
+                return PreflightStatus.INVALID;
+            }
+            return offlineDeviceNames.contains(device.getName()) ? PreflightStatus.OFFLINE : PreflightStatus.VALID;
+        }
+    }
+
+    @Override
+    public PreflightStatus checkTestCase(TestCase testCase) {
+        respond();
+        synchronized (this) {
+            return invalidTestCaseNames.contains(testCase.getName()) ? PreflightStatus.INVALID : PreflightStatus.VALID;
+        }
+    }
+
+    private void respond() {
+        synchronized (this) {
+            checkCount++;
+        }
+        if (responseTimeMs > 0) {
+            try {
+                Thread.sleep(responseTimeMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public synchronized void setDeviceInvalid(String deviceName, boolean invalid) {
+        if (invalid) {
+            invalidDeviceNames.add(deviceName);
+        } else {
+            invalidDeviceNames.remove(deviceName);
+        }
+    }
+
+    public synchronized void setDeviceOffline(String deviceName, boolean offline) {
+        if (offline) {
+            offlineDeviceNames.add(deviceName);
+        } else {
+            offlineDeviceNames.remove(deviceName);
+        }
+    }
+
+    public synchronized void setTestCaseInvalid(String testCaseName, boolean invalid) {
+        if (invalid) {
+            invalidTestCaseNames.add(testCaseName);
+        } else {
+            invalidTestCaseNames.remove(testCaseName);
+        }
+    }
+
+    /**
+     * @return number of checks (of devices and test cases) till now
+     */
+    public synchronized int getCheckCount() {
+        return checkCount;
+    }
+}
@@ -0,0 +1,73 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SuiteAbortPolicyTest {
+    private static PlannedTestRun plannedTestRun(String deviceName, String testCaseName) {
+        final Device device = new Device();
+        device.setName(deviceName);
+        final TestCase testCase = new TestCase();
+        testCase.setName(testCaseName);
+        return new PlannedTestRun(device, testCase);
+    }
+
+    private static TestRun finished(PlannedTestRun plannedTestRun, ExecutionOutcome outcome, ExecErrorType execErrorType) {
+        final TestRunResult result = new TestRunResult();
+        result.setExecutionOutcome(outcome);
+        result.setExecErrorType(execErrorType);
+        return TestRun.restore(new SystemStreamLog(), plannedTestRun, result);
+    }
+
+    @Test
+    void flakyFirstAttemptsOnAllDevicesDoNotAbortSuite() {
+        final SuiteAbortPolicy policy = new SuiteAbortPolicy(0, 0, 0, true, SuiteAbortPolicy.InFlightMode.DRAIN);
+        final PlannedTestRun first = plannedTestRun("device1", "test1");
+        final PlannedTestRun second = plannedTestRun("device2", "test1");
+        policy.planned(first);
+        policy.planned(second);
+
+        // attempts, which are going to be retested
+        assertNull(policy.recordAndCheck(finished(first, ExecutionOutcome.FAILURE, null)));
+        assertNull(policy.recordAndCheck(finished(second, ExecutionOutcome.FAILURE, null)));
+        // retest passes on first device, fails on second one
+        final TestRun passed = finished(first.withIncrementedAttemptCount(), ExecutionOutcome.SUCCESS, null);
+        assertNull(policy.recordAndCheck(passed));
+        assertNull(policy.recordFinalAndCheck(passed));
+        final TestRun failed = finished(second.withIncrementedAttemptCount(), ExecutionOutcome.FAILURE, null);
+        assertNull(policy.recordAndCheck(failed));
+        assertNull(policy.recordFinalAndCheck(failed));
+    }
+
+    @Test
+    void finalFailureOnAllDevicesAbortsSuite() {
+        final SuiteAbortPolicy policy = new SuiteAbortPolicy(0, 0, 0, true, SuiteAbortPolicy.InFlightMode.DRAIN);
+        final PlannedTestRun first = plannedTestRun("device1", "test1");
+        final PlannedTestRun second = plannedTestRun("device2", "test1");
+        policy.planned(first);
+        policy.planned(second);
+
+        assertNull(policy.recordFinalAndCheck(finished(first, ExecutionOutcome.FAILURE, null)));
+        assertNotNull(policy.recordFinalAndCheck(finished(second, ExecutionOutcome.TIMEOUT, null)));
+    }
+
+    @Test
+    void offlineDeviceDoesNotCountAsConsecutiveFailures() {
+        final SuiteAbortPolicy policy = new SuiteAbortPolicy(3, 0, 0, false, SuiteAbortPolicy.InFlightMode.DRAIN);
+        final PlannedTestRun plannedTestRun = plannedTestRun("device1", "test1");
+        for (int attempt = 0; attempt < 4; attempt++) {
+            assertNull(policy.recordAndCheck(finished(plannedTestRun, ExecutionOutcome.EXECERR, ExecErrorType.DEVICE_OFFLINE)));
+        }
+        assertNull(policy.recordAndCheck(finished(plannedTestRun, ExecutionOutcome.EXECERR, ExecErrorType.TEST_NOT_FOUND)));
+        assertNull(policy.recordAndCheck(finished(plannedTestRun, ExecutionOutcome.EXECERR, ExecErrorType.AUTHENTICATION)));
+
+        assertNull(policy.recordAndCheck(finished(plannedTestRun, ExecutionOutcome.FAILURE, null)));
+        assertNull(policy.recordAndCheck(finished(plannedTestRun, ExecutionOutcome.EXECERR, ExecErrorType.SERVER_ERROR)));
+        assertNotNull(policy.recordAndCheck(finished(plannedTestRun, ExecutionOutcome.TIMEOUT, null)));
+    }
+}
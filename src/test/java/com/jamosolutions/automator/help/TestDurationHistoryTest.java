@@ -0,0 +1,43 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TestDurationHistoryTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void saveKeepsSamplesSavedByOtherBuildInMeantime() {
+        final File file = new File(directory, "durationHistory.csv");
+        final TestDurationHistory first = new TestDurationHistory(new SystemStreamLog(), file);
+        first.addLoadedSample("device1", "test1", ExecutionOutcome.SUCCESS, 1000, 1);
+        first.save();
+
+        // both builds load same history, each of them adds own sample
+        final TestDurationHistory second = new TestDurationHistory(new SystemStreamLog(), file);
+        second.load();
+        final TestDurationHistory third = new TestDurationHistory(new SystemStreamLog(), file);
+        third.load();
+        second.addLoadedSample("device1", "test1", ExecutionOutcome.SUCCESS, 2000, 2);
+        third.addLoadedSample("device1", "test1", ExecutionOutcome.FAILURE, 3000, 3);
+        second.save();
+        third.save();
+
+        final TestDurationHistory reloaded = new TestDurationHistory(new SystemStreamLog(), file);
+        reloaded.load();
+        final Device device = new Device();
+        device.setName("device1");
+        final TestCase testCase = new TestCase();
+        testCase.setName("test1");
+        assertEquals(3, reloaded.getStats(device, testCase).getCount());
+        assertEquals(ExecutionOutcome.FAILURE, reloaded.getLastOutcome(device, testCase));
+    }
+}
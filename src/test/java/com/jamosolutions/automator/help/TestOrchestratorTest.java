@@ -0,0 +1,273 @@
+package com.jamosolutions.automator.help;
+
+import com.jamosolutions.automator.domain.Credentials;
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TestOrchestratorTest {
+    private static final int MAX_ROUNDS = 200;
+
+    private StubJamoAutomatorServer server;
+    private JamoAutomatorClient client;
+    private Device device;
+    private TestCase testCase;
+    private TestCase nextTestCase;
+    private final List<TestRun> finishedTestRuns = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // executions never finish during test, only liveness (or cancel) can end them
+        server = StubJamoAutomatorServer.start(60 * 1000);
+        client = createClient();
+        testCase = new TestCase();
+        testCase.setName("hungTest");
+        testCase.setTimeout(60);
+        nextTestCase = new TestCase();
+        nextTestCase.setName("nextTest");
+        nextTestCase.setTimeout(60);
+        device = new Device();
+        device.setName("device1");
+        device.setTestCases(Collections.singletonList(testCase));
+    }
+
+    private JamoAutomatorClient createClient() {
+        final Credentials credentials = new Credentials();
+        credentials.setAccount("stub");
+        credentials.setUsername("stub");
+        credentials.setPassword("stub");
+        return new JamoAutomatorClient(new SystemStreamLog(), credentials, server.getUrl());
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private TestOrchestrator createOrchestrator() {
+        final TestOrchestrator testOrchestrator = new TestOrchestrator(client, new SystemStreamLog(), 0);
+        testOrchestrator.getTestRunReporterListeners().add((testRun, isFinalRunForPlannedTestRun) -> finishedTestRuns.add(testRun));
+        testOrchestrator.addTestForExecution(new PlannedTestRun(device, testCase));
+        return testOrchestrator;
+    }
+
+    private int getRunRequestCount() {
+        return server.getRequestCounts().getOrDefault(StubJamoAutomatorServer.ENDPOINT_RUN, 0);
+    }
+
+    /**
+     * Execute rounds till first test run is declared lost by liveness probe.
+     */
+    private void runTillFirstTestRunIsLost(TestOrchestrator testOrchestrator) {
+        for (int round = 0; round < MAX_ROUNDS && finishedTestRuns.isEmpty(); round++) {
+            testOrchestrator.executeRound();
+        }
+        assertEquals(1, finishedTestRuns.size());
+    }
+
+    private static void runRounds(TestOrchestrator testOrchestrator, int rounds) {
+        for (int round = 0; round < rounds && testOrchestrator.isStillSomethingNeedToBeDone(); round++) {
+            testOrchestrator.executeRound();
+        }
+    }
+
+    @Test
+    void deadExecutionIsFinishedAsTimeoutWithoutWaitingForItsTimeout() {
+        final StubExecutionLivenessProbe livenessProbe = new StubExecutionLivenessProbe();
+        final TestOrchestrator testOrchestrator = createOrchestrator();
+        testOrchestrator.setExecutionLivenessProbe(livenessProbe, 0, 0);
+
+        testOrchestrator.executeRound();
+        runRounds(testOrchestrator, 3);
+        assertTrue(finishedTestRuns.isEmpty(), "alive execution has to keep running");
+
+        livenessProbe.setDeviceOffline(device, true);
+        runRounds(testOrchestrator, MAX_ROUNDS);
+
+        assertFalse(testOrchestrator.isStillSomethingNeedToBeDone());
+        assertEquals(1, finishedTestRuns.size());
+        final TestRun testRun = finishedTestRuns.get(0);
+        assertEquals(ExecutionOutcome.TIMEOUT, testRun.getExecutionOutcome());
+        assertEquals(ExecutionLiveness.DEVICE_OFFLINE, testRun.getLostLiveness());
+        assertNotNull(testRun.getExecutionId());
+        assertTrue(livenessProbe.getProbeCount() >= 3 + TestOrchestrator.DEAD_LIVENESS_CHECKS_TO_DECLARE_LOST);
+    }
+
+    @Test
+    void singleDeadCheckDoesNotDeclareExecutionLost() {
+        final StubExecutionLivenessProbe livenessProbe = new StubExecutionLivenessProbe();
+        final TestOrchestrator testOrchestrator = createOrchestrator();
+        testOrchestrator.setExecutionLivenessProbe(livenessProbe, 0, 0);
+
+        testOrchestrator.executeRound();
+        livenessProbe.setDeviceOffline(device, true);
+        testOrchestrator.executeRound();
+        livenessProbe.setDeviceOffline(device, false);
+        runRounds(testOrchestrator, 3);
+
+        assertTrue(finishedTestRuns.isEmpty());
+        assertTrue(testOrchestrator.isStillSomethingNeedToBeDone());
+    }
+
+    @Test
+    void deviceOfCancelledExecutionWaitsForConfirmationOfStop() {
+        final StubExecutionLivenessProbe livenessProbe = new StubExecutionLivenessProbe();
+        final StubExecutionCancelEndpoint cancelEndpoint = new StubExecutionCancelEndpoint(3);
+        client.setExecutionCancelEndpoint(cancelEndpoint);
+        final TestOrchestrator testOrchestrator = createOrchestrator();
+        testOrchestrator.addTestForExecution(new PlannedTestRun(device, nextTestCase));
+        testOrchestrator.setExecutionLivenessProbe(livenessProbe, 0, 0);
+        testOrchestrator.setCancelTimedOutExecutions(true, 60 * 1000);
+
+        testOrchestrator.executeRound();
+        final String lostExecutionId = "stub-1";
+        livenessProbe.setExecutionLost(lostExecutionId, true);
+        runTillFirstTestRunIsLost(testOrchestrator);
+
+        assertEquals(Collections.singletonList(lostExecutionId), cancelEndpoint.getCancelledExecutionIds());
+        runRounds(testOrchestrator, 2);
+        assertEquals(1, getRunRequestCount(), "next test must not be started before stop is confirmed");
+        runRounds(testOrchestrator, 1);
+        assertEquals(2, getRunRequestCount(), "next test has to be started once stop is confirmed");
+        assertEquals(1, testOrchestrator.getConfirmedCancelsCount());
+    }
+
+    @Test
+    void lostExecutionIsNotCancelledWhenCancelIsDisabled() {
+        final StubExecutionLivenessProbe livenessProbe = new StubExecutionLivenessProbe();
+        final StubExecutionCancelEndpoint cancelEndpoint = new StubExecutionCancelEndpoint(3);
+        client.setExecutionCancelEndpoint(cancelEndpoint);
+        final TestOrchestrator testOrchestrator = createOrchestrator();
+        testOrchestrator.addTestForExecution(new PlannedTestRun(device, nextTestCase));
+        testOrchestrator.setExecutionLivenessProbe(livenessProbe, 0, 0);
+
+        testOrchestrator.executeRound();
+        livenessProbe.setExecutionLost("stub-1", true);
+        runTillFirstTestRunIsLost(testOrchestrator);
+
+        assertTrue(cancelEndpoint.getCancelledExecutionIds().isEmpty());
+        assertEquals(2, getRunRequestCount(), "next test is started in same round, in which previous one is lost");
+        assertEquals(0, testOrchestrator.getConfirmedCancelsCount());
+    }
+
+    @Test
+    void runPermitIsNotTakenForDeviceWithoutTestWithinBudget() {
+        final TestCase overBudgetTestCase = new TestCase();
+        overBudgetTestCase.setName("longTest");
+        overBudgetTestCase.setTimeout(600);
+        final Device overBudgetDevice = new Device();
+        overBudgetDevice.setName("device0");
+        overBudgetDevice.setTestCases(Collections.singletonList(overBudgetTestCase));
+        // single permit, never refilled
+        client.setRateLimiter(ApiCallType.RUN, new AdaptiveRateLimiter(Clock.fixed(Instant.EPOCH, ZoneOffset.UTC), 0.001, 1, 0));
+        final TestOrchestrator testOrchestrator = new TestOrchestrator(client, new SystemStreamLog(), 0);
+        testOrchestrator.setTimeBudget(System.currentTimeMillis() + 2 * 60 * 60 * 1000,
+                new ExecutionTimeEstimator(new TestDurationHistory(new SystemStreamLog(), null)));
+        final List<PlannedTestRun> skipped = new ArrayList<>();
+        testOrchestrator.getTestRunReporterListeners().add(new TestRunReporterListener() {
+            @Override
+            public void finishTestRunExecution(TestRun testRun, boolean isFinalRunForPlannedTestRun) {
+                finishedTestRuns.add(testRun);
+            }
+
+            @Override
+            public void skipPlannedTestRun(PlannedTestRun plannedTestRun, String reason) {
+                skipped.add(plannedTestRun);
+            }
+        });
+        testOrchestrator.addTestForExecution(new PlannedTestRun(overBudgetDevice, overBudgetTestCase));
+        testOrchestrator.addTestForExecution(new PlannedTestRun(device, testCase));
+
+        testOrchestrator.executeRound();
+
+        assertEquals(1, getRunRequestCount(), "permit has to be used by device with test within budget");
+        assertEquals(1, skipped.size());
+        assertEquals(overBudgetTestCase, skipped.get(0).getTestCase());
+    }
+
+    @Test
+    void testRunDeniedByRateLimitStaysAtHeadOfQueue() {
+        final Device secondDevice = new Device();
+        secondDevice.setName("device2");
+        secondDevice.setTestCases(Collections.singletonList(nextTestCase));
+        client.setRateLimiter(ApiCallType.RUN, new AdaptiveRateLimiter(Clock.fixed(Instant.EPOCH, ZoneOffset.UTC), 0.001, 1, 0));
+        final TestOrchestrator testOrchestrator = createOrchestrator();
+        testOrchestrator.addTestForExecution(new PlannedTestRun(device, nextTestCase));
+        testOrchestrator.addTestForExecution(new PlannedTestRun(secondDevice, nextTestCase));
+
+        testOrchestrator.executeRound();
+        assertEquals(1, getRunRequestCount());
+        testOrchestrator.executeRound();
+        assertEquals(1, getRunRequestCount());
+
+        client.setRateLimiter(ApiCallType.RUN, AdaptiveRateLimiter.UNLIMITED);
+        testOrchestrator.executeRound();
+        // device with running test gets nothing, other one gets its only test
+        assertEquals(2, getRunRequestCount());
+        assertTrue(finishedTestRuns.isEmpty());
+        assertTrue(testOrchestrator.isStillSomethingNeedToBeDone());
+    }
+
+    @Test
+    void runRequestRefusedByServiceIsRetriedByLaterRoundWithoutBlocking() {
+        // log in, than make service unreachable
+        client.getExecutionStatus("stub-0");
+        server.close();
+        client.setRetryPolicy(new RetryPolicy(3, 60 * 1000, 60 * 1000));
+        final TestOrchestrator testOrchestrator = createOrchestrator();
+
+        final long startNanos = System.nanoTime();
+        testOrchestrator.executeRound();
+        assertTrue(System.nanoTime() - startNanos < 5_000_000_000L, "round must not wait for backoff");
+
+        assertEquals(1, client.getRetryMetrics().getRetries(ApiCallType.RUN));
+        assertTrue(finishedTestRuns.isEmpty(), "transient failure is not reported");
+        assertEquals(1, testOrchestrator.getDelayedRetriesCount());
+        assertTrue(testOrchestrator.isStillSomethingNeedToBeDone());
+    }
+
+    @Test
+    void executionReportedFinishedByStatusQueryIsPolledTillItsReportIsAvailable() throws InterruptedException {
+        // report of execution is available some time after bulk query announces its end, and only first query has it
+        server.close();
+        server = StubJamoAutomatorServer.start(300);
+        client = createClient();
+        final AtomicInteger statusQueryCount = new AtomicInteger(0);
+        client.setExecutionStatusSyncEndpoint((executionIds, changedSinceMillis) -> {
+            final Map<String, String> statuses = new HashMap<>();
+            if (statusQueryCount.incrementAndGet() == 1) {
+                executionIds.forEach(executionId -> statuses.put(executionId, "FINISHED"));
+            }
+            return statuses;
+        });
+        final TestOrchestrator testOrchestrator = createOrchestrator();
+
+        testOrchestrator.executeRound();
+        for (int round = 0; round < 40 && testOrchestrator.isStillSomethingNeedToBeDone(); round++) {
+            testOrchestrator.executeRound();
+            Thread.sleep(50);
+        }
+
+        assertEquals(1, statusQueryCount.get(), "execution known to be finished is not queried again");
+        assertEquals(1, finishedTestRuns.size(), "report has to be processed long before safety net poll");
+        assertEquals(ExecutionOutcome.SUCCESS, finishedTestRuns.get(0).getExecutionOutcome());
+    }
+}
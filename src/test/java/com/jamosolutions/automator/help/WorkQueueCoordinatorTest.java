@@ -0,0 +1,122 @@
+package com.jamosolutions.automator.help;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.jamosolutions.automator.domain.Device;
+import com.jamosolutions.automator.domain.TestCase;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkQueueCoordinatorTest {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final long WORKER_TIMEOUT_MS = 200;
+
+    private WorkQueueCoordinator coordinator;
+    private final List<TestRun> finishedTestRuns = new ArrayList<>();
+    private final List<TestRunReporterListener> listeners = Collections.singletonList(
+            (testRun, isFinalRunForPlannedTestRun) -> finishedTestRuns.add(testRun));
+
+    @AfterEach
+    void tearDown() {
+        if (coordinator != null) {
+            coordinator.close();
+        }
+    }
+
+    private void startCoordinator(long registrationTimeoutMs) {
+        coordinator = WorkQueueCoordinator.start(new SystemStreamLog(), "127.0.0.1", 0, "127.0.0.1", "secret",
+                WORKER_TIMEOUT_MS, registrationTimeoutMs);
+        final TestCase testCase = new TestCase();
+        testCase.setName("test1");
+        final Device device = new Device();
+        device.setName("device1");
+        device.setTestCases(Collections.singletonList(testCase));
+        coordinator.addWork(new PlannedTestRun(device, testCase));
+    }
+
+    private HttpURLConnection post(String operation, Object body) throws IOException {
+        final String url = coordinator.getUrl();
+        final int query = url.indexOf('?');
+        final HttpURLConnection connection = (HttpURLConnection) new URL(url.substring(0, query) + "/" + operation + url.substring(query)).openConnection();
+        connection.setRequestMethod("POST");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            OBJECT_MAPPER.writeValue(outputStream, body);
+        }
+        return connection;
+    }
+
+    private WorkQueueItem claim(String workerId) throws IOException {
+        final HttpURLConnection connection = post("claim", new ClaimRequest(workerId, "device1"));
+        assertEquals(200, connection.getResponseCode());
+        try (InputStream inputStream = connection.getInputStream()) {
+            return OBJECT_MAPPER.readValue(inputStream, WorkQueueItem.class);
+        }
+    }
+
+    private int sendResult(String workerId, String workId, ExecutionOutcome outcome, boolean finalRun) throws IOException {
+        final TestRunResult result = new TestRunResult();
+        result.setWorkerId(workerId);
+        result.setWorkId(workId);
+        result.setFinalRun(finalRun);
+        result.setDeviceName("device1");
+        result.setExecutionOutcome(outcome);
+        return post("result", result).getResponseCode();
+    }
+
+    @Test
+    void workOfLostWorkerIsClaimedAgainAndItsAttemptsAreNotReported() throws Exception {
+        startCoordinator(0);
+        assertEquals(204, post("register", Collections.singletonMap("workerId", "lost")).getResponseCode());
+        final WorkQueueItem item = claim("lost");
+        assertEquals(204, sendResult("lost", item.getWorkId(), ExecutionOutcome.FAILURE, false));
+
+        Thread.sleep(WORKER_TIMEOUT_MS * 2);
+        coordinator.processResults(listeners);
+        assertEquals(1, coordinator.getReplannedCount());
+        assertEquals(1, coordinator.getSupersededCount());
+        assertEquals(1, coordinator.getPendingCount());
+
+        final WorkQueueItem again = claim("other");
+        assertEquals(item.getWorkId(), again.getWorkId());
+        assertEquals(409, sendResult("lost", item.getWorkId(), ExecutionOutcome.SUCCESS, true), "late result of lost worker is refused");
+        assertEquals(204, sendResult("other", again.getWorkId(), ExecutionOutcome.SUCCESS, true));
+        coordinator.processResults(listeners);
+
+        assertEquals(1, finishedTestRuns.size(), "attempt of lost worker must not be reported");
+        assertEquals(ExecutionOutcome.SUCCESS, finishedTestRuns.get(0).getExecutionOutcome());
+        assertTrue(coordinator.isFinished());
+    }
+
+    @Test
+    void coordinatorFailsWhenNoWorkerRegisters() throws Exception {
+        startCoordinator(100);
+        coordinator.processResults(listeners);
+        Thread.sleep(200);
+        assertThrows(RuntimeException.class, () -> coordinator.processResults(listeners));
+    }
+
+    private static class ClaimRequest {
+        public final String workerId;
+        public final String deviceName;
+
+        private ClaimRequest(String workerId, String deviceName) {
+            this.workerId = workerId;
+            this.deviceName = deviceName;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.jamosolutions.automator.reporters;
+
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CsvReportMergerTest {
+    private static final String HEADER = "device;testCase;result;currentTimeMillis;getRequestStartTime;getStartTimeMillis;getExecutionId;getErrorsWhileGettingReport;getBuildNumber;getCreationDate;getEndDate;willBeRetried";
+
+    @TempDir
+    File directory;
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    private static String line(String device, String testCase, String result, long finishedMillis, boolean willBeRetried) {
+        return device + ";" + testCase + ";" + result + ";" + finishedMillis + ";" + (finishedMillis - 10) + ";;e" + finishedMillis + ";0;;;;" + willBeRetried;
+    }
+
+    private File write(String name, String... lines) throws IOException {
+        final File file = new File(directory, name);
+        final StringBuilder content = new StringBuilder(HEADER).append('\n');
+        for (String line : lines) {
+            content.append(line).append('\n');
+        }
+        Files.write(file.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private List<File> inputs() throws IOException {
+        return Arrays.asList(
+                write("shard1.csv",
+                        line("d1", "t1", "failure", 100, true),
+                        line("d1", "t2", "skipped", 200, false),
+                        line("d1", "t1", "success", 300, false)),
+                write("shard2.csv",
+                        line("d1", "t2", "success", 150, false),
+                        line("d2", "t1", "failure", 250, false),
+                        line("d1", "t1", "failure", 350, true)));
+    }
+
+    private List<String> read(File file) throws IOException {
+        return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void finalExecutedAttemptOfEachTestCaseIsKept() throws IOException {
+        final File output = new File(directory, "merged.csv");
+        final int merged = new CsvReportMerger(new SystemStreamLog(), executorService, false).merge(inputs(), output);
+
+        assertEquals(3, merged);
+        assertEquals(Arrays.asList(HEADER,
+                line("d1", "t2", "success", 150, false),
+                line("d2", "t1", "failure", 250, false),
+                line("d1", "t1", "success", 300, false)), read(output));
+    }
+
+    @Test
+    void allAttemptsAreMergedByTimeOfFinish() throws IOException {
+        final File output = new File(directory, "merged.csv");
+        final int merged = new CsvReportMerger(new SystemStreamLog(), executorService, true).merge(inputs(), output);
+
+        assertEquals(6, merged);
+        assertEquals(Arrays.asList(HEADER,
+                line("d1", "t1", "failure", 100, true),
+                line("d1", "t2", "success", 150, false),
+                line("d1", "t2", "skipped", 200, false),
+                line("d2", "t1", "failure", 250, false),
+                line("d1", "t1", "success", 300, false),
+                line("d1", "t1", "failure", 350, true)), read(output));
+    }
+}
@@ -0,0 +1,49 @@
+package com.jamosolutions.automator.simulation;
+
+import com.jamosolutions.automator.help.ExecutionOutcome;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SuiteSimulatorTest {
+    @TempDir
+    File directory;
+
+    private SuiteSimulator createSimulator() throws IOException {
+        // test fails (1 minute), its retest passes (1 minute)
+        final File file = new File(directory, "testRunsRaw.csv");
+        Files.write(file.toPath(), ("device;testCase;result;currentTimeMillis;getRequestStartTime;getStartTimeMillis\n" +
+                "device1;test1;failure;60000;0;0\n" +
+                "device1;test1;success;120000;60000;60000\n").getBytes(StandardCharsets.UTF_8));
+        return new SuiteSimulator(new SystemStreamLog(), RecordedRunLog.load(file), Collections.emptyMap());
+    }
+
+    private static SimulationScenario scenario(Map<ExecutionOutcome, Long> retryDelaysMs) {
+        return new SimulationScenario("FIFO", 0, 5000, 0, 1, false, retryDelaysMs);
+    }
+
+    @Test
+    void retestWaitsForRetryDelayOfScenario() throws IOException {
+        final SuiteSimulator suiteSimulator = createSimulator();
+        final SimulationResult immediate = suiteSimulator.simulate(scenario(Collections.emptyMap()));
+        final Map<ExecutionOutcome, Long> retryDelays = new EnumMap<>(ExecutionOutcome.class);
+        retryDelays.put(ExecutionOutcome.FAILURE, 10 * 60 * 1000L);
+        final SimulationResult delayed = suiteSimulator.simulate(scenario(retryDelays));
+
+        assertEquals(2, immediate.getTestRunsCount());
+        assertEquals(2, delayed.getTestRunsCount());
+        assertTrue(delayed.getMakespanMs() >= immediate.getMakespanMs() + 10 * 60 * 1000L,
+                "makespan " + delayed.getMakespanMs() + " has to include retry delay");
+    }
+}